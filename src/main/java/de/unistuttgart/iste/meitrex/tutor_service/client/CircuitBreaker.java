@@ -0,0 +1,120 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Simple circuit breaker for calls to other services.
+ * After a number of consecutive failures the circuit opens and calls fail immediately, so that a struggling
+ * service is not flooded with further requests. After the open duration a single trial call is let through;
+ * if it succeeds the circuit closes again, otherwise it stays open for another open duration.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean trialCallRunning;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, Clock clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Protects the given call. If the circuit is open, the returned mono fails with a
+     * {@link CircuitBreakerOpenException} without subscribing to the call.
+     *
+     * @param call the call to protect
+     * @param <T>  the result type of the call
+     * @return the protected call
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(new CircuitBreakerOpenException(name));
+            }
+            return call
+                    .doOnSuccess(result -> onSuccess())
+                    .doOnError(error -> onFailure())
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialCallRunning) {
+                    yield false;
+                }
+                trialCallRunning = true;
+                yield true;
+            }
+        };
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuit breaker {} closed again", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialCallRunning = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Circuit breaker {} opened after {} consecutive failures", name, consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+        trialCallRunning = false;
+    }
+
+    private synchronized void onCancel() {
+        trialCallRunning = false;
+    }
+
+    /**
+     * Thrown instead of performing a call while the circuit is open.
+     */
+    public static class CircuitBreakerOpenException extends RuntimeException {
+        public CircuitBreakerOpenException(String name) {
+            super("Circuit breaker " + name + " is open, call not permitted");
+        }
+    }
+}
@@ -3,22 +3,47 @@ package de.unistuttgart.iste.meitrex.tutor_service.client;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.SemanticSearchResult;
 import org.springframework.graphql.client.ClientGraphQlResponse;
 import org.springframework.graphql.client.GraphQlClient;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.SynchronousSink;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
 public class DocProcAIServiceClient {
 
     private static final long RETRY_COUNT = 3;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_MIN_BACKOFF = Duration.ofMillis(200);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(2);
+    private static final double BACKOFF_JITTER = 0.5;
+
     private final GraphQlClient graphQlClient;
+    private final Duration timeout;
+    private final long maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final CircuitBreaker circuitBreaker;
 
     public DocProcAIServiceClient(GraphQlClient graphQlClient) {
+        this(graphQlClient, DEFAULT_TIMEOUT, RETRY_COUNT, DEFAULT_MIN_BACKOFF, DEFAULT_MAX_BACKOFF,
+                new CircuitBreaker("docprocai", 5, Duration.ofSeconds(30)));
+    }
+
+    public DocProcAIServiceClient(GraphQlClient graphQlClient, Duration timeout, long maxRetries,
+                                  Duration minBackoff, Duration maxBackoff, CircuitBreaker circuitBreaker) {
         this.graphQlClient = graphQlClient;
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
      * Performs a semantic search for the given query text within the specified course content.
+     * Blocks until the result is available, prefer {@link #semanticSearchAsync(String, List)} in reactive code.
      *
      * @param queryText the user query to search for
      * @param contentIdsOfCourse the list of content IDs belonging to the course
@@ -26,6 +51,24 @@ public class DocProcAIServiceClient {
      * @throws RuntimeException if the GraphQL request fails or returns errors
      */
     public List<SemanticSearchResult> semanticSearch(String queryText, List<UUID> contentIdsOfCourse) {
+        try {
+            return semanticSearchAsync(queryText, contentIdsOfCourse).block();
+        } catch (RuntimeException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Performs a semantic search for the given query text within the specified course content without blocking.
+     * Each attempt is limited by a timeout, failed attempts are retried with jittered exponential backoff and
+     * the whole call is protected by a circuit breaker.
+     *
+     * @param queryText the user query to search for
+     * @param contentIdsOfCourse the list of content IDs belonging to the course
+     * @return a mono emitting the semantic search results with scores and segment details,
+     *         or failing if the GraphQL request fails, returns errors or the circuit breaker is open
+     */
+    public Mono<List<SemanticSearchResult>> semanticSearchAsync(String queryText, List<UUID> contentIdsOfCourse) {
 
         final String semanticSearchQuery = """
             query ($queryText: String!, $contentWhitelist: [UUID!]!) {
@@ -49,29 +92,29 @@ public class DocProcAIServiceClient {
             }
             """;
 
-        try {
-            return graphQlClient.document(semanticSearchQuery)
-                    .variable("queryText", queryText)
-                    .variable("contentWhitelist", contentIdsOfCourse)
-                    .execute()
-                    .handle((ClientGraphQlResponse response, SynchronousSink<List<SemanticSearchResult>> sink) -> {
-                        if (response.isValid()) {
-                            // extract only the nested object from { semanticSearch { score } }
-                            List<SemanticSearchResult> results = response
-                                    .field("_internal_noauth_semanticSearch")
-                                    .toEntityList(SemanticSearchResult.class);
-                            sink.next(results);
-                            sink.complete();
-                        } else {
-                            sink.error(new RuntimeException("GraphQL errors: " + response.getErrors()));
-                        }
-                    })
-                    .retry(RETRY_COUNT)
-                    .block();
-        } catch (RuntimeException e) {
-            throw new RuntimeException(e);
-        }
+        Mono<List<SemanticSearchResult>> search = graphQlClient.document(semanticSearchQuery)
+                .variable("queryText", queryText)
+                .variable("contentWhitelist", contentIdsOfCourse)
+                .execute()
+                .handle((ClientGraphQlResponse response, SynchronousSink<List<SemanticSearchResult>> sink) -> {
+                    if (response.isValid()) {
+                        // extract only the nested object from { semanticSearch { score } }
+                        List<SemanticSearchResult> results = response
+                                .field("_internal_noauth_semanticSearch")
+                                .toEntityList(SemanticSearchResult.class);
+                        sink.next(results);
+                        sink.complete();
+                    } else {
+                        sink.error(new RuntimeException("GraphQL errors: " + response.getErrors()));
+                    }
+                })
+                .timeout(timeout)
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(BACKOFF_JITTER)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
 
+        return circuitBreaker.protect(search);
     }
 
 }
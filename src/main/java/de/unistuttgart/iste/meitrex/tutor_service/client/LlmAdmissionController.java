@@ -0,0 +1,387 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides when a request may be sent to the LLM server.
+ * <ul>
+ *     <li>At most a configured number of requests run concurrently. Without a limit, many concurrent (virtual)
+ *     threads would all send their requests to the model server at once, which only increases the latency of
+ *     every single request.</li>
+ *     <li>Each user and each course has a token bucket, so a single user or course cannot monopolize the model
+ *     server. Interactive requests exceeding the rate are rejected, background requests are delayed. The
+ *     buckets count single LLM calls, not user actions: answering a question takes up to three calls (question
+ *     categorization, answer and for follow-up questions an additional categorization), a hint two. Requests which
+ *     are not admitted in the end do not count.</li>
+ *     <li>Waiting requests are served by weighted fair queueing between interactive and background requests,
+ *     so a burst of background work does not starve users waiting for an answer, but still makes progress.</li>
+ * </ul>
+ * Requests which do not get a slot within the acquire timeout fail.
+ */
+@Slf4j
+public class LlmAdmissionController {
+
+    private static final int MAX_TRACKED_BUCKETS = 10_000;
+
+    private final int maxConcurrentRequests;
+    private final Duration acquireTimeout;
+    private final Map<LlmRequestContext.Priority, Integer> weights;
+    private final RateLimit userRateLimit;
+    private final RateLimit courseRateLimit;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition slotGranted = lock.newCondition();
+    private final Map<LlmRequestContext.Priority, Deque<Waiter>> queues =
+            new EnumMap<>(LlmRequestContext.Priority.class);
+    /**
+     * Virtual time of each priority class used for weighted fair queueing. Each dispatch advances the virtual time
+     * of the class by the inverse of its weight; the waiting class with the smallest virtual time is served next.
+     */
+    private final Map<LlmRequestContext.Priority, Double> virtualTimes =
+            new EnumMap<>(LlmRequestContext.Priority.class);
+    private double lastDispatchedVirtualTime;
+    private int activeRequests;
+
+    private final ConcurrentHashMap<UUID, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, TokenBucket> courseBuckets = new ConcurrentHashMap<>();
+
+    private final Map<LlmRequestContext.Priority, Timer> waitTimers = new EnumMap<>(LlmRequestContext.Priority.class);
+    private final MeterRegistry meterRegistry;
+
+    public LlmAdmissionController(int maxConcurrentRequests, Duration acquireTimeout,
+                                  Map<LlmRequestContext.Priority, Integer> weights,
+                                  RateLimit userRateLimit, RateLimit courseRateLimit,
+                                  MeterRegistry meterRegistry) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.acquireTimeout = acquireTimeout;
+        this.weights = weights;
+        this.userRateLimit = userRateLimit;
+        this.courseRateLimit = courseRateLimit;
+        this.meterRegistry = meterRegistry;
+
+        for (LlmRequestContext.Priority priority : LlmRequestContext.Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            virtualTimes.put(priority, 0.0);
+            String tag = priority.name().toLowerCase();
+            Gauge.builder("tutor.llm.queue.depth", this, controller -> controller.getQueuedRequests(priority))
+                    .description("Number of requests waiting for a free LLM slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("tutor.llm.admission.wait")
+                    .description("Time requests waited for a free LLM slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("tutor.llm.active.requests", this, LlmAdmissionController::getActiveRequests)
+                .description("Number of running LLM requests")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until the request may be sent to the LLM. The returned permit must be closed once the request finished.
+     *
+     * @param context on whose behalf the request is made
+     * @return the acquired permit
+     * @throws LlmRateLimitExceededException if an interactive request exceeds the rate limit of its user or course
+     * @throws LlmCapacityExceededException if no slot became free within the acquire timeout
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Permit acquire(LlmRequestContext context) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + acquireTimeout.toNanos();
+
+        TokenBucket userBucket = applyRateLimit(context, context.getUserId(), userBuckets, userRateLimit, "user",
+                deadline);
+        TokenBucket courseBucket = null;
+        boolean admitted = false;
+        try {
+            courseBucket = applyRateLimit(context, context.getCourseId(), courseBuckets, courseRateLimit, "course",
+                    deadline);
+            awaitSlot(context.getPriority(), deadline);
+            admitted = true;
+        } finally {
+            if (!admitted) {
+                // the request is not sent, so it must not count against the rate limits
+                refund(userBucket);
+                refund(courseBucket);
+            }
+        }
+
+        waitTimers.get(context.getPriority()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit();
+    }
+
+    /**
+     * @return the number of requests which are currently running
+     */
+    public int getActiveRequests() {
+        lock.lock();
+        try {
+            return activeRequests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority the priority class
+     * @return the number of requests of the given class waiting for a free slot
+     */
+    public int getQueuedRequests(LlmRequestContext.Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the request and waits until it was granted a slot.
+     */
+    private void awaitSlot(LlmRequestContext.Priority priority, long deadline) throws InterruptedException {
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter();
+            Deque<Waiter> queue = queues.get(priority);
+            if (queue.isEmpty()) {
+                // a class which was idle must not be able to catch up on the slots it did not use
+                virtualTimes.put(priority, Math.max(virtualTimes.get(priority), lastDispatchedVirtualTime));
+            }
+            queue.addLast(waiter);
+            dispatch();
+
+            while (!waiter.granted) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    queue.remove(waiter);
+                    reject("timeout");
+                    log.warn("No free LLM slot within {} for {} request, {} requests are running",
+                            acquireTimeout, priority, activeRequests);
+                    throw new LlmCapacityExceededException(acquireTimeout);
+                }
+                try {
+                    slotGranted.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        releaseSlot();
+                    } else {
+                        queue.remove(waiter);
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of the given user or course, waiting for it if the request is background work.
+     *
+     * @return the bucket the token was taken from, or null if the request is not rate limited
+     */
+    private TokenBucket applyRateLimit(LlmRequestContext context, UUID key,
+                                       ConcurrentHashMap<UUID, TokenBucket> buckets, RateLimit rateLimit,
+                                       String scope, long deadline) throws InterruptedException {
+        if (key == null || rateLimit == null) {
+            return null;
+        }
+        if (buckets.size() > MAX_TRACKED_BUCKETS) {
+            // full buckets behave exactly like new ones, so they can be dropped
+            buckets.values().removeIf(TokenBucket::isFull);
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(key, id -> new TokenBucket(rateLimit));
+
+        if (context.getPriority() == LlmRequestContext.Priority.INTERACTIVE) {
+            if (!bucket.tryConsume()) {
+                reject(scope + "_rate");
+                throw new LlmRateLimitExceededException(scope);
+            }
+            return bucket;
+        }
+
+        long waitNanos = bucket.reserve();
+        if (waitNanos > deadline - System.nanoTime()) {
+            bucket.refund();
+            reject(scope + "_rate");
+            throw new LlmRateLimitExceededException(scope);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                bucket.refund();
+                throw e;
+            }
+        }
+        return bucket;
+    }
+
+    private static void refund(TokenBucket bucket) {
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    private void reject(String reason) {
+        Counter.builder("tutor.llm.admission.rejected")
+                .description("Number of LLM requests which were not admitted")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Grants free slots to the waiting requests. Must be called while holding the lock.
+     */
+    private void dispatch() {
+        boolean granted = false;
+        while (activeRequests < maxConcurrentRequests) {
+            LlmRequestContext.Priority next = null;
+            for (LlmRequestContext.Priority priority : LlmRequestContext.Priority.values()) {
+                if (!queues.get(priority).isEmpty()
+                        && (next == null || virtualTimes.get(priority) < virtualTimes.get(next))) {
+                    next = priority;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Waiter waiter = queues.get(next).pollFirst();
+            lastDispatchedVirtualTime = virtualTimes.get(next);
+            virtualTimes.put(next, lastDispatchedVirtualTime + 1.0 / weights.getOrDefault(next, 1));
+            waiter.granted = true;
+            activeRequests++;
+            granted = true;
+        }
+        if (granted) {
+            slotGranted.signalAll();
+        }
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            activeRequests--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rate limit of a token bucket.
+     *
+     * @param capacity        the maximum number of requests in a burst
+     * @param refillPerMinute the number of requests per minute in the long run
+     */
+    public record RateLimit(int capacity, double refillPerMinute) {
+    }
+
+    private static class Waiter {
+        private boolean granted;
+    }
+
+    private static class TokenBucket {
+
+        private final RateLimit rateLimit;
+        private final double nanosPerToken;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(RateLimit rateLimit) {
+            this.rateLimit = rateLimit;
+            this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / rateLimit.refillPerMinute();
+            this.tokens = rateLimit.capacity();
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume() {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        /**
+         * Takes a token even if none is available and returns how long the caller has to wait until the token
+         * would have been available.
+         */
+        synchronized long reserve() {
+            refill();
+            tokens--;
+            return tokens >= 0 ? 0 : (long) (-tokens * nanosPerToken);
+        }
+
+        /**
+         * Returns a token which was taken for a request that was not sent after all.
+         */
+        synchronized void refund() {
+            refill();
+            tokens = Math.min(rateLimit.capacity(), tokens + 1);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= rateLimit.capacity();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(rateLimit.capacity(), tokens + (now - lastRefill) / nanosPerToken);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * A slot for a single LLM request. Closing it more than once has no effect.
+     */
+    public class Permit implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * Thrown if no slot for an LLM request became free in time.
+     */
+    public static class LlmCapacityExceededException extends RuntimeException {
+        public LlmCapacityExceededException(Duration acquireTimeout) {
+            super("The LLM server is busy, no request slot became free within " + acquireTimeout);
+        }
+    }
+
+    /**
+     * Thrown if a request exceeds the rate limit of its user or course.
+     */
+    public static class LlmRateLimitExceededException extends RuntimeException {
+        public LlmRateLimitExceededException(String scope) {
+            super("Too many requests to the LLM for this " + scope + ", please try again later");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import lombok.Value;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Describes on whose behalf a request to the LLM is made. Used by the {@link LlmAdmissionController} to apply
+ * per-user and per-course rate limits and to prefer interactive requests over background work.
+ * <p>
+ * The OllamaClient from the common library does not accept additional arguments, so the context of blocking
+ * requests is bound to the current thread using {@link #callWith(LlmRequestContext, Supplier)}.
+ */
+@Value
+public class LlmRequestContext {
+
+    public enum Priority {
+        /**
+         * A user is waiting for the answer, e.g. a question to the tutor or a hint.
+         */
+        INTERACTIVE,
+        /**
+         * Work triggered by events, e.g. proactive feedback.
+         */
+        BACKGROUND
+    }
+
+    private static final ThreadLocal<LlmRequestContext> CURRENT = new ThreadLocal<>();
+    private static final LlmRequestContext UNKNOWN = new LlmRequestContext(Priority.INTERACTIVE, null, null);
+
+    Priority priority;
+    /**
+     * The user the request is made for, null if unknown.
+     */
+    UUID userId;
+    /**
+     * The course the request is made for, null if unknown.
+     */
+    UUID courseId;
+
+    public static LlmRequestContext interactive(UUID userId, UUID courseId) {
+        return new LlmRequestContext(Priority.INTERACTIVE, userId, courseId);
+    }
+
+    public static LlmRequestContext background(UUID userId, UUID courseId) {
+        return new LlmRequestContext(Priority.BACKGROUND, userId, courseId);
+    }
+
+    /**
+     * @return the context bound to the current thread, or an interactive context without user and course
+     */
+    public static LlmRequestContext current() {
+        LlmRequestContext context = CURRENT.get();
+        return context != null ? context : UNKNOWN;
+    }
+
+    /**
+     * Binds the given context to the current thread while running the given action.
+     *
+     * @param context the context of all LLM requests made by the action
+     * @param action  the action to run
+     * @param <T>     the result type of the action
+     * @return the result of the action
+     */
+    public static <T> T callWith(LlmRequestContext context, Supplier<T> action) {
+        LlmRequestContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
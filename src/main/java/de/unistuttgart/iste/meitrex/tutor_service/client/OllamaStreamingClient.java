@@ -0,0 +1,83 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Client for streaming completions from the OpenAI compatible chat completions endpoint of the LLM server.
+ * In contrast to the blocking OllamaClient, the generated text is emitted chunk by chunk as soon as it arrives.
+ */
+public class OllamaStreamingClient {
+
+    private static final String DONE_MARKER = "[DONE]";
+
+    private final WebClient webClient;
+    private final String endpoint;
+    private final String model;
+    private final ObjectMapper objectMapper;
+    private final LlmAdmissionController admissionController;
+
+    public OllamaStreamingClient(WebClient webClient, String endpoint, String model, ObjectMapper objectMapper,
+                                 LlmAdmissionController admissionController) {
+        this.webClient = webClient;
+        this.endpoint = endpoint;
+        this.model = model;
+        this.objectMapper = objectMapper;
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Sends the given prompt as a single user message and streams the generated content. The completion is
+     * requested in JSON mode, as all prompts sent by this client ask for a JSON object as response.
+     * The stream occupies a slot of the {@link LlmAdmissionController} until it terminates or is cancelled.
+     * Waiting for admission blocks the subscribing thread, so subscribe on a scheduler which allows blocking.
+     *
+     * @param prompt  the fully filled prompt
+     * @param context on whose behalf the completion is requested
+     * @return a flux emitting the content deltas of the completion in order
+     */
+    public Flux<String> streamCompletion(String prompt, LlmRequestContext context) {
+        Map<String, Object> body = Map.of(
+                "model", model,
+                "stream", true,
+                "response_format", Map.of("type", "json_object"),
+                "messages", List.of(Map.of("role", "user", "content", prompt))
+        );
+
+        Flux<String> completion = webClient.post()
+                .uri(endpoint)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .map(ServerSentEvent::data)
+                .filter(Objects::nonNull)
+                .takeWhile(data -> !DONE_MARKER.equals(data.trim()))
+                .map(this::extractContent)
+                .filter(content -> !content.isEmpty());
+
+        return Flux.using(() -> admissionController.acquire(context), permit -> completion,
+                LlmAdmissionController.Permit::close);
+    }
+
+    private String extractContent(String data) {
+        try {
+            return objectMapper.readTree(data)
+                    .path("choices").path(0)
+                    .path("delta").path("content")
+                    .asText("");
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid completion chunk: " + data, e);
+        }
+    }
+}
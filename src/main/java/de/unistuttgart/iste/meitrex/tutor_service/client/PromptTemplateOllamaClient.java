@@ -0,0 +1,37 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.common.config.OllamaConfig;
+import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
+import de.unistuttgart.iste.meitrex.common.service.JsonSchemaGeneratorService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.PromptTemplateEngine;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+
+/**
+ * OllamaClient which takes its prompt templates from the {@link PromptTemplateEngine} instead of reading them from
+ * the classpath and filling them by text replacement on every query. As all queries started by name look up and
+ * fill their template through these methods, they use the templates parsed at startup as well.
+ */
+public class PromptTemplateOllamaClient extends OllamaClient {
+
+    private final PromptTemplateEngine promptTemplateEngine;
+
+    public PromptTemplateOllamaClient(OllamaConfig config, JsonSchemaGeneratorService schemaService,
+                                      ObjectMapper objectMapper, HttpClient httpClient,
+                                      PromptTemplateEngine promptTemplateEngine) {
+        super(config, schemaService, objectMapper, httpClient);
+        this.promptTemplateEngine = promptTemplateEngine;
+    }
+
+    @Override
+    public String getTemplate(String fileName) {
+        return promptTemplateEngine.getTemplate(fileName);
+    }
+
+    @Override
+    public String fillTemplate(String promptTemplate, Map<String, String> args) {
+        return promptTemplateEngine.fill(promptTemplate, args);
+    }
+}
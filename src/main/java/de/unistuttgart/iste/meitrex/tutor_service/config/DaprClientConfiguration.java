@@ -0,0 +1,21 @@
+package de.unistuttgart.iste.meitrex.tutor_service.config;
+
+import io.dapr.client.DaprClient;
+import io.dapr.client.DaprClientBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides a Dapr client for publishing the events of this service which are not covered by the common
+ * topic publisher.
+ */
+@Configuration
+public class DaprClientConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public DaprClient daprClient() {
+        return new DaprClientBuilder().build();
+    }
+}
@@ -1,5 +1,6 @@
 package de.unistuttgart.iste.meitrex.tutor_service.config;
 
+import de.unistuttgart.iste.meitrex.tutor_service.client.CircuitBreaker;
 import de.unistuttgart.iste.meitrex.tutor_service.client.DocProcAIServiceClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -8,17 +9,40 @@ import org.springframework.graphql.client.GraphQlClient;
 import org.springframework.graphql.client.HttpGraphQlClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
+
 @Configuration
 public class DocProcAIServiceConfig {
 
     @Value("${docproc.url}")
     private String docProcAIServiceUrl;
 
+    @Value("${docproc.client.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${docproc.client.max-retries:3}")
+    private long maxRetries;
+
+    @Value("${docproc.client.min-backoff-ms:200}")
+    private long minBackoffMs;
+
+    @Value("${docproc.client.max-backoff-ms:2000}")
+    private long maxBackoffMs;
+
+    @Value("${docproc.client.circuit-breaker.failure-threshold:5}")
+    private int circuitBreakerFailureThreshold;
+
+    @Value("${docproc.client.circuit-breaker.open-duration-seconds:30}")
+    private long circuitBreakerOpenDurationSeconds;
+
     @Bean
     public DocProcAIServiceClient DocProcAIServiceClient(){
         final WebClient webClient = WebClient.builder().baseUrl(docProcAIServiceUrl).build();
         final GraphQlClient graphQlClient = HttpGraphQlClient.builder(webClient).build();
-        return new DocProcAIServiceClient(graphQlClient);
+        final CircuitBreaker circuitBreaker = new CircuitBreaker("docprocai",
+                circuitBreakerFailureThreshold, Duration.ofSeconds(circuitBreakerOpenDurationSeconds));
+        return new DocProcAIServiceClient(graphQlClient, Duration.ofMillis(timeoutMs), maxRetries,
+                Duration.ofMillis(minBackoffMs), Duration.ofMillis(maxBackoffMs), circuitBreaker);
 
     }
 
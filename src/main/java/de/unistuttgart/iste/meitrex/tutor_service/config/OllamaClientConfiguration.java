@@ -3,26 +3,84 @@ package de.unistuttgart.iste.meitrex.tutor_service.config;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.common.config.OllamaConfig;
 import de.unistuttgart.iste.meitrex.common.service.JsonSchemaGeneratorService;
+import de.unistuttgart.iste.meitrex.tutor_service.client.AdmissionControlledHttpClient;
+import de.unistuttgart.iste.meitrex.tutor_service.client.LlmAdmissionController;
+import de.unistuttgart.iste.meitrex.tutor_service.client.LlmRequestContext;
+import de.unistuttgart.iste.meitrex.tutor_service.client.OllamaStreamingClient;
+import de.unistuttgart.iste.meitrex.tutor_service.client.PromptTemplateOllamaClient;
+import de.unistuttgart.iste.meitrex.tutor_service.service.PromptTemplateEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class OllamaClientConfiguration {
 
+    @Value("${ollama.url}")
+    private String ollamaUrl;
+
+    @Value("${ollama.endpoint}")
+    private String ollamaEndpoint;
+
+    @Value("${ollama.model}")
+    private String ollamaModel;
+
+    @Value("${ollama.apiKey:}")
+    private String ollamaApiKey;
+
+    @Value("${ollama.max-concurrent-requests:16}")
+    private int maxConcurrentRequests;
+
+    @Value("${ollama.acquire-timeout-seconds:60}")
+    private long acquireTimeoutSeconds;
+
+    @Value("${ollama.admission.weight.interactive:4}")
+    private int interactiveWeight;
+
+    @Value("${ollama.admission.weight.background:1}")
+    private int backgroundWeight;
+
+    @Value("${ollama.admission.user.burst:30}")
+    private int userBurst;
+
+    @Value("${ollama.admission.user.requests-per-minute:30}")
+    private double userRequestsPerMinute;
+
+    @Value("${ollama.admission.course.burst:180}")
+    private int courseBurst;
+
+    @Value("${ollama.admission.course.requests-per-minute:360}")
+    private double courseRequestsPerMinute;
+
     @Bean
     public OllamaConfig ollamaConfig() {
         return new OllamaConfig();
     }
 
     @Bean
-    public HttpClient ollamaHttpClient() {
-        return HttpClient.newBuilder()
+    public LlmAdmissionController llmAdmissionController(MeterRegistry meterRegistry) {
+        return new LlmAdmissionController(maxConcurrentRequests, Duration.ofSeconds(acquireTimeoutSeconds),
+                Map.of(LlmRequestContext.Priority.INTERACTIVE, interactiveWeight,
+                        LlmRequestContext.Priority.BACKGROUND, backgroundWeight),
+                new LlmAdmissionController.RateLimit(userBurst, userRequestsPerMinute),
+                new LlmAdmissionController.RateLimit(courseBurst, courseRequestsPerMinute),
+                meterRegistry);
+    }
+
+    @Bean
+    public HttpClient ollamaHttpClient(LlmAdmissionController llmAdmissionController) {
+        HttpClient httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(30))
                 .build();
+        return new AdmissionControlledHttpClient(httpClient, llmAdmissionController);
     }
 
     @Bean
@@ -34,7 +92,20 @@ public class OllamaClientConfiguration {
     public OllamaClient ollamaClient(OllamaConfig config,
                                      JsonSchemaGeneratorService schemaService,
                                      ObjectMapper objectMapper,
-                                     HttpClient ollamaHttpClient) {
-        return new OllamaClient(config, schemaService, objectMapper, ollamaHttpClient);
+                                     HttpClient ollamaHttpClient,
+                                     PromptTemplateEngine promptTemplateEngine) {
+        return new PromptTemplateOllamaClient(config, schemaService, objectMapper, ollamaHttpClient,
+                promptTemplateEngine);
+    }
+
+    @Bean
+    public OllamaStreamingClient ollamaStreamingClient(ObjectMapper objectMapper,
+                                                       LlmAdmissionController llmAdmissionController) {
+        WebClient.Builder webClientBuilder = WebClient.builder().baseUrl(ollamaUrl);
+        if (!ollamaApiKey.isBlank()) {
+            webClientBuilder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + ollamaApiKey);
+        }
+        return new OllamaStreamingClient(webClientBuilder.build(), ollamaEndpoint, ollamaModel, objectMapper,
+                llmAdmissionController);
     }
 }
@@ -0,0 +1,12 @@
+package de.unistuttgart.iste.meitrex.tutor_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the execution of scheduled background tasks, e.g. processing the proactive feedback queue.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -1,23 +1,33 @@
 package de.unistuttgart.iste.meitrex.tutor_service.controller;
 
+import de.unistuttgart.iste.meitrex.common.event.ContentChangeEvent;
 import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.common.event.StudentCodeSubmittedEvent;
 import de.unistuttgart.iste.meitrex.common.event.UserHexadPlayerTypeSetEvent;
 import de.unistuttgart.iste.meitrex.common.event.skilllevels.UserSkillLevelChangedEvent;
 import de.unistuttgart.iste.meitrex.tutor_service.config.StudentCodeSubmissionConfig;
-import de.unistuttgart.iste.meitrex.tutor_service.service.ProactiveFeedbackService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ContentChangeService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ConversationHistoryService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.EventDeduplicationService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ProactiveFeedbackJobService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.StudentCodeSubmissionService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.UserPlayerTypeService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.UserProfileCache;
 import de.unistuttgart.iste.meitrex.tutor_service.service.UserSkillLevelService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ContentsInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ConversationHistoryInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfileInvalidatedEvent;
 import io.dapr.Topic;
 import io.dapr.client.domain.CloudEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
@@ -33,9 +43,13 @@ public class SubscriptionController {
 
     private final UserPlayerTypeService userPlayerTypeService;
     private final UserSkillLevelService userSkillLevelService;
-    private final ProactiveFeedbackService proactiveFeedbackService;
+    private final ProactiveFeedbackJobService proactiveFeedbackJobService;
     private final StudentCodeSubmissionService studentCodeSubmissionService;
     private final StudentCodeSubmissionConfig studentCodeSubmissionConfig;
+    private final ContentChangeService contentChangeService;
+    private final EventDeduplicationService eventDeduplicationService;
+    private final UserProfileCache userProfileCache;
+    private final ConversationHistoryService conversationHistoryService;
 
     /**
      * Handles the user-hexad-player-type-set event.
@@ -49,7 +63,7 @@ public class SubscriptionController {
     @PostMapping(path = "/user-hexad-player-type-set-pubsub")
     public Mono<Void> onUserHexadPlayerTypeSetEvent(@RequestBody CloudEvent<UserHexadPlayerTypeSetEvent> cloudEvent,
                                                       @RequestHeader Map<String, String> headers) {
-        return Mono.fromRunnable(() -> {
+        return processOnce("user-hexad-player-type-set", cloudEvent, () -> {
             UserHexadPlayerTypeSetEvent event = cloudEvent.getData();
             
             log.info("Received UserHexadPlayerTypeSetEvent for user: {}, primaryType: {}", 
@@ -85,7 +99,7 @@ public class SubscriptionController {
     @PostMapping(path = "/user-skill-level-changed-pubsub")
     public Mono<Void> onUserSkillLevelChangedEvent(@RequestBody CloudEvent<UserSkillLevelChangedEvent> cloudEvent,
                                                      @RequestHeader Map<String, String> headers) {
-        return Mono.fromRunnable(() -> {
+        return processOnce("user-skill-level-changed", cloudEvent, () -> {
             UserSkillLevelChangedEvent event = cloudEvent.getData();
 
             userSkillLevelService.saveUserSkillLevel(
@@ -98,7 +112,9 @@ public class SubscriptionController {
 
     /**
      * Handles the content-progressed event.
-     * Generates proactive tutor feedback when a user completes an assignment.
+     * Enqueues the generation of proactive tutor feedback when a user completes an assignment.
+     * The feedback is generated asynchronously, so the event is acknowledged without waiting for the LLM.
+     * If the job cannot be stored, the event is not acknowledged and will be redelivered by Dapr.
      * Currently supports proactive feedback for assignments and quizzes.
      * 
      * @param cloudEvent the cloud event containing the content progressed data
@@ -109,7 +125,7 @@ public class SubscriptionController {
     @PostMapping(path = "/content-progressed-pubsub")
     public Mono<Void> onContentProgressedEvent(@RequestBody CloudEvent<ContentProgressedEvent> cloudEvent,
                                                  @RequestHeader Map<String, String> headers) {                         
-        return Mono.fromRunnable(() -> {
+        return processOnce("content-progressed", cloudEvent, () -> {
             ContentProgressedEvent event = cloudEvent.getData();
             
             if (event == null) {
@@ -124,13 +140,112 @@ public class SubscriptionController {
             
             if (event.getContentType() == ContentProgressedEvent.ContentType.ASSIGNMENT ||
                 event.getContentType() == ContentProgressedEvent.ContentType.QUIZ) {
-                try {
-                    proactiveFeedbackService.generateFeedback(event);
-                } catch (Exception e) {
-                    log.error("Failed to generate feedback for user {} on content {}: {}", 
-                            event.getUserId(), event.getContentId(), e.getMessage(), e);
-                }
+                proactiveFeedbackJobService.enqueue(event);
+            }
+        });
+    }
+
+    /**
+     * Handles the content-changed event.
+     * Records the change and invalidates the cached content IDs, hint contexts and hints of the courses containing
+     * the changed contents, so that semantic searches use the current contents of the course. Only one instance
+     * receives the event, it notifies the other instances via the broadcast pub/sub component.
+     *
+     * @param cloudEvent the cloud event containing the IDs of the changed contents
+     * @param headers request headers from Dapr
+     * @return Mono<Void> for reactive processing
+     */
+    @Topic(name = "content-changed", pubsubName = "meitrex")
+    @PostMapping(path = "/content-changed-pubsub")
+    public Mono<Void> onContentChangedEvent(@RequestBody CloudEvent<ContentChangeEvent> cloudEvent,
+                                            @RequestHeader Map<String, String> headers) {
+        return processOnce("content-changed", cloudEvent, () -> {
+            ContentChangeEvent event = cloudEvent.getData();
+
+            if (event == null || event.getContentIds() == null) {
+                log.warn("Received ContentChangeEvent with null data");
+                return;
             }
+
+            contentChangeService.onContentsChanged(event.getContentIds());
+        });
+    }
+
+    /**
+     * Handles the contents-invalidated event published by the instance which received a content-changed event.
+     * Drops the data cached for the courses containing the changed contents.
+     * Received via the broadcast pub/sub component, so every instance receives the event. Not deduplicated,
+     * as the deduplication store is shared by all instances and invalidating twice is harmless.
+     *
+     * @param cloudEvent the cloud event containing the IDs of the changed contents
+     * @param headers request headers from Dapr
+     * @return Mono<Void> for reactive processing
+     */
+    @Topic(name = ContentChangeService.INVALIDATION_TOPIC, pubsubName = UserProfileCache.BROADCAST_PUBSUB_NAME)
+    @PostMapping(path = "/contents-invalidated-pubsub")
+    public Mono<Void> onContentsInvalidatedEvent(@RequestBody CloudEvent<ContentsInvalidatedEvent> cloudEvent,
+                                                 @RequestHeader Map<String, String> headers) {
+        return Mono.fromRunnable(() -> {
+            ContentsInvalidatedEvent event = cloudEvent.getData();
+
+            if (event == null) {
+                log.warn("Received ContentsInvalidatedEvent with null data");
+                return;
+            }
+
+            contentChangeService.onInvalidationEvent(event);
+        });
+    }
+
+    /**
+     * Handles the user-profile-invalidated event published by other instances of this service.
+     * Drops the cached profile of the user, so that the changed profile is loaded on the next access.
+     * Received via the broadcast pub/sub component, so every instance receives the event. Not deduplicated,
+     * as the deduplication store is shared by all instances and dropping a profile twice is harmless.
+     *
+     * @param cloudEvent the cloud event containing the ID of the user whose profile changed
+     * @param headers request headers from Dapr
+     * @return Mono<Void> for reactive processing
+     */
+    @Topic(name = UserProfileCache.INVALIDATION_TOPIC, pubsubName = UserProfileCache.BROADCAST_PUBSUB_NAME)
+    @PostMapping(path = "/user-profile-invalidated-pubsub")
+    public Mono<Void> onUserProfileInvalidatedEvent(@RequestBody CloudEvent<UserProfileInvalidatedEvent> cloudEvent,
+                                                    @RequestHeader Map<String, String> headers) {
+        return Mono.fromRunnable(() -> {
+            UserProfileInvalidatedEvent event = cloudEvent.getData();
+
+            if (event == null) {
+                log.warn("Received UserProfileInvalidatedEvent with null data");
+                return;
+            }
+
+            userProfileCache.onInvalidationEvent(event);
+        });
+    }
+
+    /**
+     * Handles the conversation-history-invalidated event published by other instances of this service.
+     * Drops the in-memory window of recent exchanges of the user in the course, so that it is loaded on the next
+     * access. Received via the broadcast pub/sub component and not deduplicated, like the profile invalidations.
+     *
+     * @param cloudEvent the cloud event containing the user and course whose history changed
+     * @param headers request headers from Dapr
+     * @return Mono<Void> for reactive processing
+     */
+    @Topic(name = ConversationHistoryService.INVALIDATION_TOPIC, pubsubName = UserProfileCache.BROADCAST_PUBSUB_NAME)
+    @PostMapping(path = "/conversation-history-invalidated-pubsub")
+    public Mono<Void> onConversationHistoryInvalidatedEvent(
+            @RequestBody CloudEvent<ConversationHistoryInvalidatedEvent> cloudEvent,
+            @RequestHeader Map<String, String> headers) {
+        return Mono.fromRunnable(() -> {
+            ConversationHistoryInvalidatedEvent event = cloudEvent.getData();
+
+            if (event == null) {
+                log.warn("Received ConversationHistoryInvalidatedEvent with null data");
+                return;
+            }
+
+            conversationHistoryService.onInvalidationEvent(event);
         });
     }
 
@@ -138,6 +253,7 @@ public class SubscriptionController {
      * Handles the student-code-submitted event.
      * Saves the student's code submission when received.
      * Only keeps the latest submission per student per assignment.
+     * If the submission cannot be saved, the event is not acknowledged and will be redelivered by Dapr.
      * 
      * Currently, only .java files with valid content and filenames are stored.
      * 
@@ -149,7 +265,7 @@ public class SubscriptionController {
     @PostMapping(path = "/student-code-submitted-pubsub")
     public Mono<Void> onStudentCodeSubmittedEvent(@RequestBody CloudEvent<StudentCodeSubmittedEvent> cloudEvent,
                                                     @RequestHeader Map<String, String> headers) {
-        return Mono.fromRunnable(() -> {
+        return processOnce("student-code-submitted", cloudEvent, () -> {
             StudentCodeSubmittedEvent event = cloudEvent.getData();
             
             if (event == null) {
@@ -162,28 +278,55 @@ public class SubscriptionController {
                     event.getAssignmentId(),
                     event.getCommitSha());
             
-            try {
-                Map<String, String> filteredFiles = filterFiles(event.getFiles());
-                
-                log.info("Filtered {} files down to {} valid files for student {} on assignment {}", 
-                        event.getFiles() != null ? event.getFiles().size() : 0,
-                        filteredFiles.size(),
-                        event.getStudentId(),
-                        event.getAssignmentId());
-                
-                studentCodeSubmissionService.saveCodeSubmission(
-                        event.getStudentId(),
-                        event.getAssignmentId(),
-                        event.getCourseId(),
-                        event.getRepositoryUrl(),
-                        event.getCommitSha(),
-                        event.getCommitTimestamp(),
-                        filteredFiles,
-                        event.getBranch()
-                );
-            } catch (Exception e) {
-                log.error("Error processing StudentCodeSubmittedEvent for student {} on assignment {}: {}", 
-                        event.getStudentId(), event.getAssignmentId(), e.getMessage(), e);
+            Map<String, String> filteredFiles = filterFiles(event.getFiles());
+            
+            log.info("Filtered {} files down to {} valid files for student {} on assignment {}", 
+                    event.getFiles() != null ? event.getFiles().size() : 0,
+                    filteredFiles.size(),
+                    event.getStudentId(),
+                    event.getAssignmentId());
+            
+            studentCodeSubmissionService.saveCodeSubmission(
+                    event.getStudentId(),
+                    event.getAssignmentId(),
+                    event.getCourseId(),
+                    event.getRepositoryUrl(),
+                    event.getCommitSha(),
+                    event.getCommitTimestamp(),
+                    filteredFiles,
+                    event.getBranch()
+            );
+        });
+    }
+    
+    /**
+     * Processes an event unless it is a redelivery of an event which was already processed.
+     * The event is only recorded as processed once the handler succeeded. If processing fails, the delivery is
+     * forgotten, so that the event is processed again when Dapr redelivers it. A redelivery which arrives while the
+     * event is still being processed is rejected, so that Dapr delivers it again later instead of dropping it.
+     *
+     * @param topic the topic the event was published to
+     * @param cloudEvent the received cloud event
+     * @param handler processes the event
+     * @return Mono<Void> for reactive processing
+     */
+    private Mono<Void> processOnce(String topic, CloudEvent<?> cloudEvent, Runnable handler) {
+        return Mono.fromRunnable(() -> {
+            switch (eventDeduplicationService.startDelivery(topic, cloudEvent.getId())) {
+                case DUPLICATE -> {
+                    return;
+                }
+                case IN_PROGRESS -> throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Event " + cloudEvent.getId() + " on topic " + topic + " is still being processed");
+                case PROCESS -> {
+                    try {
+                        handler.run();
+                    } catch (RuntimeException e) {
+                        eventDeduplicationService.forgetDelivery(topic, cloudEvent.getId());
+                        throw e;
+                    }
+                    eventDeduplicationService.completeDelivery(topic, cloudEvent.getId());
+                }
             }
         });
     }
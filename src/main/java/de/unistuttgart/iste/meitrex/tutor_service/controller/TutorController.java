@@ -5,6 +5,7 @@ import de.unistuttgart.iste.meitrex.generated.dto.HintGenerationInput;
 import de.unistuttgart.iste.meitrex.generated.dto.HintResponse;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionStreamFrame;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.service.ProactiveFeedbackService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.HintService;
@@ -18,6 +19,8 @@ import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.UUID;
@@ -44,18 +47,60 @@ public class TutorController {
         return tutorService.handleUserQuestion(userInput, courseId, currentUser);
     }
 
+    /**
+     * GraphQL subscription streaming the answer to a message while it is generated.
+     *
+     * @param userInput the message of the user
+     * @param courseId the course the message relates to
+     * @param currentUser the currently logged-in user
+     * @return publisher emitting the frames of the answer
+     */
+    @SubscriptionMapping
+    public Publisher<LectureQuestionStreamFrame> sendMessageStream(
+            @Argument final String userInput,
+            @Argument final UUID courseId,
+            @ContextValue final LoggedInUser currentUser
+    ) {
+        if (userInput.isEmpty()){
+            return Flux.just(LectureQuestionStreamFrame.builder()
+                    .setToken("An empty message cannot be answered.")
+                    .setSources(List.of())
+                    .setDone(true)
+                    .build());
+        }
+
+        return tutorService.handleUserQuestionStream(userInput, courseId, currentUser);
+    }
+
     @QueryMapping
     public String _empty(){
         throw new UnsupportedOperationException("This service supports only mutations but needs a query.");
     }
 
     @MutationMapping
-    public HintResponse generateHint(
+    public Mono<HintResponse> generateHint(
             @Argument final HintGenerationInput questionInput,
             @Argument final UUID courseId,
             @ContextValue final LoggedInUser currentUser
     ){
-        return hintService.generateHintWithQuestion(questionInput, courseId, currentUser);
+        return hintService.generateHintWithQuestionAsync(questionInput, courseId, currentUser);
+    }
+
+    /**
+     * Prepares the retrieval context of hints to the questions of a quiz.
+     *
+     * @param questionInputs the questions of the quiz
+     * @param courseId the course the quiz belongs to
+     * @param currentUser the currently logged-in user, must be an administrator of the course
+     * @return the number of questions which were prepared
+     */
+    @MutationMapping
+    public Mono<Integer> prepareHintContexts(
+            @Argument final List<HintGenerationInput> questionInputs,
+            @Argument final UUID courseId,
+            @ContextValue final LoggedInUser currentUser
+    ) {
+        return hintService.prepareHintContexts(questionInputs, courseId, currentUser);
     }
 
     @QueryMapping
@@ -0,0 +1,40 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Entity representing the content of a submitted code file, addressed by the SHA-256 hash of the content.
+ * Identical files (e.g. unchanged files of later commits or template files shared by many students) are
+ * stored only once. Large contents are stored compressed.
+ */
+@Entity
+@Table(name = "code_file_blob")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeFileBlobEntity {
+
+    @Id
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "compressed", nullable = false)
+    private boolean compressed;
+
+    /**
+     * Size of the uncompressed content in bytes.
+     */
+    @Column(name = "size", nullable = false)
+    private int size;
+
+    @Column(name = "content", nullable = false)
+    @ToString.Exclude
+    private byte[] content;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
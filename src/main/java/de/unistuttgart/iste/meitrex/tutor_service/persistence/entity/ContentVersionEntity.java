@@ -0,0 +1,28 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Entity representing the time a content was last changed, recorded when a content-changed event is received.
+ * Data derived from the contents of a course (e.g. stored hint contexts) is only valid as long as the latest change
+ * of the contents it was derived from stays the same.
+ */
+@Entity
+@Table(name = "content_version")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentVersionEntity {
+
+    @Id
+    @Column(name = "content_id", nullable = false)
+    private UUID contentId;
+
+    @Column(name = "changed_at", nullable = false)
+    private OffsetDateTime changedAt;
+}
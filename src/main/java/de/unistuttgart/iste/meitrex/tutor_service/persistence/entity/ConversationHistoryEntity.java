@@ -15,7 +15,7 @@ import java.util.UUID;
     @Index(name = "idx_conversation_history_user_id", columnList = "user_id"),
     @Index(name = "idx_conversation_history_course_id", columnList = "course_id"),
     @Index(name = "idx_conversation_history_timestamp", columnList = "timestamp"),
-    @Index(name = "idx_conversation_history_user_course", columnList = "user_id,course_id")
+    @Index(name = "idx_conversation_history_user_course_timestamp", columnList = "user_id,course_id,timestamp DESC")
 })
 @Data
 @Builder
@@ -0,0 +1,44 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Entity representing the head of the conversation history ring of a user in a course, i.e. the sequence number
+ * of the latest exchange. Appending an exchange increments it and writes the slot of the new sequence number in
+ * a single statement; the row lock taken by the increment serializes concurrent appends to the same ring.
+ */
+@Entity
+@Table(name = "conversation_history_ring")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(ConversationHistoryRingEntity.ConversationHistoryRingId.class)
+public class ConversationHistoryRingEntity {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Id
+    @Column(name = "course_id", nullable = false)
+    private UUID courseId;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+
+    /**
+     * Composite primary key for ConversationHistoryRingEntity.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConversationHistoryRingId implements Serializable {
+        private UUID userId;
+        private UUID courseId;
+    }
+}
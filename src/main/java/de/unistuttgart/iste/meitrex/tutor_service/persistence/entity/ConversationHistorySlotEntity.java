@@ -0,0 +1,59 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Entity representing one slot of the fixed-size conversation history ring of a user in a course.
+ * The exchange with sequence number n is stored in slot n modulo the ring size, so appending an exchange
+ * overwrites the oldest one and the ring never grows.
+ */
+@Entity
+@Table(name = "conversation_history_slot")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(ConversationHistorySlotEntity.ConversationHistorySlotId.class)
+public class ConversationHistorySlotEntity {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Id
+    @Column(name = "course_id", nullable = false)
+    private UUID courseId;
+
+    @Id
+    @Column(name = "slot", nullable = false)
+    private Integer slot;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+
+    @Column(name = "user_message", nullable = false, columnDefinition = "TEXT")
+    private String userMessage;
+
+    @Column(name = "tutor_response", nullable = false, columnDefinition = "TEXT")
+    private String tutorResponse;
+
+    @Column(name = "timestamp", nullable = false)
+    private OffsetDateTime timestamp;
+
+    /**
+     * Composite primary key for ConversationHistorySlotEntity.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConversationHistorySlotId implements Serializable {
+        private UUID userId;
+        private UUID courseId;
+        private Integer slot;
+    }
+}
@@ -0,0 +1,38 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Entity representing a cached structured response of the LLM.
+ * The key is a hash of the prompt template, its version, the prompt arguments and the model, so the entry is only
+ * found again for exactly the same prompt sent to the same model.
+ */
+@Entity
+@Table(name = "llm_response_cache", indexes = {
+    @Index(name = "idx_llm_response_cache_created_at", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmResponseCacheEntity {
+
+    @Id
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey;
+
+    @Column(name = "template_name", nullable = false)
+    private String templateName;
+
+    /**
+     * The response serialized as JSON.
+     */
+    @Column(name = "response", nullable = false, columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
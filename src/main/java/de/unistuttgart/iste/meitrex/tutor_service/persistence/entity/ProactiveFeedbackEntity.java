@@ -11,7 +11,8 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "proactive_feedback", indexes = {
-    @Index(name = "idx_proactive_feedback_user_id", columnList = "user_id"),
+    @Index(name = "idx_proactive_feedback_user_created_at", columnList = "user_id,created_at DESC"),
+    @Index(name = "idx_proactive_feedback_created_at", columnList = "created_at"),
     @Index(name = "idx_proactive_feedback_assessment_id", columnList = "assessment_id"),
     @Index(name = "idx_proactive_feedback_user_assessment", columnList = "user_id,assessment_id")
 })
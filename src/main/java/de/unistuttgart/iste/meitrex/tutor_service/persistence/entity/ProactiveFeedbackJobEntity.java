@@ -0,0 +1,86 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Entity representing a pending proactive feedback generation.
+ * Jobs are enqueued when a content-progressed event is received and are processed asynchronously by workers.
+ * Successfully processed jobs are deleted, jobs which failed too often remain as dead letters.
+ */
+@Entity
+@Table(name = "proactive_feedback_job", indexes = {
+    @Index(name = "idx_proactive_feedback_job_status_next_attempt", columnList = "status,next_attempt_at"),
+    @Index(name = "idx_proactive_feedback_job_claim_id", columnList = "claim_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProactiveFeedbackJobEntity {
+
+    public enum Status {
+        /**
+         * Waiting to be processed, possibly again after a failed attempt.
+         */
+        PENDING,
+        /**
+         * Claimed by a worker until the lease expires.
+         */
+        RUNNING,
+        /**
+         * Failed the maximum number of attempts, will not be processed again.
+         */
+        DEAD_LETTER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "content_id", nullable = false)
+    private UUID contentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "content_type", nullable = false)
+    private ContentProgressedEvent.ContentType contentType;
+
+    @Column(name = "correctness", nullable = false)
+    private Double correctness;
+
+    @Column(name = "success", nullable = false)
+    private Boolean success;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    /**
+     * Identifies the poll which claimed the job, null if the job is not claimed.
+     */
+    @Column(name = "claim_id")
+    private UUID claimId;
+
+    @Column(name = "locked_until")
+    private OffsetDateTime lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
@@ -0,0 +1,66 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Entity representing a Dapr event delivery which is being processed or has already been processed.
+ * Used to detect redelivered events, rows are removed after the retention period.
+ * A delivery is {@link Status#IN_PROGRESS} while its handler runs, leased until {@code leaseUntil}, and only
+ * {@link Status#DONE} once the handler succeeded. Rows recorded before the status was introduced have no status
+ * and are treated as done.
+ */
+@Entity
+@Table(name = "processed_event", indexes = {
+    @Index(name = "idx_processed_event_received_at", columnList = "received_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(ProcessedEventEntity.ProcessedEventId.class)
+public class ProcessedEventEntity {
+
+    public enum Status {
+        /**
+         * Being processed by a handler until the lease expires.
+         */
+        IN_PROGRESS,
+        /**
+         * Processed successfully, redeliveries are acknowledged without processing them again.
+         */
+        DONE
+    }
+
+    @Id
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Id
+    @Column(name = "event_id", nullable = false)
+    private String eventId;
+
+    @Column(name = "received_at", nullable = false)
+    private OffsetDateTime receivedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private Status status;
+
+    @Column(name = "lease_until")
+    private OffsetDateTime leaseUntil;
+
+    /**
+     * Composite primary key for ProcessedEventEntity.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProcessedEventId implements Serializable {
+        private String topic;
+        private String eventId;
+    }
+}
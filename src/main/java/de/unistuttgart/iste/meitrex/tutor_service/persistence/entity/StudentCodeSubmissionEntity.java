@@ -5,16 +5,19 @@ import lombok.*;
 
 import java.io.Serializable;
 import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * Entity representing a student's code submission for an assignment.
  * Stores the latest code submission per student per assignment.
+ * The file contents are stored separately, deduplicated by their hash.
  */
 @Entity
 @Table(name = "student_code_submission", indexes = {
-    @Index(name = "idx_student_code_submission_student", columnList = "student_id"),
+    @Index(name = "idx_student_code_submission_student_course_last_updated",
+            columnList = "student_id,course_id,last_updated DESC"),
     @Index(name = "idx_student_code_submission_assignment", columnList = "assignment_id"),
     @Index(name = "idx_student_code_submission_course", columnList = "course_id")
 })
@@ -42,17 +45,25 @@ public class StudentCodeSubmissionEntity {
     @Column(name = "branch", length = 200)
     private String branch;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    /**
+     * The submitted files, mapped to the hashes of their contents stored as {@link CodeFileBlobEntity}.
+     * Loaded lazily as they are only needed once the relevant submission was found.
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(
-        name = "code_submission_files",
+        name = "code_submission_file",
         joinColumns = {
             @JoinColumn(name = "student_id", referencedColumnName = "student_id"),
             @JoinColumn(name = "assignment_id", referencedColumnName = "assignment_id")
-        }
+        },
+        indexes = @Index(name = "idx_code_submission_file_content_hash", columnList = "content_hash")
     )
     @MapKeyColumn(name = "file_path", length = 500)
-    @Column(name = "file_content", columnDefinition = "TEXT")
-    private Map<String, String> files;
+    @Column(name = "content_hash", nullable = false, length = 64)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    private Map<String, String> fileHashes = new HashMap<>();
 
     @Column(name = "last_updated", nullable = false)
     private OffsetDateTime lastUpdated;
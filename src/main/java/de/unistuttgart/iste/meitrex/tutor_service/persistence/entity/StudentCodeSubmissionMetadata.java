@@ -0,0 +1,24 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Metadata of a student code submission without the file contents.
+ * Used to find the relevant submission before loading its files.
+ *
+ * @param studentId       the student's ID
+ * @param assignmentId    the assignment's ID
+ * @param courseId        the course's ID
+ * @param commitSha       the SHA of the submitted commit
+ * @param commitTimestamp the timestamp of the submitted commit
+ * @param lastUpdated     the time the submission was last updated
+ */
+public record StudentCodeSubmissionMetadata(
+        UUID studentId,
+        UUID assignmentId,
+        UUID courseId,
+        String commitSha,
+        OffsetDateTime commitTimestamp,
+        OffsetDateTime lastUpdated) {
+}
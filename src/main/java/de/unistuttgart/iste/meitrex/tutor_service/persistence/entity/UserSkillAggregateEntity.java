@@ -0,0 +1,37 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Entity representing the aggregate of all skill levels of a user.
+ * Kept up to date whenever skill levels of the user are written, so the average skill level
+ * can be read without loading all skill levels of the user.
+ */
+@Entity
+@Table(name = "user_skill_aggregate")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSkillAggregateEntity {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "skill_level_sum", nullable = false)
+    private Double skillLevelSum;
+
+    @Column(name = "skill_count", nullable = false)
+    private Integer skillCount;
+
+    /**
+     * @return the average skill level of the user, or null if the user has no skill levels
+     */
+    public Double getAverageSkillLevel() {
+        return skillCount == null || skillCount == 0 ? null : skillLevelSum / skillCount;
+    }
+}
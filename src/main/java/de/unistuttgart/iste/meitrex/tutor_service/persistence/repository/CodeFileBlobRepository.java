@@ -0,0 +1,80 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.CodeFileBlobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for CodeFileBlobEntity.
+ */
+@Repository
+public interface CodeFileBlobRepository extends JpaRepository<CodeFileBlobEntity, String> {
+
+    /**
+     * Finds which of the given blobs are already stored and locks them until the end of the transaction,
+     * so they cannot be removed as unreferenced before the calling transaction referenced them.
+     * Must be called within a transaction.
+     *
+     * @param contentHashes the hashes of the blobs
+     * @return the hashes of the stored blobs
+     */
+    @Query(value = """
+            SELECT content_hash FROM code_file_blob
+            WHERE content_hash IN (:contentHashes)
+            FOR SHARE
+            """, nativeQuery = true)
+    List<String> lockExistingHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * Stores a blob unless a blob with the same hash, and therefore the same content, is already stored.
+     * Must be called within a transaction.
+     *
+     * @param contentHash the SHA-256 hash of the uncompressed content
+     * @param compressed  whether the content is compressed
+     * @param size        the size of the uncompressed content in bytes
+     * @param content     the (compressed) content
+     * @param createdAt   the time the blob was created
+     * @return 1 if the blob was stored, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO code_file_blob (content_hash, compressed, size, content, created_at)
+            VALUES (:contentHash, :compressed, :size, :content, :createdAt)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("contentHash") String contentHash,
+                       @Param("compressed") boolean compressed,
+                       @Param("size") int size,
+                       @Param("content") byte[] content,
+                       @Param("createdAt") OffsetDateTime createdAt);
+
+    /**
+     * Deletes up to the given number of blobs which are not referenced by any submission.
+     * Blobs locked by a transaction which is about to reference them are skipped.
+     *
+     * @param batchSize the maximum number of blobs to delete
+     * @return the number of deleted blobs
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM code_file_blob
+            WHERE content_hash IN (
+                SELECT b.content_hash FROM code_file_blob b
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM code_submission_file f WHERE f.content_hash = b.content_hash
+                )
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int deleteUnreferenced(@Param("batchSize") int batchSize);
+}
@@ -0,0 +1,27 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ContentVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Repository for ContentVersionEntity.
+ */
+@Repository
+public interface ContentVersionRepository extends JpaRepository<ContentVersionEntity, UUID> {
+
+    /**
+     * Finds the latest change of the given contents.
+     *
+     * @param contentIds the IDs of the contents, must not be empty
+     * @return the time of the latest change, or null if none of the contents was changed
+     */
+    @Query("SELECT MAX(v.changedAt) FROM ContentVersionEntity v WHERE v.contentId IN :contentIds")
+    OffsetDateTime findLatestChange(@Param("contentIds") Collection<UUID> contentIds);
+}
@@ -1,8 +1,13 @@
 package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistoryEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -24,13 +29,39 @@ public interface ConversationHistoryRepository extends JpaRepository<Conversatio
     List<ConversationHistoryEntity> findByUserIdAndCourseIdOrderByTimestampDesc(UUID userId, UUID courseId);
 
     /**
-     * Deletes conversation history entries older than the specified timestamp.
+     * Finds the most recent conversation history entries of a user in a course which are newer than the given
+     * timestamp, newest first. Served by the (user_id, course_id, timestamp) index, only the returned rows are read.
      *
      * @param userId the user ID
      * @param courseId the course ID
+     * @param timestamp the timestamp entries must be newer than
+     * @param limit the maximum number of entries
+     * @return list of conversation history entities
+     */
+    List<ConversationHistoryEntity> findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+            UUID userId, UUID courseId, OffsetDateTime timestamp, Limit limit);
+
+    /**
+     * Deletes up to the given number of conversation history entries older than the specified timestamp.
+     * The entries are selected by a range scan of the timestamp index, so each call only touches a bounded
+     * number of rows.
+     *
      * @param timestamp the cutoff timestamp
+     * @param batchSize the maximum number of entries to delete
+     * @return the number of deleted entries
      */
-    void deleteByUserIdAndCourseIdAndTimestampBefore(UUID userId, UUID courseId, OffsetDateTime timestamp);
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM conversation_history
+            WHERE id IN (
+                SELECT id FROM conversation_history
+                WHERE timestamp < :timestamp
+                LIMIT :batchSize
+            )
+            """, nativeQuery = true)
+    int deleteBatchByTimestampBefore(@Param("timestamp") OffsetDateTime timestamp,
+                                     @Param("batchSize") int batchSize);
 
     /**
      * Counts the number of conversation history entries for a user and course.
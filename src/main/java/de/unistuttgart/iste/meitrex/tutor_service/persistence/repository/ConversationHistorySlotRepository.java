@@ -0,0 +1,91 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistorySlotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for ConversationHistorySlotEntity.
+ */
+@Repository
+public interface ConversationHistorySlotRepository
+        extends JpaRepository<ConversationHistorySlotEntity, ConversationHistorySlotEntity.ConversationHistorySlotId> {
+
+    /**
+     * Appends an exchange to the ring of a user in a course with a single statement. The head row of the ring is
+     * incremented (or created) first, and the slot of the returned sequence number is overwritten, so the exchange
+     * replaces the oldest one once the ring is full. The row lock taken by incrementing the head serializes
+     * concurrent appends to the same ring without blocking other rings. Rings written before head rows existed
+     * start after their highest stored sequence number.
+     *
+     * @param userId        the user ID
+     * @param courseId      the course ID
+     * @param ringSize      the number of slots of the ring
+     * @param userMessage   the user's question
+     * @param tutorResponse the tutor's response
+     * @param timestamp     the time of the exchange
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH head AS (
+                INSERT INTO conversation_history_ring (user_id, course_id, sequence_number)
+                SELECT :userId, :courseId, COALESCE(MAX(sequence_number) + 1, 0)
+                FROM conversation_history_slot
+                WHERE user_id = :userId AND course_id = :courseId
+                ON CONFLICT (user_id, course_id) DO UPDATE SET
+                    sequence_number = conversation_history_ring.sequence_number + 1
+                RETURNING sequence_number
+            )
+            INSERT INTO conversation_history_slot
+                (user_id, course_id, slot, sequence_number, user_message, tutor_response, timestamp)
+            SELECT :userId, :courseId, head.sequence_number % :ringSize, head.sequence_number,
+                   :userMessage, :tutorResponse, :timestamp
+            FROM head
+            ON CONFLICT (user_id, course_id, slot) DO UPDATE SET
+                sequence_number = EXCLUDED.sequence_number,
+                user_message = EXCLUDED.user_message,
+                tutor_response = EXCLUDED.tutor_response,
+                timestamp = EXCLUDED.timestamp
+            """, nativeQuery = true)
+    void append(@Param("userId") UUID userId,
+                @Param("courseId") UUID courseId,
+                @Param("ringSize") int ringSize,
+                @Param("userMessage") String userMessage,
+                @Param("tutorResponse") String tutorResponse,
+                @Param("timestamp") OffsetDateTime timestamp);
+
+    /**
+     * Finds all slots of the ring of a user in a course. Served by the primary key, the ring has at most
+     * as many rows as it has slots.
+     *
+     * @param userId   the user ID
+     * @param courseId the course ID
+     * @return the slots of the ring in no particular order
+     */
+    List<ConversationHistorySlotEntity> findByUserIdAndCourseId(UUID userId, UUID courseId);
+
+    /**
+     * Deletes the ring of a user in a course, including its head.
+     *
+     * @param userId   the user ID
+     * @param courseId the course ID
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH head AS (
+                DELETE FROM conversation_history_ring WHERE user_id = :userId AND course_id = :courseId
+            )
+            DELETE FROM conversation_history_slot WHERE user_id = :userId AND course_id = :courseId
+            """, nativeQuery = true)
+    void deleteRing(@Param("userId") UUID userId, @Param("courseId") UUID courseId);
+}
@@ -0,0 +1,77 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads the code submission files stored in the previous format, with the full file contents in the
+ * code_submission_files table, so they can be moved to the deduplicated storage.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LegacyCodeSubmissionFileRepository {
+
+    private static final String TABLE = "code_submission_files";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return true if the table of the previous format still exists
+     */
+    @Transactional(readOnly = true)
+    public boolean exists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, TABLE));
+    }
+
+    /**
+     * @return the keys of all submissions with files in the previous format which have no files in the deduplicated
+     * storage yet, so submissions moved by a previous run are not read again
+     */
+    @Transactional(readOnly = true)
+    public List<StudentCodeSubmissionEntity.PrimaryKey> findSubmissionKeys() {
+        return jdbcTemplate.query("""
+                        SELECT DISTINCT legacy.student_id, legacy.assignment_id
+                        FROM %s legacy
+                        WHERE NOT EXISTS (
+                            SELECT 1 FROM code_submission_file migrated
+                            WHERE migrated.student_id = legacy.student_id
+                              AND migrated.assignment_id = legacy.assignment_id
+                        )
+                        """.formatted(TABLE),
+                (resultSet, rowNum) -> new StudentCodeSubmissionEntity.PrimaryKey(
+                        resultSet.getObject("student_id", UUID.class),
+                        resultSet.getObject("assignment_id", UUID.class)));
+    }
+
+    /**
+     * @param key the key of the submission
+     * @return map of file paths to file contents of the submission
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> findFiles(StudentCodeSubmissionEntity.PrimaryKey key) {
+        Map<String, String> files = new HashMap<>();
+        jdbcTemplate.query("SELECT file_path, file_content FROM " + TABLE + " WHERE student_id = ? AND assignment_id = ?",
+                resultSet -> {
+                    files.put(resultSet.getString("file_path"), resultSet.getString("file_content"));
+                },
+                key.getStudentId(), key.getAssignmentId());
+        return files;
+    }
+
+    /**
+     * Drops the table of the previous format once all files were moved.
+     */
+    @Transactional
+    public void dropTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+    }
+}
@@ -0,0 +1,68 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.LlmResponseCacheEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for LlmResponseCacheEntity.
+ */
+@Repository
+public interface LlmResponseCacheRepository extends JpaRepository<LlmResponseCacheEntity, String> {
+
+    /**
+     * Finds a cached response which was created after the given time.
+     *
+     * @param cacheKey     the key of the response
+     * @param createdAfter responses created before are expired
+     * @return the cached response, if any
+     */
+    Optional<LlmResponseCacheEntity> findByCacheKeyAndCreatedAtAfter(String cacheKey, OffsetDateTime createdAfter);
+
+    /**
+     * Stores a response, replacing an existing response with the same key.
+     *
+     * @param cacheKey     the key of the response
+     * @param templateName the name of the prompt template
+     * @param response     the response serialized as JSON
+     * @param createdAt    the time the response was generated
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO llm_response_cache (cache_key, template_name, response, created_at)
+            VALUES (:cacheKey, :templateName, :response, :createdAt)
+            ON CONFLICT (cache_key) DO UPDATE SET response = EXCLUDED.response, created_at = EXCLUDED.created_at
+            """, nativeQuery = true)
+    void upsert(@Param("cacheKey") String cacheKey,
+                @Param("templateName") String templateName,
+                @Param("response") String response,
+                @Param("createdAt") OffsetDateTime createdAt);
+
+    /**
+     * Deletes up to the given number of responses created before the given time.
+     *
+     * @param createdBefore the cutoff timestamp
+     * @param batchSize     the maximum number of responses to delete
+     * @return the number of deleted responses
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM llm_response_cache
+            WHERE cache_key IN (
+                SELECT cache_key FROM llm_response_cache
+                WHERE created_at < :createdBefore
+                LIMIT :batchSize
+            )
+            """, nativeQuery = true)
+    int deleteBatchByCreatedAtBefore(@Param("createdBefore") OffsetDateTime createdBefore,
+                                     @Param("batchSize") int batchSize);
+}
@@ -0,0 +1,124 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for ProactiveFeedbackJobEntity.
+ */
+@Repository
+public interface ProactiveFeedbackJobRepository extends JpaRepository<ProactiveFeedbackJobEntity, UUID> {
+
+    /**
+     * Claims up to the given number of jobs which are due or whose lease expired, oldest first.
+     * Jobs whose lease expired after their last attempt are not claimed again.
+     * Rows locked by concurrent claims (e.g. of other instances) are skipped, so each job is claimed only once.
+     *
+     * @param claimId     identifies this claim, used to load the claimed jobs afterwards
+     * @param now         the current time
+     * @param lockedUntil the time until which the claimed jobs are leased
+     * @param maxAttempts the maximum number of attempts of a job
+     * @param limit       the maximum number of jobs to claim
+     * @return the number of claimed jobs
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE proactive_feedback_job
+            SET status = 'RUNNING', claim_id = :claimId, locked_until = :lockedUntil, attempts = attempts + 1
+            WHERE id IN (
+                SELECT id FROM proactive_feedback_job
+                WHERE (status = 'PENDING' AND next_attempt_at <= :now)
+                   OR (status = 'RUNNING' AND locked_until < :now AND attempts < :maxAttempts)
+                ORDER BY created_at
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int claimDueJobs(@Param("claimId") UUID claimId,
+                     @Param("now") OffsetDateTime now,
+                     @Param("lockedUntil") OffsetDateTime lockedUntil,
+                     @Param("maxAttempts") int maxAttempts,
+                     @Param("limit") int limit);
+
+    /**
+     * Moves jobs whose lease expired after their last attempt to the dead letters, e.g. because the instance
+     * processing them crashed each time.
+     *
+     * @param now         the current time
+     * @param maxAttempts the maximum number of attempts of a job
+     * @param lastError   the error to record on the jobs
+     * @return the number of jobs moved to the dead letters
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE proactive_feedback_job
+            SET status = 'DEAD_LETTER', claim_id = NULL, locked_until = NULL, last_error = :lastError
+            WHERE status = 'RUNNING' AND locked_until < :now AND attempts >= :maxAttempts
+            """, nativeQuery = true)
+    int moveExpiredLastAttemptsToDeadLetters(@Param("now") OffsetDateTime now,
+                                             @Param("maxAttempts") int maxAttempts,
+                                             @Param("lastError") String lastError);
+
+    /**
+     * Deletes a processed job, unless it was claimed by another claim in the meantime, e.g. because its lease expired.
+     *
+     * @param id      the ID of the job
+     * @param claimId the ID of the claim the job was processed under
+     * @return 1 if the job was deleted, 0 if it is no longer claimed by the given claim
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM proactive_feedback_job WHERE id = :id AND claim_id = :claimId", nativeQuery = true)
+    int deleteClaimedJob(@Param("id") UUID id, @Param("claimId") UUID claimId);
+
+    /**
+     * Releases a failed job to be retried or as dead letter, unless it was claimed by another claim in the meantime.
+     *
+     * @param id            the ID of the job
+     * @param claimId       the ID of the claim the job was processed under
+     * @param status        the new status of the job
+     * @param nextAttemptAt the time of the next attempt
+     * @param lastError     the error of the failed attempt
+     * @return 1 if the job was released, 0 if it is no longer claimed by the given claim
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE proactive_feedback_job
+            SET status = :status, next_attempt_at = :nextAttemptAt, last_error = :lastError,
+                claim_id = NULL, locked_until = NULL
+            WHERE id = :id AND claim_id = :claimId
+            """, nativeQuery = true)
+    int releaseClaimedJob(@Param("id") UUID id,
+                          @Param("claimId") UUID claimId,
+                          @Param("status") String status,
+                          @Param("nextAttemptAt") OffsetDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    /**
+     * Finds the jobs claimed by a claim.
+     *
+     * @param claimId the ID of the claim
+     * @return list of claimed jobs
+     */
+    List<ProactiveFeedbackJobEntity> findByClaimId(UUID claimId);
+
+    /**
+     * Counts the jobs with the given status.
+     *
+     * @param status the status
+     * @return count of jobs
+     */
+    long countByStatus(ProactiveFeedbackJobEntity.Status status);
+}
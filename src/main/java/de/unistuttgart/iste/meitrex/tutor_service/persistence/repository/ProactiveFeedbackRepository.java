@@ -2,8 +2,13 @@ package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,6 +27,15 @@ public interface ProactiveFeedbackRepository extends JpaRepository<ProactiveFeed
      */
     List<ProactiveFeedbackEntity> findByUserIdOrderByCreatedAtDesc(UUID userId);
 
+    /**
+     * Finds the most recent feedback for a user. Served by the (user_id, created_at) index,
+     * only a single row is read.
+     *
+     * @param userId the user ID
+     * @return optional feedback entity
+     */
+    Optional<ProactiveFeedbackEntity> findFirstByUserIdOrderByCreatedAtDesc(UUID userId);
+
     /**
      * Finds the most recent feedback for a user on a specific assessment.
      *
@@ -38,4 +52,26 @@ public interface ProactiveFeedbackRepository extends JpaRepository<ProactiveFeed
      * @return list of feedback entities
      */
     List<ProactiveFeedbackEntity> findByAssessmentIdOrderByCreatedAtDesc(UUID assessmentId);
+
+    /**
+     * Deletes up to the given number of feedback entries created before the specified timestamp.
+     * The entries are selected by a range scan of the created_at index, so each call only touches a bounded
+     * number of rows.
+     *
+     * @param createdBefore the cutoff timestamp
+     * @param batchSize the maximum number of entries to delete
+     * @return the number of deleted entries
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM proactive_feedback
+            WHERE id IN (
+                SELECT id FROM proactive_feedback
+                WHERE created_at < :createdBefore
+                LIMIT :batchSize
+            )
+            """, nativeQuery = true)
+    int deleteBatchByCreatedAtBefore(@Param("createdBefore") OffsetDateTime createdBefore,
+                                     @Param("batchSize") int batchSize);
 }
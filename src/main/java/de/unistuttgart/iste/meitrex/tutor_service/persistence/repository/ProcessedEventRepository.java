@@ -0,0 +1,81 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProcessedEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Repository for ProcessedEventEntity.
+ */
+@Repository
+public interface ProcessedEventRepository
+        extends JpaRepository<ProcessedEventEntity, ProcessedEventEntity.ProcessedEventId> {
+
+    /**
+     * Starts processing an event delivery unless the event was already processed or is being processed.
+     * Concurrent deliveries of the same event (e.g. to different instances) are decided by the primary key,
+     * so exactly one of them starts processing. A delivery whose lease expired, e.g. because the instance processing
+     * it crashed, is started again.
+     *
+     * @param topic      the topic the event was published to
+     * @param eventId    the ID of the cloud event
+     * @param now        the current time
+     * @param leaseUntil the time until which the delivery is leased
+     * @return 1 if processing was started, 0 if the event was already processed or is being processed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO processed_event (topic, event_id, received_at, status, lease_until)
+            VALUES (:topic, :eventId, :now, 'IN_PROGRESS', :leaseUntil)
+            ON CONFLICT (topic, event_id) DO UPDATE
+            SET received_at = EXCLUDED.received_at, status = 'IN_PROGRESS', lease_until = EXCLUDED.lease_until
+            WHERE processed_event.status = 'IN_PROGRESS' AND processed_event.lease_until < :now
+            """, nativeQuery = true)
+    int startProcessing(@Param("topic") String topic,
+                        @Param("eventId") String eventId,
+                        @Param("now") OffsetDateTime now,
+                        @Param("leaseUntil") OffsetDateTime leaseUntil);
+
+    /**
+     * Marks an event delivery as processed, so that redeliveries are acknowledged without processing them again.
+     *
+     * @param topic   the topic the event was published to
+     * @param eventId the ID of the cloud event
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE processed_event SET status = 'DONE', lease_until = NULL
+            WHERE topic = :topic AND event_id = :eventId
+            """, nativeQuery = true)
+    void markDone(@Param("topic") String topic, @Param("eventId") String eventId);
+
+    /**
+     * Removes a recorded event delivery, so that a redelivery of the event is processed again.
+     *
+     * @param topic   the topic the event was published to
+     * @param eventId the ID of the cloud event
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProcessedEventEntity e WHERE e.topic = :topic AND e.eventId = :eventId")
+    void deleteEvent(@Param("topic") String topic, @Param("eventId") String eventId);
+
+    /**
+     * Removes all event deliveries received before the given time.
+     *
+     * @param receivedBefore the time before which deliveries are removed
+     * @return the number of removed deliveries
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProcessedEventEntity e WHERE e.receivedAt < :receivedBefore")
+    int deleteByReceivedAtBefore(@Param("receivedBefore") OffsetDateTime receivedBefore);
+}
@@ -1,7 +1,11 @@
 package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,14 +19,6 @@ import java.util.UUID;
 @Repository
 public interface StudentCodeSubmissionRepository extends JpaRepository<StudentCodeSubmissionEntity, StudentCodeSubmissionEntity.PrimaryKey> {
 
-    /**
-     * Finds all code submissions for a specific student.
-     * 
-     * @param studentId the student's ID
-     * @return list of code submissions for the student
-     */
-    List<StudentCodeSubmissionEntity> findByPrimaryKey_StudentId(UUID studentId);
-
     /**
      * Finds all code submissions for a specific assignment.
      * 
@@ -47,4 +43,25 @@ public interface StudentCodeSubmissionRepository extends JpaRepository<StudentCo
      * @return Optional containing the code submission if found
      */
     Optional<StudentCodeSubmissionEntity> findByPrimaryKey_StudentIdAndPrimaryKey_AssignmentId(UUID studentId, UUID assignmentId);
+
+    /**
+     * Finds the metadata of the most recently updated code submissions of a student in a course,
+     * without loading any files.
+     *
+     * @param studentId the student's ID
+     * @param courseId the course's ID
+     * @param limit the maximum number of submissions
+     * @return the submission metadata, most recently updated first
+     */
+    @Query("""
+            SELECT new de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata(
+                s.primaryKey.studentId, s.primaryKey.assignmentId, s.courseId,
+                s.commitSha, s.commitTimestamp, s.lastUpdated)
+            FROM StudentCodeSubmissionEntity s
+            WHERE s.primaryKey.studentId = :studentId AND s.courseId = :courseId
+            ORDER BY s.lastUpdated DESC
+            """)
+    List<StudentCodeSubmissionMetadata> findLatestMetadataByStudentIdAndCourseId(@Param("studentId") UUID studentId,
+                                                                                 @Param("courseId") UUID courseId,
+                                                                                 Limit limit);
 }
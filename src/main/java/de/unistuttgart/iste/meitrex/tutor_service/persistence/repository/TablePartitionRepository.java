@@ -0,0 +1,150 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages Postgres tables which are range partitioned by day on a timestamp column.
+ * The partition of a day covers [day 00:00 UTC, next day 00:00 UTC) and is named {@code <table>_pYYYYMMDD}.
+ * All changes are serialized by an advisory lock per table, so several instances can maintain the same table.
+ * Table and column names are concatenated into the statements and must therefore never come from user input.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TablePartitionRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param table the name of the table
+     * @return true if the table exists and is partitioned
+     */
+    @Transactional(readOnly = true)
+    public boolean isPartitioned(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, table));
+    }
+
+    /**
+     * Replaces a regular table by a table partitioned by day on the given column, with partitions for the given
+     * days. Rows within the partitioned days are copied, all other rows are dropped. The indexes of the table are
+     * recreated on the partitioned table, the primary key is extended by the partition column as required by
+     * Postgres. The table is locked exclusively while it is converted.
+     *
+     * @param table    the name of the table
+     * @param column   the timestamp column to partition by
+     * @param firstDay the first day to create a partition for
+     * @param lastDay  the last day to create a partition for
+     * @return false if the table was already partitioned, e.g. by another instance
+     */
+    @Transactional
+    public boolean convertToPartitioned(String table, String column, LocalDate firstDay, LocalDate lastDay) {
+        lock(table);
+        if (isPartitioned(table)) {
+            return false;
+        }
+
+        List<String> indexDefinitions = jdbcTemplate.queryForList("""
+                SELECT indexdef FROM pg_indexes
+                WHERE schemaname = current_schema() AND tablename = ? AND indexname <> ?
+                """, String.class, table, table + "_pkey");
+        String unpartitioned = table + "_unpartitioned";
+
+        jdbcTemplate.execute("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + unpartitioned);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + unpartitioned + " INCLUDING DEFAULTS)"
+                + " PARTITION BY RANGE (\"" + column + "\")");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id, \"" + column + "\")");
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            createPartitionIfAbsent(table, day);
+        }
+        jdbcTemplate.update("INSERT INTO " + table + " SELECT * FROM " + unpartitioned
+                        + " WHERE \"" + column + "\" >= ?::timestamptz AND \"" + column + "\" < ?::timestamptz",
+                startOf(firstDay), startOf(lastDay.plusDays(1)));
+        // dropping the old table frees the index names for the partitioned table
+        jdbcTemplate.execute("DROP TABLE " + unpartitioned);
+        indexDefinitions.forEach(jdbcTemplate::execute);
+        return true;
+    }
+
+    /**
+     * Creates the partition of the given day if it does not exist yet.
+     *
+     * @param table the name of the partitioned table
+     * @param day   the day of the partition
+     */
+    @Transactional
+    public void createPartition(String table, LocalDate day) {
+        lock(table);
+        createPartitionIfAbsent(table, day);
+    }
+
+    /**
+     * @param table the name of the partitioned table
+     * @return the days of all partitions of the table
+     */
+    @Transactional(readOnly = true)
+    public List<LocalDate> findPartitionDays(String table) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)
+                """, String.class, table);
+
+        String prefix = table + "_p";
+        List<LocalDate> days = new ArrayList<>();
+        for (String partition : partitions) {
+            if (!partition.startsWith(prefix)) {
+                continue;
+            }
+            try {
+                days.add(LocalDate.parse(partition.substring(prefix.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException e) {
+                // not created by this repository, leave it alone
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Drops the partition of the given day including all of its rows.
+     *
+     * @param table the name of the partitioned table
+     * @param day   the day of the partition
+     */
+    @Transactional
+    public void dropPartition(String table, LocalDate day) {
+        lock(table);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(table, day));
+    }
+
+    private void createPartitionIfAbsent(String table, LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(table, day)
+                + " PARTITION OF " + table
+                + " FOR VALUES FROM ('" + startOf(day) + "') TO ('" + startOf(day.plusDays(1)) + "')");
+    }
+
+    private void lock(String table) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", table);
+    }
+
+    private static String partitionName(String table, LocalDate day) {
+        return table + "_p" + day.format(PARTITION_SUFFIX);
+    }
+
+    private static String startOf(LocalDate day) {
+        return day.atStartOfDay().atOffset(ZoneOffset.UTC).toString();
+    }
+}
@@ -0,0 +1,117 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes user skill levels and player types in JDBC batches.
+ * Each row is inserted or, if it already exists, overwritten with a single statement, so no select is needed
+ * before the write and a whole batch is sent to the database in one round trip.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserProfileBatchRepository {
+
+    private static final String UPSERT_SKILL_LEVEL = """
+            INSERT INTO user_skill_level (user_id, skill_id, skill_level_value)
+            VALUES (?, ?, ?)
+            ON CONFLICT (user_id, skill_id) DO UPDATE SET skill_level_value = EXCLUDED.skill_level_value
+            """;
+
+    /**
+     * Recomputes the skill aggregates of the given users from their skill levels. Only the rows of the affected
+     * users are read (using the user_id index), which keeps the aggregates exact regardless of concurrent writers.
+     */
+    private static final String REFRESH_SKILL_AGGREGATES = """
+            INSERT INTO user_skill_aggregate (user_id, skill_level_sum, skill_count)
+            SELECT user_id, SUM(skill_level_value), COUNT(*)
+            FROM user_skill_level
+            WHERE user_id = ANY(?)
+            GROUP BY user_id
+            ON CONFLICT (user_id) DO UPDATE SET
+                skill_level_sum = EXCLUDED.skill_level_sum,
+                skill_count = EXCLUDED.skill_count
+            """;
+
+    private static final String BACKFILL_SKILL_AGGREGATES = """
+            INSERT INTO user_skill_aggregate (user_id, skill_level_sum, skill_count)
+            SELECT user_id, SUM(skill_level_value), COUNT(*)
+            FROM user_skill_level
+            GROUP BY user_id
+            ON CONFLICT (user_id) DO NOTHING
+            """;
+
+    private static final String UPSERT_PLAYER_TYPE = """
+            INSERT INTO user_player_type (user_id, primary_player_type, achiever_score, player_score,
+                                          socialiser_score, free_spirit_score, philanthropist_score, disruptor_score)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id) DO UPDATE SET
+                primary_player_type = EXCLUDED.primary_player_type,
+                achiever_score = EXCLUDED.achiever_score,
+                player_score = EXCLUDED.player_score,
+                socialiser_score = EXCLUDED.socialiser_score,
+                free_spirit_score = EXCLUDED.free_spirit_score,
+                philanthropist_score = EXCLUDED.philanthropist_score,
+                disruptor_score = EXCLUDED.disruptor_score
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts or overwrites the given skill levels and updates the skill aggregates of the affected users
+     * in the same transaction. Must not contain two skill levels with the same key.
+     *
+     * @param skillLevels the skill levels to write
+     */
+    @Transactional
+    public void upsertSkillLevels(Collection<UserSkillLevelEntity> skillLevels) {
+        jdbcTemplate.batchUpdate(UPSERT_SKILL_LEVEL, List.copyOf(skillLevels), skillLevels.size(),
+                (statement, skillLevel) -> {
+                    statement.setObject(1, skillLevel.getUserId());
+                    statement.setObject(2, skillLevel.getSkillId());
+                    statement.setObject(3, skillLevel.getSkillLevelValue(), Types.REAL);
+                });
+
+        Object[] userIds = skillLevels.stream().map(UserSkillLevelEntity::getUserId).distinct().toArray();
+        jdbcTemplate.update(REFRESH_SKILL_AGGREGATES,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("uuid", userIds)));
+    }
+
+    /**
+     * Creates the missing skill aggregates of users whose skill levels were written before aggregates existed.
+     *
+     * @return the number of created aggregates
+     */
+    @Transactional
+    public int backfillSkillAggregates() {
+        return jdbcTemplate.update(BACKFILL_SKILL_AGGREGATES);
+    }
+
+    /**
+     * Inserts or overwrites the given player types. Must not contain two player types of the same user.
+     *
+     * @param playerTypes the player types to write
+     */
+    @Transactional
+    public void upsertPlayerTypes(Collection<UserPlayerTypeEntity> playerTypes) {
+        jdbcTemplate.batchUpdate(UPSERT_PLAYER_TYPE, List.copyOf(playerTypes), playerTypes.size(),
+                (statement, playerType) -> {
+                    statement.setObject(1, playerType.getUserId());
+                    statement.setString(2, playerType.getPrimaryPlayerType().name());
+                    statement.setObject(3, playerType.getAchieverScore(), Types.DOUBLE);
+                    statement.setObject(4, playerType.getPlayerScore(), Types.DOUBLE);
+                    statement.setObject(5, playerType.getSocialiserScore(), Types.DOUBLE);
+                    statement.setObject(6, playerType.getFreeSpiritScore(), Types.DOUBLE);
+                    statement.setObject(7, playerType.getPhilanthropistScore(), Types.DOUBLE);
+                    statement.setObject(8, playerType.getDisruptorScore(), Types.DOUBLE);
+                });
+    }
+}
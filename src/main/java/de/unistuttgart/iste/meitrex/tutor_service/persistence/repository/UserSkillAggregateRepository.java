@@ -0,0 +1,15 @@
+package de.unistuttgart.iste.meitrex.tutor_service.persistence.repository;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillAggregateEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Repository interface for UserSkillAggregateEntity.
+ * The aggregates are written by {@link UserProfileBatchRepository} together with the skill levels.
+ */
+@Repository
+public interface UserSkillAggregateRepository extends JpaRepository<UserSkillAggregateEntity, UUID> {
+}
@@ -0,0 +1,127 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.TutorCategory;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.PreparedAnswer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how questions of a user are categorized and answered, and records metrics to compare the two modes:
+ * <ul>
+ *     <li>SEQUENTIAL: the question is categorized by one LLM call and answered by a second one,</li>
+ *     <li>COMBINED: one LLM call categorizes the question and answers it, with the lecture content fetched up front.
+ *     A second call is only made if the category needs different context, e.g. code feedback.</li>
+ * </ul>
+ * If the combined mode is enabled, the configured percentage of users is assigned to it, each user always gets the
+ * same mode. Besides the latency, the metrics contain proxies for the quality of the answers: how often questions
+ * are follow-ups or unrecognizable, how often answering failed, and how long the answers are.
+ */
+@Service
+@RequiredArgsConstructor
+public class AnswerModeExperiment {
+
+    public enum Mode {
+        SEQUENTIAL,
+        COMBINED
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tutor.combined-categorization.enabled:false}")
+    private boolean combinedEnabled;
+
+    @Value("${tutor.combined-categorization.user-percentage:100}")
+    private int combinedUserPercentage;
+
+    /**
+     * @param userId the ID of the user asking a question
+     * @return the mode used to answer the questions of the user
+     */
+    public Mode modeFor(UUID userId) {
+        if (!combinedEnabled || userId == null) {
+            return Mode.SEQUENTIAL;
+        }
+        return Math.floorMod(userId.hashCode(), 100) < combinedUserPercentage ? Mode.COMBINED : Mode.SEQUENTIAL;
+    }
+
+    /**
+     * Records the category a question was assigned to.
+     */
+    public void recordCategory(Mode mode, TutorCategory category) {
+        Counter.builder("tutor.answer-mode.questions")
+                .description("Number of questions per answer mode and category")
+                .tag("mode", tag(mode))
+                .tag("category", String.valueOf(category))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Records that the answer of the combined call could not be used and a second LLM call was needed.
+     */
+    public void recordSecondCall(TutorCategory category) {
+        Counter.builder("tutor.answer-mode.second-calls")
+                .description("Number of questions in combined mode which needed a second LLM call")
+                .tag("category", String.valueOf(category))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Records an answer sent to the user.
+     *
+     * @param mode           the mode the question was answered in
+     * @param preparedAnswer how the answer was prepared
+     * @param durationNanos  the time from receiving the question until the answer was complete
+     * @param answer         the answer
+     * @param failed         whether answering failed
+     */
+    public void recordAnswer(Mode mode, PreparedAnswer preparedAnswer, long durationNanos, String answer,
+                             boolean failed) {
+        String source = source(preparedAnswer);
+        Timer.builder("tutor.answer-mode.latency")
+                .description("Time until the answer to a question was complete")
+                .tag("mode", tag(mode))
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (failed) {
+            Counter.builder("tutor.answer-mode.failures")
+                    .description("Number of questions which could not be answered because of an error")
+                    .tag("mode", tag(mode))
+                    .register(meterRegistry)
+                    .increment();
+        } else if (preparedAnswer.isAnsweredWithCategory() || !preparedAnswer.isCompleted()) {
+            DistributionSummary.builder("tutor.answer-mode.answer.length")
+                    .description("Length of answers generated by the LLM in characters")
+                    .tag("mode", tag(mode))
+                    .tag("source", source)
+                    .register(meterRegistry)
+                    .record(answer.length());
+        }
+    }
+
+    private static String source(PreparedAnswer preparedAnswer) {
+        if (preparedAnswer.isFromCache()) {
+            return "cache";
+        } else if (preparedAnswer.isAnsweredWithCategory()) {
+            return "combined-call";
+        } else if (preparedAnswer.isCompleted()) {
+            return "fixed";
+        }
+        return "answer-call";
+    }
+
+    private static String tag(Mode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+}
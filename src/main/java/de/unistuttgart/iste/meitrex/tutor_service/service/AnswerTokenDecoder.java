@@ -0,0 +1,179 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incrementally extracts the value of the "answer" field from a streamed JSON response of the form
+ * {"answer": "..."}, which is the output format requested by all answer prompt templates.
+ * Chunks can be split at arbitrary positions, including in the middle of escape sequences.
+ * If the response does not start with a JSON object, it is streamed as raw text right away. If it is a JSON object
+ * without an answer field, the raw text is returned by {@link #finish()}.
+ * Invalid escape sequences are passed through literally instead of aborting the stream.
+ * Every chunk is scanned only once, apart from the last few characters which may start a key split across chunks.
+ */
+class AnswerTokenDecoder {
+
+    private static final String ANSWER_KEY_NAME = "\"answer\"";
+    private static final Pattern ANSWER_KEY = Pattern.compile("\"answer\"\\s*:\\s*\"");
+    /**
+     * Matches the text following the key name as long as the opening quote of the value may still follow.
+     */
+    private static final Pattern ANSWER_KEY_TAIL = Pattern.compile("\\s*(:\\s*)?");
+
+    private enum State { SEEK_KEY, IN_VALUE, RAW, DONE }
+
+    private State state = State.SEEK_KEY;
+    /**
+     * The response received so far while seeking the key, the held back trailing whitespace while streaming raw text.
+     */
+    private final StringBuilder pending = new StringBuilder();
+    /**
+     * The index in {@link #pending} from which the key is searched, everything before it cannot start the key.
+     */
+    private int scanFrom = 0;
+    private final StringBuilder unicodeDigits = new StringBuilder(4);
+    private boolean escaped = false;
+    private boolean unicodeEscape = false;
+
+    /**
+     * Consumes the next chunk of the response.
+     *
+     * @param chunk the next chunk as produced by the LLM
+     * @return the decoded part of the answer contained in the chunk, possibly empty
+     */
+    String accept(String chunk) {
+        if (state == State.DONE) {
+            return "";
+        }
+        if (state == State.RAW) {
+            return acceptRaw(chunk);
+        }
+        if (state == State.SEEK_KEY) {
+            pending.append(chunk);
+            if (!startsWithObject()) {
+                state = State.RAW;
+                String raw = pending.toString().stripLeading();
+                pending.setLength(0);
+                return acceptRaw(raw);
+            }
+            Matcher matcher = ANSWER_KEY.matcher(pending);
+            if (!matcher.find(scanFrom)) {
+                scanFrom = nextScanStart();
+                return "";
+            }
+            String rest = pending.substring(matcher.end());
+            pending.setLength(0);
+            state = State.IN_VALUE;
+            return decodeValue(rest);
+        }
+        return decodeValue(chunk);
+    }
+
+    /**
+     * Signals the end of the response.
+     *
+     * @return the raw response if no answer field was found, an escape sequence the response ended in, otherwise
+     * an empty string
+     */
+    String finish() {
+        String rest = "";
+        if (state == State.SEEK_KEY) {
+            rest = pending.toString().trim();
+        } else if (state == State.IN_VALUE && unicodeEscape) {
+            rest = "\\u" + unicodeDigits;
+        } else if (state == State.IN_VALUE && escaped) {
+            rest = "\\";
+        }
+        state = State.DONE;
+        return rest;
+    }
+
+    /**
+     * @return false if the response clearly does not start with a JSON object, true if it does or is still blank
+     */
+    private boolean startsWithObject() {
+        for (int i = 0; i < pending.length(); i++) {
+            char c = pending.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{';
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines where to continue searching the key after the current response did not contain it. The key can
+     * only start at an occurrence of its name which may still be followed by the rest of the key, or within the last
+     * characters which may be the beginning of its name.
+     */
+    private int nextScanStart() {
+        int candidate = pending.indexOf(ANSWER_KEY_NAME, scanFrom);
+        while (candidate >= 0) {
+            if (ANSWER_KEY_TAIL.matcher(pending).region(candidate + ANSWER_KEY_NAME.length(), pending.length())
+                    .matches()) {
+                return candidate;
+            }
+            candidate = pending.indexOf(ANSWER_KEY_NAME, candidate + 1);
+        }
+        return Math.max(scanFrom, pending.length() - (ANSWER_KEY_NAME.length() - 1));
+    }
+
+    /**
+     * Passes raw text through, holding back trailing whitespace until more text follows, so the streamed text
+     * does not end in whitespace.
+     */
+    private String acceptRaw(String chunk) {
+        int end = chunk.length();
+        while (end > 0 && Character.isWhitespace(chunk.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            pending.append(chunk);
+            return "";
+        }
+        String raw = pending + chunk.substring(0, end);
+        pending.setLength(0);
+        pending.append(chunk, end, chunk.length());
+        return raw;
+    }
+
+    private String decodeValue(String chunk) {
+        StringBuilder decoded = new StringBuilder(chunk.length());
+        for (int i = 0; i < chunk.length() && state == State.IN_VALUE; i++) {
+            char c = chunk.charAt(i);
+            if (unicodeEscape && Character.digit(c, 16) < 0) {
+                // not a valid \\uXXXX escape, keep it as it is and decode the character normally
+                decoded.append("\\u").append(unicodeDigits);
+                unicodeDigits.setLength(0);
+                unicodeEscape = false;
+                i--;
+            } else if (unicodeEscape) {
+                unicodeDigits.append(c);
+                if (unicodeDigits.length() == 4) {
+                    decoded.append((char) Integer.parseInt(unicodeDigits.toString(), 16));
+                    unicodeDigits.setLength(0);
+                    unicodeEscape = false;
+                }
+            } else if (escaped) {
+                escaped = false;
+                switch (c) {
+                    case 'n' -> decoded.append('\n');
+                    case 't' -> decoded.append('\t');
+                    case 'r' -> decoded.append('\r');
+                    case 'b' -> decoded.append('\b');
+                    case 'f' -> decoded.append('\f');
+                    case 'u' -> unicodeEscape = true;
+                    default -> decoded.append(c);
+                }
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                state = State.DONE;
+            } else {
+                decoded.append(c);
+            }
+        }
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the code part of LLM prompts from the files of a submission within a fixed token budget.
+ * Files are split into chunks of lines which are ranked by their relevance to the question:
+ * <ul>
+ *     <li>chunks containing a line mentioned in a stack trace or error message rank highest,</li>
+ *     <li>followed by chunks of files mentioned by name,</li>
+ *     <li>and by the number of identifiers of the question occurring in the chunk.</li>
+ * </ul>
+ * The best ranked chunks are included until the budget is used up, the other chunks are elided and the paths
+ * of files left out completely are listed, so the LLM still knows the structure of the project.
+ * Without a question, files are included in path order. Tokens are estimated from the number of characters.
+ */
+@Service
+public class CodeContextBuilder {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int LINE_MENTION_SCORE = 1000;
+    private static final int FILE_MENTION_SCORE = 100;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{2,}");
+    /**
+     * File names in questions and stack traces, optionally followed by a line number,
+     * e.g. {@code (Main.java:12)} or {@code File "main.py", line 12}.
+     */
+    private static final Pattern FILE_MENTION =
+            Pattern.compile("([A-Za-z0-9_$-]+\\.(?:java|kt|py))(?::(\\d{1,9})|\", line (\\d{1,9}))?");
+
+    @Value("${tutor.code-context.max-tokens:6000}")
+    private int maxTokens;
+
+    @Value("${tutor.code-context.chunk-lines:80}")
+    private int chunkLines;
+
+    /**
+     * Builds the code context of the given files.
+     *
+     * @param files    map of file paths to file contents
+     * @param question the question the context is needed for, may be null
+     * @return the most relevant code within the token budget
+     */
+    public String build(Map<String, String> files, String question) {
+        List<Chunk> chunks = rank(split(files), question);
+
+        long remainingChars = (long) maxTokens * CHARS_PER_TOKEN;
+        Map<String, SortedMap<Integer, Chunk>> included = new TreeMap<>();
+        for (Chunk chunk : chunks) {
+            // a file header and an elision marker are needed at most once per chunk
+            int size = chunk.text().length() + chunk.path().length() + 64;
+            if (size <= remainingChars) {
+                included.computeIfAbsent(chunk.path(), path -> new TreeMap<>()).put(chunk.startLine(), chunk);
+                remainingChars -= size;
+            }
+        }
+
+        StringBuilder context = new StringBuilder();
+        included.forEach((path, fileChunks) -> appendFile(context, path, fileChunks, lineCount(files.get(path))));
+
+        List<String> omitted = files.keySet().stream()
+                .filter(path -> !included.containsKey(path))
+                .sorted()
+                .toList();
+        if (!omitted.isEmpty()) {
+            // the paths of omitted files are listed as far as the remaining budget allows
+            context.append("Omitted files (less relevant to the question):\n");
+            int listed = 0;
+            for (String path : omitted) {
+                String entry = "- " + path + " (" + lineCount(files.get(path)) + " lines)\n";
+                if (entry.length() > remainingChars - 32) {
+                    break;
+                }
+                context.append(entry);
+                remainingChars -= entry.length();
+                listed++;
+            }
+            if (listed < omitted.size()) {
+                context.append("- and ").append(omitted.size() - listed).append(" more files\n");
+            }
+        }
+        return context.toString();
+    }
+
+    private List<Chunk> split(Map<String, String> files) {
+        List<Chunk> chunks = new ArrayList<>();
+        files.forEach((path, content) -> {
+            String[] lines = content.split("\n", -1);
+            for (int start = 0; start < lines.length; start += chunkLines) {
+                int end = Math.min(start + chunkLines, lines.length);
+                String text = String.join("\n", Arrays.copyOfRange(lines, start, end));
+                chunks.add(new Chunk(path, start + 1, end, text, 0));
+            }
+        });
+        return chunks;
+    }
+
+    private List<Chunk> rank(List<Chunk> chunks, String question) {
+        Set<String> questionIdentifiers = question != null ? identifiers(question) : Set.of();
+        Map<String, Set<Integer>> mentionedLines = question != null ? mentionedLines(question) : Map.of();
+
+        List<Chunk> ranked = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            int score = 0;
+            Set<Integer> lines = mentionedLines.get(fileName(chunk.path()));
+            if (lines != null) {
+                score += FILE_MENTION_SCORE;
+                if (lines.stream().anyMatch(line -> line >= chunk.startLine() && line <= chunk.endLine())) {
+                    score += LINE_MENTION_SCORE;
+                }
+            }
+            if (!questionIdentifiers.isEmpty()) {
+                Set<String> chunkIdentifiers = identifiers(chunk.text());
+                chunkIdentifiers.retainAll(questionIdentifiers);
+                score += chunkIdentifiers.size();
+            }
+            ranked.add(chunk.withScore(score));
+        }
+        ranked.sort(Comparator.comparingInt(Chunk::score).reversed()
+                .thenComparing(Chunk::path)
+                .thenComparingInt(Chunk::startLine));
+        return ranked;
+    }
+
+    private static void appendFile(StringBuilder context, String path, SortedMap<Integer, Chunk> chunks,
+                                   int lineCount) {
+        context.append("File: ").append(path).append("\n");
+        context.append("---\n");
+        int nextLine = 1;
+        for (Chunk chunk : chunks.values()) {
+            appendElision(context, nextLine, chunk.startLine() - 1);
+            context.append(chunk.text()).append("\n");
+            nextLine = chunk.endLine() + 1;
+        }
+        appendElision(context, nextLine, lineCount);
+        context.append("\n");
+    }
+
+    private static void appendElision(StringBuilder context, int fromLine, int toLine) {
+        if (fromLine <= toLine) {
+            context.append("... (lines ").append(fromLine).append("-").append(toLine).append(" omitted) ...\n");
+        }
+    }
+
+    private static Set<String> identifiers(String text) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER.matcher(text);
+        while (matcher.find()) {
+            identifiers.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return identifiers;
+    }
+
+    /**
+     * @return the mentioned file names, mapped to the mentioned lines of the file
+     */
+    private static Map<String, Set<Integer>> mentionedLines(String question) {
+        Map<String, Set<Integer>> mentions = new HashMap<>();
+        Matcher matcher = FILE_MENTION.matcher(question);
+        while (matcher.find()) {
+            Set<Integer> lines = mentions.computeIfAbsent(matcher.group(1), name -> new HashSet<>());
+            String line = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            if (line != null) {
+                lines.add(Integer.parseInt(line));
+            }
+        }
+        return mentions;
+    }
+
+    private static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static int lineCount(String content) {
+        return content.split("\n", -1).length;
+    }
+
+    /**
+     * A range of lines of a file.
+     *
+     * @param path      the path of the file
+     * @param startLine the first line, starting at 1
+     * @param endLine   the last line (inclusive)
+     * @param text      the lines
+     * @param score     the relevance to the question
+     */
+    private record Chunk(String path, int startLine, int endLine, String text, int score) {
+
+        Chunk withScore(int score) {
+            return new Chunk(path, startLine, endLine, text, score);
+        }
+    }
+}
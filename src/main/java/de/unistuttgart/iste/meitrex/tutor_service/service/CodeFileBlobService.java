@@ -0,0 +1,140 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.CodeFileBlobEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.CodeFileBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed storage of submitted code files.
+ * Each distinct file content is stored once as a blob keyed by its SHA-256 hash; submissions only reference the
+ * hashes of their files. Files which did not change since the last commit, and template files shared by many
+ * students, therefore cause no writes at all. Contents above the compression threshold are stored gzip compressed
+ * if that makes them smaller. Blobs which are no longer referenced by any submission are removed in the background.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CodeFileBlobService {
+
+    private final CodeFileBlobRepository codeFileBlobRepository;
+
+    @Value("${tutor.code-submission.blobs.compression-threshold-bytes:1024}")
+    private int compressionThresholdBytes;
+
+    @Value("${tutor.code-submission.blobs.cleanup-batch-size:1000}")
+    private int cleanupBatchSize;
+
+    /**
+     * Stores the contents of the given files, skipping contents which are already stored.
+     *
+     * @param files map of file paths to file contents
+     * @return map of file paths to the hashes of their contents
+     */
+    @Transactional
+    public Map<String, String> store(Map<String, String> files) {
+        Map<String, String> fileHashes = new HashMap<>();
+        Map<String, String> contentsByHash = new HashMap<>();
+        files.forEach((path, content) -> {
+            String hash = ContentHashing.sha256(content);
+            fileHashes.put(path, hash);
+            contentsByHash.put(hash, content);
+        });
+        if (contentsByHash.isEmpty()) {
+            return fileHashes;
+        }
+
+        Set<String> missingHashes = new HashSet<>(contentsByHash.keySet());
+        missingHashes.removeAll(codeFileBlobRepository.lockExistingHashes(contentsByHash.keySet()));
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (String hash : missingHashes) {
+            byte[] content = contentsByHash.get(hash).getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = content.length >= compressionThresholdBytes ? compress(content) : null;
+            boolean useCompressed = compressed != null && compressed.length < content.length;
+            codeFileBlobRepository.insertIfAbsent(hash, useCompressed, content.length,
+                    useCompressed ? compressed : content, now);
+        }
+        log.debug("Stored {} new of {} distinct file contents", missingHashes.size(), contentsByHash.size());
+        return fileHashes;
+    }
+
+    /**
+     * Loads the contents of the given files.
+     * Files whose content is missing are left out.
+     *
+     * @param fileHashes map of file paths to the hashes of their contents
+     * @return map of file paths to file contents
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> load(Map<String, String> fileHashes) {
+        Map<String, CodeFileBlobEntity> blobs = codeFileBlobRepository.findAllById(new HashSet<>(fileHashes.values()))
+                .stream()
+                .collect(Collectors.toMap(CodeFileBlobEntity::getContentHash, Function.identity()));
+
+        Map<String, String> files = new HashMap<>();
+        fileHashes.forEach((path, hash) -> {
+            CodeFileBlobEntity blob = blobs.get(hash);
+            if (blob == null) {
+                log.warn("Content {} of file {} is missing", hash, path);
+                return;
+            }
+            byte[] content = blob.isCompressed() ? decompress(blob.getContent()) : blob.getContent();
+            files.put(path, new String(content, StandardCharsets.UTF_8));
+        });
+        return files;
+    }
+
+    /**
+     * Removes the blobs which are no longer referenced by any submission.
+     */
+    @Scheduled(fixedDelayString = "${tutor.code-submission.blobs.cleanup-interval-ms:3600000}")
+    public void removeUnreferencedBlobs() {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = codeFileBlobRepository.deleteUnreferenced(cleanupBatchSize);
+            total += deleted;
+        } while (deleted >= cleanupBatchSize);
+        if (total > 0) {
+            log.info("Removed {} unreferenced code file blobs", total);
+        }
+    }
+
+    private static byte[] compress(byte[] content) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] content) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
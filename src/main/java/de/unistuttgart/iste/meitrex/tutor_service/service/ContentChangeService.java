@@ -0,0 +1,91 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ContentVersionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ContentVersionRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ContentsInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.CourseContents;
+import io.dapr.client.DaprClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the data cached for the contents of courses up to date when contents change.
+ * The content-changed event is only received by one instance of the service. That instance records the change in
+ * the database and notifies the other instances via the broadcast pub/sub component, so that all of them drop the
+ * data cached for the changed contents. In case a notification is lost, cached data is additionally validated
+ * against the recorded time of the latest change of the course's contents.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentChangeService {
+
+    public static final String INVALIDATION_TOPIC = "tutor-contents-invalidated";
+
+    private final ContentVersionRepository contentVersionRepository;
+    private final ContentIdCacheService contentIdCacheService;
+    private final HintContextStore hintContextStore;
+    private final HintResponseCache hintResponseCache;
+    private final DaprClient daprClient;
+
+    /**
+     * Identifies this instance, so that it ignores its own invalidation events.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Records the change of contents and drops the data cached for them, here and on all other instances.
+     *
+     * @param contentIds the IDs of the changed contents
+     */
+    public void onContentsChanged(Collection<UUID> contentIds) {
+        OffsetDateTime changedAt = OffsetDateTime.now();
+        contentVersionRepository.saveAll(contentIds.stream()
+                .map(contentId -> new ContentVersionEntity(contentId, changedAt))
+                .toList());
+
+        invalidate(contentIds);
+        daprClient.publishEvent(UserProfileCache.BROADCAST_PUBSUB_NAME, INVALIDATION_TOPIC,
+                        new ContentsInvalidatedEvent(List.copyOf(contentIds), instanceId))
+                .subscribe(null, error -> log.warn("Failed to publish invalidation of contents {}: {}",
+                        contentIds, error.getMessage()));
+    }
+
+    /**
+     * Handles the change of contents received by another instance.
+     *
+     * @param event the invalidation event
+     */
+    public void onInvalidationEvent(ContentsInvalidatedEvent event) {
+        if (event.getContentIds() == null || instanceId.equals(event.getSourceInstanceId())) {
+            return;
+        }
+        invalidate(event.getContentIds());
+    }
+
+    /**
+     * Returns the contents of a course together with the time the latest of them was changed, which data derived
+     * from the contents is validated against.
+     *
+     * @param contentIds the IDs of the contents of the course
+     * @return the contents of the course
+     */
+    public CourseContents getCourseContents(List<UUID> contentIds) {
+        if (contentIds.isEmpty()) {
+            return new CourseContents(contentIds, null);
+        }
+        return new CourseContents(contentIds, contentVersionRepository.findLatestChange(contentIds));
+    }
+
+    private void invalidate(Collection<UUID> contentIds) {
+        contentIdCacheService.invalidateContents(contentIds);
+        hintContextStore.invalidateContents(contentIds);
+        hintResponseCache.invalidateContents(contentIds);
+    }
+}
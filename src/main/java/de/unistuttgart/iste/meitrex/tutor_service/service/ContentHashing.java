@@ -0,0 +1,28 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashes texts to keys which identify their content, e.g. for deduplicated storage and cache keys.
+ */
+final class ContentHashing {
+
+    private ContentHashing() {
+    }
+
+    /**
+     * @param content the text to hash
+     * @return the hex encoded SHA-256 hash of the UTF-8 encoded text
+     */
+    static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
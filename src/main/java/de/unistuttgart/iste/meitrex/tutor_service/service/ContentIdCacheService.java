@@ -0,0 +1,134 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.meitrex.content_service.exception.ContentServiceConnectionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the content IDs of courses which are used as whitelist for every semantic search.
+ * The content IDs of a course only change when contents are published, so they are kept for a configurable time.
+ * Concurrent requests for a course which is not cached share a single request to the content service.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentIdCacheService {
+
+    private final ContentServiceClient contentServiceClient;
+
+    @Value("${semantic.search.content-ids.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${semantic.search.content-ids.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${semantic.search.content-ids.cache.max-courses:1000}")
+    private int maxCourses;
+
+    private final ConcurrentMap<UUID, CachedContentIds> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+    private final AtomicLong insertionCounter = new AtomicLong();
+
+    /**
+     * Returns the content IDs of a course, from the cache if possible.
+     *
+     * @param courseId the ID of the course
+     * @return the content IDs of the course
+     * @throws ContentServiceConnectionException if the content service could not be reached
+     */
+    public List<UUID> getContentIdsOfCourse(UUID courseId) throws ContentServiceConnectionException {
+        if (!enabled) {
+            return contentServiceClient.queryContentIdsOfCourse(courseId);
+        }
+
+        CachedContentIds cached = cache.get(courseId);
+        if (cached != null && cached.fetchedAt().plus(Duration.ofSeconds(ttlSeconds)).isAfter(Instant.now())) {
+            return cached.contentIds();
+        }
+
+        InFlightRequest request = new InFlightRequest(new CompletableFuture<>(), ConcurrentHashMap.newKeySet());
+        InFlightRequest runningRequest = inFlightRequests.putIfAbsent(courseId, request);
+        if (runningRequest != null) {
+            return awaitRunningRequest(runningRequest.result());
+        }
+
+        try {
+            List<UUID> contentIds = List.copyOf(contentServiceClient.queryContentIdsOfCourse(courseId));
+            if (contentIds.stream().noneMatch(request.invalidatedContentIds()::contains)) {
+                cache.put(courseId, new CachedContentIds(contentIds, Instant.now(), insertionCounter.incrementAndGet()));
+                evictIfFull();
+            }
+            request.result().complete(contentIds);
+            return contentIds;
+        } catch (ContentServiceConnectionException | RuntimeException e) {
+            request.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(courseId, request);
+        }
+    }
+
+    /**
+     * Invalidates the courses containing one of the given contents. Requests which are running for any course
+     * don't cache their result if it contains one of the contents.
+     * Contents which are not contained in any cached course, e.g. because they were just created, are ignored,
+     * as the affected course cannot be determined; the course is updated once its content IDs expire.
+     *
+     * @param contentIds the IDs of the changed contents
+     */
+    public void invalidateContents(Collection<UUID> contentIds) {
+        inFlightRequests.values().forEach(request -> request.invalidatedContentIds().addAll(contentIds));
+        cache.entrySet().removeIf(entry -> entry.getValue().contentIds().stream().anyMatch(contentIds::contains));
+        log.info("Invalidated cached content IDs after change of contents {}", contentIds);
+    }
+
+    private List<UUID> awaitRunningRequest(CompletableFuture<List<UUID>> runningRequest)
+            throws ContentServiceConnectionException {
+        try {
+            return runningRequest.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ContentServiceConnectionException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictIfFull() {
+        while (cache.size() > maxCourses) {
+            cache.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().insertionOrder()))
+                    .map(Map.Entry::getKey)
+                    .ifPresent(cache::remove);
+        }
+    }
+
+    private record CachedContentIds(List<UUID> contentIds, Instant fetchedAt, long insertionOrder) {
+    }
+
+    /**
+     * A running request for the content IDs of a course and the contents invalidated while it was running.
+     */
+    private record InFlightRequest(CompletableFuture<List<UUID>> result, Set<UUID> invalidatedContentIds) {
+    }
+}
@@ -1,27 +1,53 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistoryEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistorySlotEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistoryRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistorySlotRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ConversationHistoryInvalidatedEvent;
+import io.dapr.client.DaprClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Service for managing conversation history between users and the AI tutor.
  * Maintains a sliding window of recent conversation exchanges for context.
+ * <p>
+ * The history is either stored as one row per exchange, or (storage mode "ring") in a fixed-size ring of
+ * slots per user and course, where appending an exchange is a single statement incrementing the head of the ring
+ * and overwriting the oldest slot; appends to the same ring are serialized by the row lock on the head.
+ * In ring mode, the recent windows can additionally be kept in memory, so reading the history needs no query.
+ * When a ring changes, the other instances of the service are notified via the broadcast pub/sub component, so that
+ * they drop their copies of the window. In case a notification is lost, windows expire after a configurable time.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ConversationHistoryService {
 
+    public static final String INVALIDATION_TOPIC = "tutor-conversation-history-invalidated";
+
+    private static final String RING_STORAGE = "ring";
+
     private final ConversationHistoryRepository conversationHistoryRepository;
+    private final ConversationHistorySlotRepository conversationHistorySlotRepository;
+    private final DaprClient daprClient;
 
     @Value("${tutor.conversation.history.max-pairs:3}")
     private int maxHistoryPairs;
@@ -29,6 +55,35 @@ public class ConversationHistoryService {
     @Value("${tutor.conversation.history.max-age-minutes:30}")
     private int maxAgeMinutes;
 
+    @Value("${tutor.conversation.history.storage:rows}")
+    private String storage;
+
+    @Value("${tutor.conversation.history.hot-window.enabled:false}")
+    private boolean hotWindowEnabled;
+
+    @Value("${tutor.conversation.history.hot-window.max-entries:10000}")
+    private int hotWindowMaxEntries;
+
+    @Value("${tutor.conversation.history.hot-window.ttl-seconds:60}")
+    private long hotWindowTtlSeconds;
+
+    /**
+     * Identifies this instance, so that it ignores its own invalidation events.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Recent exchanges per user and course, in access order for LRU eviction. Guarded by itself.
+     */
+    private final Map<HistoryKey, HotWindow> hotWindows = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Identifies the latest running load per user and course. Removed on every committed change of the ring,
+     * so that a window loaded concurrently to a change of the same ring is not cached.
+     * Guarded by {@link #hotWindows}.
+     */
+    private final Map<HistoryKey, Object> runningLoads = new HashMap<>();
+
     /**
      * Retrieves the recent conversation history for a user in a specific course.
      * Only returns entries that are not older than the configured max age.
@@ -40,24 +95,28 @@ public class ConversationHistoryService {
     @Transactional(readOnly = true)
     public List<ConversationHistoryEntity> getRecentHistory(UUID userId, UUID courseId) {
         OffsetDateTime cutoffTime = OffsetDateTime.now().minusMinutes(maxAgeMinutes);
+
+        if (isRingStorage()) {
+            return getWindow(userId, courseId).stream()
+                    .filter(entry -> entry.getTimestamp().isAfter(cutoffTime))
+                    .limit(maxHistoryPairs)
+                    .toList();
+        }
         
-        List<ConversationHistoryEntity> allHistory = conversationHistoryRepository
-                .findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId);
+        List<ConversationHistoryEntity> recentHistory = conversationHistoryRepository
+                .findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                        userId, courseId, cutoffTime, Limit.of(maxHistoryPairs));
         
-        List<ConversationHistoryEntity> recentHistory = allHistory.stream()
-                .filter(entry -> entry.getTimestamp().isAfter(cutoffTime))
-                .limit(maxHistoryPairs)
-                .toList();
-        
-        log.info("Retrieved {} recent history entries for user {} in course {} (filtered from {} total)", 
-                recentHistory.size(), userId, courseId, allHistory.size());
+        log.info("Retrieved {} recent history entries for user {} in course {}", 
+                recentHistory.size(), userId, courseId);
         
         return recentHistory;
     }
 
     /**
      * Adds a new conversation exchange to the history.
-     * Automatically manages the sliding window by removing old entries.
+     * Automatically manages the sliding window by removing the oldest entry; expired entries are removed
+     * by the {@link ExpiredDataReaperService}.
      *
      * @param userId the user ID
      * @param courseId the course ID
@@ -66,9 +125,11 @@ public class ConversationHistoryService {
      */
     @Transactional
     public void addConversationExchange(UUID userId, UUID courseId, String userMessage, String tutorResponse) {
-        OffsetDateTime cutoffTime = OffsetDateTime.now().minusMinutes(maxAgeMinutes);
-        conversationHistoryRepository.deleteByUserIdAndCourseIdAndTimestampBefore(userId, courseId, cutoffTime);
-        
+        if (isRingStorage()) {
+            appendToRing(userId, courseId, userMessage, tutorResponse);
+            return;
+        }
+
         List<ConversationHistoryEntity> currentHistory = conversationHistoryRepository
                 .findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId);
         
@@ -131,9 +192,166 @@ public class ConversationHistoryService {
      */
     @Transactional
     public void clearHistory(UUID userId, UUID courseId) {
+        if (isRingStorage()) {
+            conversationHistorySlotRepository.deleteRing(userId, courseId);
+            if (hotWindowEnabled) {
+                afterCommit(() -> {
+                    evict(new HistoryKey(userId, courseId));
+                    publishInvalidation(userId, courseId);
+                });
+            }
+            log.info("Cleared conversation history for user {} in course {}", userId, courseId);
+            return;
+        }
+
         List<ConversationHistoryEntity> history = conversationHistoryRepository
                 .findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId);
         conversationHistoryRepository.deleteAll(history);
         log.info("Cleared conversation history for user {} in course {}", userId, courseId);
     }
+
+    private boolean isRingStorage() {
+        return RING_STORAGE.equalsIgnoreCase(storage);
+    }
+
+    private void appendToRing(UUID userId, UUID courseId, String userMessage, String tutorResponse) {
+        OffsetDateTime now = OffsetDateTime.now();
+        conversationHistorySlotRepository.append(userId, courseId, maxHistoryPairs, userMessage, tutorResponse, now);
+        log.info("Added new conversation entry for user {} in course {}", userId, courseId);
+
+        if (!hotWindowEnabled) {
+            return;
+        }
+        ConversationHistoryEntity newEntry = ConversationHistoryEntity.builder()
+                .userId(userId)
+                .courseId(courseId)
+                .userMessage(userMessage)
+                .tutorResponse(tutorResponse)
+                .timestamp(now)
+                .build();
+        // only update the window once the exchange is visible to concurrent loads of the window
+        afterCommit(() -> {
+            HistoryKey key = new HistoryKey(userId, courseId);
+            synchronized (hotWindows) {
+                runningLoads.remove(key);
+                // windows which are not cached are loaded completely on the next read; the window keeps the time
+                // it was loaded, so that exchanges appended on other instances are not missed beyond its expiry
+                hotWindows.computeIfPresent(key, (ignored, window) -> {
+                    List<ConversationHistoryEntity> updated = new ArrayList<>(maxHistoryPairs);
+                    updated.add(newEntry);
+                    window.exchanges().stream().limit(maxHistoryPairs - 1L).forEach(updated::add);
+                    return new HotWindow(List.copyOf(updated), window.loadedAt());
+                });
+            }
+            publishInvalidation(userId, courseId);
+        });
+    }
+
+    /**
+     * Handles the invalidation of the conversation history of a user in a course by another instance.
+     *
+     * @param event the invalidation event
+     */
+    public void onInvalidationEvent(ConversationHistoryInvalidatedEvent event) {
+        if (event.getUserId() == null || event.getCourseId() == null
+                || instanceId.equals(event.getSourceInstanceId())) {
+            return;
+        }
+        evict(new HistoryKey(event.getUserId(), event.getCourseId()));
+    }
+
+    private void evict(HistoryKey key) {
+        synchronized (hotWindows) {
+            runningLoads.remove(key);
+            hotWindows.remove(key);
+        }
+    }
+
+    private void publishInvalidation(UUID userId, UUID courseId) {
+        daprClient.publishEvent(UserProfileCache.BROADCAST_PUBSUB_NAME, INVALIDATION_TOPIC,
+                        new ConversationHistoryInvalidatedEvent(userId, courseId, instanceId))
+                .subscribe(null, error -> log.warn(
+                        "Failed to publish conversation history invalidation for user {} in course {}: {}",
+                        userId, courseId, error.getMessage()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the exchanges stored in the ring of a user in a course, newest first.
+     */
+    private List<ConversationHistoryEntity> getWindow(UUID userId, UUID courseId) {
+        HistoryKey key = new HistoryKey(userId, courseId);
+        Instant now = Instant.now();
+        Object load = new Object();
+        if (hotWindowEnabled) {
+            synchronized (hotWindows) {
+                HotWindow cached = hotWindows.get(key);
+                if (cached != null && cached.loadedAt().plusSeconds(hotWindowTtlSeconds).isAfter(now)) {
+                    return cached.exchanges();
+                }
+                runningLoads.put(key, load);
+            }
+        }
+
+        List<ConversationHistoryEntity> window;
+        try {
+            window = loadWindow(userId, courseId);
+        } catch (RuntimeException e) {
+            synchronized (hotWindows) {
+                runningLoads.remove(key, load);
+            }
+            throw e;
+        }
+
+        if (hotWindowEnabled) {
+            synchronized (hotWindows) {
+                if (!runningLoads.remove(key, load)) {
+                    return window;
+                }
+                hotWindows.put(key, new HotWindow(window, now));
+                var iterator = hotWindows.entrySet().iterator();
+                while (hotWindows.size() > hotWindowMaxEntries && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return window;
+    }
+
+    private List<ConversationHistoryEntity> loadWindow(UUID userId, UUID courseId) {
+        return conversationHistorySlotRepository
+                .findByUserIdAndCourseId(userId, courseId).stream()
+                .sorted(Comparator.comparing(ConversationHistorySlotEntity::getSequenceNumber).reversed())
+                .limit(maxHistoryPairs)
+                .map(slot -> ConversationHistoryEntity.builder()
+                        .userId(slot.getUserId())
+                        .courseId(slot.getCourseId())
+                        .userMessage(slot.getUserMessage())
+                        .tutorResponse(slot.getTutorResponse())
+                        .timestamp(slot.getTimestamp())
+                        .build())
+                .toList();
+    }
+
+    private record HistoryKey(UUID userId, UUID courseId) {
+    }
+
+    /**
+     * The recent exchanges of a ring, newest first, and the time they were loaded from the database.
+     */
+    private record HotWindow(List<ConversationHistoryEntity> exchanges, Instant loadedAt) {
+    }
 }
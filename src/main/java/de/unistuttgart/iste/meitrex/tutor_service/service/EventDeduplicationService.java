@@ -0,0 +1,172 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProcessedEventEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProcessedEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Detects redelivered Dapr events by their cloud event ID.
+ * Dapr redelivers events whose delivery timed out, so the same event may arrive more than once.
+ * Deliveries are recorded in the database, so duplicates are detected across restarts and instances;
+ * recently processed events are additionally kept in memory, so most duplicates are rejected without a database
+ * query. A delivery is only recorded as processed once its handler succeeded. While it is being processed,
+ * redeliveries are rejected so that Dapr delivers them again later; if the handler fails or its lease expires
+ * (e.g. because the instance crashed), the next delivery is processed again.
+ * Deliveries are forgotten after the retention period.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventDeduplicationService {
+
+    private final ProcessedEventRepository processedEventRepository;
+
+    @Value("${tutor.event-deduplication.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tutor.event-deduplication.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${tutor.event-deduplication.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${tutor.event-deduplication.max-cached-events:10000}")
+    private int maxCachedEvents;
+
+    /**
+     * Recently processed events in insertion order, mapped to the time they were received.
+     */
+    private final Map<String, Instant> recentEvents = new LinkedHashMap<>();
+
+    /**
+     * Outcome of starting to process a delivered event.
+     */
+    public enum Delivery {
+        /**
+         * The event must be processed, afterwards the delivery is completed or forgotten.
+         */
+        PROCESS,
+        /**
+         * The event was already processed, the delivery is acknowledged without processing it again.
+         */
+        DUPLICATE,
+        /**
+         * The event is being processed by another delivery, this delivery must be redelivered later.
+         */
+        IN_PROGRESS
+    }
+
+    /**
+     * Starts processing a delivered event unless the event was already processed or is being processed.
+     * Events without an ID cannot be deduplicated and are always processed.
+     *
+     * @param topic   the topic the event was published to
+     * @param eventId the ID of the cloud event, may be null
+     * @return whether the event must be processed, is a duplicate or is being processed by another delivery
+     */
+    public Delivery startDelivery(String topic, String eventId) {
+        if (!enabled || eventId == null) {
+            return Delivery.PROCESS;
+        }
+
+        String key = topic + ":" + eventId;
+        Instant now = Instant.now();
+        if (isRecent(key, now)) {
+            log.info("Ignoring redelivered event {} on topic {}", eventId, topic);
+            return Delivery.DUPLICATE;
+        }
+
+        OffsetDateTime receivedAt = OffsetDateTime.now();
+        if (processedEventRepository.startProcessing(topic, eventId, receivedAt,
+                receivedAt.plusSeconds(leaseSeconds)) == 1) {
+            return Delivery.PROCESS;
+        }
+
+        ProcessedEventEntity.Status status = processedEventRepository
+                .findById(new ProcessedEventEntity.ProcessedEventId(topic, eventId))
+                .map(event -> event.getStatus() == null ? ProcessedEventEntity.Status.DONE : event.getStatus())
+                // forgotten in the meantime after a failure, the redelivery will be processed
+                .orElse(ProcessedEventEntity.Status.IN_PROGRESS);
+        if (status == ProcessedEventEntity.Status.DONE) {
+            remember(key, now);
+            log.info("Ignoring redelivered event {} on topic {}", eventId, topic);
+            return Delivery.DUPLICATE;
+        }
+        log.info("Event {} on topic {} is still being processed, requesting redelivery", eventId, topic);
+        return Delivery.IN_PROGRESS;
+    }
+
+    /**
+     * Records that an event was processed successfully, so that redeliveries are not processed again.
+     *
+     * @param topic   the topic the event was published to
+     * @param eventId the ID of the cloud event, may be null
+     */
+    public void completeDelivery(String topic, String eventId) {
+        if (!enabled || eventId == null) {
+            return;
+        }
+        processedEventRepository.markDone(topic, eventId);
+        remember(topic + ":" + eventId, Instant.now());
+    }
+
+    /**
+     * Forgets the delivery of an event whose processing failed, so that a redelivery is processed again.
+     *
+     * @param topic   the topic the event was published to
+     * @param eventId the ID of the cloud event, may be null
+     */
+    public void forgetDelivery(String topic, String eventId) {
+        if (!enabled || eventId == null) {
+            return;
+        }
+        processedEventRepository.deleteEvent(topic, eventId);
+    }
+
+    /**
+     * Removes the deliveries which are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${tutor.event-deduplication.cleanup-interval-ms:3600000}")
+    public void removeExpiredDeliveries() {
+        if (!enabled) {
+            return;
+        }
+        int removed = processedEventRepository.deleteByReceivedAtBefore(
+                OffsetDateTime.now().minus(getRetention()));
+        if (removed > 0) {
+            log.info("Removed {} expired event deliveries", removed);
+        }
+    }
+
+    private boolean isRecent(String key, Instant now) {
+        synchronized (recentEvents) {
+            Instant receivedAt = recentEvents.get(key);
+            return receivedAt != null && receivedAt.plus(getRetention()).isAfter(now);
+        }
+    }
+
+    private void remember(String key, Instant now) {
+        synchronized (recentEvents) {
+            recentEvents.put(key, now);
+            var iterator = recentEvents.entrySet().iterator();
+            while (recentEvents.size() > maxCachedEvents && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private Duration getRetention() {
+        return Duration.ofHours(retentionHours);
+    }
+}
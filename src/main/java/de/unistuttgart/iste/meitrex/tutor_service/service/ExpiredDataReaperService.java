@@ -0,0 +1,107 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistoryRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deletes expired conversation history and proactive feedback in the background.
+ * Expired rows are no longer used by any request, but without a cleanup they would stay in the tables of
+ * inactive users forever. The rows are deleted in batches of bounded size, each in its own transaction,
+ * with a pause in between, so the cleanup neither holds long locks nor competes with requests for I/O.
+ * Tables which are partitioned by the {@link TablePartitioningService} are skipped, their expired rows are
+ * removed by dropping partitions.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpiredDataReaperService {
+
+    private final ConversationHistoryRepository conversationHistoryRepository;
+    private final ProactiveFeedbackRepository proactiveFeedbackRepository;
+    private final TablePartitioningService tablePartitioningService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tutor.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tutor.reaper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${tutor.reaper.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${tutor.conversation.history.max-age-minutes:30}")
+    private int conversationHistoryMaxAgeMinutes;
+
+    @Value("${tutor.proactive-feedback.retention-days:90}")
+    private int proactiveFeedbackRetentionDays;
+
+    /**
+     * Deletes all conversation history which is older than its max age and all proactive feedback which is older
+     * than its retention period.
+     */
+    @Scheduled(fixedDelayString = "${tutor.reaper.interval-ms:300000}")
+    public void reapExpiredRows() {
+        if (!enabled) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime historyCutoff = now.minusMinutes(conversationHistoryMaxAgeMinutes);
+        OffsetDateTime feedbackCutoff = now.minusDays(proactiveFeedbackRetentionDays);
+
+        if (reap(TablePartitioningService.CONVERSATION_HISTORY_TABLE,
+                limit -> conversationHistoryRepository.deleteBatchByTimestampBefore(historyCutoff, limit))) {
+            reap(TablePartitioningService.PROACTIVE_FEEDBACK_TABLE,
+                    limit -> proactiveFeedbackRepository.deleteBatchByCreatedAtBefore(feedbackCutoff, limit));
+        }
+    }
+
+    /**
+     * Deletes batches until a batch is not full anymore.
+     *
+     * @param table       the name of the table, used for logging and metrics
+     * @param deleteBatch deletes up to the given number of expired rows and returns the number of deleted rows
+     * @return false if the thread was interrupted and reaping must stop
+     */
+    private boolean reap(String table, IntUnaryOperator deleteBatch) {
+        if (tablePartitioningService.isPartitioned(table)) {
+            return true;
+        }
+        Counter reclaimed = Counter.builder("tutor.reaper.rows.deleted")
+                .description("Number of expired rows deleted in the background")
+                .tag("table", table)
+                .register(meterRegistry);
+
+        long total = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.applyAsInt(batchSize);
+            total += deleted;
+            reclaimed.increment(deleted);
+            if (deleted >= batchSize && pauseMs > 0) {
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.info("Stopped deleting expired rows from {} after {} rows", table, total);
+                    return false;
+                }
+            }
+        } while (deleted >= batchSize);
+
+        if (total > 0) {
+            log.info("Deleted {} expired rows from {}", total, table);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.CourseContents;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.HintContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Stores the retrieval context of hints per course and quiz question, so the search query generation and the
+ * semantic search run once per question instead of once per student.
+ * A context is only valid for the contents the course had when it was built, including their latest change; it is
+ * dropped if one of these contents changes and expires after a configurable time. At most a configurable number of contexts is kept (least recently
+ * used are evicted first). Concurrent requests for a context which is not stored yet share a single build.
+ */
+@Slf4j
+@Service
+public class HintContextStore {
+
+    @Value("${tutor.hint-context.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tutor.hint-context.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${tutor.hint-context.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    private final LinkedHashMap<Key, StoredContext> contexts = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<Key, Mono<HintContext>> runningBuilds = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the stored context of a question, or builds and stores it if there is none.
+     * Contexts for which the semantic search found nothing are not stored, as the search might have failed.
+     *
+     * @param courseId     the ID of the course
+     * @param questionHash the hash identifying the quiz question
+     * @param contents     the current contents of the course
+     * @param builder      builds the context
+     * @return a mono emitting the context
+     */
+    public Mono<HintContext> getOrBuild(UUID courseId, String questionHash, CourseContents contents,
+                                        Supplier<Mono<HintContext>> builder) {
+        if (!enabled) {
+            return builder.get();
+        }
+        Key key = new Key(courseId, questionHash);
+        Optional<HintContext> stored = lookup(key, contents);
+        if (stored.isPresent()) {
+            log.debug("Hint context of course {} found for question {}", courseId, questionHash);
+            return Mono.just(stored.get());
+        }
+        return runningBuilds.computeIfAbsent(key, k -> builder.get()
+                .doOnNext(context -> {
+                    if (context.isSearchResultsFound()) {
+                        store(k, contents, context);
+                    }
+                })
+                .doFinally(signal -> runningBuilds.remove(k))
+                .cache());
+    }
+
+    /**
+     * Drops the contexts of all courses containing one of the given contents.
+     *
+     * @param contentIds the IDs of the changed contents
+     */
+    public void invalidateContents(Collection<UUID> contentIds) {
+        boolean removedAny;
+        synchronized (contexts) {
+            removedAny = contexts.values().removeIf(stored -> stored.contents().getContentIds().stream()
+                    .anyMatch(contentIds::contains));
+        }
+        if (removedAny) {
+            log.info("Invalidated hint contexts after change of contents {}", contentIds);
+        }
+    }
+
+    private Optional<HintContext> lookup(Key key, CourseContents contents) {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(ttlMinutes));
+        synchronized (contexts) {
+            StoredContext stored = contexts.get(key);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            if (stored.createdAt().isBefore(cutoff) || !stored.contents().equals(contents)) {
+                contexts.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(stored.context());
+        }
+    }
+
+    private void store(Key key, CourseContents contents, HintContext context) {
+        synchronized (contexts) {
+            contexts.put(key, new StoredContext(context, contents, Instant.now()));
+            Iterator<Key> eldest = contexts.keySet().iterator();
+            while (contexts.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record Key(UUID courseId, String questionHash) {
+    }
+
+    private record StoredContext(HintContext context, CourseContents contents, Instant createdAt) {
+    }
+}
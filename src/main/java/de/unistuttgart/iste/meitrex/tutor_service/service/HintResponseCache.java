@@ -0,0 +1,153 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.generated.dto.HintResponse;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.CourseContents;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Shares generated hints between students of a course who ask for a hint to the same quiz question and fall into
+ * the same player type bucket. Each key holds a pool of up to a configurable number of variants, so students do not
+ * all see the same text: as long as the pool is not full, a new variant is generated, afterwards a random variant
+ * is returned. Variants which are still being generated are shared too, so a whole class asking at once causes at
+ * most one LLM call per variant.
+ * A pool is only valid for the contents the course had when it was created, including their latest change; it is
+ * dropped if one of these contents changes. Variants expire after a configurable time and at most a configurable number of pools is kept (least
+ * recently used are evicted first).
+ */
+@Slf4j
+@Service
+public class HintResponseCache {
+
+    @Value("${tutor.hint-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tutor.hint-cache.variants:3}")
+    private int variantsPerKey;
+
+    @Value("${tutor.hint-cache.ttl-minutes:360}")
+    private long ttlMinutes;
+
+    @Value("${tutor.hint-cache.max-entries:20000}")
+    private int maxEntries;
+
+    private final LinkedHashMap<Key, VariantPool> pools = new LinkedHashMap<>(16, 0.75f, true);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a cached hint or generates a new variant if the pool of the key is not full yet.
+     * Variants which fail or are rejected by the given predicate are removed from the pool again.
+     *
+     * @param courseId           the ID of the course
+     * @param questionHash       the hash identifying the quiz question
+     * @param gamificationBucket identifies the player type bucket the hint is personalized for
+     * @param contents           the current contents of the course
+     * @param cacheable          whether a generated hint may be shared, e.g. false for error responses
+     * @param generator          generates a new hint
+     * @return a mono emitting the hint
+     */
+    public Mono<HintResponse> getOrGenerate(UUID courseId, String questionHash, String gamificationBucket,
+                                            CourseContents contents, Predicate<HintResponse> cacheable,
+                                            Supplier<Mono<HintResponse>> generator) {
+        if (!enabled || variantsPerKey < 1) {
+            return generator.get();
+        }
+        Key key = new Key(courseId, questionHash, gamificationBucket);
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(ttlMinutes));
+        synchronized (pools) {
+            VariantPool pool = pools.get(key);
+            if (pool == null || !pool.contents().equals(contents)) {
+                pool = new VariantPool(contents, new ArrayList<>());
+                pools.put(key, pool);
+                evictLeastRecentlyUsed();
+            }
+            pool.variants().removeIf(variant -> variant.createdAt.isBefore(cutoff));
+
+            if (pool.variants().size() >= variantsPerKey) {
+                log.debug("Hint cache hit for question {} of course {}", questionHash, courseId);
+                return pool.variants().get(ThreadLocalRandom.current().nextInt(pool.variants().size())).response;
+            }
+
+            Variant variant = new Variant(Instant.now());
+            variant.response = generator.get()
+                    .doOnNext(hint -> {
+                        if (!cacheable.test(hint)) {
+                            remove(key, variant);
+                        }
+                    })
+                    .doOnError(e -> remove(key, variant))
+                    .doOnCancel(() -> remove(key, variant))
+                    .cache();
+            pool.variants().add(variant);
+            return variant.response;
+        }
+    }
+
+    /**
+     * Drops the hints of all courses containing one of the given contents.
+     *
+     * @param contentIds the IDs of the changed contents
+     */
+    public void invalidateContents(Collection<UUID> contentIds) {
+        boolean removedAny;
+        synchronized (pools) {
+            removedAny = pools.values().removeIf(pool -> pool.contents().getContentIds().stream()
+                    .anyMatch(contentIds::contains));
+        }
+        if (removedAny) {
+            log.info("Invalidated cached hints after change of contents {}", contentIds);
+        }
+    }
+
+    private void remove(Key key, Variant variant) {
+        synchronized (pools) {
+            VariantPool pool = pools.get(key);
+            if (pool != null) {
+                pool.variants().remove(variant);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Key> eldest = pools.keySet().iterator();
+        while (pools.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private record Key(UUID courseId, String questionHash, String gamificationBucket) {
+    }
+
+    private record VariantPool(CourseContents contents, List<Variant> variants) {
+    }
+
+    /**
+     * A hint which is generated or still being generated.
+     */
+    private static final class Variant {
+        private final Instant createdAt;
+        private Mono<HintResponse> response;
+
+        private Variant(Instant createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -4,18 +4,25 @@ import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.generated.dto.*;
+import de.unistuttgart.iste.meitrex.tutor_service.client.LlmRequestContext;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import static de.unistuttgart.iste.meitrex.common.user_handling.UserCourseAccessValidator.validateUserHasAccessToCourse;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -23,6 +30,11 @@ public class HintService {
     private final OllamaClient ollamaClient;
     private final SemanticSearchService semanticSearchService;
     private final UserPlayerTypeService userPlayerTypeService;
+    private final PromptTemplateEngine promptTemplateEngine;
+    private final LlmResponseCacheService llmResponseCacheService;
+    private final HintContextStore hintContextStore;
+    private final HintResponseCache hintResponseCache;
+    private final ContentChangeService contentChangeService;
 
     @Value("${semantic.search.threshold.hint:0.4}")
     private double scoreThreshold;
@@ -34,51 +46,173 @@ public class HintService {
             "SEMANTIC_SEARCH_QUERY_CLOZE", "generate_semantic_search_query_cloze.md"
     );
 
+    private static final String GENERATION_ERROR = "An error occurred";
 
+    /**
+     * Generates a hint for the given question. Blocks until the hint is available,
+     * prefer {@link #generateHintWithQuestionAsync(HintGenerationInput, UUID, LoggedInUser)} in reactive code.
+     */
     public HintResponse generateHintWithQuestion(
             HintGenerationInput input,
             UUID courseId,
             final LoggedInUser currentUser
     ) {
-        // First fill the prompt corresponding to the question type
-        HintGenerationData generationData = getGenerationData(input);
+        return generateHintWithQuestionAsync(input, courseId, currentUser).block();
+    }
+
+    /**
+     * Generates a hint for the given question without blocking the calling thread.
+     * The retrieval context of the question (question prompt, search query and relevant lecture content) does not
+     * depend on the student, so it is taken from the {@link HintContextStore} and only built on the first request.
+     * The hint itself only depends on the question and the branch of the gamification prompt, so students of the
+     * same course share a pool of hints from the {@link HintResponseCache}.
+     * Building the context and the lookup of the user's player type run concurrently,
+     * blocking calls to the LLM and the database are moved to a bounded elastic scheduler.
+     *
+     * @param input       the question to generate a hint for
+     * @param courseId    the ID of the course the question belongs to
+     * @param currentUser the current logged-in user
+     * @return a mono emitting the generated hint
+     */
+    public Mono<HintResponse> generateHintWithQuestionAsync(
+            HintGenerationInput input,
+            UUID courseId,
+            final LoggedInUser currentUser
+    ) {
+        LlmRequestContext llmRequestContext = LlmRequestContext.interactive(currentUser.getId(), courseId);
+        String questionHash = questionHash(input);
+        return getCourseContents(courseId, currentUser).flatMap(contents -> {
+            Mono<HintContext> hintContext = getHintContext(
+                    input, questionHash, courseId, contents, currentUser, llmRequestContext);
+            Mono<String> gamificationPrompt = Mono.fromCallable(() -> generateGamificationPrompt(courseId, currentUser))
+                    .subscribeOn(Schedulers.boundedElastic());
+
+            return Mono.zip(hintContext, gamificationPrompt)
+                    .flatMap(results -> generateHint(questionHash, courseId, contents, results.getT1(),
+                            results.getT2(), llmRequestContext));
+        });
+    }
+
+    /**
+     * Builds and stores the retrieval context of the given questions, e.g. when a quiz is published, so that the
+     * first students asking for a hint do not have to wait for it. The questions are prepared one after another
+     * with background priority. Questions whose context could not be built are skipped.
+     *
+     * @param inputs      the questions of the quiz
+     * @param courseId    the ID of the course the quiz belongs to
+     * @param currentUser the current logged-in user, must be an administrator of the course
+     * @return a mono emitting the number of questions whose context is available
+     */
+    public Mono<Integer> prepareHintContexts(
+            List<HintGenerationInput> inputs,
+            UUID courseId,
+            final LoggedInUser currentUser
+    ) {
+        validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
+        if (!hintContextStore.isEnabled()) {
+            return Mono.just(0);
+        }
+        LlmRequestContext llmRequestContext = LlmRequestContext.background(currentUser.getId(), courseId);
+        return getCourseContents(courseId, currentUser)
+                .flatMapMany(contents -> Flux.fromIterable(inputs)
+                        .concatMap(input -> getHintContext(input, questionHash(input), courseId, contents,
+                                currentUser, llmRequestContext)
+                                .onErrorResume(e -> {
+                                    log.warn("Could not prepare hint context for a question of course {}: {}",
+                                            courseId, e.getMessage());
+                                    return Mono.empty();
+                                })))
+                .count()
+                .map(Long::intValue);
+    }
+
+    /**
+     * Retrieves the contents of the course and their latest change, which stored hint contexts and hints are
+     * validated against. Validates that the user has access to the course, also if the hint is taken from a cache.
+     * Skipped if neither hint contexts nor hints are cached.
+     */
+    private Mono<CourseContents> getCourseContents(UUID courseId, LoggedInUser currentUser) {
+        if (!hintContextStore.isEnabled() && !hintResponseCache.isEnabled()) {
+            return Mono.just(new CourseContents(List.of(), null));
+        }
+        return Mono.fromCallable(() -> contentChangeService.getCourseContents(
+                        semanticSearchService.getContentIdsOfCourse(courseId, currentUser)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Returns the stored retrieval context of the question, building it if there is none.
+     */
+    private Mono<HintContext> getHintContext(HintGenerationInput input, String questionHash, UUID courseId,
+                                             CourseContents contents, LoggedInUser currentUser,
+                                             LlmRequestContext llmRequestContext) {
+        return hintContextStore.getOrBuild(courseId, questionHash, contents,
+                () -> buildHintContext(input, courseId, currentUser, llmRequestContext));
+    }
+
+    private Mono<HintContext> buildHintContext(HintGenerationInput input, UUID courseId, LoggedInUser currentUser,
+                                               LlmRequestContext llmRequestContext) {
+        return Mono.fromCallable(() -> LlmRequestContext.callWith(llmRequestContext, () -> getGenerationData(input)))
+                .subscribeOn(Schedulers.boundedElastic())
+                /*
+                 * Perform a semantic search using the query defined in HintGenerationData
+                 * Query is either generated or the provided question text based on the question type
+                 */
+                .flatMap(generationData -> semanticSearchService.semanticSearchAsync(
+                                generationData.getSemanticSearchQuery(), courseId, currentUser)
+                        .map(searchResults -> HintContext.builder()
+                                .questionPrompt(fillQuestionPrompt(input, generationData))
+                                .semanticSearchQuery(generationData.getSemanticSearchQuery())
+                                .searchResultsFound(!searchResults.isEmpty())
+                                .documentSegmentTexts(getRelevantDocumentSegmentTexts(searchResults))
+                                .build()));
+    }
+
+    private String fillQuestionPrompt(HintGenerationInput input, HintGenerationData generationData) {
         String promptName = PROMPT_TEMPLATES.get("QUESTION").replace("{QUESTION_TYPE}", input.getType().toString());
-        String questionPrompt = ollamaClient.getTemplate(promptName);
         Map<String, String> questionPromptArgs = new HashMap<>();
         questionPromptArgs.put("questionText", generationData.getQuestionText());
         questionPromptArgs.put("options", generationData.getOptionsText());
-        questionPrompt = ollamaClient.fillTemplate(questionPrompt, questionPromptArgs);
-
-        /*
-        * Perform a semantic search using the query defined in HintGenerationData
-        * Query is either generated or the provided question text based on the question type
-        */
-        List<SemanticSearchResult> searchResults =
-                semanticSearchService.semanticSearch(generationData.getSemanticSearchQuery(), courseId, currentUser);
-        if (searchResults.isEmpty()) {
-            return new HintResponse("No relevant content found in the lecture for this question");
-        }
+        return promptTemplateEngine.render(promptName, questionPromptArgs);
+    }
 
-        List<DocumentRecordSegment> documentSegments = searchResults.stream()
+    private List<String> getRelevantDocumentSegmentTexts(List<SemanticSearchResult> searchResults) {
+        return searchResults.stream()
                 .filter(result -> result.getScore() <= scoreThreshold)
                 .map(SemanticSearchResult::getMediaRecordSegment)
                 .filter(segment -> segment instanceof DocumentRecordSegment)
-                .map(segment -> (DocumentRecordSegment) segment)
+                .map(segment -> ((DocumentRecordSegment) segment).getText())
                 .toList();
+    }
 
-        if (documentSegments.isEmpty()) {
-            return new HintResponse("No relevant content found in the documents of this lecture for this question");
+    private Mono<HintResponse> generateHint(String questionHash, UUID courseId, CourseContents contents,
+                                            HintContext hintContext, String gamificationPrompt,
+                                            LlmRequestContext llmRequestContext) {
+        if (!hintContext.isSearchResultsFound()) {
+            return Mono.just(new HintResponse("No relevant content found in the lecture for this question"));
+        }
+        if (hintContext.getDocumentSegmentTexts().isEmpty()) {
+            return Mono.just(new HintResponse(
+                    "No relevant content found in the documents of this lecture for this question"));
         }
 
+        // the gamification prompt identifies the player type bucket the hint is personalized for
+        return hintResponseCache.getOrGenerate(courseId, questionHash, gamificationPrompt, contents,
+                hint -> !GENERATION_ERROR.equals(hint.getHint()),
+                () -> Mono.fromCallable(() -> LlmRequestContext.callWith(llmRequestContext,
+                                () -> generateHint(hintContext, gamificationPrompt)))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private HintResponse generateHint(HintContext hintContext, String gamificationPrompt) {
         /*
         * Now generate the hint given the question, answer options (which is injected via the questionPrompt) and
         * the text inside segments which have been found relevant via the semantic search
         */
         String contentString = semanticSearchService.formatIntoNumberedListForPrompt(
-                documentSegments.stream().map(DocumentRecordSegment::getText).toList());
-        String gamificationPrompt = generateGamificationPrompt(courseId, currentUser);
+                hintContext.getDocumentSegmentTexts());
         Map<String, String> promptArgs = new HashMap<>();
-        promptArgs.put("questionPrompt", questionPrompt);
+        promptArgs.put("questionPrompt", hintContext.getQuestionPrompt());
         promptArgs.put("content", contentString);
         promptArgs.put("gamificationPrompt", gamificationPrompt);
 
@@ -86,10 +220,41 @@ public class HintService {
                 HintResponse.class,
                 PROMPT_TEMPLATES.get("GENERATION"),
                 promptArgs,
-                new HintResponse("An error occurred")
+                new HintResponse(GENERATION_ERROR)
         );
     }
 
+    /**
+     * @param input the question
+     * @return the hex encoded SHA-256 hash of the type, text and options of the question
+     */
+    static String questionHash(HintGenerationInput input) {
+        List<String> parts = new ArrayList<>();
+        parts.add(String.valueOf(input.getType()));
+        if (input.getMultipleChoice() != null) {
+            parts.add(input.getMultipleChoice().getText());
+            parts.addAll(input.getMultipleChoice().getAnswers());
+        }
+        if (input.getCloze() != null) {
+            parts.add(input.getCloze().getText());
+            parts.addAll(input.getCloze().getBlanks());
+        }
+        if (input.getAssociation() != null) {
+            parts.add(input.getAssociation().getText());
+            input.getAssociation().getPairs().forEach(pair -> {
+                parts.add(pair.getLeft());
+                parts.add(pair.getRight());
+            });
+        }
+        // length-prefixed, so different questions cannot produce the same input to the hash
+        StringBuilder question = new StringBuilder();
+        for (String part : parts) {
+            String value = String.valueOf(part);
+            question.append(value.length()).append(':').append(value);
+        }
+        return ContentHashing.sha256(question.toString());
+    }
+
     /**
      * Generates a gamification prompt based on the user's primary player type.
      * Returns an empty string if no player type is found or an error occurs.
@@ -167,7 +332,7 @@ public class HintService {
         // Generate a semantic search query based on the question text and the pairs
         Map<String, String> promptArgs = new HashMap<>();
         promptArgs.put("pairs", optionsString);
-        SemanticSearchQuery semanticSearchQuery = ollamaClient.startQuery(
+        SemanticSearchQuery semanticSearchQuery = llmResponseCacheService.query(
                 SemanticSearchQuery.class,
                 PROMPT_TEMPLATES.get("SEMANTIC_SEARCH_QUERY_ASSOCIATION"),
                 promptArgs ,
@@ -195,7 +360,7 @@ public class HintService {
         Map<String, String> promptArgs = new HashMap<>();
         promptArgs.put("clozeText", questionText);
         promptArgs.put("answers", optionsString);
-        SemanticSearchQuery semanticSearchQuery = ollamaClient.startQuery(
+        SemanticSearchQuery semanticSearchQuery = llmResponseCacheService.query(
                 SemanticSearchQuery.class,
                 PROMPT_TEMPLATES.get("SEMANTIC_SEARCH_QUERY_CLOZE"),
                 promptArgs,
@@ -0,0 +1,217 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.LectureAnswerCacheKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-course cache for answers to lecture questions.
+ * Many students of a course ask nearly the same questions, so answers are shared between them based on the
+ * normalized question text. Optionally, a question also matches a cached one if their word sets are similar enough.
+ * Entries expire after a configurable time, each course keeps at most a configurable number of entries
+ * (least recently used are evicted first) and all entries of a course are dropped once its set of contents changes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LectureAnswerCacheService {
+
+    private final SemanticSearchService semanticSearchService;
+
+    @Value("${tutor.answer-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tutor.answer-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${tutor.answer-cache.max-entries-per-course:500}")
+    private int maxEntriesPerCourse;
+
+    /**
+     * Minimum word set similarity (0-1) for a question to match a cached one. 1 only allows exact matches
+     * of the normalized question.
+     */
+    @Value("${tutor.answer-cache.similarity-threshold:1.0}")
+    private double similarityThreshold;
+
+    private final ConcurrentMap<UUID, CourseAnswers> courseAnswers = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates the cache key for a question. Validates that the user has access to the course.
+     *
+     * @param courseId         the ID of the course
+     * @param question         the question asked by the user
+     * @param skillLevelBucket the skill level bucket used to personalize the answer
+     * @param currentUser      the currently logged-in user
+     * @return the key, or empty if the cache is disabled or the contents of the course could not be determined
+     */
+    public Optional<LectureAnswerCacheKey> createKey(UUID courseId, String question, int skillLevelBucket,
+                                                     LoggedInUser currentUser) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            List<UUID> contentIds = semanticSearchService.getContentIdsOfCourse(courseId, currentUser);
+            return Optional.of(new LectureAnswerCacheKey(
+                    courseId, fingerprint(contentIds), skillLevelBucket, normalize(question)));
+        } catch (RuntimeException e) {
+            log.warn("Could not create answer cache key for course {}: {}", courseId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Looks up a cached answer.
+     *
+     * @param key the key of the question
+     * @return the cached answer including its sources, or empty if there is none
+     */
+    public Optional<LectureQuestionResponse> lookup(LectureAnswerCacheKey key) {
+        CourseAnswers answers = courseAnswers.get(key.getCourseId());
+        if (answers == null) {
+            return Optional.empty();
+        }
+        Optional<LectureQuestionResponse> cached = answers.lookup(key);
+        if (cached.isPresent()) {
+            log.info("Answer cache hit for course {}", key.getCourseId());
+        }
+        return cached;
+    }
+
+    /**
+     * Stores a generated answer.
+     *
+     * @param key      the key of the question
+     * @param response the generated answer including its sources
+     */
+    public void store(LectureAnswerCacheKey key, LectureQuestionResponse response) {
+        courseAnswers.computeIfAbsent(key.getCourseId(), courseId -> new CourseAnswers())
+                .store(key, response);
+    }
+
+    /**
+     * Normalizes a question so that trivial differences in case, punctuation and whitespace are ignored.
+     */
+    static String normalize(String question) {
+        return question.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    private static String fingerprint(List<UUID> contentIds) {
+        String joined = contentIds.stream()
+                .map(UUID::toString)
+                .sorted()
+                .collect(Collectors.joining(","));
+        return UUID.nameUUIDFromBytes(joined.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static String entryKey(int skillLevelBucket, String normalizedQuestion) {
+        return skillLevelBucket + ":" + normalizedQuestion;
+    }
+
+    private static Set<String> words(String normalizedQuestion) {
+        return new HashSet<>(Arrays.asList(normalizedQuestion.split(" ")));
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / (a.size() + b.size() - intersection.size());
+    }
+
+    private record CachedAnswer(LectureQuestionResponse response, Set<String> words, Instant createdAt) {
+    }
+
+    /**
+     * The cached answers of a single course in least recently used order.
+     */
+    private class CourseAnswers {
+
+        private final LinkedHashMap<String, CachedAnswer> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private String contentFingerprint;
+
+        synchronized Optional<LectureQuestionResponse> lookup(LectureAnswerCacheKey key) {
+            if (!key.getContentFingerprint().equals(contentFingerprint)) {
+                // the contents of the course changed, all answers might be outdated
+                entries.clear();
+                contentFingerprint = key.getContentFingerprint();
+                return Optional.empty();
+            }
+            removeExpired();
+
+            CachedAnswer exact = entries.get(entryKey(key.getSkillLevelBucket(), key.getNormalizedQuestion()));
+            if (exact != null) {
+                return Optional.of(exact.response());
+            }
+            if (similarityThreshold >= 1.0) {
+                return Optional.empty();
+            }
+
+            String bucketPrefix = key.getSkillLevelBucket() + ":";
+            Set<String> questionWords = words(key.getNormalizedQuestion());
+            String bestKey = null;
+            double bestSimilarity = similarityThreshold;
+            for (Map.Entry<String, CachedAnswer> entry : entries.entrySet()) {
+                if (!entry.getKey().startsWith(bucketPrefix)) {
+                    continue;
+                }
+                double entrySimilarity = similarity(questionWords, entry.getValue().words());
+                if (entrySimilarity >= bestSimilarity) {
+                    bestSimilarity = entrySimilarity;
+                    bestKey = entry.getKey();
+                }
+            }
+            // get() updates the access order of the matched entry
+            return bestKey == null ? Optional.empty() : Optional.of(entries.get(bestKey).response());
+        }
+
+        synchronized void store(LectureAnswerCacheKey key, LectureQuestionResponse response) {
+            if (!key.getContentFingerprint().equals(contentFingerprint)) {
+                entries.clear();
+                contentFingerprint = key.getContentFingerprint();
+            }
+            entries.put(entryKey(key.getSkillLevelBucket(), key.getNormalizedQuestion()),
+                    new CachedAnswer(response, words(key.getNormalizedQuestion()), Instant.now()));
+
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntriesPerCourse && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        private void removeExpired() {
+            Instant cutoff = Instant.now().minus(Duration.ofMinutes(ttlMinutes));
+            entries.values().removeIf(answer -> answer.createdAt().isBefore(cutoff));
+        }
+    }
+}
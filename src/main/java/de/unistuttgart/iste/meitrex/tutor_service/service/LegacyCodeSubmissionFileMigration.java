@@ -0,0 +1,73 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.LegacyCodeSubmissionFileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Moves code submission files stored with their full contents per submission to the deduplicated storage
+ * of the {@link CodeFileBlobService}. Runs on every startup as long as the old table exists; submissions which already
+ * have files in the deduplicated storage are skipped by the query, so an interrupted migration continues with the
+ * remaining submissions on the next start.
+ * The old table is kept until dropping it is enabled, so the migrated submissions can be checked first. Even then it
+ * is only dropped after a run in which no submission failed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LegacyCodeSubmissionFileMigration {
+
+    private final LegacyCodeSubmissionFileRepository legacyRepository;
+    private final StudentCodeSubmissionService studentCodeSubmissionService;
+
+    @Value("${tutor.code-submission.legacy-migration.drop-table:false}")
+    private boolean dropTable;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyFiles() {
+        try {
+            if (!legacyRepository.exists()) {
+                return;
+            }
+            List<StudentCodeSubmissionEntity.PrimaryKey> keys = legacyRepository.findSubmissionKeys();
+            int imported = 0;
+            int skipped = 0;
+            int failed = 0;
+            for (StudentCodeSubmissionEntity.PrimaryKey key : keys) {
+                try {
+                    if (studentCodeSubmissionService.importLegacyFiles(key.getStudentId(), key.getAssignmentId(),
+                            legacyRepository.findFiles(key))) {
+                        imported++;
+                    } else {
+                        skipped++;
+                    }
+                } catch (DataAccessException e) {
+                    failed++;
+                    log.warn("Failed to move the files of the code submission of student {} on assignment {}",
+                            key.getStudentId(), key.getAssignmentId(), e);
+                }
+            }
+            log.info("Moved the files of {} code submissions to the deduplicated storage, {} were skipped as they "
+                    + "were updated since or deleted, {} failed", imported, skipped, failed);
+
+            if (!dropTable) {
+                log.info("Keeping the table of the previous code submission format until dropping it is enabled");
+            } else if (failed > 0) {
+                log.warn("Keeping the table of the previous code submission format as {} submissions failed", failed);
+            } else {
+                legacyRepository.dropTable();
+                log.info("Dropped the table of the previous code submission format");
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to move code submission files to the deduplicated storage", e);
+        }
+    }
+}
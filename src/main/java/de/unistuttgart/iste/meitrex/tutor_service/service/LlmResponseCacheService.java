@@ -0,0 +1,245 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.LlmResponseCacheEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.LlmResponseCacheRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache for structured responses of the LLM to prompts which only depend on their arguments, e.g. generating a
+ * semantic search query for a quiz question or categorizing a question. The same quiz question is shown to every
+ * student of a course, so the response is generated once and shared.
+ * The key is a SHA-256 hash of the template name, the template version (the hash of its text), the arguments and
+ * the model, so editing a template or switching the model never returns outdated responses.
+ * Responses are kept in memory (least recently used are evicted first) and optionally in the database, so they are
+ * shared between instances and survive restarts. Responses expire after a configurable time.
+ * Concurrent queries of the same prompt which is not cached share a single request to the LLM.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LlmResponseCacheService {
+
+    private final OllamaClient ollamaClient;
+    private final PromptTemplateEngine promptTemplateEngine;
+    private final LlmResponseCacheRepository llmResponseCacheRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${tutor.llm-response-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tutor.llm-response-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${tutor.llm-response-cache.database.enabled:false}")
+    private boolean databaseEnabled;
+
+    @Value("${tutor.llm-response-cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${tutor.llm-response-cache.cleanup-batch-size:1000}")
+    private int cleanupBatchSize;
+
+    @Value("${ollama.model:}")
+    private String model;
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The running queries per cache key, completed with the response, or with null if the LLM could not be queried.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlightQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Queries the LLM like {@link OllamaClient#startQuery(Class, String, Map, Object)}, but returns a cached response
+     * if the same prompt was already sent to the same model. Error responses are not cached.
+     *
+     * @param responseType the class of the structured response
+     * @param templateName the file name of the prompt template
+     * @param args         the arguments to fill into the template
+     * @param error        the response to return if the LLM could not be queried
+     * @return the response of the LLM
+     */
+    public <T> T query(Class<T> responseType, String templateName, Map<String, String> args, T error) {
+        if (!enabled) {
+            return ollamaClient.startQuery(responseType, templateName, args, error);
+        }
+        String cacheKey;
+        try {
+            cacheKey = cacheKey(templateName, promptTemplateEngine.getTemplateVersion(templateName), args, model);
+        } catch (IllegalArgumentException e) {
+            log.warn("Not caching response to unknown prompt template {}", templateName);
+            return ollamaClient.startQuery(responseType, templateName, args, error);
+        }
+
+        Optional<T> cached = lookup(cacheKey, responseType);
+        if (cached.isPresent()) {
+            log.debug("LLM response cache hit for prompt template {}", templateName);
+            return cached.get();
+        }
+
+        CompletableFuture<Object> query = new CompletableFuture<>();
+        CompletableFuture<Object> runningQuery = inFlightQueries.putIfAbsent(cacheKey, query);
+        if (runningQuery != null) {
+            log.debug("Waiting for running LLM query of prompt template {}", templateName);
+            return awaitRunningQuery(runningQuery, responseType, error);
+        }
+
+        Object sharedResponse = null;
+        try {
+            // a query which finished after the lookup above has already stored its response in memory
+            Optional<T> stored = lookupInMemory(cacheKey, responseType);
+            if (stored.isPresent()) {
+                sharedResponse = stored.get();
+                return stored.get();
+            }
+            T response = ollamaClient.startQuery(responseType, templateName, args, error);
+            if (response != null && response != error) {
+                store(cacheKey, templateName, response);
+                sharedResponse = response;
+            }
+            return response;
+        } finally {
+            inFlightQueries.remove(cacheKey, query);
+            query.complete(sharedResponse);
+        }
+    }
+
+    /**
+     * Removes expired responses from the database.
+     */
+    @Scheduled(fixedDelayString = "${tutor.llm-response-cache.cleanup-interval-ms:3600000}")
+    public void removeExpiredResponses() {
+        if (!enabled || !databaseEnabled) {
+            return;
+        }
+        OffsetDateTime cutoff = OffsetDateTime.now().minusMinutes(ttlMinutes);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = llmResponseCacheRepository.deleteBatchByCreatedAtBefore(cutoff, cleanupBatchSize);
+            total += deleted;
+        } while (deleted >= cleanupBatchSize);
+        if (total > 0) {
+            log.info("Removed {} expired LLM responses", total);
+        }
+    }
+
+    /**
+     * @return the hex encoded SHA-256 hash identifying the prompt. Arguments are sorted by name and all parts are
+     * length-prefixed, so different prompts cannot produce the same input to the hash.
+     */
+    static String cacheKey(String templateName, String templateVersion, Map<String, String> args, String model) {
+        StringBuilder key = new StringBuilder();
+        appendPart(key, templateName);
+        appendPart(key, templateVersion);
+        appendPart(key, model);
+        new TreeMap<>(args).forEach((name, value) -> {
+            appendPart(key, name);
+            appendPart(key, value);
+        });
+        return ContentHashing.sha256(key.toString());
+    }
+
+    private static void appendPart(StringBuilder key, String part) {
+        String value = part == null ? "" : part;
+        key.append(value.length()).append(':').append(value);
+    }
+
+    /**
+     * Waits for the response of a query of the same prompt by another thread. Returns the given error response
+     * if that query failed, as querying the LLM again right away would most likely fail as well.
+     */
+    private <T> T awaitRunningQuery(CompletableFuture<Object> runningQuery, Class<T> responseType, T error) {
+        try {
+            Object response = runningQuery.get();
+            return response == null ? error : responseType.cast(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error;
+        } catch (ExecutionException e) {
+            return error;
+        }
+    }
+
+    private <T> Optional<T> lookup(String cacheKey, Class<T> responseType) {
+        Optional<T> cached = lookupInMemory(cacheKey, responseType);
+        if (cached.isPresent() || !databaseEnabled) {
+            return cached;
+        }
+
+        try {
+            Optional<LlmResponseCacheEntity> entity = llmResponseCacheRepository.findByCacheKeyAndCreatedAtAfter(
+                    cacheKey, OffsetDateTime.now().minusMinutes(ttlMinutes));
+            if (entity.isEmpty()) {
+                return Optional.empty();
+            }
+            T response = objectMapper.readValue(entity.get().getResponse(), responseType);
+            putInMemory(cacheKey, response, entity.get().getCreatedAt().toInstant());
+            return Optional.of(response);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not read cached LLM response {}: {}", cacheKey, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private <T> Optional<T> lookupInMemory(String cacheKey, Class<T> responseType) {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(ttlMinutes));
+        synchronized (entries) {
+            CachedResponse cached = entries.get(cacheKey);
+            if (cached != null && cached.createdAt().isAfter(cutoff)) {
+                return Optional.of(responseType.cast(cached.response()));
+            }
+            if (cached != null) {
+                entries.remove(cacheKey);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void store(String cacheKey, String templateName, Object response) {
+        putInMemory(cacheKey, response, Instant.now());
+        if (!databaseEnabled) {
+            return;
+        }
+        try {
+            llmResponseCacheRepository.upsert(cacheKey, templateName, objectMapper.writeValueAsString(response),
+                    OffsetDateTime.now());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not store LLM response to prompt template {}: {}", templateName, e.getMessage());
+        }
+    }
+
+    private void putInMemory(String cacheKey, Object response, Instant createdAt) {
+        synchronized (entries) {
+            entries.put(cacheKey, new CachedResponse(response, createdAt));
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record CachedResponse(Object response, Instant createdAt) {
+    }
+}
@@ -0,0 +1,184 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackJobEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable queue for proactive feedback generation.
+ * Content-progressed events are only stored as jobs, so the Dapr delivery can be acknowledged immediately no matter
+ * how slow the LLM is. A pool of workers processes the jobs; failed jobs are retried with exponential backoff and
+ * moved to the dead letters after the maximum number of attempts. As the jobs are claimed in the database, multiple
+ * instances of the service can process the queue concurrently.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProactiveFeedbackJobService {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+    private static final int MAX_BACKOFF_EXPONENT = 10;
+
+    private final ProactiveFeedbackJobRepository jobRepository;
+    private final ProactiveFeedbackService proactiveFeedbackService;
+
+    @Value("${tutor.proactive-feedback.jobs.parallelism:2}")
+    private int parallelism;
+
+    @Value("${tutor.proactive-feedback.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${tutor.proactive-feedback.jobs.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    @Value("${tutor.proactive-feedback.jobs.lease-minutes:10}")
+    private long leaseMinutes;
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    private ExecutorService workers;
+
+    @PostConstruct
+    void startWorkers() {
+        workers = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        // jobs which are still running are picked up again once their lease expired
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stores a job to generate proactive feedback for the given event.
+     *
+     * @param event the content progressed event to generate feedback for
+     */
+    public void enqueue(ContentProgressedEvent event) {
+        OffsetDateTime now = OffsetDateTime.now();
+        ProactiveFeedbackJobEntity job = jobRepository.save(ProactiveFeedbackJobEntity.builder()
+                .userId(event.getUserId())
+                .contentId(event.getContentId())
+                .contentType(event.getContentType())
+                .correctness(event.getCorrectness())
+                .success(event.isSuccess())
+                .status(ProactiveFeedbackJobEntity.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        log.info("Enqueued proactive feedback job {} for user {} on content {}",
+                job.getId(), event.getUserId(), event.getContentId());
+    }
+
+    /**
+     * Claims due jobs for all idle workers and hands them to the workers.
+     * Jobs whose lease expired during their last attempt are moved to the dead letters instead of being retried.
+     */
+    @Scheduled(fixedDelayString = "${tutor.proactive-feedback.jobs.poll-interval-ms:1000}")
+    public void pollJobs() {
+        int idleWorkers = parallelism - runningJobs.get();
+        if (idleWorkers <= 0) {
+            return;
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        int expired = jobRepository.moveExpiredLastAttemptsToDeadLetters(now, maxAttempts,
+                "Lease expired during the last attempt");
+        if (expired > 0) {
+            log.error("{} proactive feedback jobs did not finish their last attempt, moved to dead letters", expired);
+        }
+
+        UUID claimId = UUID.randomUUID();
+        int claimed = jobRepository.claimDueJobs(claimId, now, now.plusMinutes(leaseMinutes), maxAttempts,
+                idleWorkers);
+        if (claimed == 0) {
+            return;
+        }
+
+        List<ProactiveFeedbackJobEntity> jobs = jobRepository.findByClaimId(claimId);
+        for (ProactiveFeedbackJobEntity job : jobs) {
+            runningJobs.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    processJob(job);
+                } finally {
+                    runningJobs.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Generates the feedback of a claimed job. Deletes the job on success, otherwise schedules a retry or
+     * moves it to the dead letters. Both only happen while the job is still claimed by the claim it was processed
+     * under; if its lease expired and another worker claimed it in the meantime, the result is dropped.
+     *
+     * @param job the claimed job
+     */
+    void processJob(ProactiveFeedbackJobEntity job) {
+        try {
+            String feedback = proactiveFeedbackService.generateFeedback(toEvent(job),
+                    () -> jobRepository.deleteClaimedJob(job.getId(), job.getClaimId()) == 1);
+            if (feedback == null) {
+                throw new IllegalStateException("Feedback generation failed");
+            }
+        } catch (Exception e) {
+            handleFailure(job, e);
+        }
+    }
+
+    private void handleFailure(ProactiveFeedbackJobEntity job, Exception e) {
+        String error = String.valueOf(e.getMessage());
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+
+        ProactiveFeedbackJobEntity.Status status;
+        OffsetDateTime nextAttemptAt;
+        Duration delay = null;
+        if (job.getAttempts() >= maxAttempts) {
+            status = ProactiveFeedbackJobEntity.Status.DEAD_LETTER;
+            nextAttemptAt = job.getNextAttemptAt();
+        } else {
+            int backoffExponent = Math.min(Math.max(job.getAttempts() - 1, 0), MAX_BACKOFF_EXPONENT);
+            delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << backoffExponent);
+            status = ProactiveFeedbackJobEntity.Status.PENDING;
+            nextAttemptAt = OffsetDateTime.now().plus(delay);
+        }
+
+        if (jobRepository.releaseClaimedJob(job.getId(), job.getClaimId(), status.name(), nextAttemptAt,
+                lastError) == 0) {
+            log.warn("Proactive feedback job {} for user {} was claimed again after its lease expired, "
+                    + "dropping the result of attempt {}", job.getId(), job.getUserId(), job.getAttempts());
+        } else if (status == ProactiveFeedbackJobEntity.Status.DEAD_LETTER) {
+            log.error("Proactive feedback job {} for user {} failed {} times, moved to dead letters: {}",
+                    job.getId(), job.getUserId(), job.getAttempts(), error);
+        } else {
+            log.warn("Proactive feedback job {} for user {} failed (attempt {}), retrying in {}: {}",
+                    job.getId(), job.getUserId(), job.getAttempts(), delay, error);
+        }
+    }
+
+    private static ContentProgressedEvent toEvent(ProactiveFeedbackJobEntity job) {
+        return ContentProgressedEvent.builder()
+                .userId(job.getUserId())
+                .contentId(job.getContentId())
+                .contentType(job.getContentType())
+                .correctness(job.getCorrectness())
+                .success(job.getSuccess())
+                .build();
+    }
+}
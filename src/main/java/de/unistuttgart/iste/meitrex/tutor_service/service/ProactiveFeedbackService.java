@@ -4,6 +4,7 @@ import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.generated.dto.ProactiveFeedback;
+import de.unistuttgart.iste.meitrex.tutor_service.client.LlmRequestContext;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackRepository;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.TutorAnswer;
@@ -12,12 +13,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Sinks;
 
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BooleanSupplier;
 
 /**
  * Service for generating personalized tutor feedback after assignment completion.
@@ -33,6 +36,7 @@ public class ProactiveFeedbackService {
     private final UserSkillLevelService userSkillLevelService;
     private final ProactiveFeedbackRepository proactiveFeedbackRepository;
     private final StudentCodeSubmissionService studentCodeSubmissionService;
+    private final TransactionTemplate transactionTemplate;
     
     /**
      * Per-user reactive sinks for streaming feedback to subscribers.
@@ -52,6 +56,9 @@ public class ProactiveFeedbackService {
     @Value("${correctness.level.max:0.99}")
     private double correctnessLevelMax;
 
+    @Value("${tutor.proactive-feedback.max-age-minutes:30}")
+    private int maxAgeMinutes;
+
 
     private static final String FEEDBACK_PROMPT_TEMPLATE = "proactive_feedback_prompt.txt";
 
@@ -91,6 +98,20 @@ public class ProactiveFeedbackService {
      * @return the generated feedback message, or null if feedback generation fails
      */
     public String generateFeedback(ContentProgressedEvent event) {
+        return generateFeedback(event, () -> true);
+    }
+
+    /**
+     * Generates personalized feedback like {@link #generateFeedback(ContentProgressedEvent)}, but only stores and
+     * pushes it if the given completion succeeds in the same transaction, e.g. completing the job the feedback was
+     * generated for. Otherwise the feedback is dropped, so it is stored at most once even if the job was claimed
+     * by another worker in the meantime.
+     *
+     * @param event    the content progressed event containing assignment completion data
+     * @param complete called in the transaction storing the feedback, returns false if the feedback must be dropped
+     * @return the generated feedback message, or null if feedback generation fails or the feedback was dropped
+     */
+    public String generateFeedback(ContentProgressedEvent event, BooleanSupplier complete) {
         try {
             log.info("Generating feedback for user {} on assignment {}", 
                     event.getUserId(), event.getContentId());
@@ -111,16 +132,23 @@ public class ProactiveFeedbackService {
                     "codeContext", codeContext
                 );
 
-            String error = "Oops, something went wrong generating proactive feedback! Your correctness was " +
-                    String.format("%.2f", event.getCorrectness()) +
-                    ". Please try again later.";
-
-            TutorAnswer feedback = ollamaClient.startQuery(
-                    TutorAnswer.class,
-                    FEEDBACK_PROMPT_TEMPLATE,
-                    promptArgs, 
-                    new TutorAnswer(error)
-            );
+            // returned by the client if the query fails, nothing is stored then so the job can be retried
+            TutorAnswer error = new TutorAnswer("Oops, something went wrong generating proactive feedback!");
+
+            // proactive feedback is background work, users asking questions are served first
+            TutorAnswer feedback = LlmRequestContext.callWith(
+                    LlmRequestContext.background(event.getUserId(), null),
+                    () -> ollamaClient.startQuery(
+                            TutorAnswer.class,
+                            FEEDBACK_PROMPT_TEMPLATE,
+                            promptArgs,
+                            error
+                    ));
+            if (feedback == error) {
+                log.warn("LLM query for proactive feedback of user {} on assignment {} failed",
+                        event.getUserId(), event.getContentId());
+                return null;
+            }
 
             ProactiveFeedbackEntity feedbackEntity = ProactiveFeedbackEntity.builder()
                     .userId(event.getUserId())
@@ -131,7 +159,14 @@ public class ProactiveFeedbackService {
                     .createdAt(OffsetDateTime.now())
                     .build();
 
-            ProactiveFeedbackEntity savedEntity = proactiveFeedbackRepository.save(feedbackEntity);
+            // the LLM is queried outside the transaction, so no connection is held while waiting for it
+            ProactiveFeedbackEntity savedEntity = transactionTemplate.execute(status ->
+                    complete.getAsBoolean() ? proactiveFeedbackRepository.save(feedbackEntity) : null);
+            if (savedEntity == null) {
+                log.warn("Dropped proactive feedback for user {} on assignment {} as it could not be completed",
+                        event.getUserId(), event.getContentId());
+                return null;
+            }
 
             ProactiveFeedback feedbackDto = ProactiveFeedback.builder()
                     .setId(savedEntity.getId())
@@ -177,23 +212,23 @@ public class ProactiveFeedbackService {
     /**
      * Retrieves the most recent feedback for a user and deletes it.
      * This is used when the frontend requests proactive feedback.
-     * Feedback older than 30 minutes is automatically discarded.
+     * Feedback older than the max age is ignored, but kept for the feedback history until its retention period
+     * ends.
      *
      * @param userId the user ID
-     * @return optional feedback text, or empty if no feedback exists or is older than 30 minutes
+     * @return optional feedback text, or empty if no feedback exists or is older than the max age
      */
     public Optional<String> getAndDeleteLatestFeedback(UUID userId) {
-        List<ProactiveFeedbackEntity> feedbackList = proactiveFeedbackRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        Optional<ProactiveFeedbackEntity> latestFeedbackOpt = proactiveFeedbackRepository.findFirstByUserIdOrderByCreatedAtDesc(userId);
         
-        if (feedbackList.isEmpty()) {
+        if (latestFeedbackOpt.isEmpty()) {
             return Optional.empty();
         }
         
-        ProactiveFeedbackEntity latestFeedback = feedbackList.get(0);
+        ProactiveFeedbackEntity latestFeedback = latestFeedbackOpt.get();
         
-        OffsetDateTime thirtyMinutesAgo = OffsetDateTime.now().minusMinutes(30);
-        if (latestFeedback.getCreatedAt().isBefore(thirtyMinutesAgo)) {
-            proactiveFeedbackRepository.delete(latestFeedback);
+        OffsetDateTime cutoffTime = OffsetDateTime.now().minusMinutes(maxAgeMinutes);
+        if (latestFeedback.getCreatedAt().isBefore(cutoffTime)) {
             return Optional.empty();
         }
         
@@ -0,0 +1,248 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the prompt templates in the prompt folder.
+ * All templates are read and parsed once at startup into their literal text segments and the placeholders between
+ * them, written as {@code {{name}}}. Rendering a template is a single pass over its segments into a builder sized
+ * for the result, instead of reading the template from the classpath and scanning the whole text once per argument.
+ * Rendering fails if a placeholder of the template has no value, so a missing argument does not silently end up
+ * as {@code {{name}}} in the prompt.
+ * With hot reload enabled (meant for development), the templates are re-read periodically so changes to them take
+ * effect without a restart.
+ */
+@Slf4j
+@Service
+public class PromptTemplateEngine {
+
+    private static final String PLACEHOLDER_START = "{{";
+    private static final String PLACEHOLDER_END = "}}";
+    private static final Pattern PLACEHOLDER_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    @Value("${ollama.promptFolder:prompt_templates}")
+    private String promptFolder;
+
+    @Value("${tutor.prompt-templates.hot-reload:false}")
+    private boolean hotReload;
+
+    /**
+     * The loaded templates. Replaced as a whole on reload, so a template and its source always belong together.
+     */
+    private volatile LoadedTemplates loadedTemplates = new LoadedTemplates(Map.of(), Map.of());
+
+    /**
+     * Loads all templates of the prompt folder.
+     */
+    @PostConstruct
+    public void loadTemplates() {
+        loadedTemplates = readTemplates();
+        log.info("Loaded {} prompt templates from {}", loadedTemplates.byName().size(), promptFolder);
+    }
+
+    /**
+     * Re-reads the templates if hot reload is enabled.
+     * If reading fails, the templates loaded before are kept.
+     */
+    @Scheduled(fixedDelayString = "${tutor.prompt-templates.reload-interval-ms:2000}")
+    public void reloadTemplates() {
+        if (!hotReload) {
+            return;
+        }
+        LoadedTemplates reloaded;
+        try {
+            reloaded = readTemplates();
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload prompt templates: {}", e.getMessage());
+            return;
+        }
+        Map<String, PromptTemplate> current = loadedTemplates.byName();
+        reloaded.byName().forEach((name, template) -> {
+            PromptTemplate previous = current.get(name);
+            if (previous == null || !previous.source().equals(template.source())) {
+                log.info("Reloaded prompt template {}", name);
+            }
+        });
+        loadedTemplates = reloaded;
+    }
+
+    /**
+     * @param templateName the file name of the template in the prompt folder
+     * @return the text of the template
+     * @throws IllegalArgumentException if there is no such template
+     */
+    public String getTemplate(String templateName) {
+        return get(templateName).source();
+    }
+
+    /**
+     * @param templateName the file name of the template in the prompt folder
+     * @return the SHA-256 hash of the text of the template, which changes whenever the template is edited
+     * @throws IllegalArgumentException if there is no such template
+     */
+    public String getTemplateVersion(String templateName) {
+        return get(templateName).version();
+    }
+
+    /**
+     * Renders the given template.
+     *
+     * @param templateName the file name of the template in the prompt folder
+     * @param args         the values of the placeholders
+     * @return the rendered prompt
+     * @throws IllegalArgumentException if there is no such template or a placeholder has no value
+     */
+    public String render(String templateName, Map<String, String> args) {
+        return get(templateName).render(args);
+    }
+
+    /**
+     * Fills the placeholders of the given template text. Texts returned by {@link #getTemplate(String)} are not
+     * parsed again, other texts are parsed for this call only.
+     *
+     * @param templateSource the text of the template
+     * @param args           the values of the placeholders
+     * @return the rendered prompt
+     * @throws IllegalArgumentException if a placeholder has no value
+     */
+    public String fill(String templateSource, Map<String, String> args) {
+        PromptTemplate template = loadedTemplates.bySource().get(templateSource);
+        if (template == null) {
+            template = parse("inline template", templateSource);
+        }
+        return template.render(args);
+    }
+
+    private PromptTemplate get(String templateName) {
+        PromptTemplate template = loadedTemplates.byName().get(templateName);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown prompt template " + templateName);
+        }
+        return template;
+    }
+
+    private LoadedTemplates readTemplates() {
+        Resource[] resources;
+        try {
+            resources = resourceResolver.getResources("classpath*:" + promptFolder + "/*");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list prompt templates in " + promptFolder, e);
+        }
+
+        Map<String, PromptTemplate> byName = new HashMap<>();
+        Map<String, PromptTemplate> bySource = new HashMap<>();
+        for (Resource resource : resources) {
+            if (!resource.isReadable() || resource.getFilename() == null) {
+                continue;
+            }
+            try (InputStream input = resource.getInputStream()) {
+                PromptTemplate template = parse(resource.getFilename(),
+                        new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                byName.put(template.name(), template);
+                bySource.put(template.source(), template);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read prompt template " + resource.getFilename(), e);
+            }
+        }
+        return new LoadedTemplates(Map.copyOf(byName), Map.copyOf(bySource));
+    }
+
+    /**
+     * Splits a template text into literal segments and placeholders.
+     * Braces which do not enclose a valid placeholder name are kept as literal text.
+     */
+    static PromptTemplate parse(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf(PLACEHOLDER_START, position);
+            int end = start < 0 ? -1 : source.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+            if (end < 0) {
+                literal.append(source, position, source.length());
+                break;
+            }
+            String placeholder = source.substring(start + PLACEHOLDER_START.length(), end);
+            if (PLACEHOLDER_NAME.matcher(placeholder).matches()) {
+                literal.append(source, position, start);
+                literals.add(literal.toString());
+                literal.setLength(0);
+                placeholders.add(placeholder);
+                position = end + PLACEHOLDER_END.length();
+            } else {
+                literal.append(source, position, start + PLACEHOLDER_START.length());
+                position = start + PLACEHOLDER_START.length();
+            }
+        }
+        literals.add(literal.toString());
+
+        int literalLength = literals.stream().mapToInt(String::length).sum();
+        return new PromptTemplate(name, source, ContentHashing.sha256(source), literals.toArray(String[]::new),
+                placeholders.toArray(String[]::new), literalLength);
+    }
+
+    /**
+     * A parsed template. The placeholder at index i is between the literals at index i and i + 1.
+     *
+     * @param name          the name of the template
+     * @param source        the text of the template
+     * @param version       the SHA-256 hash of the text
+     * @param literals      the literal segments, one more than there are placeholders
+     * @param placeholders  the names of the placeholders
+     * @param literalLength the total length of the literal segments
+     */
+    record PromptTemplate(String name, String source, String version, String[] literals, String[] placeholders,
+                          int literalLength) {
+
+        String render(Map<String, String> args) {
+            int length = literalLength;
+            Set<String> missing = null;
+            for (String placeholder : placeholders) {
+                String value = args.get(placeholder);
+                if (value == null) {
+                    if (missing == null) {
+                        missing = new LinkedHashSet<>();
+                    }
+                    missing.add(placeholder);
+                } else {
+                    length += value.length();
+                }
+            }
+            if (missing != null) {
+                throw new IllegalArgumentException("No values for placeholders " + missing
+                        + " of prompt template " + name);
+            }
+
+            StringBuilder prompt = new StringBuilder(length);
+            for (int i = 0; i < placeholders.length; i++) {
+                prompt.append(literals[i]).append(args.get(placeholders[i]));
+            }
+            return prompt.append(literals[placeholders.length]).toString();
+        }
+    }
+
+    private record LoadedTemplates(Map<String, PromptTemplate> byName, Map<String, PromptTemplate> bySource) {
+    }
+}
@@ -0,0 +1,104 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.TutorCategory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Categorizes obvious questions without asking the LLM.
+ * The rules only decide if they are confident, i.e. if exactly one category matches:
+ * <ul>
+ *     <li>messages without any letters are UNRECOGNIZABLE,</li>
+ *     <li>messages consisting only of a greeting or thanks are OTHER,</li>
+ *     <li>messages containing pasted code or a stack trace, or referring to the user's own code, are CODE_FEEDBACK,</li>
+ *     <li>messages referring to slides or the lecture are LECTURE, unless they also mention parts of the platform.</li>
+ * </ul>
+ * All other messages are left to the LLM.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuestionClassifier {
+
+    private static final String UNDECIDED = "UNDECIDED";
+
+    private static final Pattern NO_LETTERS = Pattern.compile("[^\\p{L}]*");
+    private static final Pattern GREETING = Pattern.compile(
+            "(hi|hello|hey|hallo|servus|moin|good (morning|afternoon|evening)|guten (morgen|tag|abend)"
+                    + "|thanks?( you)?( very much| a lot)?|thx|danke( schön| sehr)?|bye|tschüss)"
+                    + "( there| tutor)?[\\s\\p{Punct}\\p{So}]*",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern STACK_TRACE = Pattern.compile(
+            "Exception in thread|Traceback \\(most recent call last\\)"
+                    + "|\\bat [\\w.$]+\\([\\w$]+\\.(java|kt):\\d+\\)|File \"[^\"]+\\.py\", line \\d+");
+    private static final Pattern CODE_LINE = Pattern.compile(
+            "(?m)^\\s*(.*[;{}]|(def|class|import|public|private|protected|return|for|while|if)\\b.*[:(].*)\\s*$");
+    private static final Pattern OWN_CODE = Pattern.compile(
+            "\\b(my|mein(en|em)?) (code|implementation|implementierung|program|programm|function|funktion"
+                    + "|method|methode|class|klasse|submission|abgabe)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern LECTURE = Pattern.compile(
+            "\\b(slides?|folien?|lecture|vorlesung|script|skript)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern PLATFORM = Pattern.compile(
+            "\\b(meitrex|avatar|profile|profil|settings|einstellungen|password|passwort|login|log in|website"
+                    + "|webseite|app|button|download|upload|notifications?)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tutor.question-classifier.fast-path.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Categorizes the given question if it is obvious which category it belongs to.
+     *
+     * @param question the question asked by the user
+     * @return the category, or empty if the question has to be categorized by the LLM
+     */
+    public Optional<TutorCategory> classify(String question) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<TutorCategory> category = applyRules(question == null ? "" : question.strip());
+        Counter.builder("tutor.question-classifier.fast-path")
+                .description("Number of questions categorized by rules, UNDECIDED ones are categorized by the LLM")
+                .tag("category", category.map(Enum::name).orElse(UNDECIDED))
+                .register(meterRegistry)
+                .increment();
+        category.ifPresent(value -> log.debug("Categorized question as {} without the LLM", value));
+        return category;
+    }
+
+    private static Optional<TutorCategory> applyRules(String question) {
+        if (NO_LETTERS.matcher(question).matches()) {
+            return Optional.of(TutorCategory.UNRECOGNIZABLE);
+        }
+        if (GREETING.matcher(question).matches()) {
+            return Optional.of(TutorCategory.OTHER);
+        }
+
+        Set<TutorCategory> matches = EnumSet.noneOf(TutorCategory.class);
+        if (STACK_TRACE.matcher(question).find() || countCodeLines(question) >= 2
+                || OWN_CODE.matcher(question).find()) {
+            matches.add(TutorCategory.CODE_FEEDBACK);
+        }
+        if (LECTURE.matcher(question).find() && !PLATFORM.matcher(question).find()) {
+            matches.add(TutorCategory.LECTURE);
+        }
+        return matches.size() == 1 ? Optional.of(matches.iterator().next()) : Optional.empty();
+    }
+
+    private static long countCodeLines(String question) {
+        return CODE_LINE.matcher(question).results().count();
+    }
+}
@@ -1,12 +1,13 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
-import de.unistuttgart.iste.meitrex.content_service.client.ContentServiceClient;
 import de.unistuttgart.iste.meitrex.content_service.exception.ContentServiceConnectionException;
 import de.unistuttgart.iste.meitrex.tutor_service.client.DocProcAIServiceClient;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.SemanticSearchResult;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.UUID;
@@ -18,11 +19,13 @@ import static de.unistuttgart.iste.meitrex.common.user_handling.UserCourseAccess
 public class SemanticSearchService {
 
     private final DocProcAIServiceClient docProcAiServiceClient;
-    private final ContentServiceClient contentServiceClient;
+    private final ContentIdCacheService contentIdCacheService;
 
     /**
      * Performs a semantic search for lecture-related content within a given course.
      * Validates that the user has access to the course before querying.
+     * Blocks until the result is available, prefer {@link #semanticSearchAsync(String, UUID, LoggedInUser)}
+     * in reactive code.
      *
      * @param question    the user’s question to search for
      * @param courseId    the ID of the course to search in
@@ -31,16 +34,47 @@ public class SemanticSearchService {
      * @throws RuntimeException if the content service connection fails
      */
     public List<SemanticSearchResult> semanticSearch(String question, UUID courseId, LoggedInUser currentUser) {
-        try {
-            validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
-            List<UUID> contentIdsOfCourse = contentServiceClient.queryContentIdsOfCourse(courseId);
+        return semanticSearchAsync(question, courseId, currentUser).block();
+    }
 
-            return docProcAiServiceClient.semanticSearch(question, contentIdsOfCourse);
+    /**
+     * Performs a semantic search for lecture-related content within a given course without blocking
+     * the calling thread. Validates that the user has access to the course before querying.
+     *
+     * @param question    the user’s question to search for
+     * @param courseId    the ID of the course to search in
+     * @param currentUser the currently logged-in user
+     * @return a mono emitting the semantic search results, or an empty list if none are found or the search fails.
+     *         Fails with a RuntimeException if the content service connection fails
+     */
+    public Mono<List<SemanticSearchResult>> semanticSearchAsync(String question, UUID courseId,
+                                                                LoggedInUser currentUser) {
+        return Mono.fromCallable(() -> {
+                    validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
+                    return contentIdCacheService.getContentIdsOfCourse(courseId);
+                })
+                // the content IDs are only queried from the content service on a cache miss, which blocks
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(contentIdsOfCourse -> docProcAiServiceClient.semanticSearchAsync(question, contentIdsOfCourse))
+                .onErrorResume(e -> !(e instanceof ContentServiceConnectionException), e -> Mono.just(List.of()))
+                .onErrorMap(ContentServiceConnectionException.class, e -> new RuntimeException(String.valueOf(e)));
+    }
 
+    /**
+     * Retrieves the IDs of all contents of a course.
+     * Validates that the user has access to the course before querying.
+     *
+     * @param courseId    the ID of the course
+     * @param currentUser the currently logged-in user
+     * @return the content IDs of the course
+     * @throws RuntimeException if the user has no access or the content service connection fails
+     */
+    public List<UUID> getContentIdsOfCourse(UUID courseId, LoggedInUser currentUser) {
+        validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
+        try {
+            return contentIdCacheService.getContentIdsOfCourse(courseId);
         } catch (ContentServiceConnectionException e) {
             throw new RuntimeException(String.valueOf(e));
-        } catch (RuntimeException e) {
-            return List.of();
         }
     }
 
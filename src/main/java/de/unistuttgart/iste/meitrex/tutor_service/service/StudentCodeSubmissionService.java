@@ -1,13 +1,16 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.StudentCodeSubmissionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,10 +25,13 @@ import java.util.UUID;
 public class StudentCodeSubmissionService {
 
     private final StudentCodeSubmissionRepository studentCodeSubmissionRepository;
+    private final CodeFileBlobService codeFileBlobService;
+    private final CodeContextBuilder codeContextBuilder;
 
     /**
      * Saves or updates a student's code submission for an assignment.
      * Only keeps the latest submission per student per assignment.
+     * Only the contents and file references which changed since the previous submission are written.
      * 
      * @param studentId the student's ID
      * @param assignmentId the assignment's ID
@@ -64,7 +70,7 @@ public class StudentCodeSubmissionService {
         entity.setRepositoryUrl(repositoryUrl);
         entity.setCommitSha(commitSha);
         entity.setCommitTimestamp(commitTimestamp);
-        entity.setFiles(files);
+        updateFileHashes(entity, codeFileBlobService.store(files != null ? files : Map.of()));
         entity.setBranch(branch);
         entity.setLastUpdated(OffsetDateTime.now());
         
@@ -73,8 +79,44 @@ public class StudentCodeSubmissionService {
         log.info("Successfully saved code submission for student {} on assignment {}", studentId, assignmentId);
     }
 
+    /**
+     * Imports the files of a submission stored in the previous, non-deduplicated format.
+     * Files of submissions which were updated since are ignored.
+     *
+     * @param studentId the student's ID
+     * @param assignmentId the assignment's ID
+     * @param files map of file paths to file contents
+     * @return true if the files were imported, false if the submission does not exist or was updated since
+     */
+    @Transactional
+    public boolean importLegacyFiles(UUID studentId, UUID assignmentId, Map<String, String> files) {
+        Optional<StudentCodeSubmissionEntity> submission = studentCodeSubmissionRepository
+                .findById(new StudentCodeSubmissionEntity.PrimaryKey(studentId, assignmentId))
+                .filter(entity -> entity.getFileHashes() == null || entity.getFileHashes().isEmpty());
+        submission.ifPresent(entity -> updateFileHashes(entity, codeFileBlobService.store(files)));
+        return submission.isPresent();
+    }
+
+    /**
+     * Applies the new file references to the entity by changing only the entries which differ,
+     * so that only the changed rows are written.
+     */
+    private static void updateFileHashes(StudentCodeSubmissionEntity entity, Map<String, String> fileHashes) {
+        if (entity.getFileHashes() == null) {
+            entity.setFileHashes(new HashMap<>());
+        }
+        Map<String, String> current = entity.getFileHashes();
+        current.keySet().retainAll(fileHashes.keySet());
+        fileHashes.forEach((path, hash) -> {
+            if (!hash.equals(current.get(path))) {
+                current.put(path, hash);
+            }
+        });
+    }
+
     /**
      * Retrieves a student's code submission for a specific assignment.
+     * The files of the submission are loaded lazily and can only be accessed within a transaction.
      * 
      * @param studentId the student's ID
      * @param assignmentId the assignment's ID
@@ -87,13 +129,17 @@ public class StudentCodeSubmissionService {
     }
 
     /**
-     * Retrieves all code submissions for a specific student.
-     * 
+     * Retrieves the metadata of the most recently updated code submission of a student in a course,
+     * without its files.
+     *
      * @param studentId the student's ID
-     * @return list of code submissions for the student
+     * @param courseId the course's ID
+     * @return Optional containing the submission metadata if the student submitted any code in the course
      */
-    public java.util.List<StudentCodeSubmissionEntity> getCodeSubmissionsForStudent(UUID studentId) {
-        return studentCodeSubmissionRepository.findByPrimaryKey_StudentId(studentId);
+    public Optional<StudentCodeSubmissionMetadata> getLatestCodeSubmissionMetadata(UUID studentId, UUID courseId) {
+        return studentCodeSubmissionRepository.findLatestMetadataByStudentIdAndCourseId(studentId, courseId, Limit.of(1))
+                .stream()
+                .findFirst();
     }
 
     /**
@@ -123,24 +169,40 @@ public class StudentCodeSubmissionService {
      * The returned string includes:
      * - Repository information
      * - Commit details
-     * - All source files with their contents
+     * - The source files with their contents, limited to the token budget of the {@link CodeContextBuilder}
      * 
      * @param studentId the student's ID
      * @param assignmentId the assignment's ID
      * @return Optional containing a formatted string with code submission details, or empty if not found
      */
+    @Transactional(readOnly = true)
     public Optional<String> getCodeSubmissionContextForTutor(UUID studentId, UUID assignmentId) {
+        return getCodeSubmissionContextForTutor(studentId, assignmentId, null);
+    }
+
+    /**
+     * Retrieves the latest code submission for a student on an assignment as a formatted string,
+     * preferring the code which is most relevant to the given question if not all code fits into the budget.
+     *
+     * @param studentId the student's ID
+     * @param assignmentId the assignment's ID
+     * @param question the question the code is needed for, may be null
+     * @return Optional containing a formatted string with code submission details, or empty if not found
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getCodeSubmissionContextForTutor(UUID studentId, UUID assignmentId, String question) {
         return getCodeSubmission(studentId, assignmentId)
-                .map(this::formatCodeSubmissionForTutor);
+                .map(submission -> formatCodeSubmissionForTutor(submission, question));
     }
 
     /**
      * Formats a code submission entity into a human-readable string for the AI tutor.
      * 
      * @param submission the code submission entity
+     * @param question the question the code is needed for, may be null
      * @return formatted string containing all relevant code submission information
      */
-    private String formatCodeSubmissionForTutor(StudentCodeSubmissionEntity submission) {
+    private String formatCodeSubmissionForTutor(StudentCodeSubmissionEntity submission, String question) {
         StringBuilder context = new StringBuilder();
         
         context.append("Repository: ").append(submission.getRepositoryUrl()).append("\n");
@@ -150,17 +212,7 @@ public class StudentCodeSubmissionService {
         context.append("Source Code Files:\n");
         context.append("==================\n\n");
         
-        submission.getFiles().entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    String filePath = entry.getKey();
-                    String fileContent = entry.getValue();
-                    
-                    context.append("File: ").append(filePath).append("\n");
-                    context.append("---\n");
-                    context.append(fileContent);
-                    context.append("\n\n");
-                });
+        context.append(codeContextBuilder.build(codeFileBlobService.load(submission.getFileHashes()), question));
         
         return context.toString();
     }
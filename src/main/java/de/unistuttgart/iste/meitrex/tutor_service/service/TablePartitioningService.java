@@ -0,0 +1,149 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.TablePartitionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores conversation history and proactive feedback in tables partitioned by day.
+ * Both tables are append-heavy and their rows expire after a fixed period, so expired rows can be removed by
+ * dropping whole partitions, which takes constant time and leaves no dead rows behind, instead of deleting them
+ * row by row. As the schema is generated by Hibernate, which cannot create partitioned tables, the tables are
+ * converted once on startup. Partitions for the next days are created in advance.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TablePartitioningService {
+
+    static final String CONVERSATION_HISTORY_TABLE = "conversation_history";
+    static final String PROACTIVE_FEEDBACK_TABLE = "proactive_feedback";
+
+    private final TablePartitionRepository partitionRepository;
+
+    @Value("${tutor.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tutor.partitioning.premake-days:3}")
+    private int premakeDays;
+
+    @Value("${tutor.conversation.history.max-age-minutes:30}")
+    private int conversationHistoryMaxAgeMinutes;
+
+    @Value("${tutor.proactive-feedback.retention-days:90}")
+    private int proactiveFeedbackRetentionDays;
+
+    private final Set<String> partitionedTables = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Converts the tables to partitioned tables if they are not partitioned yet.
+     * Only rows which are not expired are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void partitionTables() {
+        if (!enabled) {
+            return;
+        }
+        for (PartitionedTable table : getPartitionedTables()) {
+            try {
+                LocalDate today = today();
+                LocalDate firstDay = OffsetDateTime.now(ZoneOffset.UTC).minus(table.maxAge()).toLocalDate();
+                if (partitionRepository.convertToPartitioned(
+                        table.name(), table.column(), firstDay, today.plusDays(premakeDays))) {
+                    log.info("Converted table {} to a table partitioned by day on {}", table.name(), table.column());
+                }
+                partitionedTables.add(table.name());
+            } catch (DataAccessException e) {
+                log.error("Failed to partition table {}, expired rows are deleted row by row", table.name(), e);
+            }
+        }
+        maintainPartitions();
+    }
+
+    /**
+     * Creates the partitions for today and the next days and drops the partitions whose rows are all expired.
+     */
+    @Scheduled(fixedDelayString = "${tutor.partitioning.maintenance-interval-ms:3600000}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        for (PartitionedTable table : getPartitionedTables()) {
+            if (!partitionedTables.contains(table.name())) {
+                continue;
+            }
+            try {
+                createUpcomingPartitions(table);
+                dropExpiredPartitions(table);
+            } catch (DataAccessException e) {
+                log.error("Failed to maintain the partitions of table {}", table.name(), e);
+            }
+        }
+    }
+
+    /**
+     * @param table the name of the table
+     * @return true if expired rows of the table are removed by dropping partitions
+     */
+    public boolean isPartitioned(String table) {
+        return partitionedTables.contains(table);
+    }
+
+    private void createUpcomingPartitions(PartitionedTable table) {
+        List<LocalDate> existing = partitionRepository.findPartitionDays(table.name());
+        LocalDate today = today();
+        for (LocalDate day = today; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+            if (!existing.contains(day)) {
+                partitionRepository.createPartition(table.name(), day);
+                log.info("Created partition of table {} for {}", table.name(), day);
+            }
+        }
+    }
+
+    private void dropExpiredPartitions(PartitionedTable table) {
+        OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(table.maxAge());
+        for (LocalDate day : partitionRepository.findPartitionDays(table.name())) {
+            // the partition of a day only contains rows before the start of the next day
+            if (!day.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC).isAfter(cutoff)) {
+                partitionRepository.dropPartition(table.name(), day);
+                log.info("Dropped expired partition of table {} for {}", table.name(), day);
+            }
+        }
+    }
+
+    private List<PartitionedTable> getPartitionedTables() {
+        return List.of(
+                new PartitionedTable(CONVERSATION_HISTORY_TABLE, "timestamp",
+                        Duration.ofMinutes(conversationHistoryMaxAgeMinutes)),
+                new PartitionedTable(PROACTIVE_FEEDBACK_TABLE, "created_at",
+                        Duration.ofDays(proactiveFeedbackRetentionDays)));
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * A table partitioned by day.
+     *
+     * @param name   the name of the table
+     * @param column the timestamp column the table is partitioned by
+     * @param maxAge the age after which rows expire
+     */
+    private record PartitionedTable(String name, String column, Duration maxAge) {
+    }
+}
@@ -9,14 +9,21 @@ import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.generated.dto.DocumentSource;
 import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionStreamFrame;
 import de.unistuttgart.iste.meitrex.generated.dto.Source;
 import de.unistuttgart.iste.meitrex.generated.dto.VideoSource;
-import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.client.LlmRequestContext;
+import de.unistuttgart.iste.meitrex.tutor_service.client.OllamaStreamingClient;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Comparator;
 import java.util.HashMap;
@@ -24,7 +31,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -39,6 +48,13 @@ public class TutorService {
     private final ProactiveFeedbackService proactiveFeedbackService;
     private final ConversationHistoryService conversationHistoryService;
     private final StudentCodeSubmissionService studentCodeSubmissionService;
+    private final TaskExecutor taskExecutor;
+    private final OllamaStreamingClient ollamaStreamingClient;
+    private final LectureAnswerCacheService lectureAnswerCacheService;
+    private final PromptTemplateEngine promptTemplateEngine;
+    private final QuestionClassifier questionClassifier;
+    private final AnswerModeExperiment answerModeExperiment;
+    private final LlmResponseCacheService llmResponseCacheService;
     @Value("${semantic.search.threshold.tutor:0.4}")
     private double scoreThreshold;
     @Value("${semantic.search.topN.tutor:5}")
@@ -47,6 +63,8 @@ public class TutorService {
     private double skillLevelLowThreshold;
     @Value("${skill.level.threshold.high:0.7}")
     private double skillLevelHighThreshold;
+    @Value("${tutor.pipelined-execution.enabled:false}")
+    private boolean pipelinedExecutionEnabled;
 
     private final String ERROR_MESSAGE = ("Oops, something went wrong! " +
             "The request could not be processed. Please try again.");
@@ -59,7 +77,8 @@ public class TutorService {
             "categorize_message_prompt.txt",
             "answer_lecture_question_prompt.txt",
             "answer_code_feedback_prompt.txt",
-            "answer_followup_question_prompt.txt"
+            "answer_followup_question_prompt.txt",
+            "categorize_and_answer_prompt.txt"
     );
     private static final List<String> SKILL_LEVEL_PROMPT_TEMPLATES = List.of(
             "Provide a clear and simple hint that gently guides the user toward the next step without overwhelming them.",
@@ -72,7 +91,8 @@ public class TutorService {
     /**
      * Handles a user’s question by categorizing it and returning an appropriate response.
      * Lecture questions are further processed, while other categories currently return default answers.
-
+     * If pipelined execution is enabled, the context needed to answer the question (semantic search,
+     * conversation history, skill level and player type) is fetched while the question is being categorized.
      *
      * @param userQuestion the question asked by the user
      * @param courseId     the ID of the course, required for lecture-related questions
@@ -80,11 +100,178 @@ public class TutorService {
      * @return a response object containing the answer or a default message
      */
     public LectureQuestionResponse handleUserQuestion(String userQuestion, UUID courseId, LoggedInUser currentUser){
-        log.info("[TUTOR] User {} asked question: {}", currentUser.getId(), userQuestion);
+        return LlmRequestContext.callWith(LlmRequestContext.interactive(currentUser.getId(), courseId),
+                () -> answerUserQuestion(userQuestion, courseId, currentUser));
+    }
+
+    private LectureQuestionResponse answerUserQuestion(String userQuestion, UUID courseId, LoggedInUser currentUser) {
+        long start = System.nanoTime();
+        AnswerModeExperiment.Mode mode = answerModeExperiment.modeFor(currentUser.getId());
+        PreparedAnswer preparedAnswer = prepareAnswer(userQuestion, courseId, currentUser, mode);
+        if (preparedAnswer.isCompleted()) {
+            recordPreparedAnswer(preparedAnswer, userQuestion, courseId, currentUser);
+            recordAnswerMetrics(mode, preparedAnswer, start, preparedAnswer.getResponse().getAnswer());
+            return preparedAnswer.getResponse();
+        }
+
+        TutorAnswer response = ollamaClient.startQuery(TutorAnswer.class, preparedAnswer.getTemplateName(),
+                preparedAnswer.getPromptArgs(), new TutorAnswer(ERROR_MESSAGE));
+
+        conversationHistoryService.addConversationExchange(
+                currentUser.getId(), courseId, userQuestion, response.getAnswer());
+
+        LectureQuestionResponse lectureQuestionResponse =
+                new LectureQuestionResponse(response.getAnswer(), preparedAnswer.getSources());
+        cacheGeneratedAnswer(preparedAnswer, lectureQuestionResponse);
+        recordAnswerMetrics(mode, preparedAnswer, start, response.getAnswer());
+        return lectureQuestionResponse;
+    }
+
+    /**
+     * Handles a user's question like {@link #handleUserQuestion(String, UUID, LoggedInUser)}, but streams the
+     * generated answer token by token as soon as the LLM produces it.
+     * All frames except the last one carry a part of the answer. The last frame is marked as done and carries the
+     * sources of the answer. Answers which do not need to be generated are emitted as a single final frame.
+     *
+     * @param userQuestion the question asked by the user
+     * @param courseId     the ID of the course, required for lecture-related questions
+     * @param currentUser  the currently logged-in user
+     * @return a stream of answer frames
+     */
+    public Flux<LectureQuestionStreamFrame> handleUserQuestionStream(String userQuestion, UUID courseId,
+                                                                     LoggedInUser currentUser) {
+        LlmRequestContext llmRequestContext = LlmRequestContext.interactive(currentUser.getId(), courseId);
+        AnswerModeExperiment.Mode mode = answerModeExperiment.modeFor(currentUser.getId());
+        long start = System.nanoTime();
+        return Mono.fromCallable(() -> LlmRequestContext.callWith(llmRequestContext,
+                        () -> prepareAnswer(userQuestion, courseId, currentUser, mode)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(preparedAnswer -> {
+                    if (preparedAnswer.isCompleted()) {
+                        recordPreparedAnswer(preparedAnswer, userQuestion, courseId, currentUser);
+                        recordAnswerMetrics(mode, preparedAnswer, start, preparedAnswer.getResponse().getAnswer());
+                        return Flux.just(finalFrame(preparedAnswer.getResponse().getAnswer(),
+                                preparedAnswer.getResponse().getSources()));
+                    }
+                    return streamAnswer(preparedAnswer, userQuestion, courseId, currentUser, llmRequestContext,
+                            mode, start);
+                });
+    }
+
+    /**
+     * Streams the answer for a prepared question from the LLM and saves the complete exchange in the
+     * conversation history once the generation is finished.
+     */
+    private Flux<LectureQuestionStreamFrame> streamAnswer(PreparedAnswer preparedAnswer, String userQuestion,
+                                                          UUID courseId, LoggedInUser currentUser,
+                                                          LlmRequestContext llmRequestContext,
+                                                          AnswerModeExperiment.Mode mode, long start) {
+        String prompt = promptTemplateEngine.render(preparedAnswer.getTemplateName(), preparedAnswer.getPromptArgs());
+        AnswerTokenDecoder decoder = new AnswerTokenDecoder();
+        StringBuilder answer = new StringBuilder();
+
+        Flux<String> tokens = ollamaStreamingClient.streamCompletion(prompt, llmRequestContext)
+                .map(decoder::accept)
+                .concatWith(Mono.fromSupplier(decoder::finish))
+                .filter(token -> !token.isEmpty())
+                .doOnNext(answer::append);
+
+        Mono<LectureQuestionStreamFrame> lastFrame = Mono.fromCallable(() -> {
+            conversationHistoryService.addConversationExchange(
+                    currentUser.getId(), courseId, userQuestion, answer.toString());
+            cacheGeneratedAnswer(preparedAnswer,
+                    new LectureQuestionResponse(answer.toString(), preparedAnswer.getSources()));
+            recordAnswerMetrics(mode, preparedAnswer, start, answer.toString());
+            return finalFrame("", preparedAnswer.getSources());
+        }).subscribeOn(Schedulers.boundedElastic());
+
+        return tokens.map(this::tokenFrame)
+                .concatWith(lastFrame)
+                .onErrorResume(e -> {
+                    log.error("[TUTOR] Streaming the answer for user {} failed: {}",
+                            currentUser.getId(), e.getMessage(), e);
+                    recordAnswerMetrics(mode, preparedAnswer, start, ERROR_MESSAGE);
+                    return Flux.just(finalFrame(ERROR_MESSAGE, List.of()));
+                });
+    }
+
+    /**
+     * Saves an answer served from the answer cache or generated while categorizing the question in the
+     * conversation history, like an answer generated by a separate call.
+     */
+    private void recordPreparedAnswer(PreparedAnswer preparedAnswer, String userQuestion, UUID courseId,
+                                      LoggedInUser currentUser) {
+        if (preparedAnswer.isFromCache() || preparedAnswer.isAnsweredWithCategory()) {
+            conversationHistoryService.addConversationExchange(
+                    currentUser.getId(), courseId, userQuestion, preparedAnswer.getResponse().getAnswer());
+        }
+    }
+
+    private void recordAnswerMetrics(AnswerModeExperiment.Mode mode, PreparedAnswer preparedAnswer, long start,
+                                     String answer) {
+        boolean failed = ERROR_MESSAGE.equals(answer) || answer.isBlank();
+        answerModeExperiment.recordAnswer(mode, preparedAnswer, System.nanoTime() - start, answer, failed);
+    }
+
+    private void cacheGeneratedAnswer(PreparedAnswer preparedAnswer, LectureQuestionResponse response) {
+        if (preparedAnswer.getAnswerCacheKey() != null && !ERROR_MESSAGE.equals(response.getAnswer())
+                && !response.getAnswer().isBlank()) {
+            lectureAnswerCacheService.store(preparedAnswer.getAnswerCacheKey(), response);
+        }
+    }
 
-                CategorizedQuestion categorizedQuestion = preprocessQuestion(userQuestion);
+    private LectureQuestionStreamFrame tokenFrame(String token) {
+        return LectureQuestionStreamFrame.builder()
+                .setToken(token)
+                .setDone(false)
+                .build();
+    }
 
-        TutorCategory category = categorizedQuestion.getCategory();
+    private LectureQuestionStreamFrame finalFrame(String token, List<Source> sources) {
+        return LectureQuestionStreamFrame.builder()
+                .setToken(token)
+                .setSources(sources)
+                .setDone(true)
+                .build();
+    }
+
+    /**
+     * Categorizes the user's question and collects everything needed to answer it.
+     * In combined mode, questions which are not obvious are categorized and answered by a single LLM call. The
+     * answer of this call is used unless the category needs other context than the lecture content, in which case
+     * the question is answered like in sequential mode.
+     *
+     * @param userQuestion the question asked by the user
+     * @param courseId     the ID of the course, required for lecture-related questions
+     * @param currentUser  the currently logged-in user
+     * @param mode         the mode to answer the question in
+     * @return the prepared answer, either already completed or ready to be generated by the LLM
+     */
+    private PreparedAnswer prepareAnswer(String userQuestion, UUID courseId, LoggedInUser currentUser,
+                                         AnswerModeExperiment.Mode mode){
+        log.info("[TUTOR] User {} asked question: {}", currentUser.getId(), userQuestion);
+
+        QuestionContext context = createQuestionContext(userQuestion, courseId, currentUser);
+        Optional<TutorCategory> obviousCategory = questionClassifier.classify(userQuestion);
+        CategorizedAnswer combinedAnswer = null;
+        TutorCategory category;
+        if (obviousCategory.isPresent()) {
+            category = obviousCategory.get();
+        } else if (mode == AnswerModeExperiment.Mode.COMBINED && courseId != null) {
+            combinedAnswer = categorizeAndAnswerQuestion(userQuestion, context);
+            category = combinedAnswer.getCategory();
+        } else {
+            category = preprocessQuestion(userQuestion).getCategory();
+        }
+        answerModeExperiment.recordCategory(mode, category);
+
+        if (category != TutorCategory.LECTURE && category != TutorCategory.OTHER
+                && category != TutorCategory.CODE_FEEDBACK) {
+            context.discard();
+        } else if (category != TutorCategory.LECTURE) {
+            // follow-up questions search with their own query, code feedback questions do not search at all
+            context.discardSearchResults();
+        }
 
         //publish that the tutor was asked a question
         topicPublisher.notifyTutorQuestionAsked(new AskedTutorAQuestionEvent(
@@ -93,27 +280,44 @@ public class TutorService {
                 userQuestion,
                 category
         ));
-        
+
+        if (combinedAnswer != null) {
+            Optional<PreparedAnswer> answeredWithCategory =
+                    useCombinedAnswer(combinedAnswer, courseId, currentUser, context);
+            if (answeredWithCategory.isPresent()) {
+                return answeredWithCategory.get();
+            }
+        }
+        PreparedAnswer preparedAnswer = answerCategorizedQuestion(category, userQuestion, courseId, currentUser,
+                context);
+        if (combinedAnswer != null && !preparedAnswer.isCompleted()) {
+            answerModeExperiment.recordSecondCall(category);
+        }
+        return preparedAnswer;
+    }
+
+    private PreparedAnswer answerCategorizedQuestion(TutorCategory category, String userQuestion, UUID courseId,
+                                                     LoggedInUser currentUser, QuestionContext context) {
         //Return Answers for user-input that cannot be handled right now
         if(category == TutorCategory.UNRECOGNIZABLE){
             String unrecognizable = ("Unfortunately, I couldn't understand your question. " +
                     "Please rephrase it and ask again. Thank you :)");
-            return new LectureQuestionResponse(unrecognizable, List.of());
+            return PreparedAnswer.completed(unrecognizable);
         }
         if(category == TutorCategory.OTHER){
-            return handleFollowUpQuestion(userQuestion, courseId, currentUser);
+            return handleFollowUpQuestion(userQuestion, courseId, currentUser, context);
         }
         
         //Further process the question for the remaining categories 
         if (category == TutorCategory.LECTURE){
-            return answerLectureQuestion(userQuestion, courseId, currentUser);
+            return answerLectureQuestion(userQuestion, courseId, currentUser, context);
         } else if (category == TutorCategory.CODE_FEEDBACK) {
-            return answerCodeFeedbackQuestion(userQuestion, courseId, currentUser);
+            return answerCodeFeedbackQuestion(userQuestion, courseId, currentUser, context);
         } else if (category == TutorCategory.SYSTEM) {
-            return new LectureQuestionResponse(
-                    "At the moment, I can't answer any questions about the MEITREX system :(", List.of());
+            return PreparedAnswer.completed(
+                    "At the moment, I can't answer any questions about the MEITREX system :(");
         }
-        return new LectureQuestionResponse(ERROR_MESSAGE, List.of());
+        return PreparedAnswer.completed(ERROR_MESSAGE);
     }
 
     /**
@@ -127,48 +331,81 @@ public class TutorService {
         return proactiveFeedbackService.getAndDeleteLatestFeedback(currentUser.getId());
     }
 
-    private LectureQuestionResponse answerLectureQuestion(String question, UUID courseId, LoggedInUser currentUser){        
-        Optional<HexadPlayerType> playerType = userPlayerTypeService.getPrimaryPlayerType(currentUser.getId());
+    /**
+     * Creates the context which is needed to answer the question once it is categorized.
+     * In pipelined mode all lookups are started immediately, otherwise they are resolved lazily on first use.
+     *
+     * @param question    the question asked by the user
+     * @param courseId    the ID of the course, may be null
+     * @param currentUser the currently logged-in user
+     * @return the context for the question
+     */
+    private QuestionContext createQuestionContext(String question, UUID courseId, LoggedInUser currentUser) {
+        UUID userId = currentUser.getId();
+        Supplier<List<SemanticSearchResult>> searchResults = courseId == null
+                ? List::of
+                : () -> semanticSearchService.semanticSearch(question, courseId, currentUser);
+        Supplier<String> conversationHistory = courseId == null
+                ? () -> ""
+                : () -> conversationHistoryService.formatHistoryForPrompt(userId, courseId);
+
+        if (!pipelinedExecutionEnabled) {
+            return QuestionContext.lazy(searchResults, conversationHistory,
+                    () -> getAverageSkillLevel(userId),
+                    () -> userPlayerTypeService.getPrimaryPlayerType(userId));
+        }
+        return QuestionContext.prefetched(taskExecutor, searchResults, conversationHistory,
+                () -> getAverageSkillLevel(userId),
+                () -> userPlayerTypeService.getPrimaryPlayerType(userId));
+    }
 
+    private PreparedAnswer answerLectureQuestion(String question, UUID courseId, LoggedInUser currentUser,
+                                                          QuestionContext context){
         if(courseId == null){
             String response =
                 "Something went wrong! If your question is about lecture materials, " +
                         "please navigate to the course it relates to. Thank you! :)";
-            return new LectureQuestionResponse(response, List.of());
+            return PreparedAnswer.completed(response);
         }
-        List<SemanticSearchResult> searchResults = semanticSearchService.semanticSearch(question, courseId, currentUser);
+
+        Optional<LectureAnswerCacheKey> answerCacheKey = Optional.empty();
+        if (lectureAnswerCacheService.isEnabled() && context.getConversationHistory().isEmpty()) {
+            // answers are only shared between users if they do not depend on a previous conversation
+            answerCacheKey = lectureAnswerCacheService.createKey(courseId, question,
+                    getSkillLevelBucket(context.getAverageSkillLevel()), currentUser);
+            Optional<LectureQuestionResponse> cachedResponse =
+                    answerCacheKey.flatMap(lectureAnswerCacheService::lookup);
+            if (cachedResponse.isPresent()) {
+                context.discard();
+                return PreparedAnswer.cached(cachedResponse.get());
+            }
+        }
+
+        List<SemanticSearchResult> searchResults = context.getSearchResults();
 
         List<SemanticSearchResult> segmentSearchResults = searchResults.stream()
                 .filter(result -> result.getMediaRecordSegment() != null)
                 .toList();
 
         if(segmentSearchResults.isEmpty()){
-            return new LectureQuestionResponse("No answer was found in the lecture.", List.of());
+            return PreparedAnswer.completed("No answer was found in the lecture.");
         }
 
-        List<DocumentRecordSegment> documentSegments = segmentSearchResults.stream()
-                .filter(result -> result.getScore() <= scoreThreshold)
-                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
-                .map(SemanticSearchResult::getMediaRecordSegment)
-                .filter(segment -> segment instanceof DocumentRecordSegment)
-                .map(segment -> (DocumentRecordSegment) segment)
-                .toList();
+        List<DocumentRecordSegment> documentSegments = getRelevantDocumentSegments(segmentSearchResults);
 
         if(documentSegments.isEmpty()){
-            return new LectureQuestionResponse("No answer was found in the documents of the lecture.", List.of());
+            return PreparedAnswer.completed("No answer was found in the documents of the lecture.");
         }
 
-        double averageSkillLevel = getAverageSkillLevel(currentUser.getId());
+        double averageSkillLevel = context.getAverageSkillLevel();
         log.info("User {} average skill level: {}", currentUser.getId(), averageSkillLevel);
         
         String skillLevelPromptContent = getSkillBasedFeedbackStyle(averageSkillLevel);
 
-        LectureQuestionResponse errorResponse = new LectureQuestionResponse(ERROR_MESSAGE, List.of());
         String contentString = semanticSearchService.formatIntoNumberedListForPrompt(
                 documentSegments.stream().map(DocumentRecordSegment::getText).toList());
         
-        String conversationHistory = conversationHistoryService.formatHistoryForPrompt(
-                currentUser.getId(), courseId);
+        String conversationHistory = context.getConversationHistory();
 
         Map<String, String> promptArgs = new HashMap<>();
         promptArgs.put("question", question);
@@ -176,21 +413,8 @@ public class TutorService {
         promptArgs.put("skill", skillLevelPromptContent);
         promptArgs.put("conversationHistory", conversationHistory);
 
-        TutorAnswer response = ollamaClient.startQuery(
-                TutorAnswer.class, PROMPT_TEMPLATES.get(1), promptArgs, new TutorAnswer(ERROR_MESSAGE));
-
-        conversationHistoryService.addConversationExchange(
-                currentUser.getId(), courseId, question, response.getAnswer());
-
-        List<Source> sources = segmentSearchResults.stream()
-                .filter(result -> result.getScore() <= scoreThreshold)
-                .filter(result -> result.getMediaRecordSegment() instanceof DocumentRecordSegment)
-                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
-                .limit(topSourceCount)
-                .map(this::generateSource)
-                .filter(Objects::nonNull)
-                .toList();
-        return new LectureQuestionResponse(response.getAnswer(), sources);
+        return PreparedAnswer.generate(PROMPT_TEMPLATES.get(1), promptArgs, generateSources(segmentSearchResults),
+                answerCacheKey.orElse(null));
     }
 
     /**
@@ -200,42 +424,37 @@ public class TutorService {
      * @param question the follow-up question asked by the user
      * @param courseId the ID of the course
      * @param currentUser the currently logged-in user
-     * @return a response containing the answer based on conversation history
+     * @param context the context of the question
+     * @return the prepared answer based on conversation history
      */
-    private LectureQuestionResponse handleFollowUpQuestion(String question, UUID courseId, LoggedInUser currentUser) {
+    private PreparedAnswer handleFollowUpQuestion(String question, UUID courseId, LoggedInUser currentUser,
+                                                           QuestionContext context) {
         if (courseId == null) {
             String response = "Something went wrong! If your question is a follow-up to previous questions, " +
                     "please navigate to the course it relates to. Thank you! :)";
-            return new LectureQuestionResponse(response, List.of());
+            return PreparedAnswer.completed(response);
         }
 
-        String conversationHistory = conversationHistoryService.formatHistoryForPrompt(
-                currentUser.getId(), courseId);
+        String conversationHistory = context.getConversationHistory();
 
         if (conversationHistory.isEmpty()) {
             String response = ("I'm currently unable to answer this type of message. " +
                     "However, I can still help you with questions about lecture materials or the MEITREX system :)");
-            return new LectureQuestionResponse(response, List.of());
+            return PreparedAnswer.completed(response);
         }
 
         String codeContext = "";
-        List<de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity> submissions =
-                studentCodeSubmissionService.getCodeSubmissionsForStudent(currentUser.getId());
-
-        if (!submissions.isEmpty()) {
-            de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity mostRecentSubmission =
-                    submissions.stream()
-                            .max(Comparator.comparing(de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity::getLastUpdated))
-                            .orElse(null);
-
-            if (mostRecentSubmission != null) {
-                Optional<String> codeContextOpt = studentCodeSubmissionService.getCodeSubmissionContextForTutor(
-                        currentUser.getId(),
-                        mostRecentSubmission.getPrimaryKey().getAssignmentId());
-                
-                if (codeContextOpt.isPresent()) {
-                    codeContext = codeContextOpt.get();
-                }
+        Optional<StudentCodeSubmissionMetadata> mostRecentSubmission =
+                studentCodeSubmissionService.getLatestCodeSubmissionMetadata(currentUser.getId(), courseId);
+
+        if (mostRecentSubmission.isPresent()) {
+            Optional<String> codeContextOpt = studentCodeSubmissionService.getCodeSubmissionContextForTutor(
+                    currentUser.getId(),
+                    mostRecentSubmission.get().assignmentId(),
+                    question + "\n" + conversationHistory);
+
+            if (codeContextOpt.isPresent()) {
+                codeContext = codeContextOpt.get();
             }
         }
 
@@ -254,15 +473,9 @@ public class TutorService {
                 .filter(result -> result.getMediaRecordSegment() != null)
                 .toList();
 
-        List<DocumentRecordSegment> documentSegments = segmentSearchResults.stream()
-                .filter(result -> result.getScore() <= scoreThreshold)
-                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
-                .map(SemanticSearchResult::getMediaRecordSegment)
-                .filter(segment -> segment instanceof DocumentRecordSegment)
-                .map(segment -> (DocumentRecordSegment) segment)
-                .toList();
+        List<DocumentRecordSegment> documentSegments = getRelevantDocumentSegments(segmentSearchResults);
 
-        double averageSkillLevel = getAverageSkillLevel(currentUser.getId());
+        double averageSkillLevel = context.getAverageSkillLevel();
         log.info("User {} average skill level: {}", currentUser.getId(), averageSkillLevel);
 
         String skillLevelPromotContent = getSkillBasedFeedbackStyle(averageSkillLevel);
@@ -280,22 +493,7 @@ public class TutorService {
         promptArgs.put("conversationHistory", conversationHistory);
         promptArgs.put("codeContext", codeContext);
 
-        TutorAnswer response = ollamaClient.startQuery(
-                TutorAnswer.class, PROMPT_TEMPLATES.get(3), promptArgs, new TutorAnswer(ERROR_MESSAGE));
-
-        conversationHistoryService.addConversationExchange(
-                currentUser.getId(), courseId, question, response.getAnswer());
-
-        List<Source> sources = segmentSearchResults.stream()
-                .filter(result -> result.getScore() <= scoreThreshold)
-                .filter(result -> result.getMediaRecordSegment() instanceof DocumentRecordSegment)
-                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
-                .limit(topSourceCount)
-                .map(this::generateSource)
-                .filter(Objects::nonNull)
-                .toList();
-
-        return new LectureQuestionResponse(response.getAnswer(), sources);
+        return PreparedAnswer.generate(PROMPT_TEMPLATES.get(3), promptArgs, generateSources(segmentSearchResults));
     }
 
     /**
@@ -309,7 +507,90 @@ public class TutorService {
         Map<String, String> preprocessArgs = new HashMap<>();
         preprocessArgs.put("question", userQuestion);
 
-        return ollamaClient.startQuery(CategorizedQuestion.class, templateName, preprocessArgs, error);
+        return llmResponseCacheService.query(CategorizedQuestion.class, templateName, preprocessArgs, error);
+    }
+
+    /**
+     * Categorizes the question and answers it as a lecture or follow-up question in a single LLM call.
+     * The lecture content relevant to the question is fetched up front for this.
+     *
+     * @param question the question asked by the user
+     * @param context  the context of the question
+     * @return the category and the answer, the answer is only meaningful for LECTURE and OTHER questions
+     */
+    private CategorizedAnswer categorizeAndAnswerQuestion(String question, QuestionContext context) {
+        List<DocumentRecordSegment> documentSegments = getRelevantDocumentSegments(context.getSearchResults());
+        String contentString = semanticSearchService.formatIntoNumberedListForPrompt(
+                documentSegments.stream().map(DocumentRecordSegment::getText).toList());
+
+        Map<String, String> promptArgs = new HashMap<>();
+        promptArgs.put("question", question);
+        promptArgs.put("content", contentString);
+        promptArgs.put("skill", getSkillBasedFeedbackStyle(context.getAverageSkillLevel()));
+        promptArgs.put("conversationHistory", context.getConversationHistory());
+
+        CategorizedAnswer error = new CategorizedAnswer(TutorCategory.ERROR, "");
+        CategorizedAnswer categorizedAnswer = ollamaClient.startQuery(CategorizedAnswer.class,
+                PROMPT_TEMPLATES.get(4), promptArgs, error);
+        return categorizedAnswer.getCategory() != null ? categorizedAnswer : error;
+    }
+
+    /**
+     * Returns the answer generated while categorizing the question, if it was generated with all the context its
+     * category needs. Lecture questions without relevant lecture content and follow-up questions without a
+     * conversation history are answered with fixed messages instead, follow-up questions of users with a code
+     * submission and code feedback questions need the code of the user.
+     */
+    private Optional<PreparedAnswer> useCombinedAnswer(CategorizedAnswer combinedAnswer, UUID courseId,
+                                                       LoggedInUser currentUser, QuestionContext context) {
+        TutorCategory category = combinedAnswer.getCategory();
+        String answer = combinedAnswer.getAnswer();
+        if ((category != TutorCategory.LECTURE && category != TutorCategory.OTHER)
+                || answer == null || answer.isBlank()) {
+            return Optional.empty();
+        }
+
+        List<SemanticSearchResult> segmentSearchResults = context.getSearchResults().stream()
+                .filter(result -> result.getMediaRecordSegment() != null)
+                .toList();
+        if (category == TutorCategory.LECTURE && getRelevantDocumentSegments(segmentSearchResults).isEmpty()) {
+            return Optional.empty();
+        }
+        if (category == TutorCategory.OTHER && (context.getConversationHistory().isEmpty()
+                || studentCodeSubmissionService.getLatestCodeSubmissionMetadata(currentUser.getId(), courseId)
+                .isPresent())) {
+            return Optional.empty();
+        }
+        return Optional.of(PreparedAnswer.answeredWithCategory(
+                new LectureQuestionResponse(answer, generateSources(segmentSearchResults))));
+    }
+
+    /**
+     * Returns the document segments of a semantic search which are relevant enough to be included in a prompt,
+     * ordered by descending score.
+     */
+    private List<DocumentRecordSegment> getRelevantDocumentSegments(List<SemanticSearchResult> searchResults) {
+        return searchResults.stream()
+                .filter(result -> result.getScore() <= scoreThreshold)
+                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
+                .map(SemanticSearchResult::getMediaRecordSegment)
+                .filter(segment -> segment instanceof DocumentRecordSegment)
+                .map(segment -> (DocumentRecordSegment) segment)
+                .toList();
+    }
+
+    /**
+     * Generates the sources shown to the user for the most relevant document segments of a semantic search.
+     */
+    private List<Source> generateSources(List<SemanticSearchResult> segmentSearchResults) {
+        return segmentSearchResults.stream()
+                .filter(result -> result.getScore() <= scoreThreshold)
+                .filter(result -> result.getMediaRecordSegment() instanceof DocumentRecordSegment)
+                .sorted(Comparator.comparingDouble(SemanticSearchResult::getScore).reversed())
+                .limit(topSourceCount)
+                .map(this::generateSource)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     private Source generateSource(SemanticSearchResult result){
@@ -337,59 +618,48 @@ public class TutorService {
      * @param question the question asked by the student about their code
      * @param courseId the ID of the course
      * @param currentUser the currently logged-in user
-     * @return a response containing the feedback
+     * @param context the context of the question
+     * @return the prepared feedback
      */
-    private LectureQuestionResponse answerCodeFeedbackQuestion(String question, UUID courseId, LoggedInUser currentUser) {
+    private PreparedAnswer answerCodeFeedbackQuestion(String question, UUID courseId, LoggedInUser currentUser,
+                                                               QuestionContext context) {
         if (courseId == null) {
             String response = "Something went wrong! If your question is about code for an assignment, " +
                     "please navigate to the course it relates to. Thank you! :)";
-            return new LectureQuestionResponse(response, List.of());
+            return PreparedAnswer.completed(response);
         }
 
-        Optional<HexadPlayerType> playerType = userPlayerTypeService.getPrimaryPlayerType(currentUser.getId());
-        double averageSkillLevel = getAverageSkillLevel(currentUser.getId());
+        Optional<HexadPlayerType> playerType = context.getPlayerType();
+        double averageSkillLevel = context.getAverageSkillLevel();
         String feedbackStyle = determineFeedbackStyle(playerType.orElse(null), averageSkillLevel);
 
-        // Note: We need to determine the assignmentId from the context. For now, we'll try to get the most recent submission
-        List<de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity> submissions =
-                studentCodeSubmissionService.getCodeSubmissionsForStudent(currentUser.getId());
+        // Note: We need to determine the assignmentId from the context. For now, we'll use the most recent
+        // submission in the course; only its metadata is loaded to find it, the files are loaded afterwards
+        Optional<StudentCodeSubmissionMetadata> latestSubmission =
+                studentCodeSubmissionService.getLatestCodeSubmissionMetadata(currentUser.getId(), courseId);
 
-        if (submissions.isEmpty()) {
-            log.info("[TUTOR-CODE-FEEDBACK] No code submissions found for user {}", currentUser.getId());
-            return new LectureQuestionResponse(
-                    CODE_FEEDBACK_NO_SUBMISSION_MESSAGE,
-                    List.of());
-        }
-
-        de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity mostRecentSubmission =
-                submissions.stream()
-                        .max(Comparator.comparing(de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity::getLastUpdated))
-                        .orElse(null);
-
-        if (mostRecentSubmission == null) {
-            log.info("[TUTOR-CODE-FEEDBACK] Most recent submission is null for user {}", currentUser.getId());
-            return new LectureQuestionResponse(
-                    CODE_FEEDBACK_NO_SUBMISSION_MESSAGE,
-                    List.of());
+        if (latestSubmission.isEmpty()) {
+            log.info("[TUTOR-CODE-FEEDBACK] No code submissions found for user {} in course {}",
+                    currentUser.getId(), courseId);
+            return PreparedAnswer.completed(CODE_FEEDBACK_NO_SUBMISSION_MESSAGE);
         }
 
+        StudentCodeSubmissionMetadata mostRecentSubmission = latestSubmission.get();
         Optional<String> codeContext = studentCodeSubmissionService.getCodeSubmissionContextForTutor(
                 currentUser.getId(),
-                mostRecentSubmission.getPrimaryKey().getAssignmentId());
+                mostRecentSubmission.assignmentId(),
+                question);
 
         if (codeContext.isEmpty()) {
             log.info("[TUTOR-CODE-FEEDBACK] Code context is empty for user {} and assignment {}", 
-                    currentUser.getId(), mostRecentSubmission.getPrimaryKey().getAssignmentId());
-            return new LectureQuestionResponse(
-                    CODE_FEEDBACK_NO_SUBMISSION_MESSAGE,
-                    List.of());
+                    currentUser.getId(), mostRecentSubmission.assignmentId());
+            return PreparedAnswer.completed(CODE_FEEDBACK_NO_SUBMISSION_MESSAGE);
         }
 
-        String conversationHistory = conversationHistoryService.formatHistoryForPrompt(
-                currentUser.getId(), courseId);
+        String conversationHistory = context.getConversationHistory();
 
         log.info("[TUTOR-CODE-FEEDBACK] Preparing to query LLM for code feedback - user: {}, assignment: {}, code context length: {}",
-                currentUser.getId(), mostRecentSubmission.getPrimaryKey().getAssignmentId(), codeContext.get().length());
+                currentUser.getId(), mostRecentSubmission.assignmentId(), codeContext.get().length());
 
         Map<String, String> promptArgs = new HashMap<>();
         promptArgs.put("question", question);
@@ -397,14 +667,7 @@ public class TutorService {
         promptArgs.put("feedbackStyle", feedbackStyle);
         promptArgs.put("conversationHistory", conversationHistory);
 
-        TutorAnswer response = ollamaClient.startQuery(
-                TutorAnswer.class, PROMPT_TEMPLATES.get(2), promptArgs, new TutorAnswer(ERROR_MESSAGE));
-
-        conversationHistoryService.addConversationExchange(
-                currentUser.getId(), courseId, question, response.getAnswer());
-
-        log.info("[TUTOR-CODE-FEEDBACK] Code feedback response generated for user {}", currentUser.getId());
-        return new LectureQuestionResponse(response.getAnswer(), List.of());
+        return PreparedAnswer.generate(PROMPT_TEMPLATES.get(2), promptArgs, List.of());
     }
 
     /**
@@ -458,26 +721,36 @@ public class TutorService {
      * @return feedback style instructions
      */
     private String getSkillBasedFeedbackStyle(double skillLevel) {
+        return SKILL_LEVEL_PROMPT_TEMPLATES.get(getSkillLevelBucket(skillLevel));
+    }
+
+    /**
+     * Maps the skill level to one of the three levels (low, medium, high) used to personalize answers.
+     *
+     * @param skillLevel the average skill level (0-1)
+     * @return 0 for low, 1 for medium and 2 for high skill levels
+     */
+    private int getSkillLevelBucket(double skillLevel) {
         if (skillLevel <= skillLevelLowThreshold) {
-            return SKILL_LEVEL_PROMPT_TEMPLATES.get(0);
+            return 0;
         } else if (skillLevel < skillLevelHighThreshold) {
-            return SKILL_LEVEL_PROMPT_TEMPLATES.get(1);
+            return 1;
         } else {
-            return SKILL_LEVEL_PROMPT_TEMPLATES.get(2);
+            return 2;
         }
     }
 
     /**
-     * Calculates and returns the average skill level for a user.
+     * Returns the average skill level for a user.
      * Requests skill levels if none are available and defaults to 0.5.
      * 
      * @param userId the user's ID
      * @return average skill level (0-1), defaults to 0.5 if unavailable
      */
     private double getAverageSkillLevel(UUID userId) {
-        List<UserSkillLevelEntity> skillLevels = userSkillLevelService.getAllSkillLevelsForUser(userId);
+        OptionalDouble averageSkillLevel = userSkillLevelService.getAverageSkillLevel(userId);
         
-        if (skillLevels.isEmpty()) {
+        if (averageSkillLevel.isEmpty()) {
             RequestUserSkillLevelEvent requestEvent = RequestUserSkillLevelEvent.builder()
                     .userId(userId)
                     .build();
@@ -486,11 +759,7 @@ public class TutorService {
             return 0.5;
         }
         
-        return skillLevels.stream()
-                .filter(Objects::nonNull)
-                .mapToDouble(UserSkillLevelEntity::getSkillLevelValue)
-                .average()
-                .orElse(0.5);
+        return averageSkillLevel.getAsDouble();
     }
 
 
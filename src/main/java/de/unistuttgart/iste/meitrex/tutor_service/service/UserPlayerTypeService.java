@@ -3,11 +3,10 @@ package de.unistuttgart.iste.meitrex.tutor_service.service;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.mapper.UserPlayerTypeMapper;
-import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserPlayerTypeRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfile;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Map;
 import java.util.Optional;
@@ -22,40 +21,44 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UserPlayerTypeService {
 
-    private final UserPlayerTypeRepository userPlayerTypeRepository;
     private final UserPlayerTypeMapper userPlayerTypeMapper;
+    private final UserProfileUpdateBuffer userProfileUpdateBuffer;
+    private final UserProfileCache userProfileCache;
 
     /**
      * Saves or updates user player type information from an event.
+     * The player type is written together with other concurrently received player types in a single batch,
+     * this method returns once it was written and the cached profile of the user was invalidated.
      * 
      * @param userId the ID of the user
      * @param primaryPlayerType the user's primary player type
      * @param playerTypePercentages map of all player type percentages
      */
-    @Transactional
     public void saveUserPlayerType(UUID userId, HexadPlayerType primaryPlayerType, Map<HexadPlayerType, Double> playerTypePercentages) {
         log.info("Saving player type for user {}: primaryType={}", userId, primaryPlayerType);
-        
-        Optional<UserPlayerTypeEntity> existingEntity = userPlayerTypeRepository.findById(userId);
-        
-        UserPlayerTypeEntity entity;
-        if (existingEntity.isPresent()) {
-            entity = userPlayerTypeMapper.updateEntity(existingEntity.get(), primaryPlayerType, playerTypePercentages);
-        } else {
-            entity = userPlayerTypeMapper.createEntity(userId, primaryPlayerType, playerTypePercentages);
-        }
-        
-        userPlayerTypeRepository.save(entity);
+
+        UserPlayerTypeEntity entity = userPlayerTypeMapper.createEntity(userId, primaryPlayerType, playerTypePercentages);
+        userProfileUpdateBuffer.submitPlayerType(entity).join();
     }
 
     /**
      * Retrieves user player type information by user ID.
+     * The returned entity is a detached copy of the cached profile.
      * 
      * @param userId the ID of the user
      * @return Optional containing the user's player type entity if found
      */
     public Optional<UserPlayerTypeEntity> getUserPlayerType(UUID userId) {
-        return userPlayerTypeRepository.findById(userId);
+        UserProfile profile = userProfileCache.getProfile(userId);
+        if (profile.getPrimaryPlayerType() == null) {
+            return Optional.empty();
+        }
+        UserPlayerTypeEntity entity = UserPlayerTypeEntity.builder()
+                .userId(userId)
+                .primaryPlayerType(profile.getPrimaryPlayerType())
+                .build();
+        entity.setPlayerTypePercentagesFromMap(profile.getPlayerTypePercentages());
+        return Optional.of(entity);
     }
 
     /**
@@ -65,7 +68,6 @@ public class UserPlayerTypeService {
      * @return Optional containing the primary player type if found
      */
     public Optional<HexadPlayerType> getPrimaryPlayerType(UUID userId) {
-        return userPlayerTypeRepository.findById(userId)
-                .map(UserPlayerTypeEntity::getPrimaryPlayerType);
+        return Optional.ofNullable(userProfileCache.getProfile(userId).getPrimaryPlayerType());
     }
 }
@@ -0,0 +1,199 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillAggregateEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserPlayerTypeRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserSkillAggregateRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfile;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfileInvalidatedEvent;
+import io.dapr.client.DaprClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Read-through cache of the personalization profiles of users (player type and average skill level).
+ * Profiles change rarely but are read on every request, so they are kept in memory. The least recently used
+ * profiles are evicted once the cache is full.
+ * <p>
+ * When profiles change, the cached copies are dropped and the other instances of the service are notified via
+ * the broadcast pub/sub component, so that they drop their copies as well. Changes are written in batches by the
+ * {@link UserProfileUpdateBuffer}, which notifies once per batch. In case a notification is lost,
+ * profiles expire after a configurable time.
+ */
+@Slf4j
+@Service
+public class UserProfileCache {
+
+    public static final String BROADCAST_PUBSUB_NAME = "meitrex-broadcast";
+    public static final String INVALIDATION_TOPIC = "tutor-user-profile-invalidated";
+
+    private final UserPlayerTypeRepository userPlayerTypeRepository;
+    private final UserSkillAggregateRepository userSkillAggregateRepository;
+    private final DaprClient daprClient;
+
+    @Value("${tutor.user-profile.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${tutor.user-profile.cache.max-users:10000}")
+    private int maxUsers;
+
+    /**
+     * Identifies this instance, so that it ignores its own invalidation events.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Cached profiles in access order, used as LRU cache. Guarded by itself.
+     */
+    private final Map<UUID, CachedProfile> profiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Identifies the latest running load per user. Removed when the profile of the user is invalidated, so that
+     * a profile loaded concurrently to an invalidation of the same user is not cached. Guarded by {@link #profiles}.
+     */
+    private final Map<UUID, Object> runningLoads = new HashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserProfileCache(UserPlayerTypeRepository userPlayerTypeRepository,
+                            UserSkillAggregateRepository userSkillAggregateRepository,
+                            DaprClient daprClient,
+                            MeterRegistry meterRegistry) {
+        this.userPlayerTypeRepository = userPlayerTypeRepository;
+        this.userSkillAggregateRepository = userSkillAggregateRepository;
+        this.daprClient = daprClient;
+
+        this.hits = Counter.builder("tutor.user-profile.cache.requests")
+                .description("Number of user profile lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("tutor.user-profile.cache.requests")
+                .description("Number of user profile lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("tutor.user-profile.cache.size", this, UserProfileCache::size)
+                .description("Number of cached user profiles")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the profile of a user, loading it from the database if it is not cached.
+     *
+     * @param userId the ID of the user
+     * @return the profile of the user
+     */
+    public UserProfile getProfile(UUID userId) {
+        Instant now = Instant.now();
+        Object load = new Object();
+        synchronized (profiles) {
+            CachedProfile cached = profiles.get(userId);
+            if (cached != null && cached.loadedAt().plusSeconds(ttlSeconds).isAfter(now)) {
+                hits.increment();
+                return cached.profile();
+            }
+            runningLoads.put(userId, load);
+        }
+        misses.increment();
+
+        UserProfile profile;
+        try {
+            profile = loadProfile(userId);
+        } catch (RuntimeException e) {
+            synchronized (profiles) {
+                runningLoads.remove(userId, load);
+            }
+            throw e;
+        }
+
+        synchronized (profiles) {
+            if (runningLoads.remove(userId, load)) {
+                profiles.put(userId, new CachedProfile(profile, now));
+                var iterator = profiles.entrySet().iterator();
+                while (profiles.size() > maxUsers && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Drops the cached profiles of users after they changed, here and on all other instances.
+     * The other instances are notified with a single event for all given users.
+     *
+     * @param userIds the IDs of the users
+     */
+    public void invalidate(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        evict(userIds);
+        daprClient.publishEvent(BROADCAST_PUBSUB_NAME, INVALIDATION_TOPIC,
+                        new UserProfileInvalidatedEvent(List.copyOf(userIds), instanceId))
+                .subscribe(null, error -> log.warn("Failed to publish profile invalidation for {} users: {}",
+                        userIds.size(), error.getMessage()));
+    }
+
+    /**
+     * Handles the invalidation of a profile by another instance.
+     *
+     * @param event the invalidation event
+     */
+    public void onInvalidationEvent(UserProfileInvalidatedEvent event) {
+        if (event.getUserIds() == null || instanceId.equals(event.getSourceInstanceId())) {
+            return;
+        }
+        evict(event.getUserIds());
+    }
+
+    /**
+     * @return the number of cached profiles
+     */
+    public int size() {
+        synchronized (profiles) {
+            return profiles.size();
+        }
+    }
+
+    private void evict(Collection<UUID> userIds) {
+        synchronized (profiles) {
+            for (UUID userId : userIds) {
+                runningLoads.remove(userId);
+                profiles.remove(userId);
+            }
+        }
+    }
+
+    private UserProfile loadProfile(UUID userId) {
+        UserPlayerTypeEntity playerType = userPlayerTypeRepository.findById(userId).orElse(null);
+        Double averageSkillLevel = userSkillAggregateRepository.findById(userId)
+                .map(UserSkillAggregateEntity::getAverageSkillLevel)
+                .orElse(null);
+
+        if (playerType == null) {
+            return new UserProfile(null, null, averageSkillLevel);
+        }
+        Map<HexadPlayerType, Double> scores = playerType.getPlayerTypePercentagesAsMap();
+        scores.values().removeIf(Objects::isNull);
+        return new UserProfile(playerType.getPrimaryPlayerType(), Map.copyOf(scores), averageSkillLevel);
+    }
+
+    private record CachedProfile(UserProfile profile, Instant loadedAt) {
+    }
+}
@@ -0,0 +1,165 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserProfileBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collects skill level and player type updates and writes them to the database in batches.
+ * When the skill levels of a whole course are recomputed, thousands of update events arrive at once; writing them
+ * one by one costs a round trip and a transaction each. Buffered updates are written when the buffer is full or
+ * after the flush interval, whichever comes first.
+ * <p>
+ * Updates of the same skill level (or player type) which are buffered together are merged, the update received
+ * last wins. Batches are written one after another, so a later update is never overwritten by an earlier one.
+ * After a flush, the cached profiles of all users whose updates were written are invalidated at once, before the
+ * waiting callers are released.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserProfileUpdateBuffer {
+
+    private final UserProfileBatchRepository userProfileBatchRepository;
+    private final UserProfileCache userProfileCache;
+
+    @Value("${tutor.profile-ingestion.max-batch-size:500}")
+    private int maxBatchSize;
+
+    private final Object bufferLock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<UserSkillLevelEntity.UserSkillLevelId, PendingWrite<UserSkillLevelEntity>> pendingSkillLevels =
+            new LinkedHashMap<>();
+    private Map<UUID, PendingWrite<UserPlayerTypeEntity>> pendingPlayerTypes = new LinkedHashMap<>();
+
+    /**
+     * Buffers a skill level to be written.
+     *
+     * @param skillLevel the skill level to write
+     * @return a future which completes once the skill level (or a later update of it) was written and the cached
+     *         profile of the user was invalidated
+     */
+    public CompletableFuture<Void> submitSkillLevel(UserSkillLevelEntity skillLevel) {
+        UserSkillLevelEntity.UserSkillLevelId id =
+                new UserSkillLevelEntity.UserSkillLevelId(skillLevel.getUserId(), skillLevel.getSkillId());
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        boolean full;
+        synchronized (bufferLock) {
+            pendingSkillLevels.computeIfAbsent(id, key -> new PendingWrite<>()).update(skillLevel, written);
+            full = pendingSkillLevels.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+        return written;
+    }
+
+    /**
+     * Buffers a player type to be written.
+     *
+     * @param playerType the player type to write
+     * @return a future which completes once the player type (or a later update of it) was written and the cached
+     *         profile of the user was invalidated
+     */
+    public CompletableFuture<Void> submitPlayerType(UserPlayerTypeEntity playerType) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        boolean full;
+        synchronized (bufferLock) {
+            pendingPlayerTypes.computeIfAbsent(playerType.getUserId(), key -> new PendingWrite<>())
+                    .update(playerType, written);
+            full = pendingPlayerTypes.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+        return written;
+    }
+
+    /**
+     * Writes all buffered updates.
+     */
+    @Scheduled(fixedDelayString = "${tutor.profile-ingestion.flush-interval-ms:50}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<UserSkillLevelEntity.UserSkillLevelId, PendingWrite<UserSkillLevelEntity>> skillLevels;
+            Map<UUID, PendingWrite<UserPlayerTypeEntity>> playerTypes;
+            synchronized (bufferLock) {
+                skillLevels = pendingSkillLevels;
+                playerTypes = pendingPlayerTypes;
+                pendingSkillLevels = new LinkedHashMap<>();
+                pendingPlayerTypes = new LinkedHashMap<>();
+            }
+            Set<UUID> changedUsers = new HashSet<>();
+            List<CompletableFuture<Void>> written = new ArrayList<>();
+            write(skillLevels.values(), userProfileBatchRepository::upsertSkillLevels,
+                    UserSkillLevelEntity::getUserId, changedUsers, written, "skill levels");
+            write(playerTypes.values(), userProfileBatchRepository::upsertPlayerTypes,
+                    UserPlayerTypeEntity::getUserId, changedUsers, written, "player types");
+            try {
+                if (!changedUsers.isEmpty()) {
+                    userProfileCache.invalidate(changedUsers);
+                }
+            } finally {
+                written.forEach(waiter -> waiter.complete(null));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a batch. On success, the users of the batch are added to the changed users and the waiting callers to
+     * the written waiters, which are completed by the caller; on failure the waiting callers are failed.
+     */
+    private static <T> void write(Iterable<PendingWrite<T>> pendingWrites, Consumer<List<T>> batchWriter,
+                                  Function<T, UUID> userId, Set<UUID> changedUsers,
+                                  List<CompletableFuture<Void>> written, String description) {
+        List<T> values = new ArrayList<>();
+        List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        for (PendingWrite<T> pendingWrite : pendingWrites) {
+            values.add(pendingWrite.value);
+            waiters.addAll(pendingWrite.waiters);
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+
+        try {
+            batchWriter.accept(values);
+            log.debug("Wrote batch of {} {} for {} updates", values.size(), description, waiters.size());
+            values.forEach(value -> changedUsers.add(userId.apply(value)));
+            written.addAll(waiters);
+        } catch (RuntimeException e) {
+            log.error("Failed to write batch of {} {}: {}", values.size(), description, e.getMessage(), e);
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+
+    private static class PendingWrite<T> {
+        private T value;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>();
+
+        void update(T newValue, CompletableFuture<Void> waiter) {
+            value = newValue;
+            waiters.add(waiter);
+        }
+    }
+}
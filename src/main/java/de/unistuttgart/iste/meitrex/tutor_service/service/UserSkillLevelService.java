@@ -2,14 +2,17 @@ package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.mapper.UserSkillLevelMapper;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserProfileBatchRepository;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserSkillLevelRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.UUID;
 
 /**
@@ -23,29 +26,52 @@ public class UserSkillLevelService {
 
     private final UserSkillLevelRepository userSkillLevelRepository;
     private final UserSkillLevelMapper userSkillLevelMapper;
+    private final UserProfileUpdateBuffer userProfileUpdateBuffer;
+    private final UserProfileBatchRepository userProfileBatchRepository;
+    private final UserProfileCache userProfileCache;
+
+    /**
+     * Creates the aggregates of users whose skill levels were stored before aggregates were maintained.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSkillAggregates() {
+        try {
+            int created = userProfileBatchRepository.backfillSkillAggregates();
+            if (created > 0) {
+                log.info("Created skill aggregates for {} users", created);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill skill aggregates: {}", e.getMessage(), e);
+        }
+    }
 
     /**
      * Saves or updates user skill level information from an event.
+     * The skill level is written together with other concurrently received skill levels in a single batch,
+     * this method returns once it was written and the cached profile of the user was invalidated.
      * 
      * @param userId the ID of the user
      * @param skillId the ID of the skill
      * @param skillLevelValue the new skill level value
      */
-    @Transactional
     public void saveUserSkillLevel(UUID userId, UUID skillId, Float skillLevelValue) {
         log.info("Saving skill level for user {} and skill {}: value={}", userId, skillId, skillLevelValue);
-        
-        UserSkillLevelEntity.UserSkillLevelId id = new UserSkillLevelEntity.UserSkillLevelId(userId, skillId);
-        Optional<UserSkillLevelEntity> existingEntity = userSkillLevelRepository.findById(id);
-        
-        UserSkillLevelEntity entity;
-        if (existingEntity.isPresent()) {
-            entity = userSkillLevelMapper.updateEntity(existingEntity.get(), skillLevelValue);
-        } else {
-            entity = userSkillLevelMapper.createEntity(userId, skillId, skillLevelValue);
-        }
-        
-        userSkillLevelRepository.save(entity);
+
+        UserSkillLevelEntity entity = userSkillLevelMapper.createEntity(userId, skillId, skillLevelValue);
+        userProfileUpdateBuffer.submitSkillLevel(entity).join();
+    }
+
+    /**
+     * Retrieves the average of all skill levels of a user.
+     * The average is read from the aggregate maintained on write via the profile cache,
+     * so the skill levels of the user are not loaded.
+     *
+     * @param userId the ID of the user
+     * @return the average skill level, empty if the user has no skill levels
+     */
+    public OptionalDouble getAverageSkillLevel(UUID userId) {
+        Double averageSkillLevel = userProfileCache.getProfile(userId).getAverageSkillLevel();
+        return averageSkillLevel == null ? OptionalDouble.empty() : OptionalDouble.of(averageSkillLevel);
     }
 
     /**
@@ -0,0 +1,18 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import de.unistuttgart.iste.meitrex.common.event.TutorCategory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response of the prompt which categorizes a question and answers it in the same call.
+ * The answer is only meaningful for LECTURE and OTHER questions.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategorizedAnswer {
+    private TutorCategory category;
+    private String answer;
+}
@@ -0,0 +1,20 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published to all instances of the service when contents changed,
+ * so that they drop the data they cached for the courses containing the contents.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ContentsInvalidatedEvent {
+    private List<UUID> contentIds;
+    private String sourceInstanceId;
+}
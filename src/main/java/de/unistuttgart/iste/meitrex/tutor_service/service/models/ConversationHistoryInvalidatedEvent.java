@@ -0,0 +1,20 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Published to all instances of the service when the conversation history of a user in a course changed,
+ * so that they drop their in-memory copies of the recent exchanges.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversationHistoryInvalidatedEvent {
+    private UUID userId;
+    private UUID courseId;
+    private String sourceInstanceId;
+}
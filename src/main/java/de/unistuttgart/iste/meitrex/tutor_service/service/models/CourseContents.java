@@ -0,0 +1,21 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The contents of a course and the time the latest of them was changed.
+ * Data derived from the contents of a course is only valid while both stay the same, as editing a content keeps
+ * its ID.
+ */
+@Value
+public class CourseContents {
+    List<UUID> contentIds;
+    /**
+     * The time of the latest recorded change of one of the contents, null if none of them was changed.
+     */
+    OffsetDateTime changedAt;
+}
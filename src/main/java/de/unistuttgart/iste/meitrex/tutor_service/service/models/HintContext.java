@@ -0,0 +1,29 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The parts of a hint prompt which only depend on the quiz question and the course, not on the student.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class HintContext {
+    /**
+     * The question prompt filled with the question text and its options.
+     */
+    private final String questionPrompt;
+    private final String semanticSearchQuery;
+    /**
+     * Whether the semantic search returned any results, relevant or not.
+     */
+    private final boolean searchResultsFound;
+    /**
+     * The texts of the document segments relevant to the question.
+     */
+    private final List<String> documentSegmentTexts;
+}
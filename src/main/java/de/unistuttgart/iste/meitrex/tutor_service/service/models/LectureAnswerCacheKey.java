@@ -0,0 +1,18 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Identifies a cached answer to a lecture question.
+ * Answers are only shared between users of the same course with the same skill level bucket and
+ * are only valid for the set of contents the course had when the answer was generated.
+ */
+@Value
+public class LectureAnswerCacheKey {
+    UUID courseId;
+    String contentFingerprint;
+    int skillLevelBucket;
+    String normalizedQuestion;
+}
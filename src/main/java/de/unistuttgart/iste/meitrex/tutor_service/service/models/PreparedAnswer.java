@@ -0,0 +1,73 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.generated.dto.Source;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of preparing the answer to a user's question.
+ * Either the answer is already known (e.g. an error, a fixed message, a cached answer or an answer generated while
+ * categorizing the question), or it still has to be generated by the LLM using the given prompt template and
+ * arguments.
+ */
+@Getter
+public class PreparedAnswer {
+
+    private final LectureQuestionResponse response;
+    private final boolean fromCache;
+    /**
+     * True if the answer was generated by the LLM in the same call which categorized the question.
+     */
+    private final boolean answeredWithCategory;
+    private final String templateName;
+    private final Map<String, String> promptArgs;
+    private final List<Source> sources;
+    /**
+     * Key under which the generated answer should be cached, null if it must not be cached.
+     */
+    private final LectureAnswerCacheKey answerCacheKey;
+
+    private PreparedAnswer(LectureQuestionResponse response, boolean fromCache, boolean answeredWithCategory,
+                           String templateName, Map<String, String> promptArgs, List<Source> sources,
+                           LectureAnswerCacheKey answerCacheKey) {
+        this.response = response;
+        this.fromCache = fromCache;
+        this.answeredWithCategory = answeredWithCategory;
+        this.templateName = templateName;
+        this.promptArgs = promptArgs;
+        this.sources = sources;
+        this.answerCacheKey = answerCacheKey;
+    }
+
+    public static PreparedAnswer completed(String answer) {
+        return new PreparedAnswer(new LectureQuestionResponse(answer, List.of()), false, false,
+                null, Map.of(), List.of(), null);
+    }
+
+    public static PreparedAnswer cached(LectureQuestionResponse response) {
+        return new PreparedAnswer(response, true, false, null, Map.of(), response.getSources(), null);
+    }
+
+    public static PreparedAnswer answeredWithCategory(LectureQuestionResponse response) {
+        return new PreparedAnswer(response, false, true, null, Map.of(), response.getSources(), null);
+    }
+
+    public static PreparedAnswer generate(String templateName, Map<String, String> promptArgs, List<Source> sources) {
+        return new PreparedAnswer(null, false, false, templateName, promptArgs, sources, null);
+    }
+
+    public static PreparedAnswer generate(String templateName, Map<String, String> promptArgs, List<Source> sources,
+                                          LectureAnswerCacheKey answerCacheKey) {
+        return new PreparedAnswer(null, false, false, templateName, promptArgs, sources, answerCacheKey);
+    }
+
+    /**
+     * @return true if the answer is already known and no LLM generation is needed
+     */
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
@@ -0,0 +1,141 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Per-question context shared by the different answer paths of the tutor.
+ * The values are either resolved lazily on first access (sequential mode) or are already
+ * being fetched in the background while the question is still being categorized (pipelined mode).
+ * Every value is resolved at most once.
+ */
+public class QuestionContext {
+
+    private final Supplier<List<SemanticSearchResult>> searchResults;
+    private final Supplier<String> conversationHistory;
+    private final Supplier<Double> averageSkillLevel;
+    private final Supplier<Optional<HexadPlayerType>> playerType;
+    private final CompletableFuture<?> searchFuture;
+    private final List<CompletableFuture<?>> pendingFutures;
+
+    private QuestionContext(Supplier<List<SemanticSearchResult>> searchResults,
+                            Supplier<String> conversationHistory,
+                            Supplier<Double> averageSkillLevel,
+                            Supplier<Optional<HexadPlayerType>> playerType,
+                            CompletableFuture<?> searchFuture,
+                            List<CompletableFuture<?>> pendingFutures) {
+        this.searchResults = searchResults;
+        this.conversationHistory = conversationHistory;
+        this.averageSkillLevel = averageSkillLevel;
+        this.playerType = playerType;
+        this.searchFuture = searchFuture;
+        this.pendingFutures = pendingFutures;
+    }
+
+    /**
+     * Creates a context whose values are only fetched when they are accessed for the first time.
+     */
+    public static QuestionContext lazy(Supplier<List<SemanticSearchResult>> searchResults,
+                                       Supplier<String> conversationHistory,
+                                       Supplier<Double> averageSkillLevel,
+                                       Supplier<Optional<HexadPlayerType>> playerType) {
+        return new QuestionContext(
+                memoize(searchResults),
+                memoize(conversationHistory),
+                memoize(averageSkillLevel),
+                memoize(playerType),
+                null,
+                List.of());
+    }
+
+    /**
+     * Creates a context whose values are fetched concurrently on the given executor right away.
+     */
+    public static QuestionContext prefetched(Executor executor,
+                                             Supplier<List<SemanticSearchResult>> searchResults,
+                                             Supplier<String> conversationHistory,
+                                             Supplier<Double> averageSkillLevel,
+                                             Supplier<Optional<HexadPlayerType>> playerType) {
+        CompletableFuture<List<SemanticSearchResult>> searchFuture =
+                CompletableFuture.supplyAsync(searchResults, executor);
+        CompletableFuture<String> historyFuture = CompletableFuture.supplyAsync(conversationHistory, executor);
+        CompletableFuture<Double> skillFuture = CompletableFuture.supplyAsync(averageSkillLevel, executor);
+        CompletableFuture<Optional<HexadPlayerType>> playerTypeFuture =
+                CompletableFuture.supplyAsync(playerType, executor);
+
+        return new QuestionContext(
+                () -> await(searchFuture),
+                () -> await(historyFuture),
+                () -> await(skillFuture),
+                () -> await(playerTypeFuture),
+                searchFuture,
+                List.of(searchFuture, historyFuture, skillFuture, playerTypeFuture));
+    }
+
+    public List<SemanticSearchResult> getSearchResults() {
+        return searchResults.get();
+    }
+
+    public String getConversationHistory() {
+        return conversationHistory.get();
+    }
+
+    public double getAverageSkillLevel() {
+        return averageSkillLevel.get();
+    }
+
+    public Optional<HexadPlayerType> getPlayerType() {
+        return playerType.get();
+    }
+
+    /**
+     * Drops all values that have not been fetched yet. Lookups which are already running are not interrupted,
+     * their results are simply ignored.
+     */
+    public void discard() {
+        pendingFutures.forEach(future -> future.cancel(false));
+    }
+
+    /**
+     * Drops the semantic search for the question if it has not been fetched yet, for answer paths which search
+     * with a different query or do not need lecture content. The other values are kept.
+     */
+    public void discardSearchResults() {
+        if (searchFuture != null) {
+            searchFuture.cancel(false);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return new Supplier<>() {
+            private boolean resolved;
+            private T value;
+
+            @Override
+            public synchronized T get() {
+                if (!resolved) {
+                    value = supplier.get();
+                    resolved = true;
+                }
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Personalization data of a user used to individualize prompts.
+ * Fields are null if the data of the user is not known yet.
+ */
+@Value
+public class UserProfile {
+    HexadPlayerType primaryPlayerType;
+    Map<HexadPlayerType, Double> playerTypePercentages;
+    Double averageSkillLevel;
+}
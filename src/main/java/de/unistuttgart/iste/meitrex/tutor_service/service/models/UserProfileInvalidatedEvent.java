@@ -0,0 +1,20 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published to all instances of the service when the profiles of users changed, once per written batch of updates,
+ * so that they drop their cached copies of the profiles.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserProfileInvalidatedEvent {
+    private List<UUID> userIds;
+    private String sourceInstanceId;
+}
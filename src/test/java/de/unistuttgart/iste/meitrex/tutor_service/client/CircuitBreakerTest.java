@@ -0,0 +1,78 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CircuitBreaker.
+ */
+class CircuitBreakerTest {
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @Test
+    void testProtect_opensAfterConsecutiveFailures() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        assertThrows(CircuitBreaker.CircuitBreakerOpenException.class,
+                () -> circuitBreaker.protect(successfulCall()).block());
+        assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    void testProtect_successResetsFailureCount() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+        assertEquals("ok", circuitBreaker.protect(successfulCall()).block());
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testProtect_successfulTrialCallClosesCircuit() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        assertEquals("ok", circuitBreaker.protect(successfulCall()).block());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testProtect_failedTrialCallReopensCircuit() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, Duration.ZERO);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+        }
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.protect(failingCall()).block());
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private Mono<String> successfulCall() {
+        return Mono.fromCallable(() -> {
+            subscriptions.incrementAndGet();
+            return "ok";
+        });
+    }
+
+    private Mono<String> failingCall() {
+        return Mono.fromCallable(() -> {
+            subscriptions.incrementAndGet();
+            throw new IllegalStateException("failed");
+        });
+    }
+}
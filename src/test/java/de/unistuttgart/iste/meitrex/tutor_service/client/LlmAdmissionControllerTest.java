@@ -0,0 +1,173 @@
+package de.unistuttgart.iste.meitrex.tutor_service.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LlmAdmissionController.
+ */
+class LlmAdmissionControllerTest {
+
+    private static final Map<LlmRequestContext.Priority, Integer> WEIGHTS = Map.of(
+            LlmRequestContext.Priority.INTERACTIVE, 2,
+            LlmRequestContext.Priority.BACKGROUND, 1);
+    private static final LlmAdmissionController.RateLimit NO_RATE_LIMIT =
+            new LlmAdmissionController.RateLimit(1000, 1000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testAcquire_failsWhenAllSlotsAreTaken() throws InterruptedException {
+        LlmAdmissionController controller = createController(2, NO_RATE_LIMIT, NO_RATE_LIMIT);
+        controller.acquire(interactive());
+        controller.acquire(interactive());
+
+        assertEquals(2, controller.getActiveRequests());
+        assertThrows(LlmAdmissionController.LlmCapacityExceededException.class,
+                () -> controller.acquire(interactive()));
+        assertEquals(0, controller.getQueuedRequests(LlmRequestContext.Priority.INTERACTIVE));
+    }
+
+    @Test
+    void testClose_releasesSlotOnlyOnce() throws InterruptedException {
+        LlmAdmissionController controller = createController(2, NO_RATE_LIMIT, NO_RATE_LIMIT);
+        LlmAdmissionController.Permit permit = controller.acquire(interactive());
+        controller.acquire(interactive());
+
+        permit.close();
+        permit.close();
+
+        assertEquals(1, controller.getActiveRequests());
+    }
+
+    @Test
+    void testAcquire_interactiveRequestExceedingUserRateIsRejected() throws InterruptedException {
+        LlmAdmissionController controller = createController(10,
+                new LlmAdmissionController.RateLimit(2, 0.001), NO_RATE_LIMIT);
+        UUID userId = UUID.randomUUID();
+
+        controller.acquire(LlmRequestContext.interactive(userId, null)).close();
+        controller.acquire(LlmRequestContext.interactive(userId, null)).close();
+
+        assertThrows(LlmAdmissionController.LlmRateLimitExceededException.class,
+                () -> controller.acquire(LlmRequestContext.interactive(userId, null)));
+        // other users are not affected
+        assertDoesNotThrow(() -> controller.acquire(LlmRequestContext.interactive(UUID.randomUUID(), null)));
+    }
+
+    @Test
+    void testAcquire_backgroundRequestExceedingCourseRateIsRejectedIfDelayExceedsTimeout()
+            throws InterruptedException {
+        LlmAdmissionController controller = createController(10,
+                NO_RATE_LIMIT, new LlmAdmissionController.RateLimit(1, 0.001));
+        UUID courseId = UUID.randomUUID();
+
+        controller.acquire(LlmRequestContext.background(null, courseId)).close();
+
+        assertThrows(LlmAdmissionController.LlmRateLimitExceededException.class,
+                () -> controller.acquire(LlmRequestContext.background(null, courseId)));
+    }
+
+    @Test
+    void testAcquire_requestRejectedByCourseRateDoesNotCountForUser() throws InterruptedException {
+        LlmAdmissionController controller = createController(10,
+                new LlmAdmissionController.RateLimit(1, 0.001), new LlmAdmissionController.RateLimit(1, 0.001));
+        UUID userId = UUID.randomUUID();
+        UUID courseId = UUID.randomUUID();
+        controller.acquire(LlmRequestContext.interactive(UUID.randomUUID(), courseId)).close();
+
+        assertThrows(LlmAdmissionController.LlmRateLimitExceededException.class,
+                () -> controller.acquire(LlmRequestContext.interactive(userId, courseId)));
+        // the token of the user was returned, so a request in another course is admitted
+        assertDoesNotThrow(() -> controller.acquire(LlmRequestContext.interactive(userId, UUID.randomUUID())));
+    }
+
+    @Test
+    void testAcquire_requestTimingOutDoesNotCountForRateLimits() throws InterruptedException {
+        LlmAdmissionController controller = createController(1,
+                new LlmAdmissionController.RateLimit(1, 0.001), NO_RATE_LIMIT);
+        UUID userId = UUID.randomUUID();
+        LlmAdmissionController.Permit permit = controller.acquire(interactive());
+
+        assertThrows(LlmAdmissionController.LlmCapacityExceededException.class,
+                () -> controller.acquire(LlmRequestContext.interactive(userId, null)));
+        permit.close();
+        assertDoesNotThrow(() -> controller.acquire(LlmRequestContext.interactive(userId, null)));
+    }
+
+    @Test
+    void testAcquire_waitingRequestsAreServedByWeight() throws Exception {
+        LlmAdmissionController controller = createController(1, NO_RATE_LIMIT, NO_RATE_LIMIT);
+        LlmAdmissionController.Permit blocking = controller.acquire(interactive());
+
+        List<LlmRequestContext.Priority> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(6);
+        for (int i = 0; i < 3; i++) {
+            startWaiter(controller, LlmRequestContext.Priority.BACKGROUND, order, done);
+        }
+        for (int i = 0; i < 3; i++) {
+            startWaiter(controller, LlmRequestContext.Priority.INTERACTIVE, order, done);
+        }
+        while (controller.getQueuedRequests(LlmRequestContext.Priority.BACKGROUND) < 3
+                || controller.getQueuedRequests(LlmRequestContext.Priority.INTERACTIVE) < 3) {
+            Thread.sleep(10);
+        }
+
+        blocking.close();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // the blocking request already used an interactive slot, afterwards interactive requests get two slots
+        // for every slot of background requests
+        assertEquals(List.of(
+                LlmRequestContext.Priority.BACKGROUND,
+                LlmRequestContext.Priority.INTERACTIVE,
+                LlmRequestContext.Priority.INTERACTIVE,
+                LlmRequestContext.Priority.BACKGROUND,
+                LlmRequestContext.Priority.INTERACTIVE,
+                LlmRequestContext.Priority.BACKGROUND), order);
+    }
+
+    @Test
+    void testAcquire_recordsWaitTime() throws InterruptedException {
+        LlmAdmissionController controller = createController(1, NO_RATE_LIMIT, NO_RATE_LIMIT);
+
+        controller.acquire(interactive()).close();
+
+        assertEquals(1, meterRegistry.get("tutor.llm.admission.wait").tag("priority", "interactive")
+                .timer().count());
+    }
+
+    private void startWaiter(LlmAdmissionController controller, LlmRequestContext.Priority priority,
+                             List<LlmRequestContext.Priority> order, CountDownLatch done) {
+        Thread.ofVirtual().start(() -> {
+            try (LlmAdmissionController.Permit permit =
+                         controller.acquire(new LlmRequestContext(priority, null, null))) {
+                order.add(priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+    }
+
+    private LlmAdmissionController createController(int maxConcurrentRequests,
+                                                    LlmAdmissionController.RateLimit userRateLimit,
+                                                    LlmAdmissionController.RateLimit courseRateLimit) {
+        return new LlmAdmissionController(maxConcurrentRequests, Duration.ofSeconds(1), WEIGHTS,
+                userRateLimit, courseRateLimit, meterRegistry);
+    }
+
+    private static LlmRequestContext interactive() {
+        return LlmRequestContext.interactive(null, null);
+    }
+}
@@ -1,12 +1,20 @@
 package de.unistuttgart.iste.meitrex.tutor_service.controller;
 
+import de.unistuttgart.iste.meitrex.common.event.ContentChangeEvent;
 import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.common.event.StudentCodeSubmittedEvent;
 import de.unistuttgart.iste.meitrex.common.event.UserHexadPlayerTypeSetEvent;
 import de.unistuttgart.iste.meitrex.common.event.skilllevels.UserSkillLevelChangedEvent;
 import de.unistuttgart.iste.meitrex.tutor_service.config.StudentCodeSubmissionConfig;
-import de.unistuttgart.iste.meitrex.tutor_service.service.ProactiveFeedbackService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ContentChangeService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ConversationHistoryService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.EventDeduplicationService;
+import de.unistuttgart.iste.meitrex.tutor_service.service.UserProfileCache;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ContentsInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ConversationHistoryInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfileInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.ProactiveFeedbackJobService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.StudentCodeSubmissionService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.UserPlayerTypeService;
 import de.unistuttgart.iste.meitrex.tutor_service.service.UserSkillLevelService;
@@ -14,9 +22,11 @@ import io.dapr.client.domain.CloudEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.OffsetDateTime;
 import java.util.HashMap;
@@ -25,6 +35,7 @@ import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -43,7 +54,7 @@ class SubscriptionControllerTest {
     private UserSkillLevelService userSkillLevelService;
 
     @Mock
-    private ProactiveFeedbackService proactiveFeedbackService;
+    private ProactiveFeedbackJobService proactiveFeedbackJobService;
 
     @Mock
     private StudentCodeSubmissionService studentCodeSubmissionService;
@@ -51,6 +62,18 @@ class SubscriptionControllerTest {
     @Mock
     private StudentCodeSubmissionConfig studentCodeSubmissionConfig;
 
+    @Mock
+    private ContentChangeService contentChangeService;
+
+    @Mock
+    private EventDeduplicationService eventDeduplicationService;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private ConversationHistoryService conversationHistoryService;
+
     @InjectMocks
     private SubscriptionController subscriptionController;
 
@@ -74,6 +97,8 @@ class SubscriptionControllerTest {
         
         lenient().when(studentCodeSubmissionConfig.getFileEndings())
                 .thenReturn(List.of(".java", ".kt", ".py"));
+        lenient().when(eventDeduplicationService.startDelivery(any(), any()))
+                .thenReturn(EventDeduplicationService.Delivery.PROCESS);
     }
 
     @Test
@@ -132,7 +157,7 @@ class SubscriptionControllerTest {
     }
 
     @Test
-    void testOnContentProgressedEvent_Assignment_GeneratesFeedback() {
+    void testOnContentProgressedEvent_Assignment_EnqueuesFeedback() {
         ContentProgressedEvent event = ContentProgressedEvent.builder()
                 .userId(userId)
                 .contentId(contentId)
@@ -144,15 +169,13 @@ class SubscriptionControllerTest {
         CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
         when(cloudEvent.getData()).thenReturn(event);
 
-        when(proactiveFeedbackService.generateFeedback(any())).thenReturn("Feedback generated");
-
         assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
 
-        verify(proactiveFeedbackService, times(1)).generateFeedback(event);
+        verify(proactiveFeedbackJobService, times(1)).enqueue(event);
     }
 
     @Test
-    void testOnContentProgressedEvent_Quiz_GeneratesFeedback() {
+    void testOnContentProgressedEvent_Quiz_EnqueuesFeedback() {
         ContentProgressedEvent event = ContentProgressedEvent.builder()
                 .userId(userId)
                 .contentId(contentId)
@@ -164,11 +187,61 @@ class SubscriptionControllerTest {
         CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
         when(cloudEvent.getData()).thenReturn(event);
 
-        when(proactiveFeedbackService.generateFeedback(any())).thenReturn("Feedback generated");
+        assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
+
+        verify(proactiveFeedbackJobService, times(1)).enqueue(event);
+    }
+
+    @Test
+    void testOnContentProgressedEvent_DuplicateDelivery_IsIgnored() {
+        CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getId()).thenReturn("event-1");
+        when(eventDeduplicationService.startDelivery("content-progressed", "event-1"))
+                .thenReturn(EventDeduplicationService.Delivery.DUPLICATE);
 
         assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
 
-        verify(proactiveFeedbackService, times(1)).generateFeedback(event);
+        verify(proactiveFeedbackJobService, never()).enqueue(any());
+        verify(cloudEvent, never()).getData();
+        verify(eventDeduplicationService, never()).completeDelivery(any(), any());
+    }
+
+    @Test
+    void testOnContentProgressedEvent_DeliveryInProgress_EventIsNotAcknowledged() {
+        CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getId()).thenReturn("event-1");
+        when(eventDeduplicationService.startDelivery("content-progressed", "event-1"))
+                .thenReturn(EventDeduplicationService.Delivery.IN_PROGRESS);
+
+        // rejected, so that Dapr delivers the event again instead of dropping it if the running delivery fails
+        assertThrows(ResponseStatusException.class,
+                () -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
+
+        verify(proactiveFeedbackJobService, never()).enqueue(any());
+        verify(eventDeduplicationService, never()).completeDelivery(any(), any());
+        verify(eventDeduplicationService, never()).forgetDelivery(any(), any());
+    }
+
+    @Test
+    void testOnContentProgressedEvent_Processed_DeliveryIsCompletedAfterHandler() {
+        ContentProgressedEvent event = ContentProgressedEvent.builder()
+                .userId(userId)
+                .contentId(contentId)
+                .contentType(ContentProgressedEvent.ContentType.QUIZ)
+                .correctness(0.5)
+                .success(true)
+                .build();
+
+        CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(event);
+        when(cloudEvent.getId()).thenReturn("event-1");
+
+        subscriptionController.onContentProgressedEvent(cloudEvent, headers).block();
+
+        InOrder inOrder = inOrder(eventDeduplicationService, proactiveFeedbackJobService);
+        inOrder.verify(eventDeduplicationService).startDelivery("content-progressed", "event-1");
+        inOrder.verify(proactiveFeedbackJobService).enqueue(event);
+        inOrder.verify(eventDeduplicationService).completeDelivery("content-progressed", "event-1");
     }
 
     @Test
@@ -183,11 +256,11 @@ class SubscriptionControllerTest {
 
         assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
 
-        verify(proactiveFeedbackService, never()).generateFeedback(any());
+        verify(proactiveFeedbackJobService, never()).enqueue(any());
     }
 
     @Test
-    void testOnContentProgressedEvent_FeedbackGenerationThrowsException_HandlesGracefully() {
+    void testOnContentProgressedEvent_EnqueueFails_EventIsNotAcknowledged() {
         ContentProgressedEvent event = ContentProgressedEvent.builder()
                 .userId(userId)
                 .contentId(contentId)
@@ -198,13 +271,43 @@ class SubscriptionControllerTest {
 
         CloudEvent<ContentProgressedEvent> cloudEvent = mock(CloudEvent.class);
         when(cloudEvent.getData()).thenReturn(event);
+        when(cloudEvent.getId()).thenReturn("event-1");
 
-        when(proactiveFeedbackService.generateFeedback(any()))
-                .thenThrow(new RuntimeException("AI service unavailable"));
+        doThrow(new RuntimeException("Database unavailable")).when(proactiveFeedbackJobService).enqueue(any());
 
-        assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
+        // the error is propagated, so that Dapr redelivers the event
+        assertThrows(RuntimeException.class,
+                () -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
 
-        verify(proactiveFeedbackService, times(1)).generateFeedback(event);
+        verify(proactiveFeedbackJobService, times(1)).enqueue(event);
+        verify(eventDeduplicationService).forgetDelivery("content-progressed", "event-1");
+        verify(eventDeduplicationService, never()).completeDelivery(any(), any());
+    }
+
+    @Test
+    void testOnUserProfileInvalidatedEvent_EvictsProfile() {
+        UserProfileInvalidatedEvent event = new UserProfileInvalidatedEvent(List.of(userId), "other-instance");
+        CloudEvent<UserProfileInvalidatedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(event);
+
+        assertDoesNotThrow(() -> subscriptionController.onUserProfileInvalidatedEvent(cloudEvent, headers).block());
+
+        verify(userProfileCache).onInvalidationEvent(event);
+        verifyNoInteractions(eventDeduplicationService);
+    }
+
+    @Test
+    void testOnConversationHistoryInvalidatedEvent_EvictsWindow() {
+        ConversationHistoryInvalidatedEvent event =
+                new ConversationHistoryInvalidatedEvent(userId, courseId, "other-instance");
+        CloudEvent<ConversationHistoryInvalidatedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(event);
+
+        assertDoesNotThrow(() ->
+                subscriptionController.onConversationHistoryInvalidatedEvent(cloudEvent, headers).block());
+
+        verify(conversationHistoryService).onInvalidationEvent(event);
+        verifyNoInteractions(eventDeduplicationService);
     }
 
     @Test
@@ -252,7 +355,7 @@ class SubscriptionControllerTest {
     }
 
     @Test
-    void testOnStudentCodeSubmittedEvent_SaveThrowsException_HandlesGracefully() {
+    void testOnStudentCodeSubmittedEvent_SaveFails_EventIsNotAcknowledged() {
         Map<String, String> files = new HashMap<>();
         files.put("src/Main.java", "public class Main {}");
 
@@ -269,15 +372,20 @@ class SubscriptionControllerTest {
 
         CloudEvent<StudentCodeSubmittedEvent> cloudEvent = mock(CloudEvent.class);
         when(cloudEvent.getData()).thenReturn(event);
+        when(cloudEvent.getId()).thenReturn("event-1");
 
         doThrow(new RuntimeException("Database error"))
                 .when(studentCodeSubmissionService).saveCodeSubmission(
                         any(), any(), any(), any(), any(), any(), any(), any());
 
-        assertDoesNotThrow(() -> subscriptionController.onStudentCodeSubmittedEvent(cloudEvent, headers).block());
+        // the error is propagated, so that Dapr redelivers the event
+        assertThrows(RuntimeException.class,
+                () -> subscriptionController.onStudentCodeSubmittedEvent(cloudEvent, headers).block());
 
         verify(studentCodeSubmissionService, times(1)).saveCodeSubmission(
                 any(), any(), any(), any(), any(), any(), any(), any());
+        verify(eventDeduplicationService).forgetDelivery("student-code-submitted", "event-1");
+        verify(eventDeduplicationService, never()).completeDelivery(any(), any());
     }
 
     @Test
@@ -317,9 +425,45 @@ class SubscriptionControllerTest {
 
         assertDoesNotThrow(() -> subscriptionController.onContentProgressedEvent(cloudEvent, headers).block());
 
-        verify(proactiveFeedbackService, never()).generateFeedback(any());
+        verify(proactiveFeedbackJobService, never()).enqueue(any());
     }
     
+    @Test
+    void testOnContentChangedEvent_InvalidatesContentIds() {
+        ContentChangeEvent event = ContentChangeEvent.builder()
+                .contentIds(List.of(contentId))
+                .build();
+
+        CloudEvent<ContentChangeEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(event);
+
+        assertDoesNotThrow(() -> subscriptionController.onContentChangedEvent(cloudEvent, headers).block());
+
+        verify(contentChangeService, times(1)).onContentsChanged(List.of(contentId));
+    }
+
+    @Test
+    void testOnContentChangedEvent_NullEventData_HandlesGracefully() {
+        CloudEvent<ContentChangeEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(null);
+
+        assertDoesNotThrow(() -> subscriptionController.onContentChangedEvent(cloudEvent, headers).block());
+
+        verify(contentChangeService, never()).onContentsChanged(any());
+    }
+
+    @Test
+    void testOnContentsInvalidatedEvent_InvalidatesWithoutDeduplication() {
+        ContentsInvalidatedEvent event = new ContentsInvalidatedEvent(List.of(contentId), "other-instance");
+        CloudEvent<ContentsInvalidatedEvent> cloudEvent = mock(CloudEvent.class);
+        when(cloudEvent.getData()).thenReturn(event);
+
+        assertDoesNotThrow(() -> subscriptionController.onContentsInvalidatedEvent(cloudEvent, headers).block());
+
+        verify(contentChangeService).onInvalidationEvent(event);
+        verifyNoInteractions(eventDeduplicationService);
+    }
+
     @Test
     void testFileFiltering_OnlyJavaFiles_AllSaved() {
         Map<String, String> files = new HashMap<>();
@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import org.junit.jupiter.api.Test;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -75,13 +76,13 @@ public class TutorControllerTest {
                 .build();
 
         HintResponse expectedResponse = new HintResponse("Java is a something a programmer uses...");
-        when(hintService.generateHintWithQuestion(input, courseId, loggedInUser))
-                .thenReturn(expectedResponse);
+        when(hintService.generateHintWithQuestionAsync(input, courseId, loggedInUser))
+                .thenReturn(Mono.just(expectedResponse));
 
-        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser);
+        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser).block();
 
         assertEquals(expectedResponse, response);
-        verify(hintService).generateHintWithQuestion(input, courseId, loggedInUser);
+        verify(hintService).generateHintWithQuestionAsync(input, courseId, loggedInUser);
     }
 
     @Test
@@ -97,13 +98,13 @@ public class TutorControllerTest {
                 .build();
 
         HintResponse expectedResponse = new HintResponse("Think about what Java is commonly used for...");
-        when(hintService.generateHintWithQuestion(input, courseId, loggedInUser))
-                .thenReturn(expectedResponse);
+        when(hintService.generateHintWithQuestionAsync(input, courseId, loggedInUser))
+                .thenReturn(Mono.just(expectedResponse));
 
-        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser);
+        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser).block();
 
         assertEquals(expectedResponse, response);
-        verify(hintService).generateHintWithQuestion(input, courseId, loggedInUser);
+        verify(hintService).generateHintWithQuestionAsync(input, courseId, loggedInUser);
     }
 
     @Test
@@ -122,13 +123,13 @@ public class TutorControllerTest {
                 .build();
 
         HintResponse expectedResponse = new HintResponse("Consider what each acronym stands for...");
-        when(hintService.generateHintWithQuestion(input, courseId, loggedInUser))
-                .thenReturn(expectedResponse);
+        when(hintService.generateHintWithQuestionAsync(input, courseId, loggedInUser))
+                .thenReturn(Mono.just(expectedResponse));
 
-        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser);
+        HintResponse response = tutorController.generateHint(input, courseId, loggedInUser).block();
 
         assertEquals(expectedResponse, response);
-        verify(hintService).generateHintWithQuestion(input, courseId, loggedInUser);
+        verify(hintService).generateHintWithQuestionAsync(input, courseId, loggedInUser);
     }
 
     @Test
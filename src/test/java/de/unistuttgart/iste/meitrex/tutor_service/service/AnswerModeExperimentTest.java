@@ -0,0 +1,69 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.PreparedAnswer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnswerModeExperiment.
+ */
+class AnswerModeExperimentTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnswerModeExperiment answerModeExperiment;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        answerModeExperiment = new AnswerModeExperiment(meterRegistry);
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedEnabled", true);
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedUserPercentage", 100);
+    }
+
+    @Test
+    void testModeFor_respectsSwitchAndPercentage() {
+        UUID userId = UUID.randomUUID();
+        assertEquals(AnswerModeExperiment.Mode.COMBINED, answerModeExperiment.modeFor(userId));
+
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedUserPercentage", 0);
+        assertEquals(AnswerModeExperiment.Mode.SEQUENTIAL, answerModeExperiment.modeFor(userId));
+
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedUserPercentage", 100);
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedEnabled", false);
+        assertEquals(AnswerModeExperiment.Mode.SEQUENTIAL, answerModeExperiment.modeFor(userId));
+    }
+
+    @Test
+    void testModeFor_isStablePerUser() {
+        ReflectionTestUtils.setField(answerModeExperiment, "combinedUserPercentage", 50);
+        UUID userId = UUID.randomUUID();
+
+        assertEquals(answerModeExperiment.modeFor(userId), answerModeExperiment.modeFor(userId));
+    }
+
+    @Test
+    void testRecordAnswer_tagsModeAndSource() {
+        PreparedAnswer combined = PreparedAnswer.answeredWithCategory(new LectureQuestionResponse("Answer", List.of()));
+        PreparedAnswer generated = PreparedAnswer.generate("answer_lecture_question_prompt.txt", Map.of(), List.of());
+
+        answerModeExperiment.recordAnswer(AnswerModeExperiment.Mode.COMBINED, combined, 1_000_000, "Answer", false);
+        answerModeExperiment.recordAnswer(AnswerModeExperiment.Mode.SEQUENTIAL, generated, 2_000_000, "", true);
+
+        assertEquals(1, meterRegistry.get("tutor.answer-mode.latency")
+                .tags("mode", "combined", "source", "combined-call").timer().count());
+        assertEquals(1, meterRegistry.get("tutor.answer-mode.latency")
+                .tags("mode", "sequential", "source", "answer-call").timer().count());
+        assertEquals(6, meterRegistry.get("tutor.answer-mode.answer.length")
+                .tags("mode", "combined").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("tutor.answer-mode.failures").tags("mode", "sequential").counter().count());
+    }
+}
@@ -0,0 +1,86 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnswerTokenDecoder.
+ */
+class AnswerTokenDecoderTest {
+
+    @Test
+    void testAccept_decodesAnswerAcrossChunks() {
+        assertEquals("Hello world", decode("{\"answer\": \"Hel", "lo wor", "ld\"}"));
+    }
+
+    @Test
+    void testAccept_keySplitAcrossChunks() {
+        AnswerTokenDecoder decoder = new AnswerTokenDecoder();
+
+        assertEquals("", decoder.accept("{\"ans"));
+        assertEquals("", decoder.accept("wer\" "));
+        assertEquals("", decoder.accept(": "));
+        assertEquals("Yes", decoder.accept("\"Yes\"}"));
+        assertEquals("", decoder.finish());
+    }
+
+    @Test
+    void testAccept_escapesSplitAcrossChunks() {
+        assertEquals("say \"hi\"", decode("{\"answer\": \"say \\", "\"hi\\", "\"\"}"));
+        assertEquals("C:\\temp\nnext", decode("{\"answer\": \"C:\\", "\\temp\\", "nnext\"}"));
+        assertEquals("caf\u00e9 \u00fc", decode("{\"answer\": \"caf\\u0", "0e", "9 \\", "u00fc\"}"));
+    }
+
+    @Test
+    void testAccept_ignoresTextAfterAnswer() {
+        assertEquals("done", decode("{\"answer\": \"done\", \"other\": \"ignored\"}"));
+    }
+
+    @Test
+    void testFinish_returnsRawTextWithoutAnswerKey() {
+        assertEquals("Just some plain text", decode("  Just some ", "plain text  "));
+    }
+
+    @Test
+    void testAccept_streamsRawTextRightAway() {
+        AnswerTokenDecoder decoder = new AnswerTokenDecoder();
+
+        assertEquals("", decoder.accept("  "));
+        assertEquals("Just some", decoder.accept("Just some "));
+        assertEquals(" plain", decoder.accept("plain"));
+        assertEquals(" text", decoder.accept(" text  "));
+        assertEquals("", decoder.finish());
+    }
+
+    @Test
+    void testAccept_findsKeyAfterManyChunksOfOtherFields() {
+        AnswerTokenDecoder decoder = new AnswerTokenDecoder();
+
+        assertEquals("", decoder.accept("{\"sources\": \""));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("", decoder.accept("not the answer, "));
+        }
+        assertEquals("", decoder.accept("\", \"ans"));
+        assertEquals("", decoder.accept("wer\""));
+        assertEquals("42", decoder.accept(" : \"42\"}"));
+        assertEquals("", decoder.finish());
+    }
+
+    @Test
+    void testAccept_invalidEscapesArePassedThroughLiterally() {
+        assertEquals("bad \\uZZ escape", decode("{\"answer\": \"bad \\uZZ escape\"}"));
+        assertEquals("short \\u12", decode("{\"answer\": \"short \\u12\"}"));
+        assertEquals("unfinished \\u0", decode("{\"answer\": \"unfinished \\u0"));
+        assertEquals("trailing \\", decode("{\"answer\": \"trailing \\"));
+    }
+
+    private static String decode(String... chunks) {
+        AnswerTokenDecoder decoder = new AnswerTokenDecoder();
+        StringBuilder answer = new StringBuilder();
+        for (String chunk : chunks) {
+            answer.append(decoder.accept(chunk));
+        }
+        return answer.append(decoder.finish()).toString();
+    }
+}
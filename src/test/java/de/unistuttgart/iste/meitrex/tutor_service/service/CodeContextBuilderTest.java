@@ -0,0 +1,75 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CodeContextBuilder.
+ */
+class CodeContextBuilderTest {
+
+    private CodeContextBuilder codeContextBuilder;
+
+    @BeforeEach
+    void setUp() {
+        codeContextBuilder = new CodeContextBuilder();
+        ReflectionTestUtils.setField(codeContextBuilder, "maxTokens", 100);
+        ReflectionTestUtils.setField(codeContextBuilder, "chunkLines", 5);
+    }
+
+    @Test
+    void testBuild_smallSubmissionIsIncludedCompletely() {
+        String context = codeContextBuilder.build(Map.of(
+                "src/B.java", "class B { }",
+                "src/A.java", "class A { }"), null);
+
+        assertEquals("File: src/A.java\n---\nclass A { }\n\nFile: src/B.java\n---\nclass B { }\n\n", context);
+    }
+
+    @Test
+    void testBuild_prefersFilesMatchingTheQuestion() {
+        String context = codeContextBuilder.build(Map.of(
+                "src/Aaa.java", lines("int unrelatedCounterWithAVeryLongName = 0;", 10),
+                "src/Parser.java", "class Parser { Token parseExpression() { return null; } }"),
+                "Why does parseExpression return null?");
+
+        assertTrue(context.contains("File: src/Parser.java"));
+        assertTrue(context.contains("parseExpression() { return null; }"));
+        assertTrue(context.contains("Omitted files (less relevant to the question):\n- src/Aaa.java (10 lines)"));
+    }
+
+    @Test
+    void testBuild_prefersLinesMentionedInStackTrace() {
+        String content = IntStream.rangeClosed(1, 20)
+                .mapToObj(line -> "statement" + line + "();")
+                .collect(Collectors.joining("\n"));
+
+        String context = codeContextBuilder.build(Map.of("src/main/Main.java", content),
+                "java.lang.NullPointerException\n\tat Main.run(Main.java:17)");
+
+        assertTrue(context.contains("statement17();"));
+        assertTrue(context.contains("statement1();"));
+        assertTrue(context.contains("... (lines 6-15 omitted) ..."));
+        assertTrue(context.length() <= 100 * 4);
+    }
+
+    @Test
+    void testBuild_staysWithinBudget() {
+        String context = codeContextBuilder.build(Map.of(
+                "src/A.java", lines("int a = 0;", 200),
+                "src/B.java", lines("int b = 0;", 200)), "What is a?");
+
+        assertTrue(context.length() <= 100 * 4);
+    }
+
+    private static String lines(String line, int count) {
+        return String.join("\n", java.util.Collections.nCopies(count, line));
+    }
+}
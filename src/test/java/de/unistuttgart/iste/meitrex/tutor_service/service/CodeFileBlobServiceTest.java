@@ -0,0 +1,108 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.CodeFileBlobEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.CodeFileBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CodeFileBlobService.
+ */
+@ExtendWith(MockitoExtension.class)
+class CodeFileBlobServiceTest {
+
+    @Mock
+    private CodeFileBlobRepository codeFileBlobRepository;
+
+    @InjectMocks
+    private CodeFileBlobService codeFileBlobService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(codeFileBlobService, "compressionThresholdBytes", 100);
+        ReflectionTestUtils.setField(codeFileBlobService, "cleanupBatchSize", 10);
+    }
+
+    @Test
+    void testStore_identicalContentsAreStoredOnce() {
+        String template = "public class Template { }";
+        when(codeFileBlobRepository.lockExistingHashes(anyCollection())).thenReturn(List.of());
+
+        Map<String, String> fileHashes = codeFileBlobService.store(Map.of(
+                "a/Template.java", template,
+                "b/Template.java", template));
+
+        assertEquals(fileHashes.get("a/Template.java"), fileHashes.get("b/Template.java"));
+        assertEquals(64, fileHashes.get("a/Template.java").length());
+        verify(codeFileBlobRepository, times(1))
+                .insertIfAbsent(eq(fileHashes.get("a/Template.java")), eq(false), anyInt(), any(), any());
+    }
+
+    @Test
+    void testStore_existingContentsAreNotWritten() {
+        String unchanged = "public class Unchanged { }";
+        String changed = "public class Changed { }";
+        when(codeFileBlobRepository.lockExistingHashes(anyCollection()))
+                .thenReturn(List.of(ContentHashing.sha256(unchanged)));
+
+        codeFileBlobService.store(Map.of("Unchanged.java", unchanged, "Changed.java", changed));
+
+        verify(codeFileBlobRepository).insertIfAbsent(eq(ContentHashing.sha256(changed)), anyBoolean(), anyInt(),
+                any(), any());
+        verify(codeFileBlobRepository, never()).insertIfAbsent(eq(ContentHashing.sha256(unchanged)),
+                anyBoolean(), anyInt(), any(), any());
+    }
+
+    @Test
+    void testStoreAndLoad_largeContentIsCompressed() {
+        String content = "System.out.println(\"Hello World\");\n".repeat(100);
+        String hash = ContentHashing.sha256(content);
+        when(codeFileBlobRepository.lockExistingHashes(anyCollection())).thenReturn(List.of());
+
+        codeFileBlobService.store(Map.of("Main.java", content));
+
+        ArgumentCaptor<byte[]> stored = ArgumentCaptor.forClass(byte[].class);
+        verify(codeFileBlobRepository).insertIfAbsent(eq(hash), eq(true), eq(content.length()), stored.capture(),
+                any());
+        assertTrue(stored.getValue().length < content.length());
+
+        when(codeFileBlobRepository.findAllById(any())).thenReturn(List.of(CodeFileBlobEntity.builder()
+                .contentHash(hash)
+                .compressed(true)
+                .size(content.length())
+                .content(stored.getValue())
+                .createdAt(OffsetDateTime.now())
+                .build()));
+
+        assertEquals(Map.of("Main.java", content), codeFileBlobService.load(Map.of("Main.java", hash)));
+    }
+
+    @Test
+    void testLoad_missingContentIsLeftOut() {
+        when(codeFileBlobRepository.findAllById(any())).thenReturn(List.of());
+
+        assertTrue(codeFileBlobService.load(Map.of("Main.java", "unknown")).isEmpty());
+    }
+
+    @Test
+    void testRemoveUnreferencedBlobs_deletesInBatches() {
+        when(codeFileBlobRepository.deleteUnreferenced(10)).thenReturn(10, 3);
+
+        codeFileBlobService.removeUnreferencedBlobs();
+
+        verify(codeFileBlobRepository, times(2)).deleteUnreferenced(10);
+    }
+}
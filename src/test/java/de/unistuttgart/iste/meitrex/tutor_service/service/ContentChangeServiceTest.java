@@ -0,0 +1,107 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ContentVersionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ContentVersionRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ContentsInvalidatedEvent;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.CourseContents;
+import io.dapr.client.DaprClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ContentChangeService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ContentChangeServiceTest {
+
+    @Mock
+    private ContentVersionRepository contentVersionRepository;
+
+    @Mock
+    private ContentIdCacheService contentIdCacheService;
+
+    @Mock
+    private HintContextStore hintContextStore;
+
+    @Mock
+    private HintResponseCache hintResponseCache;
+
+    @Mock
+    private DaprClient daprClient;
+
+    @InjectMocks
+    private ContentChangeService contentChangeService;
+
+    private List<UUID> contentIds;
+
+    @BeforeEach
+    void setUp() {
+        contentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnContentsChanged_recordsChangeInvalidatesAndBroadcasts() {
+        when(daprClient.publishEvent(eq(UserProfileCache.BROADCAST_PUBSUB_NAME),
+                eq(ContentChangeService.INVALIDATION_TOPIC), any(Object.class))).thenReturn(Mono.empty());
+
+        contentChangeService.onContentsChanged(contentIds);
+
+        ArgumentCaptor<List<ContentVersionEntity>> versions = ArgumentCaptor.forClass(List.class);
+        verify(contentVersionRepository).saveAll(versions.capture());
+        assertEquals(contentIds, versions.getValue().stream().map(ContentVersionEntity::getContentId).toList());
+        verify(contentIdCacheService).invalidateContents(contentIds);
+        verify(hintContextStore).invalidateContents(contentIds);
+        verify(hintResponseCache).invalidateContents(contentIds);
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(daprClient).publishEvent(eq(UserProfileCache.BROADCAST_PUBSUB_NAME),
+                eq(ContentChangeService.INVALIDATION_TOPIC), event.capture());
+        assertEquals(contentIds, ((ContentsInvalidatedEvent) event.getValue()).getContentIds());
+    }
+
+    @Test
+    void testOnInvalidationEvent_ignoresOwnEvents() {
+        String ownInstanceId = (String) ReflectionTestUtils.getField(contentChangeService, "instanceId");
+
+        contentChangeService.onInvalidationEvent(new ContentsInvalidatedEvent(contentIds, ownInstanceId));
+        verifyNoInteractions(contentIdCacheService, hintContextStore, hintResponseCache);
+
+        contentChangeService.onInvalidationEvent(new ContentsInvalidatedEvent(contentIds, "other-instance"));
+        verify(contentIdCacheService).invalidateContents(contentIds);
+        verify(hintContextStore).invalidateContents(contentIds);
+        verify(hintResponseCache).invalidateContents(contentIds);
+        verifyNoInteractions(contentVersionRepository, daprClient);
+    }
+
+    @Test
+    void testGetCourseContents_includesLatestChange() {
+        OffsetDateTime changedAt = OffsetDateTime.now();
+        when(contentVersionRepository.findLatestChange(contentIds)).thenReturn(changedAt);
+
+        assertEquals(new CourseContents(contentIds, changedAt), contentChangeService.getCourseContents(contentIds));
+    }
+
+    @Test
+    void testGetCourseContents_emptyCourseIsNotQueried() {
+        assertNull(contentChangeService.getCourseContents(List.of()).getChangedAt());
+
+        verifyNoInteractions(contentVersionRepository);
+    }
+}
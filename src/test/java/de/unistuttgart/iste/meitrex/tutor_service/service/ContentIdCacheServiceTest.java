@@ -0,0 +1,172 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.meitrex.content_service.exception.ContentServiceConnectionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ContentIdCacheService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ContentIdCacheServiceTest {
+
+    @Mock
+    private ContentServiceClient contentServiceClient;
+
+    @InjectMocks
+    private ContentIdCacheService contentIdCacheService;
+
+    private UUID courseId;
+    private List<UUID> contentIds;
+
+    @BeforeEach
+    void setUp() {
+        courseId = UUID.randomUUID();
+        contentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        ReflectionTestUtils.setField(contentIdCacheService, "enabled", true);
+        ReflectionTestUtils.setField(contentIdCacheService, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(contentIdCacheService, "maxCourses", 2);
+    }
+
+    @Test
+    void testGetContentIdsOfCourse_cachesResult() throws ContentServiceConnectionException {
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenReturn(contentIds);
+
+        assertEquals(contentIds, contentIdCacheService.getContentIdsOfCourse(courseId));
+        assertEquals(contentIds, contentIdCacheService.getContentIdsOfCourse(courseId));
+
+        verify(contentServiceClient, times(1)).queryContentIdsOfCourse(courseId);
+    }
+
+    @Test
+    void testGetContentIdsOfCourse_expiredEntryIsReloaded() throws ContentServiceConnectionException {
+        ReflectionTestUtils.setField(contentIdCacheService, "ttlSeconds", 0L);
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenReturn(contentIds);
+
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+
+        verify(contentServiceClient, times(2)).queryContentIdsOfCourse(courseId);
+    }
+
+    @Test
+    void testGetContentIdsOfCourse_disabled() throws ContentServiceConnectionException {
+        ReflectionTestUtils.setField(contentIdCacheService, "enabled", false);
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenReturn(contentIds);
+
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+
+        verify(contentServiceClient, times(2)).queryContentIdsOfCourse(courseId);
+    }
+
+    @Test
+    void testGetContentIdsOfCourse_concurrentRequestsAreCoalesced() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseRequest.await(5, TimeUnit.SECONDS);
+            return contentIds;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<UUID>> first = executor.submit(() -> contentIdCacheService.getContentIdsOfCourse(courseId));
+            requestStarted.await(5, TimeUnit.SECONDS);
+            Future<List<UUID>> second = executor.submit(() -> contentIdCacheService.getContentIdsOfCourse(courseId));
+            // give the second request time to join the running one
+            Thread.sleep(100);
+            releaseRequest.countDown();
+
+            assertEquals(contentIds, first.get(5, TimeUnit.SECONDS));
+            assertEquals(contentIds, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(contentServiceClient, times(1)).queryContentIdsOfCourse(courseId);
+    }
+
+    @Test
+    void testInvalidateContents_reloadsAffectedCourseOnly() throws ContentServiceConnectionException {
+        UUID otherCourseId = UUID.randomUUID();
+        List<UUID> otherContentIds = List.of(UUID.randomUUID());
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenReturn(contentIds);
+        when(contentServiceClient.queryContentIdsOfCourse(otherCourseId)).thenReturn(otherContentIds);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(otherCourseId);
+
+        contentIdCacheService.invalidateContents(List.of(contentIds.get(0)));
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(otherCourseId);
+
+        verify(contentServiceClient, times(2)).queryContentIdsOfCourse(courseId);
+        verify(contentServiceClient, times(1)).queryContentIdsOfCourse(otherCourseId);
+    }
+
+    @Test
+    void testInvalidateContents_unknownContentKeepsCachedCourses() throws ContentServiceConnectionException {
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenReturn(contentIds);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+
+        contentIdCacheService.invalidateContents(List.of(UUID.randomUUID()));
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+
+        verify(contentServiceClient, times(1)).queryContentIdsOfCourse(courseId);
+    }
+
+    @Test
+    void testInvalidateContents_runningRequestContainingContentIsNotCached() throws Exception {
+        UUID otherCourseId = UUID.randomUUID();
+        List<UUID> otherContentIds = List.of(UUID.randomUUID());
+        when(contentServiceClient.queryContentIdsOfCourse(courseId)).thenAnswer(invocation -> {
+            contentIdCacheService.invalidateContents(List.of(contentIds.get(0)));
+            return contentIds;
+        });
+        when(contentServiceClient.queryContentIdsOfCourse(otherCourseId)).thenAnswer(invocation -> {
+            contentIdCacheService.invalidateContents(List.of(contentIds.get(0)));
+            return otherContentIds;
+        });
+
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(otherCourseId);
+        contentIdCacheService.getContentIdsOfCourse(otherCourseId);
+
+        verify(contentServiceClient, times(2)).queryContentIdsOfCourse(courseId);
+        // the change does not affect the other course, so its result is cached despite the invalidation
+        verify(contentServiceClient, times(1)).queryContentIdsOfCourse(otherCourseId);
+    }
+
+    @Test
+    void testGetContentIdsOfCourse_evictsOldestCourse() throws ContentServiceConnectionException {
+        UUID secondCourseId = UUID.randomUUID();
+        UUID thirdCourseId = UUID.randomUUID();
+        when(contentServiceClient.queryContentIdsOfCourse(any())).thenReturn(contentIds);
+
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+        contentIdCacheService.getContentIdsOfCourse(secondCourseId);
+        contentIdCacheService.getContentIdsOfCourse(thirdCourseId);
+        contentIdCacheService.getContentIdsOfCourse(courseId);
+
+        verify(contentServiceClient, times(2)).queryContentIdsOfCourse(courseId);
+    }
+}
@@ -1,14 +1,21 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistoryEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ConversationHistorySlotEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistoryRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistorySlotRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.ConversationHistoryInvalidatedEvent;
+import io.dapr.client.DaprClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
 
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -24,6 +31,12 @@ class ConversationHistoryServiceTest {
     @Mock
     private ConversationHistoryRepository conversationHistoryRepository;
 
+    @Mock
+    private ConversationHistorySlotRepository conversationHistorySlotRepository;
+
+    @Mock
+    private DaprClient daprClient;
+
     @InjectMocks
     private ConversationHistoryService conversationHistoryService;
 
@@ -40,48 +53,30 @@ class ConversationHistoryServiceTest {
     }
 
     @Test
-    void testGetRecentHistory_ReturnsOnlyRecentEntries() {
+    void testGetRecentHistory_PushesAgeAndLimitDownToQuery() {
         OffsetDateTime now = OffsetDateTime.now();
         
         ConversationHistoryEntity recent1 = createHistoryEntity(now.minusMinutes(5));
         ConversationHistoryEntity recent2 = createHistoryEntity(now.minusMinutes(10));
-        ConversationHistoryEntity old = createHistoryEntity(now.minusMinutes(60));
         
-        when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
-                .thenReturn(Arrays.asList(recent1, recent2, old));
+        when(conversationHistoryRepository.findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                eq(userId), eq(courseId), any(), eq(Limit.of(3))))
+                .thenReturn(Arrays.asList(recent1, recent2));
         
         List<ConversationHistoryEntity> result = conversationHistoryService.getRecentHistory(userId, courseId);
         
-        assertEquals(2, result.size());
-        assertTrue(result.contains(recent1));
-        assertTrue(result.contains(recent2));
-        assertFalse(result.contains(old));
-    }
-
-    @Test
-    void testGetRecentHistory_LimitsToMaxHistoryPairs() {
-        OffsetDateTime now = OffsetDateTime.now();
-        
-        ConversationHistoryEntity entry1 = createHistoryEntity(now.minusMinutes(1));
-        ConversationHistoryEntity entry2 = createHistoryEntity(now.minusMinutes(2));
-        ConversationHistoryEntity entry3 = createHistoryEntity(now.minusMinutes(3));
-        ConversationHistoryEntity entry4 = createHistoryEntity(now.minusMinutes(4));
-        
-        when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
-                .thenReturn(Arrays.asList(entry1, entry2, entry3, entry4));
-        
-        List<ConversationHistoryEntity> result = conversationHistoryService.getRecentHistory(userId, courseId);
-        
-        assertEquals(3, result.size());
-        assertTrue(result.contains(entry1));
-        assertTrue(result.contains(entry2));
-        assertTrue(result.contains(entry3));
-        assertFalse(result.contains(entry4));
+        assertEquals(List.of(recent1, recent2), result);
+        verify(conversationHistoryRepository).findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                eq(userId), eq(courseId),
+                argThat(cutoff -> cutoff.isAfter(now.minusMinutes(31)) && cutoff.isBefore(now.minusMinutes(29))),
+                eq(Limit.of(3)));
+        verify(conversationHistoryRepository, never()).findByUserIdAndCourseIdOrderByTimestampDesc(any(), any());
     }
 
     @Test
     void testGetRecentHistory_EmptyWhenNoHistory() {
-        when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
+        when(conversationHistoryRepository.findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                eq(userId), eq(courseId), any(), eq(Limit.of(3))))
                 .thenReturn(Collections.emptyList());
         
         List<ConversationHistoryEntity> result = conversationHistoryService.getRecentHistory(userId, courseId);
@@ -108,21 +103,14 @@ class ConversationHistoryServiceTest {
     }
 
     @Test
-    void testAddConversationExchange_DeletesOldEntriesBeforeSaving() {
-        String userMessage = "What is the meaning of life?";
-        String tutorResponse = "42";
-        OffsetDateTime cutoffTime = OffsetDateTime.now().minusMinutes(30);
-        
+    void testAddConversationExchange_DoesNotDeleteExpiredEntries() {
         when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
                 .thenReturn(Collections.emptyList());
         
-        conversationHistoryService.addConversationExchange(userId, courseId, userMessage, tutorResponse);
+        conversationHistoryService.addConversationExchange(userId, courseId, "What is the meaning of life?", "42");
         
-        verify(conversationHistoryRepository).deleteByUserIdAndCourseIdAndTimestampBefore(
-                eq(userId), 
-                eq(courseId), 
-                any(OffsetDateTime.class)
-        );
+        verify(conversationHistoryRepository, never()).deleteBatchByTimestampBefore(any(), anyInt());
+        verify(conversationHistoryRepository).save(any(ConversationHistoryEntity.class));
     }
 
     @Test
@@ -169,7 +157,8 @@ class ConversationHistoryServiceTest {
                 .timestamp(now.minusMinutes(5))
                 .build();
         
-        when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
+        when(conversationHistoryRepository.findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                eq(userId), eq(courseId), any(), eq(Limit.of(3))))
                 .thenReturn(Arrays.asList(entry2, entry1)); // Newest first
         
         String result = conversationHistoryService.formatHistoryForPrompt(userId, courseId);
@@ -189,7 +178,8 @@ class ConversationHistoryServiceTest {
 
     @Test
     void testFormatHistoryForPrompt_ReturnsEmptyWhenNoHistory() {
-        when(conversationHistoryRepository.findByUserIdAndCourseIdOrderByTimestampDesc(userId, courseId))
+        when(conversationHistoryRepository.findByUserIdAndCourseIdAndTimestampAfterOrderByTimestampDesc(
+                eq(userId), eq(courseId), any(), eq(Limit.of(3))))
                 .thenReturn(Collections.emptyList());
         
         String result = conversationHistoryService.formatHistoryForPrompt(userId, courseId);
@@ -220,6 +210,148 @@ class ConversationHistoryServiceTest {
         verify(conversationHistoryRepository).deleteAll(Collections.emptyList());
     }
 
+    @Test
+    void testRingStorage_AppendIsSingleStatement() {
+        useRingStorage(false);
+        
+        conversationHistoryService.addConversationExchange(userId, courseId, "Question", "Answer");
+        
+        verify(conversationHistorySlotRepository).append(eq(userId), eq(courseId), eq(3),
+                eq("Question"), eq("Answer"), any());
+        verifyNoMoreInteractions(conversationHistorySlotRepository);
+        verifyNoInteractions(conversationHistoryRepository);
+    }
+
+    @Test
+    void testRingStorage_ReturnsNewestRecentSlots() {
+        useRingStorage(false);
+        OffsetDateTime now = OffsetDateTime.now();
+        
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId)).thenReturn(List.of(
+                createSlot(0, 3, now.minusMinutes(1)),
+                createSlot(1, 1, now.minusMinutes(60)),
+                createSlot(2, 2, now.minusMinutes(2))));
+        
+        List<ConversationHistoryEntity> result = conversationHistoryService.getRecentHistory(userId, courseId);
+        
+        assertEquals(2, result.size());
+        assertEquals("Question 3", result.get(0).getUserMessage());
+        assertEquals("Question 2", result.get(1).getUserMessage());
+    }
+
+    @Test
+    void testRingStorage_HotWindowServesReadsAndAppends() {
+        useRingStorage(true);
+        OffsetDateTime now = OffsetDateTime.now();
+        
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId))
+                .thenReturn(List.of(createSlot(0, 0, now.minusMinutes(1))));
+        
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        conversationHistoryService.addConversationExchange(userId, courseId, "Question 1", "Answer 1");
+        List<ConversationHistoryEntity> result = conversationHistoryService.getRecentHistory(userId, courseId);
+        
+        assertEquals(2, result.size());
+        assertEquals("Question 1", result.get(0).getUserMessage());
+        assertEquals("Question 0", result.get(1).getUserMessage());
+        verify(conversationHistorySlotRepository, times(1)).findByUserIdAndCourseId(userId, courseId);
+    }
+
+    @Test
+    void testRingStorage_ClearHistoryDeletesRing() {
+        useRingStorage(true);
+        
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId)).thenReturn(List.of());
+        
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        conversationHistoryService.clearHistory(userId, courseId);
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        
+        verify(conversationHistorySlotRepository).deleteRing(userId, courseId);
+        verify(conversationHistorySlotRepository, times(2)).findByUserIdAndCourseId(userId, courseId);
+    }
+
+    @Test
+    void testRingStorage_AppendNotifiesOtherInstances() {
+        useRingStorage(true);
+
+        conversationHistoryService.addConversationExchange(userId, courseId, "Question", "Answer");
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(daprClient).publishEvent(eq(UserProfileCache.BROADCAST_PUBSUB_NAME),
+                eq(ConversationHistoryService.INVALIDATION_TOPIC), captor.capture());
+        ConversationHistoryInvalidatedEvent event = (ConversationHistoryInvalidatedEvent) captor.getValue();
+        assertEquals(userId, event.getUserId());
+        assertEquals(courseId, event.getCourseId());
+    }
+
+    @Test
+    void testRingStorage_InvalidationByOtherInstanceReloadsWindow() {
+        useRingStorage(true);
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId)).thenReturn(List.of());
+
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        conversationHistoryService.onInvalidationEvent(
+                new ConversationHistoryInvalidatedEvent(userId, courseId, "other-instance"));
+        conversationHistoryService.getRecentHistory(userId, courseId);
+
+        verify(conversationHistorySlotRepository, times(2)).findByUserIdAndCourseId(userId, courseId);
+    }
+
+    @Test
+    void testRingStorage_AppendToOtherRingDuringLoadDoesNotPreventCaching() {
+        useRingStorage(true);
+        UUID otherCourseId = UUID.randomUUID();
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId)).thenAnswer(invocation -> {
+            conversationHistoryService.addConversationExchange(userId, otherCourseId, "Question", "Answer");
+            return List.of();
+        });
+
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        conversationHistoryService.getRecentHistory(userId, courseId);
+
+        verify(conversationHistorySlotRepository, times(1)).findByUserIdAndCourseId(userId, courseId);
+    }
+
+    @Test
+    void testRingStorage_AppendToSameRingDuringLoadIsNotCached() {
+        useRingStorage(true);
+        when(conversationHistorySlotRepository.findByUserIdAndCourseId(userId, courseId))
+                .thenAnswer(invocation -> {
+                    conversationHistoryService.addConversationExchange(userId, courseId, "Question", "Answer");
+                    return List.of();
+                })
+                .thenReturn(List.of());
+
+        conversationHistoryService.getRecentHistory(userId, courseId);
+        conversationHistoryService.getRecentHistory(userId, courseId);
+
+        verify(conversationHistorySlotRepository, times(2)).findByUserIdAndCourseId(userId, courseId);
+    }
+
+    private void useRingStorage(boolean hotWindowEnabled) {
+        ReflectionTestUtils.setField(conversationHistoryService, "storage", "ring");
+        ReflectionTestUtils.setField(conversationHistoryService, "hotWindowEnabled", hotWindowEnabled);
+        ReflectionTestUtils.setField(conversationHistoryService, "hotWindowMaxEntries", 100);
+        ReflectionTestUtils.setField(conversationHistoryService, "hotWindowTtlSeconds", 60L);
+        lenient().when(daprClient.publishEvent(anyString(), anyString(), any(Object.class))).thenReturn(Mono.empty());
+    }
+
+    /**
+     * Creates a ConversationHistorySlotEntity with the given sequence number and timestamp.
+     */
+    private ConversationHistorySlotEntity createSlot(int slot, long sequenceNumber, OffsetDateTime timestamp) {
+        return ConversationHistorySlotEntity.builder()
+                .userId(userId)
+                .courseId(courseId)
+                .slot(slot)
+                .sequenceNumber(sequenceNumber)
+                .userMessage("Question " + sequenceNumber)
+                .tutorResponse("Answer " + sequenceNumber)
+                .timestamp(timestamp)
+                .build();
+    }
+
     /**
      * Creates a ConversationHistoryEntity with the given timestamp.
      */
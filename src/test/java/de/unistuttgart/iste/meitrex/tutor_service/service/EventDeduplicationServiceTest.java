@@ -0,0 +1,154 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProcessedEventEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProcessedEventRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.EventDeduplicationService.Delivery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EventDeduplicationService.
+ */
+@ExtendWith(MockitoExtension.class)
+class EventDeduplicationServiceTest {
+
+    private static final String TOPIC = "content-progressed";
+
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+
+    @InjectMocks
+    private EventDeduplicationService eventDeduplicationService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(eventDeduplicationService, "enabled", true);
+        ReflectionTestUtils.setField(eventDeduplicationService, "retentionHours", 24L);
+        ReflectionTestUtils.setField(eventDeduplicationService, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(eventDeduplicationService, "maxCachedEvents", 2);
+    }
+
+    @Test
+    void testStartDelivery_completedEventIsRejectedFromMemory() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(1);
+
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+        eventDeduplicationService.completeDelivery(TOPIC, "event-1");
+        assertEquals(Delivery.DUPLICATE, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+
+        verify(processedEventRepository).markDone(TOPIC, "event-1");
+        verify(processedEventRepository, times(1)).startProcessing(eq(TOPIC), eq("event-1"), any(), any());
+    }
+
+    @Test
+    void testStartDelivery_eventDoneInDatabase() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(0);
+        when(processedEventRepository.findById(new ProcessedEventEntity.ProcessedEventId(TOPIC, "event-1")))
+                .thenReturn(Optional.of(event(ProcessedEventEntity.Status.DONE)));
+
+        assertEquals(Delivery.DUPLICATE, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+    }
+
+    @Test
+    void testStartDelivery_eventWithoutStatusIsDone() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(0);
+        when(processedEventRepository.findById(new ProcessedEventEntity.ProcessedEventId(TOPIC, "event-1")))
+                .thenReturn(Optional.of(event(null)));
+
+        assertEquals(Delivery.DUPLICATE, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+    }
+
+    @Test
+    void testStartDelivery_eventBeingProcessedIsNotAcknowledged() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(1, 0);
+        when(processedEventRepository.findById(new ProcessedEventEntity.ProcessedEventId(TOPIC, "event-1")))
+                .thenReturn(Optional.of(event(ProcessedEventEntity.Status.IN_PROGRESS)));
+
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+        // redelivered while the first delivery is still being processed
+        assertEquals(Delivery.IN_PROGRESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+
+        verify(processedEventRepository, never()).markDone(any(), any());
+    }
+
+    @Test
+    void testStartDelivery_leaseIsRequested() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(1);
+
+        eventDeduplicationService.startDelivery(TOPIC, "event-1");
+
+        ArgumentCaptor<OffsetDateTime> now = ArgumentCaptor.forClass(OffsetDateTime.class);
+        ArgumentCaptor<OffsetDateTime> leaseUntil = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(processedEventRepository).startProcessing(eq(TOPIC), eq("event-1"), now.capture(),
+                leaseUntil.capture());
+        assertEquals(now.getValue().plusSeconds(60), leaseUntil.getValue());
+    }
+
+    @Test
+    void testStartDelivery_sameIdOnOtherTopicIsNoDuplicate() {
+        when(processedEventRepository.startProcessing(any(), eq("event-1"), any(), any())).thenReturn(1);
+
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+        eventDeduplicationService.completeDelivery(TOPIC, "event-1");
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery("content-changed", "event-1"));
+    }
+
+    @Test
+    void testStartDelivery_eventWithoutIdIsAlwaysProcessed() {
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, null));
+        eventDeduplicationService.completeDelivery(TOPIC, null);
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, null));
+
+        verifyNoInteractions(processedEventRepository);
+    }
+
+    @Test
+    void testForgetDelivery_redeliveryIsProcessedAgain() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), eq("event-1"), any(), any())).thenReturn(1);
+
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+        eventDeduplicationService.forgetDelivery(TOPIC, "event-1");
+        assertEquals(Delivery.PROCESS, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+
+        verify(processedEventRepository).deleteEvent(TOPIC, "event-1");
+    }
+
+    @Test
+    void testStartDelivery_evictedEventIsCheckedInDatabase() {
+        when(processedEventRepository.startProcessing(eq(TOPIC), any(), any(), any())).thenReturn(1, 1, 1, 0);
+        when(processedEventRepository.findById(new ProcessedEventEntity.ProcessedEventId(TOPIC, "event-1")))
+                .thenReturn(Optional.of(event(ProcessedEventEntity.Status.DONE)));
+
+        for (String eventId : List.of("event-1", "event-2", "event-3")) {
+            eventDeduplicationService.startDelivery(TOPIC, eventId);
+            eventDeduplicationService.completeDelivery(TOPIC, eventId);
+        }
+
+        assertEquals(Delivery.DUPLICATE, eventDeduplicationService.startDelivery(TOPIC, "event-1"));
+        verify(processedEventRepository, times(2)).startProcessing(eq(TOPIC), eq("event-1"), any(), any());
+    }
+
+    private static ProcessedEventEntity event(ProcessedEventEntity.Status status) {
+        return ProcessedEventEntity.builder()
+                .topic(TOPIC)
+                .eventId("event-1")
+                .receivedAt(OffsetDateTime.now())
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ConversationHistoryRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ExpiredDataReaperService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ExpiredDataReaperServiceTest {
+
+    @Mock
+    private ConversationHistoryRepository conversationHistoryRepository;
+
+    @Mock
+    private ProactiveFeedbackRepository proactiveFeedbackRepository;
+
+    @Mock
+    private TablePartitioningService tablePartitioningService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExpiredDataReaperService reaperService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reaperService = new ExpiredDataReaperService(
+                conversationHistoryRepository, proactiveFeedbackRepository, tablePartitioningService, meterRegistry);
+        ReflectionTestUtils.setField(reaperService, "enabled", true);
+        ReflectionTestUtils.setField(reaperService, "batchSize", 2);
+        ReflectionTestUtils.setField(reaperService, "pauseMs", 0L);
+        ReflectionTestUtils.setField(reaperService, "conversationHistoryMaxAgeMinutes", 30);
+        ReflectionTestUtils.setField(reaperService, "proactiveFeedbackRetentionDays", 7);
+    }
+
+    @Test
+    void testReapExpiredRows_deletesInBatchesUntilBatchIsNotFull() {
+        when(conversationHistoryRepository.deleteBatchByTimestampBefore(any(), eq(2))).thenReturn(2, 2, 1);
+        when(proactiveFeedbackRepository.deleteBatchByCreatedAtBefore(any(), eq(2))).thenReturn(0);
+
+        reaperService.reapExpiredRows();
+
+        verify(conversationHistoryRepository, times(3)).deleteBatchByTimestampBefore(any(), eq(2));
+        verify(proactiveFeedbackRepository, times(1)).deleteBatchByCreatedAtBefore(any(), eq(2));
+        assertEquals(5.0, deletedRows("conversation_history"));
+        assertEquals(0.0, deletedRows("proactive_feedback"));
+    }
+
+    @Test
+    void testReapExpiredRows_usesRetentionOfEachTable() {
+        OffsetDateTime now = OffsetDateTime.now();
+        when(conversationHistoryRepository.deleteBatchByTimestampBefore(any(), anyInt())).thenReturn(0);
+        when(proactiveFeedbackRepository.deleteBatchByCreatedAtBefore(any(), anyInt())).thenReturn(0);
+
+        reaperService.reapExpiredRows();
+
+        verify(conversationHistoryRepository).deleteBatchByTimestampBefore(
+                argThat(cutoff -> cutoff.isAfter(now.minusMinutes(31)) && cutoff.isBefore(now.minusMinutes(29))),
+                eq(2));
+        verify(proactiveFeedbackRepository).deleteBatchByCreatedAtBefore(
+                argThat(cutoff -> cutoff.isAfter(now.minusDays(7).minusMinutes(1))
+                        && cutoff.isBefore(now.minusDays(7).plusMinutes(1))),
+                eq(2));
+    }
+
+    @Test
+    void testReapExpiredRows_skipsPartitionedTables() {
+        when(tablePartitioningService.isPartitioned("conversation_history")).thenReturn(true);
+        when(proactiveFeedbackRepository.deleteBatchByCreatedAtBefore(any(), anyInt())).thenReturn(0);
+
+        reaperService.reapExpiredRows();
+
+        verifyNoInteractions(conversationHistoryRepository);
+        verify(proactiveFeedbackRepository).deleteBatchByCreatedAtBefore(any(), eq(2));
+    }
+
+    @Test
+    void testReapExpiredRows_disabled() {
+        ReflectionTestUtils.setField(reaperService, "enabled", false);
+
+        reaperService.reapExpiredRows();
+
+        verifyNoInteractions(conversationHistoryRepository, proactiveFeedbackRepository);
+    }
+
+    private double deletedRows(String table) {
+        return meterRegistry.get("tutor.reaper.rows.deleted").tag("table", table).counter().count();
+    }
+}
@@ -0,0 +1,129 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.generated.dto.HintResponse;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.CourseContents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HintResponseCache.
+ */
+class HintResponseCacheTest {
+
+    private static final String QUESTION = "question-hash";
+    private static final String BUCKET = "";
+
+    private HintResponseCache hintResponseCache;
+    private UUID courseId;
+    private CourseContents contents;
+    private AtomicInteger generatedHints;
+
+    @BeforeEach
+    void setUp() {
+        hintResponseCache = new HintResponseCache();
+        ReflectionTestUtils.setField(hintResponseCache, "enabled", true);
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 3);
+        ReflectionTestUtils.setField(hintResponseCache, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(hintResponseCache, "maxEntries", 100);
+        courseId = UUID.randomUUID();
+        contents = new CourseContents(List.of(UUID.randomUUID()), null);
+        generatedHints = new AtomicInteger();
+    }
+
+    @Test
+    void testGetOrGenerate_poolIsFilledBeforeVariantsAreReused() {
+        Set<String> hints = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            hints.add(getOrGenerate(contents, this::generateHint).getHint());
+        }
+
+        assertEquals(3, generatedHints.get());
+        assertEquals(Set.of("Hint 1", "Hint 2", "Hint 3"), hints);
+    }
+
+    @Test
+    void testGetOrGenerate_bucketsAreSeparate() {
+        hintResponseCache.getOrGenerate(courseId, QUESTION, "achiever", contents, hint -> true,
+                this::generateHint).block();
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+
+        assertEquals("Hint 2", getOrGenerate(contents, this::generateHint).getHint());
+        assertEquals("Hint 2", getOrGenerate(contents, this::generateHint).getHint());
+    }
+
+    @Test
+    void testGetOrGenerate_errorsAreNotShared() {
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+
+        assertEquals("An error occurred",
+                getOrGenerate(contents, () -> Mono.just(new HintResponse("An error occurred"))).getHint());
+        assertThrows(IllegalStateException.class,
+                () -> getOrGenerate(contents, () -> Mono.error(new IllegalStateException("LLM unavailable"))));
+
+        assertEquals("Hint 1", getOrGenerate(contents, this::generateHint).getHint());
+        assertEquals("Hint 1", getOrGenerate(contents, this::generateHint).getHint());
+    }
+
+    @Test
+    void testGetOrGenerate_changedContentsDropPool() {
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+        getOrGenerate(contents, this::generateHint);
+
+        assertEquals("Hint 2", getOrGenerate(new CourseContents(List.of(UUID.randomUUID()), null),
+                this::generateHint).getHint());
+    }
+
+    @Test
+    void testGetOrGenerate_editedContentDropsPool() {
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+        getOrGenerate(contents, this::generateHint);
+
+        // editing a content keeps its ID, only the recorded change differs
+        CourseContents edited = new CourseContents(contents.getContentIds(), OffsetDateTime.now());
+        assertEquals("Hint 2", getOrGenerate(edited, this::generateHint).getHint());
+        assertEquals("Hint 2", getOrGenerate(edited, this::generateHint).getHint());
+    }
+
+    @Test
+    void testInvalidateContents_dropsPoolsOfAffectedCourses() {
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+        getOrGenerate(contents, this::generateHint);
+
+        hintResponseCache.invalidateContents(List.of(UUID.randomUUID()));
+        assertEquals("Hint 1", getOrGenerate(contents, this::generateHint).getHint());
+
+        hintResponseCache.invalidateContents(contents.getContentIds());
+        assertEquals("Hint 2", getOrGenerate(contents, this::generateHint).getHint());
+    }
+
+    @Test
+    void testGetOrGenerate_disabled() {
+        ReflectionTestUtils.setField(hintResponseCache, "enabled", false);
+
+        getOrGenerate(contents, this::generateHint);
+        getOrGenerate(contents, this::generateHint);
+
+        assertEquals(2, generatedHints.get());
+    }
+
+    private HintResponse getOrGenerate(CourseContents contents, Supplier<Mono<HintResponse>> generator) {
+        return hintResponseCache.getOrGenerate(courseId, QUESTION, BUCKET, contents,
+                hint -> !"An error occurred".equals(hint.getHint()), generator).block();
+    }
+
+    private Mono<HintResponse> generateHint() {
+        return Mono.fromCallable(() -> new HintResponse("Hint " + generatedHints.incrementAndGet()));
+    }
+}
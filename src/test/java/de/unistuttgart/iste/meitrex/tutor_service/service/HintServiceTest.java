@@ -1,19 +1,22 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.generated.dto.*;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.LlmResponseCacheRepository;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -40,7 +43,19 @@ class HintServiceTest {
     @Mock
     private UserPlayerTypeService userPlayerTypeService;
 
-    @InjectMocks
+    @Mock
+    private PromptTemplateEngine promptTemplateEngine;
+
+    @Mock
+    private LlmResponseCacheRepository llmResponseCacheRepository;
+
+    @Mock
+    private ContentChangeService contentChangeService;
+
+    private HintContextStore hintContextStore;
+
+    private HintResponseCache hintResponseCache;
+
     private HintService hintService;
 
     private UUID courseId;
@@ -52,7 +67,18 @@ class HintServiceTest {
     void setUp() {
         courseId = UUID.randomUUID();
         currentUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+        // disabled cache, queries are passed through to the mocked client
+        LlmResponseCacheService llmResponseCacheService = new LlmResponseCacheService(ollamaClient,
+                promptTemplateEngine, llmResponseCacheRepository, new ObjectMapper());
+        // disabled store and cache, contexts and hints are generated for every request
+        hintContextStore = new HintContextStore();
+        hintResponseCache = new HintResponseCache();
+        hintService = new HintService(ollamaClient, semanticSearchService, userPlayerTypeService,
+                promptTemplateEngine, llmResponseCacheService, hintContextStore, hintResponseCache,
+                contentChangeService);
         ReflectionTestUtils.setField(hintService, "scoreThreshold", 0.4);
+        lenient().when(contentChangeService.getCourseContents(anyList()))
+                .thenAnswer(invocation -> new CourseContents(invocation.getArgument(0), null));
     }
 
     @Test
@@ -81,12 +107,10 @@ class HintServiceTest {
         String expectedHint = "Think about what Java is commonly used for in software development.";
         HintResponse expectedResponse = new HintResponse(expectedHint);
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}\nOptions: {{options}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Java is a high-level programming language.");
         when(userPlayerTypeService.getPrimaryPlayerType(currentUser.getId()))
@@ -98,7 +122,7 @@ class HintServiceTest {
 
         assertNotNull(result);
         assertEquals(expectedHint, result.getHint());
-        verify(semanticSearchService).semanticSearch(eq("What is Java?"), eq(courseId), eq(currentUser));
+        verify(semanticSearchService).semanticSearchAsync(eq("What is Java?"), eq(courseId), eq(currentUser));
         verify(ollamaClient).startQuery(eq(HintResponse.class), anyString(), anyMap(), any());
     }
 
@@ -126,16 +150,14 @@ class HintServiceTest {
         );
 
         String semanticSearchQuery = "Java programming language paradigm";
-        when(ollamaClient.getTemplate(contains("question_prompt_CLOZE")))
-                .thenReturn("Question: {{questionText}}\nOptions: {{options}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
                 .thenReturn("Filled cloze prompt");
 
         when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
                 .thenReturn(new SemanticSearchQuery(semanticSearchQuery));
 
-        when(semanticSearchService.semanticSearch(eq(semanticSearchQuery), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(eq(semanticSearchQuery), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Java supports object-oriented programming principles.");
 
@@ -149,7 +171,7 @@ class HintServiceTest {
 
         assertNotNull(result);
         assertEquals("Consider the programming paradigms Java supports.", result.getHint());
-        verify(semanticSearchService).semanticSearch(eq(semanticSearchQuery), eq(courseId), eq(currentUser));
+        verify(semanticSearchService).semanticSearchAsync(eq(semanticSearchQuery), eq(courseId), eq(currentUser));
     }
 
     @Test
@@ -179,16 +201,14 @@ class HintServiceTest {
         );
 
         String semanticSearchQuery = "JVM JDK Java tools components";
-        when(ollamaClient.getTemplate(contains("question_prompt_ASSOCIATION")))
-                .thenReturn("Question: {{questionText}}\nPairs: {{options}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_ASSOCIATION"), anyMap()))
                 .thenReturn("Filled association prompt");
 
         when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
                 .thenReturn(new SemanticSearchQuery(semanticSearchQuery));
 
-        when(semanticSearchService.semanticSearch(eq(semanticSearchQuery), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(eq(semanticSearchQuery), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(userPlayerTypeService.getPrimaryPlayerType(currentUser.getId()))
                 .thenReturn(Optional.empty());
 
@@ -199,7 +219,7 @@ class HintServiceTest {
 
         assertNotNull(result);
         assertEquals("Think about what each acronym stands for.", result.getHint());
-        verify(semanticSearchService).semanticSearch(eq(semanticSearchQuery), eq(courseId), eq(currentUser));
+        verify(semanticSearchService).semanticSearchAsync(eq(semanticSearchQuery), eq(courseId), eq(currentUser));
     }
 
     @Test
@@ -214,12 +234,10 @@ class HintServiceTest {
                 .setMultipleChoice(multipleChoiceInput)
                 .build();
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(List.of());
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(List.of()));
 
         HintResponse result = hintService.generateHintWithQuestion(input, courseId, currentUser);
 
@@ -252,12 +270,10 @@ class HintServiceTest {
                         .build()
         );
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
 
         HintResponse result = hintService.generateHintWithQuestion(input, courseId, currentUser);
 
@@ -289,12 +305,10 @@ class HintServiceTest {
                         .build()
         );
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Polymorphism allows objects to take multiple forms.");
         when(userPlayerTypeService.getPrimaryPlayerType(currentUser.getId()))
@@ -334,12 +348,10 @@ class HintServiceTest {
                         .build()
         );
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Inheritance allows classes to inherit properties from parent classes.");
         when(userPlayerTypeService.getPrimaryPlayerType(currentUser.getId()))
@@ -378,12 +390,10 @@ class HintServiceTest {
                         .build()
         );
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Encapsulation is bundling data and methods together.");
         when(userPlayerTypeService.getPrimaryPlayerType(currentUser.getId()))
@@ -422,12 +432,10 @@ class HintServiceTest {
                         .build()
         );
 
-        when(ollamaClient.getTemplate(contains("question_prompt_MULTIPLE_CHOICE")))
-                .thenReturn("Question: {{questionText}}");
-        when(ollamaClient.fillTemplate(anyString(), anyMap()))
+        when(promptTemplateEngine.render(contains("question_prompt_MULTIPLE_CHOICE"), anyMap()))
                 .thenReturn("Filled question prompt");
-        when(semanticSearchService.semanticSearch(anyString(), eq(courseId), eq(currentUser)))
-                .thenReturn(searchResults);
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), eq(currentUser)))
+                .thenReturn(Mono.just(searchResults));
         when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
                 .thenReturn("1. Abstraction hides implementation details.");
 
@@ -488,6 +496,187 @@ class HintServiceTest {
             hintService.generateHintWithQuestion(input, courseId, currentUser);
         });
     }
-}
 
+    @Test
+    void testGenerateHintWithQuestion_contextIsSharedBetweenStudents() {
+        enableHintContextStore();
+        HintGenerationInput input = clozeInput();
+        LoggedInUser otherStudent = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+        when(semanticSearchService.getContentIdsOfCourse(eq(courseId), any())).thenReturn(List.of(UUID.randomUUID()));
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("Java programming language paradigm"));
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
+                .thenReturn("Filled cloze prompt");
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), any()))
+                .thenReturn(Mono.just(documentSearchResults()));
+        when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
+                .thenReturn("1. Java supports object-oriented programming principles.");
+        when(ollamaClient.startQuery(eq(HintResponse.class), anyString(), anyMap(), any()))
+                .thenReturn(new HintResponse("Consider the programming paradigms Java supports."));
+
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
+        HintResponse result = hintService.generateHintWithQuestion(input, courseId, otherStudent);
+
+        assertEquals("Consider the programming paradigms Java supports.", result.getHint());
+        verify(ollamaClient, times(1)).startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any());
+        verify(semanticSearchService, times(1)).semanticSearchAsync(anyString(), eq(courseId), any());
+        verify(ollamaClient, times(2)).startQuery(eq(HintResponse.class), anyString(), anyMap(), any());
+        verify(semanticSearchService).getContentIdsOfCourse(courseId, otherStudent);
+    }
+
+    @Test
+    void testGenerateHintWithQuestion_contextIsRebuiltWhenContentsChange() {
+        enableHintContextStore();
+        HintGenerationInput input = clozeInput();
+
+        when(semanticSearchService.getContentIdsOfCourse(eq(courseId), any()))
+                .thenReturn(List.of(UUID.randomUUID()), List.of(UUID.randomUUID()));
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("Java programming language paradigm"));
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
+                .thenReturn("Filled cloze prompt");
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), any()))
+                .thenReturn(Mono.just(documentSearchResults()));
+        when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
+                .thenReturn("1. Java supports object-oriented programming principles.");
+        when(ollamaClient.startQuery(eq(HintResponse.class), anyString(), anyMap(), any()))
+                .thenReturn(new HintResponse("Consider the programming paradigms Java supports."));
+
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
+
+        verify(semanticSearchService, times(2)).semanticSearchAsync(anyString(), eq(courseId), any());
+    }
+
+    @Test
+    void testGenerateHintWithQuestion_contextIsRebuiltWhenContentIsEdited() {
+        enableHintContextStore();
+        HintGenerationInput input = clozeInput();
+        List<UUID> contentIds = List.of(UUID.randomUUID());
+        OffsetDateTime edited = OffsetDateTime.now();
+
+        // editing a content keeps its ID, only the recorded change differs
+        when(semanticSearchService.getContentIdsOfCourse(eq(courseId), any())).thenReturn(contentIds);
+        when(contentChangeService.getCourseContents(contentIds))
+                .thenReturn(new CourseContents(contentIds, edited.minusHours(1)),
+                        new CourseContents(contentIds, edited));
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("Java programming language paradigm"));
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
+                .thenReturn("Filled cloze prompt");
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), any()))
+                .thenReturn(Mono.just(documentSearchResults()));
+        when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
+                .thenReturn("1. Java supports object-oriented programming principles.");
+        when(ollamaClient.startQuery(eq(HintResponse.class), anyString(), anyMap(), any()))
+                .thenReturn(new HintResponse("Consider the programming paradigms Java supports."));
+
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
+
+        verify(semanticSearchService, times(2)).semanticSearchAsync(anyString(), eq(courseId), any());
+    }
+
+    @Test
+    void testPrepareHintContexts_contextIsUsedByStudents() {
+        enableHintContextStore();
+        HintGenerationInput input = clozeInput();
+        LoggedInUser administrator = userWithMembershipInCourseWithId(courseId,
+                LoggedInUser.UserRoleInCourse.ADMINISTRATOR);
+
+        when(semanticSearchService.getContentIdsOfCourse(eq(courseId), any())).thenReturn(List.of(UUID.randomUUID()));
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("Java programming language paradigm"));
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
+                .thenReturn("Filled cloze prompt");
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), any()))
+                .thenReturn(Mono.just(documentSearchResults()));
+
+        assertEquals(1, hintService.prepareHintContexts(List.of(input), courseId, administrator).block());
+
+        when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
+                .thenReturn("1. Java supports object-oriented programming principles.");
+        when(ollamaClient.startQuery(eq(HintResponse.class), anyString(), anyMap(), any()))
+                .thenReturn(new HintResponse("Consider the programming paradigms Java supports."));
+
+        hintService.generateHintWithQuestion(input, courseId, currentUser);
 
+        verify(ollamaClient, times(1)).startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any());
+        verify(semanticSearchService, times(1)).semanticSearchAsync(anyString(), eq(courseId), any());
+    }
+
+    @Test
+    void testPrepareHintContexts_requiresAdministrator() {
+        enableHintContextStore();
+
+        assertThrows(RuntimeException.class,
+                () -> hintService.prepareHintContexts(List.of(clozeInput()), courseId, currentUser));
+        verifyNoInteractions(ollamaClient);
+    }
+
+    @Test
+    void testGenerateHintWithQuestion_hintsAreSharedWithinPlayerTypeBucket() {
+        enableHintContextStore();
+        ReflectionTestUtils.setField(hintResponseCache, "enabled", true);
+        ReflectionTestUtils.setField(hintResponseCache, "variantsPerKey", 1);
+        ReflectionTestUtils.setField(hintResponseCache, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(hintResponseCache, "maxEntries", 100);
+        HintGenerationInput input = clozeInput();
+        LoggedInUser otherStudent = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+        LoggedInUser achiever = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+
+        when(semanticSearchService.getContentIdsOfCourse(eq(courseId), any())).thenReturn(List.of(UUID.randomUUID()));
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), anyString(), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("Java programming language paradigm"));
+        when(promptTemplateEngine.render(contains("question_prompt_CLOZE"), anyMap()))
+                .thenReturn("Filled cloze prompt");
+        when(semanticSearchService.semanticSearchAsync(anyString(), eq(courseId), any()))
+                .thenReturn(Mono.just(documentSearchResults()));
+        when(semanticSearchService.formatIntoNumberedListForPrompt(anyList()))
+                .thenReturn("1. Java supports object-oriented programming principles.");
+        when(userPlayerTypeService.getPrimaryPlayerType(achiever.getId()))
+                .thenReturn(Optional.of(HexadPlayerType.ACHIEVER));
+        when(ollamaClient.startQuery(eq(HintResponse.class), anyString(), anyMap(), any()))
+                .thenReturn(new HintResponse("Consider the programming paradigms Java supports."),
+                        new HintResponse("Master the paradigms Java supports."));
+
+        HintResponse first = hintService.generateHintWithQuestion(input, courseId, currentUser);
+        HintResponse second = hintService.generateHintWithQuestion(input, courseId, otherStudent);
+        HintResponse third = hintService.generateHintWithQuestion(input, courseId, achiever);
+
+        assertEquals("Consider the programming paradigms Java supports.", first.getHint());
+        assertSame(first, second);
+        assertEquals("Master the paradigms Java supports.", third.getHint());
+        verify(ollamaClient, times(2)).startQuery(eq(HintResponse.class), anyString(), anyMap(), any());
+    }
+
+    private void enableHintContextStore() {
+        ReflectionTestUtils.setField(hintContextStore, "enabled", true);
+        ReflectionTestUtils.setField(hintContextStore, "maxEntries", 100);
+        ReflectionTestUtils.setField(hintContextStore, "ttlMinutes", 60L);
+    }
+
+    private static HintGenerationInput clozeInput() {
+        return HintGenerationInput.builder()
+                .setType(HintQuestionType.CLOZE)
+                .setCloze(HintClozeInput.builder()
+                        .setText("Java is a ____ programming language")
+                        .setBlanks(List.of("object-oriented", "functional", "procedural"))
+                        .build())
+                .build();
+    }
+
+    private static List<SemanticSearchResult> documentSearchResults() {
+        return List.of(
+                SemanticSearchResult.builder()
+                        .score(0.20)
+                        .typename("DocumentRecordSegment")
+                        .mediaRecordSegment(DocumentRecordSegment.builder()
+                                .text("Java supports object-oriented programming principles.")
+                                .page(2)
+                                .build())
+                        .build()
+        );
+    }
+}
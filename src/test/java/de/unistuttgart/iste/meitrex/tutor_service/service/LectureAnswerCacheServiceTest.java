@@ -0,0 +1,116 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.LectureAnswerCacheKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for LectureAnswerCacheService.
+ */
+@ExtendWith(MockitoExtension.class)
+class LectureAnswerCacheServiceTest {
+
+    @Mock
+    private SemanticSearchService semanticSearchService;
+
+    @InjectMocks
+    private LectureAnswerCacheService lectureAnswerCacheService;
+
+    private UUID courseId;
+    private LoggedInUser currentUser;
+    private final LectureQuestionResponse response = new LectureQuestionResponse("Cached answer", List.of());
+
+    @BeforeEach
+    void setUp() {
+        courseId = UUID.randomUUID();
+        currentUser = userWithMembershipInCourseWithId(courseId, LoggedInUser.UserRoleInCourse.STUDENT);
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "enabled", true);
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "maxEntriesPerCourse", 2);
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "similarityThreshold", 1.0);
+    }
+
+    @Test
+    void testLookup_normalizedQuestionMatches() {
+        List<UUID> contentIds = List.of(UUID.randomUUID());
+        when(semanticSearchService.getContentIdsOfCourse(courseId, currentUser)).thenReturn(contentIds);
+
+        LectureAnswerCacheKey key = lectureAnswerCacheService.createKey(courseId, "What is a Monad?", 1, currentUser)
+                .orElseThrow();
+        lectureAnswerCacheService.store(key, response);
+
+        LectureAnswerCacheKey otherKey = lectureAnswerCacheService.createKey(courseId, "what is a monad", 1, currentUser)
+                .orElseThrow();
+        assertEquals(Optional.of(response), lectureAnswerCacheService.lookup(otherKey));
+    }
+
+    @Test
+    void testLookup_differentSkillLevelBucketMisses() {
+        LectureAnswerCacheKey key = new LectureAnswerCacheKey(courseId, "fingerprint", 0, "what is a monad");
+        lectureAnswerCacheService.store(key, response);
+
+        LectureAnswerCacheKey otherKey = new LectureAnswerCacheKey(courseId, "fingerprint", 2, "what is a monad");
+        assertTrue(lectureAnswerCacheService.lookup(otherKey).isEmpty());
+    }
+
+    @Test
+    void testLookup_changedContentsInvalidateCourse() {
+        LectureAnswerCacheKey key = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "what is a monad");
+        lectureAnswerCacheService.store(key, response);
+
+        LectureAnswerCacheKey changedContents = new LectureAnswerCacheKey(courseId, "other", 1, "what is a monad");
+        assertTrue(lectureAnswerCacheService.lookup(changedContents).isEmpty());
+        assertTrue(lectureAnswerCacheService.lookup(key).isEmpty());
+    }
+
+    @Test
+    void testStore_evictsLeastRecentlyUsed() {
+        LectureAnswerCacheKey first = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "first");
+        LectureAnswerCacheKey second = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "second");
+        LectureAnswerCacheKey third = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "third");
+
+        lectureAnswerCacheService.store(first, response);
+        lectureAnswerCacheService.store(second, response);
+        lectureAnswerCacheService.lookup(first);
+        lectureAnswerCacheService.store(third, response);
+
+        assertTrue(lectureAnswerCacheService.lookup(first).isPresent());
+        assertTrue(lectureAnswerCacheService.lookup(second).isEmpty());
+        assertTrue(lectureAnswerCacheService.lookup(third).isPresent());
+    }
+
+    @Test
+    void testLookup_similarQuestionMatchesAboveThreshold() {
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "similarityThreshold", 0.7);
+        LectureAnswerCacheKey key = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "what is a monad in haskell");
+        lectureAnswerCacheService.store(key, response);
+
+        LectureAnswerCacheKey similar = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "what is a monad haskell");
+        LectureAnswerCacheKey unrelated = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "explain slide 12");
+
+        assertEquals(Optional.of(response), lectureAnswerCacheService.lookup(similar));
+        assertTrue(lectureAnswerCacheService.lookup(unrelated).isEmpty());
+    }
+
+    @Test
+    void testCreateKey_disabledReturnsEmpty() {
+        ReflectionTestUtils.setField(lectureAnswerCacheService, "enabled", false);
+
+        assertTrue(lectureAnswerCacheService.createKey(courseId, "What is a monad?", 1, currentUser).isEmpty());
+    }
+}
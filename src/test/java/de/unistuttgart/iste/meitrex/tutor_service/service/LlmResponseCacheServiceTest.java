@@ -0,0 +1,232 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.LlmResponseCacheEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.LlmResponseCacheRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.SemanticSearchQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LlmResponseCacheService.
+ */
+@ExtendWith(MockitoExtension.class)
+class LlmResponseCacheServiceTest {
+
+    private static final String TEMPLATE = "generate_semantic_search_query_cloze.md";
+
+    @Mock
+    private OllamaClient ollamaClient;
+
+    @Mock
+    private PromptTemplateEngine promptTemplateEngine;
+
+    @Mock
+    private LlmResponseCacheRepository llmResponseCacheRepository;
+
+    private LlmResponseCacheService llmResponseCacheService;
+
+    @BeforeEach
+    void setUp() {
+        llmResponseCacheService = new LlmResponseCacheService(ollamaClient, promptTemplateEngine,
+                llmResponseCacheRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(llmResponseCacheService, "enabled", true);
+        ReflectionTestUtils.setField(llmResponseCacheService, "maxEntries", 2);
+        ReflectionTestUtils.setField(llmResponseCacheService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(llmResponseCacheService, "cleanupBatchSize", 10);
+        ReflectionTestUtils.setField(llmResponseCacheService, "model", "model");
+        lenient().when(promptTemplateEngine.getTemplateVersion(TEMPLATE)).thenReturn("v1");
+    }
+
+    @Test
+    void testQuery_identicalPromptsAreSentOnce() {
+        SemanticSearchQuery error = new SemanticSearchQuery("error");
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), same(error)))
+                .thenReturn(new SemanticSearchQuery("java basics"));
+
+        SemanticSearchQuery first = llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE,
+                Map.of("clozeText", "Java is a ___", "answers", "1. language"), error);
+        SemanticSearchQuery second = llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE,
+                Map.of("answers", "1. language", "clozeText", "Java is a ___"), error);
+
+        assertEquals("java basics", first.getQuery());
+        assertSame(first, second);
+        verify(ollamaClient, times(1)).startQuery(any(), any(), anyMap(), any());
+        verifyNoInteractions(llmResponseCacheRepository);
+    }
+
+    @Test
+    void testQuery_concurrentIdenticalPromptsShareOneQuery() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), any()))
+                .thenAnswer(invocation -> {
+                    queryStarted.countDown();
+                    releaseQuery.await(5, TimeUnit.SECONDS);
+                    return new SemanticSearchQuery("java basics");
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SemanticSearchQuery> first = executor.submit(() -> llmResponseCacheService.query(
+                    SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), null));
+            queryStarted.await(5, TimeUnit.SECONDS);
+            Future<SemanticSearchQuery> second = executor.submit(() -> llmResponseCacheService.query(
+                    SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), null));
+            // give the second query time to join the running one
+            Thread.sleep(100);
+            releaseQuery.countDown();
+
+            assertEquals("java basics", first.get(5, TimeUnit.SECONDS).getQuery());
+            assertEquals("java basics", second.get(5, TimeUnit.SECONDS).getQuery());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(ollamaClient, times(1)).startQuery(any(), any(), anyMap(), any());
+    }
+
+    @Test
+    void testQuery_failedSharedQueryReturnsOwnErrorResponse() throws Exception {
+        SemanticSearchQuery firstError = new SemanticSearchQuery("first error");
+        SemanticSearchQuery secondError = new SemanticSearchQuery("second error");
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), any()))
+                .thenAnswer(invocation -> {
+                    queryStarted.countDown();
+                    releaseQuery.await(5, TimeUnit.SECONDS);
+                    return invocation.getArgument(3);
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SemanticSearchQuery> first = executor.submit(() -> llmResponseCacheService.query(
+                    SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), firstError));
+            queryStarted.await(5, TimeUnit.SECONDS);
+            Future<SemanticSearchQuery> second = executor.submit(() -> llmResponseCacheService.query(
+                    SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), secondError));
+            Thread.sleep(100);
+            releaseQuery.countDown();
+
+            assertSame(firstError, first.get(5, TimeUnit.SECONDS));
+            assertSame(secondError, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(ollamaClient, times(1)).startQuery(any(), any(), anyMap(), any());
+    }
+
+    @Test
+    void testQuery_errorResponsesAreNotCached() {
+        SemanticSearchQuery error = new SemanticSearchQuery("error");
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), same(error)))
+                .thenReturn(error);
+
+        llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), error);
+        llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), error);
+
+        verify(ollamaClient, times(2)).startQuery(any(), any(), anyMap(), any());
+    }
+
+    @Test
+    void testQuery_leastRecentlyUsedEntriesAreEvicted() {
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), any()))
+                .thenAnswer(invocation -> new SemanticSearchQuery(
+                        invocation.<Map<String, String>>getArgument(2).get("clozeText")));
+
+        for (String text : new String[]{"a", "b", "a", "c", "a", "b"}) {
+            llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", text), null);
+        }
+
+        // "b" was evicted when "c" was added, "a" stayed because it was used more recently
+        verify(ollamaClient, times(1)).startQuery(any(), any(), eq(Map.of("clozeText", "a")), any());
+        verify(ollamaClient, times(2)).startQuery(any(), any(), eq(Map.of("clozeText", "b")), any());
+    }
+
+    @Test
+    void testQuery_usesDatabaseTier() {
+        ReflectionTestUtils.setField(llmResponseCacheService, "databaseEnabled", true);
+        when(llmResponseCacheRepository.findByCacheKeyAndCreatedAtAfter(anyString(), any()))
+                .thenReturn(Optional.of(LlmResponseCacheEntity.builder()
+                        .cacheKey("key")
+                        .templateName(TEMPLATE)
+                        .response("{\"query\":\"stored query\"}")
+                        .createdAt(OffsetDateTime.now())
+                        .build()));
+
+        SemanticSearchQuery response = llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE,
+                Map.of("clozeText", "a"), null);
+
+        assertEquals("stored query", response.getQuery());
+        verifyNoInteractions(ollamaClient);
+    }
+
+    @Test
+    void testQuery_storesResponseInDatabase() {
+        ReflectionTestUtils.setField(llmResponseCacheService, "databaseEnabled", true);
+        when(llmResponseCacheRepository.findByCacheKeyAndCreatedAtAfter(anyString(), any()))
+                .thenReturn(Optional.empty());
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("java basics"));
+
+        llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), null);
+
+        verify(llmResponseCacheRepository).upsert(anyString(), eq(TEMPLATE), eq("{\"query\":\"java basics\"}"),
+                any());
+    }
+
+    @Test
+    void testQuery_disabledPassesThrough() {
+        ReflectionTestUtils.setField(llmResponseCacheService, "enabled", false);
+        when(ollamaClient.startQuery(eq(SemanticSearchQuery.class), eq(TEMPLATE), anyMap(), any()))
+                .thenReturn(new SemanticSearchQuery("java basics"));
+
+        llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), null);
+        llmResponseCacheService.query(SemanticSearchQuery.class, TEMPLATE, Map.of("clozeText", "a"), null);
+
+        verify(ollamaClient, times(2)).startQuery(any(), any(), anyMap(), any());
+        verifyNoInteractions(promptTemplateEngine);
+    }
+
+    @Test
+    void testCacheKey_dependsOnTemplateVersionAndModel() {
+        Map<String, String> args = Map.of("question", "What is Java?");
+        String key = LlmResponseCacheService.cacheKey(TEMPLATE, "v1", args, "model");
+
+        assertEquals(key, LlmResponseCacheService.cacheKey(TEMPLATE, "v1", args, "model"));
+        assertNotEquals(key, LlmResponseCacheService.cacheKey(TEMPLATE, "v2", args, "model"));
+        assertNotEquals(key, LlmResponseCacheService.cacheKey(TEMPLATE, "v1", args, "other-model"));
+        assertNotEquals(LlmResponseCacheService.cacheKey(TEMPLATE, "v1", Map.of("a", "bc"), "model"),
+                LlmResponseCacheService.cacheKey(TEMPLATE, "v1", Map.of("ab", "c"), "model"));
+    }
+
+    @Test
+    void testRemoveExpiredResponses_deletesInBatches() {
+        ReflectionTestUtils.setField(llmResponseCacheService, "databaseEnabled", true);
+        when(llmResponseCacheRepository.deleteBatchByCreatedAtBefore(any(), eq(10))).thenReturn(10, 3);
+
+        llmResponseCacheService.removeExpiredResponses();
+
+        verify(llmResponseCacheRepository, times(2)).deleteBatchByCreatedAtBefore(any(), eq(10));
+    }
+}
@@ -0,0 +1,185 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.ContentProgressedEvent;
+import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.ProactiveFeedbackJobEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackJobRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.ProactiveFeedbackRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.TutorAnswer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProactiveFeedbackJobService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProactiveFeedbackJobServiceTest {
+
+    @Mock
+    private ProactiveFeedbackJobRepository jobRepository;
+
+    @Mock
+    private ProactiveFeedbackService proactiveFeedbackService;
+
+    @InjectMocks
+    private ProactiveFeedbackJobService proactiveFeedbackJobService;
+
+    private UUID userId;
+    private UUID contentId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+        contentId = UUID.randomUUID();
+        ReflectionTestUtils.setField(proactiveFeedbackJobService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(proactiveFeedbackJobService, "retryDelaySeconds", 30L);
+    }
+
+    @Test
+    void testEnqueue_savesPendingJob() {
+        ContentProgressedEvent event = ContentProgressedEvent.builder()
+                .userId(userId)
+                .contentId(contentId)
+                .contentType(ContentProgressedEvent.ContentType.QUIZ)
+                .correctness(0.5)
+                .success(true)
+                .build();
+        when(jobRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        proactiveFeedbackJobService.enqueue(event);
+
+        ArgumentCaptor<ProactiveFeedbackJobEntity> captor = ArgumentCaptor.forClass(ProactiveFeedbackJobEntity.class);
+        verify(jobRepository).save(captor.capture());
+        ProactiveFeedbackJobEntity job = captor.getValue();
+        assertEquals(ProactiveFeedbackJobEntity.Status.PENDING, job.getStatus());
+        assertEquals(userId, job.getUserId());
+        assertEquals(contentId, job.getContentId());
+        assertEquals(ContentProgressedEvent.ContentType.QUIZ, job.getContentType());
+        assertEquals(0, job.getAttempts());
+        verifyNoInteractions(proactiveFeedbackService);
+    }
+
+    @Test
+    void testProcessJob_successDeletesJob() {
+        ProactiveFeedbackJobEntity job = claimedJob(1);
+        when(jobRepository.deleteClaimedJob(job.getId(), job.getClaimId())).thenReturn(1);
+        when(proactiveFeedbackService.generateFeedback(any(), any())).thenAnswer(invocation ->
+                invocation.<BooleanSupplier>getArgument(1).getAsBoolean() ? "Feedback generated" : null);
+
+        proactiveFeedbackJobService.processJob(job);
+
+        verify(jobRepository).deleteClaimedJob(job.getId(), job.getClaimId());
+        verify(jobRepository, never()).releaseClaimedJob(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testProcessJob_failureSchedulesRetry() {
+        ProactiveFeedbackJobEntity job = claimedJob(1);
+        when(proactiveFeedbackService.generateFeedback(any(), any())).thenReturn(null);
+        when(jobRepository.releaseClaimedJob(any(), any(), any(), any(), any())).thenReturn(1);
+
+        proactiveFeedbackJobService.processJob(job);
+
+        ArgumentCaptor<OffsetDateTime> nextAttemptAt = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(jobRepository).releaseClaimedJob(eq(job.getId()), eq(job.getClaimId()),
+                eq(ProactiveFeedbackJobEntity.Status.PENDING.name()), nextAttemptAt.capture(), notNull());
+        verify(jobRepository, never()).deleteClaimedJob(any(), any());
+        assertTrue(nextAttemptAt.getValue().isAfter(OffsetDateTime.now().plusSeconds(20)));
+    }
+
+    @Test
+    void testProcessJob_lastFailedAttemptMovesJobToDeadLetters() {
+        ProactiveFeedbackJobEntity job = claimedJob(3);
+        when(proactiveFeedbackService.generateFeedback(any(), any())).thenThrow(new RuntimeException("LLM unavailable"));
+        when(jobRepository.releaseClaimedJob(any(), any(), any(), any(), any())).thenReturn(1);
+
+        proactiveFeedbackJobService.processJob(job);
+
+        verify(jobRepository).releaseClaimedJob(eq(job.getId()), eq(job.getClaimId()),
+                eq(ProactiveFeedbackJobEntity.Status.DEAD_LETTER.name()), any(), eq("LLM unavailable"));
+    }
+
+    @Test
+    void testProcessJob_lostClaimDropsFeedback() {
+        ProactiveFeedbackJobEntity job = claimedJob(1);
+        // another worker claimed the job after the lease of this one expired
+        when(jobRepository.deleteClaimedJob(job.getId(), job.getClaimId())).thenReturn(0);
+        when(jobRepository.releaseClaimedJob(any(), any(), any(), any(), any())).thenReturn(0);
+        when(proactiveFeedbackService.generateFeedback(any(), any())).thenAnswer(invocation ->
+                invocation.<BooleanSupplier>getArgument(1).getAsBoolean() ? "Feedback generated" : null);
+
+        proactiveFeedbackJobService.processJob(job);
+
+        // the job of the other worker is neither deleted nor reset
+        verify(jobRepository).releaseClaimedJob(eq(job.getId()), eq(job.getClaimId()), any(), any(), any());
+        verify(jobRepository, never()).save(any());
+        verify(jobRepository, never()).delete(any());
+    }
+
+    @Test
+    void testProcessJob_llmFailureStoresNoFeedbackAndSchedulesRetry() {
+        OllamaClient ollamaClient = mock(OllamaClient.class);
+        ProactiveFeedbackRepository feedbackRepository = mock(ProactiveFeedbackRepository.class);
+        ProactiveFeedbackService feedbackService = new ProactiveFeedbackService(ollamaClient,
+                mock(UserPlayerTypeService.class), mock(UserSkillLevelService.class), feedbackRepository,
+                mock(StudentCodeSubmissionService.class), mock(TransactionTemplate.class));
+        ProactiveFeedbackJobService jobService = new ProactiveFeedbackJobService(jobRepository, feedbackService);
+        ReflectionTestUtils.setField(jobService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(jobService, "retryDelaySeconds", 30L);
+        // the client returns the given error answer if the query fails
+        when(ollamaClient.startQuery(eq(TutorAnswer.class), anyString(), anyMap(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(3));
+        when(jobRepository.releaseClaimedJob(any(), any(), any(), any(), any())).thenReturn(1);
+        ProactiveFeedbackJobEntity job = claimedJob(1);
+
+        jobService.processJob(job);
+
+        verify(feedbackRepository, never()).save(any());
+        verify(jobRepository).releaseClaimedJob(eq(job.getId()), eq(job.getClaimId()),
+                eq(ProactiveFeedbackJobEntity.Status.PENDING.name()), any(), any());
+        verify(jobRepository, never()).deleteClaimedJob(any(), any());
+    }
+
+    @Test
+    void testPollJobs_expiredLastAttemptsAreNotClaimedAgain() {
+        ReflectionTestUtils.setField(proactiveFeedbackJobService, "parallelism", 2);
+        when(jobRepository.moveExpiredLastAttemptsToDeadLetters(any(), eq(3), anyString())).thenReturn(1);
+        when(jobRepository.claimDueJobs(any(), any(), any(), eq(3), eq(2))).thenReturn(0);
+
+        proactiveFeedbackJobService.pollJobs();
+
+        verify(jobRepository).moveExpiredLastAttemptsToDeadLetters(any(), eq(3), anyString());
+        verify(jobRepository, never()).findByClaimId(any());
+        verifyNoInteractions(proactiveFeedbackService);
+    }
+
+    private ProactiveFeedbackJobEntity claimedJob(int attempts) {
+        return ProactiveFeedbackJobEntity.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .contentId(contentId)
+                .contentType(ContentProgressedEvent.ContentType.ASSIGNMENT)
+                .correctness(1.0)
+                .success(true)
+                .status(ProactiveFeedbackJobEntity.Status.RUNNING)
+                .attempts(attempts)
+                .claimId(UUID.randomUUID())
+                .lockedUntil(OffsetDateTime.now().plusMinutes(10))
+                .build();
+    }
+}
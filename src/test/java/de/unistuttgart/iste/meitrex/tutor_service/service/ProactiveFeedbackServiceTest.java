@@ -15,6 +15,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -48,6 +50,9 @@ class ProactiveFeedbackServiceTest {
     @Mock
     private StudentCodeSubmissionService studentCodeSubmissionService;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private ProactiveFeedbackService proactiveFeedbackService;
 
@@ -65,6 +70,9 @@ class ProactiveFeedbackServiceTest {
         ReflectionTestUtils.setField(proactiveFeedbackService, "skillLevelHighThreshold", 0.7);
         ReflectionTestUtils.setField(proactiveFeedbackService, "correctnessLevelHigh", 0.8);
         ReflectionTestUtils.setField(proactiveFeedbackService, "correctnessLevelMax", 0.99);
+        ReflectionTestUtils.setField(proactiveFeedbackService, "maxAgeMinutes", 30);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
@@ -268,6 +276,48 @@ class ProactiveFeedbackServiceTest {
         verify(proactiveFeedbackRepository, never()).save(any(ProactiveFeedbackEntity.class));
     }
 
+    @Test
+    void testGenerateFeedback_llmFailureStoresNothing() {
+        ContentProgressedEvent event = ContentProgressedEvent.builder()
+                .userId(userId)
+                .contentId(quizId)
+                .contentType(ContentProgressedEvent.ContentType.QUIZ)
+                .correctness(0.85)
+                .success(true)
+                .build();
+
+        // the client returns the given error answer if the query fails
+        when(ollamaClient.startQuery(eq(TutorAnswer.class), anyString(), anyMap(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(3));
+        when(userPlayerTypeService.getPrimaryPlayerType(userId)).thenReturn(Optional.empty());
+
+        String result = proactiveFeedbackService.generateFeedback(event);
+
+        assertNull(result);
+        verify(proactiveFeedbackRepository, never()).save(any(ProactiveFeedbackEntity.class));
+    }
+
+    @Test
+    void testGenerateFeedback_failedCompletionStoresNothing() {
+        ContentProgressedEvent event = ContentProgressedEvent.builder()
+                .userId(userId)
+                .contentId(quizId)
+                .contentType(ContentProgressedEvent.ContentType.QUIZ)
+                .correctness(0.85)
+                .success(true)
+                .build();
+
+        when(ollamaClient.startQuery(eq(TutorAnswer.class), anyString(), anyMap(), any()))
+                .thenReturn(new TutorAnswer("Well done!"));
+        when(userPlayerTypeService.getPrimaryPlayerType(userId)).thenReturn(Optional.empty());
+
+        String result = proactiveFeedbackService.generateFeedback(event, () -> false);
+
+        assertNull(result);
+        verify(transactionTemplate).execute(any());
+        verify(proactiveFeedbackRepository, never()).save(any(ProactiveFeedbackEntity.class));
+    }
+
     @Test
     void testGetFeedbackForAssignment() {
         ProactiveFeedbackEntity feedbackEntity = ProactiveFeedbackEntity.builder()
@@ -333,8 +383,8 @@ class ProactiveFeedbackServiceTest {
                 .createdAt(OffsetDateTime.now())
                 .build();
 
-        when(proactiveFeedbackRepository.findByUserIdOrderByCreatedAtDesc(userId))
-                .thenReturn(List.of(feedbackEntity));
+        when(proactiveFeedbackRepository.findFirstByUserIdOrderByCreatedAtDesc(userId))
+                .thenReturn(Optional.of(feedbackEntity));
 
         Optional<String> result = proactiveFeedbackService.getAndDeleteLatestFeedback(userId);
 
@@ -345,8 +395,8 @@ class ProactiveFeedbackServiceTest {
 
     @Test
     void testGetAndDeleteLatestFeedback_noFeedbackAvailable() {
-        when(proactiveFeedbackRepository.findByUserIdOrderByCreatedAtDesc(userId))
-                .thenReturn(List.of());
+        when(proactiveFeedbackRepository.findFirstByUserIdOrderByCreatedAtDesc(userId))
+                .thenReturn(Optional.empty());
 
         Optional<String> result = proactiveFeedbackService.getAndDeleteLatestFeedback(userId);
 
@@ -366,13 +416,13 @@ class ProactiveFeedbackServiceTest {
                 .createdAt(OffsetDateTime.now().minusMinutes(31))
                 .build();
 
-        when(proactiveFeedbackRepository.findByUserIdOrderByCreatedAtDesc(userId))
-                .thenReturn(List.of(oldFeedbackEntity));
+        when(proactiveFeedbackRepository.findFirstByUserIdOrderByCreatedAtDesc(userId))
+                .thenReturn(Optional.of(oldFeedbackEntity));
 
         Optional<String> result = proactiveFeedbackService.getAndDeleteLatestFeedback(userId);
 
         assertFalse(result.isPresent());
-        verify(proactiveFeedbackRepository, times(1)).delete(oldFeedbackEntity);
+        verify(proactiveFeedbackRepository, never()).delete(any(ProactiveFeedbackEntity.class));
     }
 
     @Test
@@ -387,8 +437,8 @@ class ProactiveFeedbackServiceTest {
                 .createdAt(OffsetDateTime.now().minusMinutes(5))
                 .build();
 
-        when(proactiveFeedbackRepository.findByUserIdOrderByCreatedAtDesc(userId))
-                .thenReturn(List.of(recentFeedbackEntity));
+        when(proactiveFeedbackRepository.findFirstByUserIdOrderByCreatedAtDesc(userId))
+                .thenReturn(Optional.of(recentFeedbackEntity));
 
         Optional<String> result = proactiveFeedbackService.getAndDeleteLatestFeedback(userId);
 
@@ -0,0 +1,80 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PromptTemplateEngine.
+ */
+class PromptTemplateEngineTest {
+
+    private PromptTemplateEngine promptTemplateEngine;
+
+    @BeforeEach
+    void setUp() {
+        promptTemplateEngine = new PromptTemplateEngine();
+        ReflectionTestUtils.setField(promptTemplateEngine, "promptFolder", "prompt_templates");
+        promptTemplateEngine.loadTemplates();
+    }
+
+    @Test
+    void testRender_fillsAllPlaceholdersOfTemplate() {
+        String prompt = promptTemplateEngine.render("question_prompt_MULTIPLE_CHOICE.md",
+                Map.of("questionText", "What is Java?", "options", "1. A language\n2. An island"));
+
+        assertTrue(prompt.contains("What is Java?"));
+        assertTrue(prompt.contains("1. A language\n2. An island"));
+        assertFalse(prompt.contains("{{"));
+    }
+
+    @Test
+    void testRender_missingPlaceholderValueIsRejected() {
+        Map<String, String> args = new HashMap<>();
+        args.put("questionText", "What is Java?");
+        args.put("options", null);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> promptTemplateEngine.render("question_prompt_MULTIPLE_CHOICE.md", args));
+        assertTrue(exception.getMessage().contains("options"));
+    }
+
+    @Test
+    void testRender_unknownTemplateIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> promptTemplateEngine.render("unknown.md", Map.of()));
+    }
+
+    @Test
+    void testFill_loadedTemplateMatchesRender() {
+        Map<String, String> args = Map.of("question", "What is a monad?");
+        String template = promptTemplateEngine.getTemplate("categorize_message_prompt.txt");
+
+        assertEquals(promptTemplateEngine.render("categorize_message_prompt.txt", args),
+                promptTemplateEngine.fill(template, args));
+    }
+
+    @Test
+    void testParse_keepsBracesWhichAreNoPlaceholders() {
+        PromptTemplateEngine.PromptTemplate template = PromptTemplateEngine.parse("test",
+                "{\"answer\": \"{{answer}}\"} {{ not a placeholder }} {{answer}}}");
+
+        assertArrayEquals(new String[] {"answer", "answer"}, template.placeholders());
+        assertEquals("{\"answer\": \"42\"} {{ not a placeholder }} 42}", template.render(Map.of("answer", "42")));
+    }
+
+    @Test
+    void testGetTemplateVersion_changesWithTemplateText() {
+        String version = promptTemplateEngine.getTemplateVersion("categorize_message_prompt.txt");
+
+        assertEquals(64, version.length());
+        assertEquals(PromptTemplateEngine.parse("test", "a {{b}}").version(),
+                PromptTemplateEngine.parse("other", "a {{b}}").version());
+        assertNotEquals(PromptTemplateEngine.parse("test", "a {{b}}").version(),
+                PromptTemplateEngine.parse("test", "a {{b}}.").version());
+    }
+}
@@ -0,0 +1,70 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.TutorCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for QuestionClassifier.
+ */
+class QuestionClassifierTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QuestionClassifier questionClassifier;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        questionClassifier = new QuestionClassifier(meterRegistry);
+        ReflectionTestUtils.setField(questionClassifier, "enabled", true);
+    }
+
+    @Test
+    void testClassify_noiseAndGreetings() {
+        assertEquals(Optional.of(TutorCategory.UNRECOGNIZABLE), questionClassifier.classify("???"));
+        assertEquals(Optional.of(TutorCategory.UNRECOGNIZABLE), questionClassifier.classify("  "));
+        assertEquals(Optional.of(TutorCategory.OTHER), questionClassifier.classify("Hello there :)"));
+        assertEquals(Optional.of(TutorCategory.OTHER), questionClassifier.classify("Danke schön!"));
+    }
+
+    @Test
+    void testClassify_codeFeedback() {
+        assertEquals(Optional.of(TutorCategory.CODE_FEEDBACK),
+                questionClassifier.classify("Why does my function return null?"));
+        assertEquals(Optional.of(TutorCategory.CODE_FEEDBACK), questionClassifier.classify(
+                "Exception in thread \"main\" java.lang.NullPointerException\n\tat Main.run(Main.java:17)"));
+        assertEquals(Optional.of(TutorCategory.CODE_FEEDBACK), questionClassifier.classify(
+                "public int add(int a, int b) {\n    return a - b;\n}\nWhat is wrong here?"));
+    }
+
+    @Test
+    void testClassify_lecture() {
+        assertEquals(Optional.of(TutorCategory.LECTURE),
+                questionClassifier.classify("What does slide 12 mean by gradient descent?"));
+    }
+
+    @Test
+    void testClassify_unclearQuestionsAreLeftToLlm() {
+        assertEquals(Optional.empty(), questionClassifier.classify("What is unsupervised learning?"));
+        assertEquals(Optional.empty(), questionClassifier.classify("Hi, what is recursion?"));
+        assertEquals(Optional.empty(),
+                questionClassifier.classify("Where can I download the lecture slides in the app?"));
+        assertEquals(Optional.empty(), questionClassifier.classify("On slide 3, why does my code differ?"));
+
+        assertEquals(4, meterRegistry.counter("tutor.question-classifier.fast-path", "category", "UNDECIDED")
+                .count());
+    }
+
+    @Test
+    void testClassify_disabled() {
+        ReflectionTestUtils.setField(questionClassifier, "enabled", false);
+
+        assertEquals(Optional.empty(), questionClassifier.classify("???"));
+    }
+}
@@ -1,15 +1,21 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.StudentCodeSubmissionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,6 +33,12 @@ class StudentCodeSubmissionServiceTest {
     @Mock
     private StudentCodeSubmissionRepository repository;
 
+    @Mock
+    private CodeFileBlobService codeFileBlobService;
+
+    @Spy
+    private CodeContextBuilder codeContextBuilder = new CodeContextBuilder();
+
     @InjectMocks
     private StudentCodeSubmissionService service;
 
@@ -37,6 +49,7 @@ class StudentCodeSubmissionServiceTest {
     private String commitSha;
     private OffsetDateTime commitTimestamp;
     private Map<String, String> files;
+    private Map<String, String> fileHashes;
     private String branch;
 
     @BeforeEach
@@ -52,6 +65,12 @@ class StudentCodeSubmissionServiceTest {
                 "src/Main.java", "public class Main { public static void main(String[] args) {} }",
                 "src/Utils.java", "public class Utils { }"
         );
+        ReflectionTestUtils.setField(codeContextBuilder, "maxTokens", 6000);
+        ReflectionTestUtils.setField(codeContextBuilder, "chunkLines", 80);
+        fileHashes = Map.of(
+                "src/Main.java", "hash-main",
+                "src/Utils.java", "hash-utils"
+        );
     }
 
     /**
@@ -62,6 +81,7 @@ class StudentCodeSubmissionServiceTest {
     void testSaveCodeSubmission_NewSubmission() {
         when(repository.findById(any())).thenReturn(Optional.empty());
         when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(codeFileBlobService.store(files)).thenReturn(fileHashes);
 
         service.saveCodeSubmission(studentId, assignmentId, courseId, repositoryUrl, 
                 commitSha, commitTimestamp, files, branch);
@@ -82,13 +102,14 @@ class StudentCodeSubmissionServiceTest {
                 .repositoryUrl(repositoryUrl)
                 .commitSha("oldCommitSha")
                 .commitTimestamp(commitTimestamp.minusDays(1))
-                .files(Map.of("old/file.java", "old content"))
+                .fileHashes(new HashMap<>(Map.of("old/file.java", "hash-old", "src/Main.java", "hash-main")))
                 .branch("old-branch")
                 .lastUpdated(OffsetDateTime.now().minusDays(1))
                 .build();
 
         when(repository.findById(any())).thenReturn(Optional.of(existingEntity));
         when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(codeFileBlobService.store(files)).thenReturn(fileHashes);
 
         service.saveCodeSubmission(studentId, assignmentId, courseId, repositoryUrl, 
                 commitSha, commitTimestamp, files, branch);
@@ -96,7 +117,7 @@ class StudentCodeSubmissionServiceTest {
         verify(repository, times(1)).findById(any());
         verify(repository, times(1)).save(argThat(entity -> 
                 entity.getCommitSha().equals(commitSha) &&
-                entity.getFiles().size() == 2 &&
+                entity.getFileHashes().equals(fileHashes) &&
                 entity.getBranch().equals(branch)
         ));
     }
@@ -112,7 +133,7 @@ class StudentCodeSubmissionServiceTest {
                 .repositoryUrl(repositoryUrl)
                 .commitSha(commitSha)
                 .commitTimestamp(commitTimestamp)
-                .files(files)
+                .fileHashes(fileHashes)
                 .branch(branch)
                 .lastUpdated(OffsetDateTime.now())
                 .build();
@@ -123,7 +144,7 @@ class StudentCodeSubmissionServiceTest {
 
         assertTrue(result.isPresent());
         assertEquals(commitSha, result.get().getCommitSha());
-        assertEquals(2, result.get().getFiles().size());
+        assertEquals(2, result.get().getFileHashes().size());
         verify(repository, times(1)).findById(any());
     }
 
@@ -138,12 +159,13 @@ class StudentCodeSubmissionServiceTest {
                 .repositoryUrl(repositoryUrl)
                 .commitSha(commitSha)
                 .commitTimestamp(commitTimestamp)
-                .files(files)
+                .fileHashes(fileHashes)
                 .branch(branch)
                 .lastUpdated(OffsetDateTime.now())
                 .build();
 
         when(repository.findById(any())).thenReturn(Optional.of(entity));
+        when(codeFileBlobService.load(fileHashes)).thenReturn(files);
 
         Optional<String> context = service.getCodeSubmissionContextForTutor(studentId, assignmentId);
 
@@ -170,4 +192,34 @@ class StudentCodeSubmissionServiceTest {
         assertFalse(context.isPresent());
         verify(repository, times(1)).findById(any());
     }
+
+    /**
+     * Test getting the latest submission of a student in a course.
+     * Only the metadata is queried, limited to a single submission.
+     */
+    @Test
+    void testGetLatestCodeSubmissionMetadata() {
+        StudentCodeSubmissionMetadata metadata = new StudentCodeSubmissionMetadata(
+                studentId, assignmentId, courseId, commitSha, commitTimestamp, OffsetDateTime.now());
+        when(repository.findLatestMetadataByStudentIdAndCourseId(studentId, courseId, Limit.of(1)))
+                .thenReturn(List.of(metadata));
+
+        Optional<StudentCodeSubmissionMetadata> result = service.getLatestCodeSubmissionMetadata(studentId, courseId);
+
+        assertTrue(result.isPresent());
+        assertEquals(assignmentId, result.get().assignmentId());
+    }
+
+    /**
+     * Test getting the latest submission of a student who has not submitted any code in the course.
+     */
+    @Test
+    void testGetLatestCodeSubmissionMetadata_NoSubmission() {
+        when(repository.findLatestMetadataByStudentIdAndCourseId(studentId, courseId, Limit.of(1)))
+                .thenReturn(List.of());
+
+        Optional<StudentCodeSubmissionMetadata> result = service.getLatestCodeSubmissionMetadata(studentId, courseId);
+
+        assertFalse(result.isPresent());
+    }
 }
@@ -0,0 +1,104 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.TablePartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TablePartitioningService.
+ */
+@ExtendWith(MockitoExtension.class)
+class TablePartitioningServiceTest {
+
+    @Mock
+    private TablePartitionRepository partitionRepository;
+
+    @InjectMocks
+    private TablePartitioningService tablePartitioningService;
+
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now(ZoneOffset.UTC);
+        ReflectionTestUtils.setField(tablePartitioningService, "enabled", true);
+        ReflectionTestUtils.setField(tablePartitioningService, "premakeDays", 2);
+        ReflectionTestUtils.setField(tablePartitioningService, "conversationHistoryMaxAgeMinutes", 30);
+        ReflectionTestUtils.setField(tablePartitioningService, "proactiveFeedbackRetentionDays", 7);
+    }
+
+    @Test
+    void testPartitionTables_convertsTablesAndCreatesUpcomingPartitions() {
+        when(partitionRepository.convertToPartitioned(anyString(), anyString(), any(), eq(today.plusDays(2))))
+                .thenReturn(true);
+        when(partitionRepository.findPartitionDays(anyString())).thenReturn(List.of(today, today.plusDays(1)));
+
+        tablePartitioningService.partitionTables();
+
+        verify(partitionRepository).convertToPartitioned(eq("conversation_history"), eq("timestamp"),
+                any(), eq(today.plusDays(2)));
+        verify(partitionRepository).convertToPartitioned(eq("proactive_feedback"), eq("created_at"),
+                any(), eq(today.plusDays(2)));
+        verify(partitionRepository).createPartition("conversation_history", today.plusDays(2));
+        verify(partitionRepository).createPartition("proactive_feedback", today.plusDays(2));
+        verify(partitionRepository, never()).dropPartition(anyString(), any());
+        assertTrue(tablePartitioningService.isPartitioned("conversation_history"));
+    }
+
+    @Test
+    void testMaintainPartitions_dropsExpiredPartitions() {
+        List<LocalDate> days = List.of(today.minusDays(2), today.minusDays(1), today, today.plusDays(1),
+                today.plusDays(2));
+        when(partitionRepository.convertToPartitioned(anyString(), anyString(), any(), any())).thenReturn(false);
+        when(partitionRepository.findPartitionDays(anyString())).thenReturn(days);
+
+        tablePartitioningService.partitionTables();
+
+        verify(partitionRepository).dropPartition("conversation_history", today.minusDays(2));
+        verify(partitionRepository, never()).dropPartition("conversation_history", today);
+        // proactive feedback is kept for its history until the retention period ends
+        verify(partitionRepository, never()).dropPartition(eq("proactive_feedback"), any());
+        verify(partitionRepository, never()).createPartition(anyString(), any());
+    }
+
+    @Test
+    void testPartitionTables_failedConversionFallsBackToRowDeletes() {
+        when(partitionRepository.convertToPartitioned(eq("conversation_history"), anyString(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("lock timeout"));
+        when(partitionRepository.convertToPartitioned(eq("proactive_feedback"), anyString(), any(), any()))
+                .thenReturn(false);
+        when(partitionRepository.findPartitionDays("proactive_feedback"))
+                .thenReturn(List.of(today, today.plusDays(1), today.plusDays(2)));
+
+        tablePartitioningService.partitionTables();
+
+        assertFalse(tablePartitioningService.isPartitioned("conversation_history"));
+        assertTrue(tablePartitioningService.isPartitioned("proactive_feedback"));
+        verify(partitionRepository, never()).findPartitionDays("conversation_history");
+    }
+
+    @Test
+    void testPartitionTables_disabled() {
+        ReflectionTestUtils.setField(tablePartitioningService, "enabled", false);
+
+        tablePartitioningService.partitionTables();
+        tablePartitioningService.maintainPartitions();
+
+        verifyNoInteractions(partitionRepository);
+        assertFalse(tablePartitioningService.isPartitioned("conversation_history"));
+    }
+}
@@ -1,20 +1,28 @@
 package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.unistuttgart.iste.meitrex.common.dapr.TopicPublisher;
 import de.unistuttgart.iste.meitrex.common.event.TutorCategory;
 import de.unistuttgart.iste.meitrex.common.ollama.OllamaClient;
 import de.unistuttgart.iste.meitrex.common.testutil.InjectCurrentUserHeader;
 import de.unistuttgart.iste.meitrex.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionResponse;
+import de.unistuttgart.iste.meitrex.generated.dto.LectureQuestionStreamFrame;
+import de.unistuttgart.iste.meitrex.tutor_service.client.OllamaStreamingClient;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionMetadata;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.LlmResponseCacheRepository;
 import de.unistuttgart.iste.meitrex.tutor_service.service.models.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.UUID;
 
 import static de.unistuttgart.iste.meitrex.common.testutil.TestUsers.userWithMembershipInCourseWithId;
@@ -33,14 +41,27 @@ public class TutorServiceTest {
     private final ProactiveFeedbackService proactiveFeedbackService = Mockito.mock(ProactiveFeedbackService.class);
     private final ConversationHistoryService conversationHistoryService = Mockito.mock(ConversationHistoryService.class);
     private final StudentCodeSubmissionService studentCodeSubmissionService = Mockito.mock(StudentCodeSubmissionService.class);
+    private final OllamaStreamingClient ollamaStreamingClient = Mockito.mock(OllamaStreamingClient.class);
+    private final LectureAnswerCacheService lectureAnswerCacheService = Mockito.mock(LectureAnswerCacheService.class);
+    private final PromptTemplateEngine promptTemplateEngine = Mockito.mock(PromptTemplateEngine.class);
+    private final QuestionClassifier questionClassifier = Mockito.mock(QuestionClassifier.class);
+    private final AnswerModeExperiment answerModeExperiment = Mockito.mock(AnswerModeExperiment.class);
+    // disabled cache, queries are passed through to the mocked client
+    private final LlmResponseCacheService llmResponseCacheService = new LlmResponseCacheService(ollamaClient,
+            promptTemplateEngine, Mockito.mock(LlmResponseCacheRepository.class), new ObjectMapper());
     private TutorService tutorService;
 
     @BeforeEach
     void setUp() {
                 tutorService = new TutorService(ollamaClient, semanticSearchService, topicPublisher, 
                 userPlayerTypeService, userSkillLevelService, proactiveFeedbackService, 
-                conversationHistoryService, studentCodeSubmissionService);
+                conversationHistoryService, studentCodeSubmissionService, new SyncTaskExecutor(),
+                ollamaStreamingClient, lectureAnswerCacheService, promptTemplateEngine,
+                questionClassifier, answerModeExperiment, llmResponseCacheService);
         ReflectionTestUtils.setField(tutorService, "scoreThreshold", 0.4);
+        ReflectionTestUtils.setField(tutorService, "skillLevelLowThreshold", 0.3);
+        ReflectionTestUtils.setField(tutorService, "skillLevelHighThreshold", 0.7);
+        when(answerModeExperiment.modeFor(Mockito.any())).thenReturn(AnswerModeExperiment.Mode.SEQUENTIAL);
     }
     private final UUID courseId = UUID.randomUUID();
 
@@ -59,13 +80,27 @@ public class TutorServiceTest {
                 response.getAnswer());
     }
 
+    @Test
+    void testHandleUserQuestion_obviousCategoryIsNotSentToLlm() {
+        String question = "???";
+        when(questionClassifier.classify(question)).thenReturn(Optional.of(TutorCategory.UNRECOGNIZABLE));
+
+        LectureQuestionResponse response = tutorService.handleUserQuestion(question, null, loggedInUser);
+        assertEquals("Unfortunately, I couldn't understand your question. " +
+                        "Please rephrase it and ask again. Thank you :)",
+                response.getAnswer());
+        Mockito.verify(ollamaClient, Mockito.never())
+                .startQuery(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
     @Test
     void testHandleUserQuestion_withOtherCategory() {
         String question = "Gib mir ein Rezept für Schokokuchen";
         CategorizedQuestion categorizedQuestion = new CategorizedQuestion(question,TutorCategory.OTHER);
         when(ollamaClient.startQuery(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(categorizedQuestion);
         when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
-        when(studentCodeSubmissionService.getCodeSubmissionsForStudent(Mockito.any())).thenReturn(List.of());
+        when(studentCodeSubmissionService.getLatestCodeSubmissionMetadata(Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.empty());
 
         LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
         assertEquals("I'm currently unable to answer this type of message. " +
@@ -110,7 +145,7 @@ public class TutorServiceTest {
         when(semanticSearchService.formatIntoNumberedListForPrompt(Mockito.any())).thenReturn("Mocked content");
         when(ollamaClient.startQuery(Mockito.eq(TutorAnswer.class), Mockito.any(), Mockito.any(),
                 Mockito.any())).thenReturn(new TutorAnswer(expectedAnswer));
-        when(userSkillLevelService.getAllSkillLevelsForUser(Mockito.any())).thenReturn(List.of());
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
         when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
 
 
@@ -118,6 +153,58 @@ public class TutorServiceTest {
         assertEquals(expectedAnswer, response.getAnswer());
     }
 
+    @Test
+    void testHandleUserQuestion_combinedModeAnswersLectureQuestionInOneCall() {
+        String question = "What is supervised learning?";
+        List<SemanticSearchResult> dummyResults = List.of(SemanticSearchResult.builder()
+                .score(0.15)
+                .typename("DocumentRecordSegment")
+                .mediaRecordSegment(DocumentRecordSegment.builder().page(2).text("Dummy content").build())
+                .build());
+        ReflectionTestUtils.setField(tutorService, "topSourceCount", 5L);
+        when(answerModeExperiment.modeFor(Mockito.any())).thenReturn(AnswerModeExperiment.Mode.COMBINED);
+        when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(dummyResults);
+        when(semanticSearchService.formatIntoNumberedListForPrompt(Mockito.any())).thenReturn("Mocked content");
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
+        when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedAnswer.class), Mockito.eq("categorize_and_answer_prompt.txt"),
+                Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedAnswer(TutorCategory.LECTURE, "Learning from labeled data."));
+
+        LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
+
+        assertEquals("Learning from labeled data.", response.getAnswer());
+        assertEquals(1, response.getSources().size());
+        Mockito.verify(ollamaClient, Mockito.never()).startQuery(Mockito.eq(TutorAnswer.class), Mockito.any(),
+                Mockito.any(), Mockito.any());
+        Mockito.verify(conversationHistoryService)
+                .addConversationExchange(loggedInUser.getId(), courseId, question, "Learning from labeled data.");
+    }
+
+    @Test
+    void testHandleUserQuestion_combinedModeFallsBackToSecondCall() {
+        String question = "What is supervised learning?";
+        List<SemanticSearchResult> dummyResults = List.of(SemanticSearchResult.builder()
+                .score(0.15)
+                .typename("DocumentRecordSegment")
+                .mediaRecordSegment(DocumentRecordSegment.builder().page(2).text("Dummy content").build())
+                .build());
+        when(answerModeExperiment.modeFor(Mockito.any())).thenReturn(AnswerModeExperiment.Mode.COMBINED);
+        when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(dummyResults);
+        when(semanticSearchService.formatIntoNumberedListForPrompt(Mockito.any())).thenReturn("Mocked content");
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
+        when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedAnswer.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedAnswer(TutorCategory.LECTURE, ""));
+        when(ollamaClient.startQuery(Mockito.eq(TutorAnswer.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new TutorAnswer("Learning from labeled data."));
+
+        LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
+
+        assertEquals("Learning from labeled data.", response.getAnswer());
+        Mockito.verify(answerModeExperiment).recordSecondCall(TutorCategory.LECTURE);
+    }
+
     @Test
     void testHandleUserQuestion_withSystemCategory() {
         String question = "Where do i upload my assignment?";
@@ -192,7 +279,8 @@ public class TutorServiceTest {
         
         when(ollamaClient.startQuery(Mockito.eq(CategorizedQuestion.class), Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(categorizedQuestion);
-        when(studentCodeSubmissionService.getCodeSubmissionsForStudent(Mockito.any())).thenReturn(List.of());
+        when(studentCodeSubmissionService.getLatestCodeSubmissionMetadata(Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.empty());
 
         String expectedAnswer = "I couldn't find any code submission from you. " +
                 "Please make sure you've committed your code to your assignment repository. " +
@@ -229,14 +317,9 @@ public class TutorServiceTest {
         CategorizedQuestion categorizedQuestion = new CategorizedQuestion(question, TutorCategory.OTHER);
         TutorAnswer tutorAnswer = new TutorAnswer("Here is a more detailed explanation based on your code.");
         
-        de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity submission = 
-                Mockito.mock(de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity.class);
-        de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity.PrimaryKey primaryKey = 
-                Mockito.mock(de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.StudentCodeSubmissionEntity.PrimaryKey.class);
-        
-        when(primaryKey.getAssignmentId()).thenReturn(UUID.randomUUID());
-        when(submission.getPrimaryKey()).thenReturn(primaryKey);
-        when(submission.getLastUpdated()).thenReturn(java.time.OffsetDateTime.now());
+        UUID assignmentId = UUID.randomUUID();
+        StudentCodeSubmissionMetadata submission = new StudentCodeSubmissionMetadata(loggedInUser.getId(),
+                assignmentId, courseId, "abc123", OffsetDateTime.now(), OffsetDateTime.now());
         
         List<SemanticSearchResult> dummyResults = List.of(
                 SemanticSearchResult.builder()
@@ -252,13 +335,14 @@ public class TutorServiceTest {
                 .thenReturn(tutorAnswer);
         when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any()))
                 .thenReturn("Previous conversation history");
-        when(studentCodeSubmissionService.getCodeSubmissionsForStudent(Mockito.any()))
-                .thenReturn(List.of(submission));
-        when(studentCodeSubmissionService.getCodeSubmissionContextForTutor(Mockito.any(), Mockito.any()))
+        when(studentCodeSubmissionService.getLatestCodeSubmissionMetadata(loggedInUser.getId(), courseId))
+                .thenReturn(Optional.of(submission));
+        when(studentCodeSubmissionService.getCodeSubmissionContextForTutor(
+                Mockito.eq(loggedInUser.getId()), Mockito.eq(assignmentId), Mockito.contains(question)))
                 .thenReturn(Optional.of("public class Example { }"));
         when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(dummyResults);
-        when(userSkillLevelService.getAllSkillLevelsForUser(Mockito.any())).thenReturn(List.of());
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
 
         LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
         assertEquals("Here is a more detailed explanation based on your code.", response.getAnswer());
@@ -284,13 +368,119 @@ public class TutorServiceTest {
                 .thenReturn(tutorAnswer);
         when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any()))
                 .thenReturn("Previous conversation history");
-        when(studentCodeSubmissionService.getCodeSubmissionsForStudent(Mockito.any()))
-                .thenReturn(List.of());
+        when(studentCodeSubmissionService.getLatestCodeSubmissionMetadata(Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.empty());
         when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(dummyResults);
-        when(userSkillLevelService.getAllSkillLevelsForUser(Mockito.any())).thenReturn(List.of());
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
 
         LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
         assertEquals("Here is a clarification.", response.getAnswer());
     }
+
+    @Test
+    void testHandleUserQuestion_pipelinedExecution_usesPrefetchedContext() {
+        ReflectionTestUtils.setField(tutorService, "pipelinedExecutionEnabled", true);
+        String question = "What is the difference between supervised and unsupervised training?";
+        List<SemanticSearchResult> dummyResults = List.of(
+                SemanticSearchResult.builder()
+                        .score(0.15)
+                        .typename("DocumentRecordSegment")
+                        .mediaRecordSegment(DocumentRecordSegment.builder().page(2).text("Dummy content").build())
+                        .build()
+        );
+
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedQuestion.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedQuestion(question, TutorCategory.LECTURE));
+        when(ollamaClient.startQuery(Mockito.eq(TutorAnswer.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new TutorAnswer("Pipelined answer"));
+        when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(dummyResults);
+        when(semanticSearchService.formatIntoNumberedListForPrompt(Mockito.any())).thenReturn("Mocked content");
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
+        when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
+
+        LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
+
+        assertEquals("Pipelined answer", response.getAnswer());
+        Mockito.verify(semanticSearchService, Mockito.times(1)).semanticSearch(question, courseId, loggedInUser);
+        Mockito.verify(userPlayerTypeService, Mockito.times(1)).getPrimaryPlayerType(loggedInUser.getId());
+    }
+
+    @Test
+    void testHandleUserQuestionStream_streamsAnswerAndSources() {
+        String question = "What is the difference between supervised and unsupervised training?";
+        List<SemanticSearchResult> dummyResults = List.of(
+                SemanticSearchResult.builder()
+                        .score(0.15)
+                        .typename("DocumentRecordSegment")
+                        .mediaRecordSegment(DocumentRecordSegment.builder().page(2).text("Dummy content").build())
+                        .build()
+        );
+
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedQuestion.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedQuestion(question, TutorCategory.LECTURE));
+        when(semanticSearchService.semanticSearch(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(dummyResults);
+        when(semanticSearchService.formatIntoNumberedListForPrompt(Mockito.any())).thenReturn("Mocked content");
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
+        when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
+        when(promptTemplateEngine.render(Mockito.eq("answer_lecture_question_prompt.txt"), Mockito.any()))
+                .thenReturn("prompt");
+        when(ollamaStreamingClient.streamCompletion(Mockito.eq("prompt"), Mockito.any()))
+                .thenReturn(Flux.just("{\"answer\": \"Super", "vised\\nlearning\"}"));
+
+        List<LectureQuestionStreamFrame> frames = tutorService
+                .handleUserQuestionStream(question, courseId, loggedInUser)
+                .collectList()
+                .block();
+
+        assertEquals(3, frames.size());
+        assertEquals("Super", frames.get(0).getToken());
+        assertEquals("vised\nlearning", frames.get(1).getToken());
+        assertTrue(frames.get(2).getDone());
+        assertEquals(1, frames.get(2).getSources().size());
+        Mockito.verify(conversationHistoryService)
+                .addConversationExchange(loggedInUser.getId(), courseId, question, "Supervised\nlearning");
+    }
+
+    @Test
+    void testHandleUserQuestionStream_completedAnswerIsSingleFrame() {
+        String question = "Where do i upload my assignment?";
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedQuestion.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedQuestion(question, TutorCategory.SYSTEM));
+
+        List<LectureQuestionStreamFrame> frames = tutorService
+                .handleUserQuestionStream(question, null, loggedInUser)
+                .collectList()
+                .block();
+
+        assertEquals(1, frames.size());
+        assertEquals("At the moment, I can't answer any questions about the MEITREX system :(",
+                frames.get(0).getToken());
+        assertTrue(frames.get(0).getDone());
+    }
+
+    @Test
+    void testHandleUserQuestion_withCachedLectureAnswer() {
+        String question = "What is a monad?";
+        LectureAnswerCacheKey cacheKey = new LectureAnswerCacheKey(courseId, "fingerprint", 1, "what is a monad");
+        LectureQuestionResponse cachedResponse = new LectureQuestionResponse("A monoid in the category of endofunctors.",
+                List.of());
+
+        when(ollamaClient.startQuery(Mockito.eq(CategorizedQuestion.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new CategorizedQuestion(question, TutorCategory.LECTURE));
+        when(conversationHistoryService.formatHistoryForPrompt(Mockito.any(), Mockito.any())).thenReturn("");
+        when(userSkillLevelService.getAverageSkillLevel(Mockito.any())).thenReturn(OptionalDouble.empty());
+        when(lectureAnswerCacheService.isEnabled()).thenReturn(true);
+        when(lectureAnswerCacheService.createKey(courseId, question, 1, loggedInUser)).thenReturn(Optional.of(cacheKey));
+        when(lectureAnswerCacheService.lookup(cacheKey)).thenReturn(Optional.of(cachedResponse));
+
+        LectureQuestionResponse response = tutorService.handleUserQuestion(question, courseId, loggedInUser);
+
+        assertEquals(cachedResponse, response);
+        Mockito.verify(semanticSearchService, Mockito.never()).semanticSearch(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(ollamaClient, Mockito.never())
+                .startQuery(Mockito.eq(TutorAnswer.class), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(conversationHistoryService)
+                .addConversationExchange(loggedInUser.getId(), courseId, question, cachedResponse.getAnswer());
+    }
 }
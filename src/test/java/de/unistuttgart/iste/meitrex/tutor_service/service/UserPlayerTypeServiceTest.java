@@ -3,7 +3,7 @@ package de.unistuttgart.iste.meitrex.tutor_service.service;
 import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.mapper.UserPlayerTypeMapper;
-import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserPlayerTypeRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,10 +26,13 @@ import static org.mockito.Mockito.*;
 class UserPlayerTypeServiceTest {
 
     @Mock
-    private UserPlayerTypeRepository userPlayerTypeRepository;
+    private UserPlayerTypeMapper userPlayerTypeMapper;
 
     @Mock
-    private UserPlayerTypeMapper userPlayerTypeMapper;
+    private UserProfileUpdateBuffer userProfileUpdateBuffer;
+
+    @Mock
+    private UserProfileCache userProfileCache;
 
     @InjectMocks
     private UserPlayerTypeService userPlayerTypeService;
@@ -52,50 +56,35 @@ class UserPlayerTypeServiceTest {
     }
 
     @Test
-    void testSaveUserPlayerType_CreatesNewEntityWhenNotExists() {
+    void testSaveUserPlayerType_WritesEntityThroughBuffer() {
         UserPlayerTypeEntity newEntity = mock(UserPlayerTypeEntity.class);
         
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
         when(userPlayerTypeMapper.createEntity(userId, primaryPlayerType, playerTypePercentages))
                 .thenReturn(newEntity);
+        when(userProfileUpdateBuffer.submitPlayerType(newEntity)).thenReturn(CompletableFuture.completedFuture(null));
         
         userPlayerTypeService.saveUserPlayerType(userId, primaryPlayerType, playerTypePercentages);
         
-        verify(userPlayerTypeMapper).createEntity(userId, primaryPlayerType, playerTypePercentages);
-        verify(userPlayerTypeRepository).save(newEntity);
-        verify(userPlayerTypeMapper, never()).updateEntity(any(), any(), any());
-    }
-
-    @Test
-    void testSaveUserPlayerType_UpdatesExistingEntity() {
-        UserPlayerTypeEntity existingEntity = mock(UserPlayerTypeEntity.class);
-        UserPlayerTypeEntity updatedEntity = mock(UserPlayerTypeEntity.class);
-        
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.of(existingEntity));
-        when(userPlayerTypeMapper.updateEntity(existingEntity, primaryPlayerType, playerTypePercentages))
-                .thenReturn(updatedEntity);
-        
-        userPlayerTypeService.saveUserPlayerType(userId, primaryPlayerType, playerTypePercentages);
-        
-        verify(userPlayerTypeMapper).updateEntity(existingEntity, primaryPlayerType, playerTypePercentages);
-        verify(userPlayerTypeRepository).save(updatedEntity);
-        verify(userPlayerTypeMapper, never()).createEntity(any(), any(), any());
+        verify(userProfileUpdateBuffer).submitPlayerType(newEntity);
+        verifyNoInteractions(userProfileCache);
     }
 
     @Test
     void testGetUserPlayerType_ReturnsEntityWhenExists() {
-        UserPlayerTypeEntity entity = mock(UserPlayerTypeEntity.class);
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.of(entity));
+        when(userProfileCache.getProfile(userId))
+                .thenReturn(new UserProfile(primaryPlayerType, playerTypePercentages, null));
         
         Optional<UserPlayerTypeEntity> result = userPlayerTypeService.getUserPlayerType(userId);
         
         assertTrue(result.isPresent());
-        assertEquals(entity, result.get());
+        assertEquals(userId, result.get().getUserId());
+        assertEquals(primaryPlayerType, result.get().getPrimaryPlayerType());
+        assertEquals(playerTypePercentages, result.get().getPlayerTypePercentagesAsMap());
     }
 
     @Test
     void testGetUserPlayerType_ReturnsEmptyWhenNotExists() {
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userProfileCache.getProfile(userId)).thenReturn(new UserProfile(null, null, 0.5));
         
         Optional<UserPlayerTypeEntity> result = userPlayerTypeService.getUserPlayerType(userId);
         
@@ -104,9 +93,8 @@ class UserPlayerTypeServiceTest {
 
     @Test
     void testGetPrimaryPlayerType_ReturnsTypeWhenExists() {
-        UserPlayerTypeEntity entity = mock(UserPlayerTypeEntity.class);
-        when(entity.getPrimaryPlayerType()).thenReturn(primaryPlayerType);
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.of(entity));
+        when(userProfileCache.getProfile(userId))
+                .thenReturn(new UserProfile(primaryPlayerType, playerTypePercentages, null));
         
         Optional<HexadPlayerType> result = userPlayerTypeService.getPrimaryPlayerType(userId);
         
@@ -116,7 +104,7 @@ class UserPlayerTypeServiceTest {
 
     @Test
     void testGetPrimaryPlayerType_ReturnsEmptyWhenNotExists() {
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userProfileCache.getProfile(userId)).thenReturn(new UserProfile(null, null, null));
         
         Optional<HexadPlayerType> result = userPlayerTypeService.getPrimaryPlayerType(userId);
         
@@ -132,13 +120,13 @@ class UserPlayerTypeServiceTest {
             allTypes.put(type, 0.5);
         }
         
-        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
         when(userPlayerTypeMapper.createEntity(userId, HexadPlayerType.PHILANTHROPIST, allTypes))
                 .thenReturn(newEntity);
+        when(userProfileUpdateBuffer.submitPlayerType(newEntity)).thenReturn(CompletableFuture.completedFuture(null));
         
         userPlayerTypeService.saveUserPlayerType(userId, HexadPlayerType.PHILANTHROPIST, allTypes);
         
         verify(userPlayerTypeMapper).createEntity(userId, HexadPlayerType.PHILANTHROPIST, allTypes);
-        verify(userPlayerTypeRepository).save(newEntity);
+        verify(userProfileUpdateBuffer).submitPlayerType(newEntity);
     }
 }
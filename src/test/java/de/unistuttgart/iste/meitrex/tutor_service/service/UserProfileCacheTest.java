@@ -0,0 +1,179 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillAggregateEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserPlayerTypeRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserSkillAggregateRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfile;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfileInvalidatedEvent;
+import io.dapr.client.DaprClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserProfileCache.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserProfileCacheTest {
+
+    @Mock
+    private UserPlayerTypeRepository userPlayerTypeRepository;
+
+    @Mock
+    private UserSkillAggregateRepository userSkillAggregateRepository;
+
+    @Mock
+    private DaprClient daprClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserProfileCache userProfileCache;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userProfileCache = new UserProfileCache(userPlayerTypeRepository, userSkillAggregateRepository,
+                daprClient, meterRegistry);
+        ReflectionTestUtils.setField(userProfileCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(userProfileCache, "maxUsers", 2);
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void testGetProfile_loadsProfileOnce() {
+        UserPlayerTypeEntity playerType = UserPlayerTypeEntity.builder()
+                .userId(userId)
+                .primaryPlayerType(HexadPlayerType.ACHIEVER)
+                .achieverScore(0.8)
+                .build();
+        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.of(playerType));
+        when(userSkillAggregateRepository.findById(userId)).thenReturn(Optional.of(
+                UserSkillAggregateEntity.builder().userId(userId).skillLevelSum(1.2).skillCount(2).build()));
+
+        UserProfile first = userProfileCache.getProfile(userId);
+        UserProfile second = userProfileCache.getProfile(userId);
+
+        assertSame(first, second);
+        assertEquals(HexadPlayerType.ACHIEVER, first.getPrimaryPlayerType());
+        assertEquals(0.8, first.getPlayerTypePercentages().get(HexadPlayerType.ACHIEVER));
+        assertEquals(0.6, first.getAverageSkillLevel(), 1e-9);
+        verify(userPlayerTypeRepository, times(1)).findById(userId);
+        assertEquals(1.0, meterRegistry.get("tutor.user-profile.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("tutor.user-profile.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testGetProfile_unknownUser() {
+        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userSkillAggregateRepository.findById(userId)).thenReturn(Optional.empty());
+
+        UserProfile profile = userProfileCache.getProfile(userId);
+
+        assertNull(profile.getPrimaryPlayerType());
+        assertNull(profile.getAverageSkillLevel());
+    }
+
+    @Test
+    void testInvalidate_reloadsProfileAndNotifiesOtherInstances() {
+        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userSkillAggregateRepository.findById(userId)).thenReturn(Optional.empty());
+        when(daprClient.publishEvent(eq(UserProfileCache.BROADCAST_PUBSUB_NAME),
+                eq(UserProfileCache.INVALIDATION_TOPIC), any(Object.class))).thenReturn(Mono.empty());
+
+        UUID otherUserId = UUID.randomUUID();
+
+        userProfileCache.getProfile(userId);
+        userProfileCache.invalidate(List.of(userId, otherUserId));
+        userProfileCache.getProfile(userId);
+
+        verify(userPlayerTypeRepository, times(2)).findById(userId);
+        // one notification for all users of the batch
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(daprClient, times(1)).publishEvent(eq(UserProfileCache.BROADCAST_PUBSUB_NAME),
+                eq(UserProfileCache.INVALIDATION_TOPIC), captor.capture());
+        assertEquals(List.of(userId, otherUserId), ((UserProfileInvalidatedEvent) captor.getValue()).getUserIds());
+    }
+
+    @Test
+    void testInvalidate_noUsersPublishesNothing() {
+        userProfileCache.invalidate(List.of());
+
+        verifyNoInteractions(daprClient);
+    }
+
+    @Test
+    void testOnInvalidationEvent_ignoresOwnEvents() {
+        when(userPlayerTypeRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userSkillAggregateRepository.findById(userId)).thenReturn(Optional.empty());
+        String ownInstanceId = (String) ReflectionTestUtils.getField(userProfileCache, "instanceId");
+
+        userProfileCache.getProfile(userId);
+        userProfileCache.onInvalidationEvent(new UserProfileInvalidatedEvent(List.of(userId), ownInstanceId));
+        userProfileCache.getProfile(userId);
+        userProfileCache.onInvalidationEvent(new UserProfileInvalidatedEvent(List.of(userId), "other-instance"));
+        userProfileCache.getProfile(userId);
+
+        verify(userPlayerTypeRepository, times(2)).findById(userId);
+    }
+
+    @Test
+    void testGetProfile_invalidationDuringLoadIsNotCached() {
+        UUID otherUserId = UUID.randomUUID();
+        when(userPlayerTypeRepository.findById(userId)).thenAnswer(invocation -> {
+            userProfileCache.onInvalidationEvent(new UserProfileInvalidatedEvent(List.of(userId), "other-instance"));
+            return Optional.empty();
+        }).thenReturn(Optional.empty());
+        when(userPlayerTypeRepository.findById(otherUserId)).thenAnswer(invocation -> {
+            userProfileCache.onInvalidationEvent(new UserProfileInvalidatedEvent(List.of(userId), "other-instance"));
+            return Optional.empty();
+        });
+        when(userSkillAggregateRepository.findById(any())).thenReturn(Optional.empty());
+
+        // the profile loaded while it was invalidated may be outdated
+        userProfileCache.getProfile(userId);
+        userProfileCache.getProfile(userId);
+        userProfileCache.getProfile(userId);
+        // invalidations of other users do not keep a profile from being cached
+        userProfileCache.getProfile(otherUserId);
+        userProfileCache.getProfile(otherUserId);
+
+        verify(userPlayerTypeRepository, times(2)).findById(userId);
+        verify(userPlayerTypeRepository, times(1)).findById(otherUserId);
+    }
+
+    @Test
+    void testGetProfile_evictsLeastRecentlyUsedProfile() {
+        UUID secondUserId = UUID.randomUUID();
+        UUID thirdUserId = UUID.randomUUID();
+        when(userPlayerTypeRepository.findById(any())).thenReturn(Optional.empty());
+        when(userSkillAggregateRepository.findById(any())).thenReturn(Optional.empty());
+
+        userProfileCache.getProfile(userId);
+        userProfileCache.getProfile(secondUserId);
+        userProfileCache.getProfile(userId);
+        userProfileCache.getProfile(thirdUserId);
+        userProfileCache.getProfile(userId);
+        userProfileCache.getProfile(secondUserId);
+
+        assertEquals(2, userProfileCache.size());
+        verify(userPlayerTypeRepository, times(1)).findById(userId);
+        verify(userPlayerTypeRepository, times(2)).findById(secondUserId);
+    }
+}
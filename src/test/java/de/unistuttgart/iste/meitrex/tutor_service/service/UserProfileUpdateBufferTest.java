@@ -0,0 +1,140 @@
+package de.unistuttgart.iste.meitrex.tutor_service.service;
+
+import de.unistuttgart.iste.meitrex.common.event.HexadPlayerType;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserPlayerTypeEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserProfileBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserProfileUpdateBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserProfileUpdateBufferTest {
+
+    @Mock
+    private UserProfileBatchRepository userProfileBatchRepository;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @InjectMocks
+    private UserProfileUpdateBuffer userProfileUpdateBuffer;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+        ReflectionTestUtils.setField(userProfileUpdateBuffer, "maxBatchSize", 3);
+    }
+
+    @Test
+    void testFlush_writesBufferedSkillLevelsInOneBatch() {
+        CompletableFuture<Void> first = userProfileUpdateBuffer.submitSkillLevel(skillLevel(UUID.randomUUID(), 0.1f));
+        CompletableFuture<Void> second = userProfileUpdateBuffer.submitSkillLevel(skillLevel(UUID.randomUUID(), 0.2f));
+        assertFalse(first.isDone());
+
+        userProfileUpdateBuffer.flush();
+
+        verify(userProfileBatchRepository, times(1)).upsertSkillLevels(argThat(batch -> batch.size() == 2));
+        verify(userProfileBatchRepository, never()).upsertPlayerTypes(any());
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isDone() && !second.isCompletedExceptionally());
+    }
+
+    @Test
+    void testFlush_invalidatesProfilesOfBatchOnceBeforeReleasingCallers() {
+        UUID otherUserId = UUID.randomUUID();
+        CompletableFuture<Void> skillLevel = userProfileUpdateBuffer.submitSkillLevel(
+                skillLevel(UUID.randomUUID(), 0.1f));
+        CompletableFuture<Void> playerType = userProfileUpdateBuffer.submitPlayerType(UserPlayerTypeEntity.builder()
+                .userId(otherUserId)
+                .primaryPlayerType(HexadPlayerType.ACHIEVER)
+                .build());
+        doAnswer(invocation -> {
+            assertFalse(skillLevel.isDone());
+            return null;
+        }).when(userProfileCache).invalidate(any());
+
+        userProfileUpdateBuffer.flush();
+
+        verify(userProfileCache, times(1)).invalidate(Set.of(userId, otherUserId));
+        assertTrue(skillLevel.isDone() && !skillLevel.isCompletedExceptionally());
+        assertTrue(playerType.isDone() && !playerType.isCompletedExceptionally());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_lastUpdateOfSameSkillWins() {
+        UUID skillId = UUID.randomUUID();
+        CompletableFuture<Void> older = userProfileUpdateBuffer.submitSkillLevel(skillLevel(skillId, 0.1f));
+        CompletableFuture<Void> newer = userProfileUpdateBuffer.submitSkillLevel(skillLevel(skillId, 0.9f));
+
+        userProfileUpdateBuffer.flush();
+
+        ArgumentCaptor<Collection<UserSkillLevelEntity>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(userProfileBatchRepository).upsertSkillLevels(captor.capture());
+        assertEquals(List.of(0.9f), captor.getValue().stream().map(UserSkillLevelEntity::getSkillLevelValue).toList());
+        assertTrue(older.isDone());
+        assertTrue(newer.isDone());
+    }
+
+    @Test
+    void testSubmitSkillLevel_fullBufferIsWrittenImmediately() {
+        userProfileUpdateBuffer.submitSkillLevel(skillLevel(UUID.randomUUID(), 0.1f));
+        userProfileUpdateBuffer.submitSkillLevel(skillLevel(UUID.randomUUID(), 0.2f));
+        CompletableFuture<Void> third = userProfileUpdateBuffer.submitSkillLevel(skillLevel(UUID.randomUUID(), 0.3f));
+
+        assertTrue(third.isDone());
+        verify(userProfileBatchRepository, times(1)).upsertSkillLevels(argThat(batch -> batch.size() == 3));
+    }
+
+    @Test
+    void testFlush_failedWriteFailsWaitingUpdates() {
+        doThrow(new IllegalStateException("Database unavailable"))
+                .when(userProfileBatchRepository).upsertPlayerTypes(any());
+        CompletableFuture<Void> written = userProfileUpdateBuffer.submitPlayerType(UserPlayerTypeEntity.builder()
+                .userId(userId)
+                .primaryPlayerType(HexadPlayerType.ACHIEVER)
+                .build());
+
+        userProfileUpdateBuffer.flush();
+
+        assertTrue(written.isCompletedExceptionally());
+        verifyNoInteractions(userProfileCache);
+    }
+
+    @Test
+    void testFlush_emptyBufferWritesNothing() {
+        userProfileUpdateBuffer.flush();
+
+        verifyNoInteractions(userProfileBatchRepository);
+        verifyNoInteractions(userProfileCache);
+    }
+
+    private UserSkillLevelEntity skillLevel(UUID skillId, float value) {
+        return UserSkillLevelEntity.builder()
+                .userId(userId)
+                .skillId(skillId)
+                .skillLevelValue(value)
+                .build();
+    }
+}
@@ -2,7 +2,9 @@ package de.unistuttgart.iste.meitrex.tutor_service.service;
 
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.entity.UserSkillLevelEntity;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.mapper.UserSkillLevelMapper;
+import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserProfileBatchRepository;
 import de.unistuttgart.iste.meitrex.tutor_service.persistence.repository.UserSkillLevelRepository;
+import de.unistuttgart.iste.meitrex.tutor_service.service.models.UserProfile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +15,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,6 +33,15 @@ class UserSkillLevelServiceTest {
     @Mock
     private UserSkillLevelMapper userSkillLevelMapper;
 
+    @Mock
+    private UserProfileUpdateBuffer userProfileUpdateBuffer;
+
+    @Mock
+    private UserProfileBatchRepository userProfileBatchRepository;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
     @InjectMocks
     private UserSkillLevelService userSkillLevelService;
 
@@ -43,34 +57,17 @@ class UserSkillLevelServiceTest {
     }
 
     @Test
-    void testSaveUserSkillLevel_CreatesNewEntityWhenNotExists() {
-        UserSkillLevelEntity.UserSkillLevelId id = new UserSkillLevelEntity.UserSkillLevelId(userId, skillId);
+    void testSaveUserSkillLevel_WritesEntityThroughBuffer() {
         UserSkillLevelEntity newEntity = mock(UserSkillLevelEntity.class);
         
-        when(userSkillLevelRepository.findById(id)).thenReturn(Optional.empty());
         when(userSkillLevelMapper.createEntity(userId, skillId, skillLevelValue)).thenReturn(newEntity);
+        when(userProfileUpdateBuffer.submitSkillLevel(newEntity)).thenReturn(CompletableFuture.completedFuture(null));
         
         userSkillLevelService.saveUserSkillLevel(userId, skillId, skillLevelValue);
         
-        verify(userSkillLevelMapper).createEntity(userId, skillId, skillLevelValue);
-        verify(userSkillLevelRepository).save(newEntity);
-        verify(userSkillLevelMapper, never()).updateEntity(any(), any());
-    }
-
-    @Test
-    void testSaveUserSkillLevel_UpdatesExistingEntity() {
-        UserSkillLevelEntity.UserSkillLevelId id = new UserSkillLevelEntity.UserSkillLevelId(userId, skillId);
-        UserSkillLevelEntity existingEntity = mock(UserSkillLevelEntity.class);
-        UserSkillLevelEntity updatedEntity = mock(UserSkillLevelEntity.class);
-        
-        when(userSkillLevelRepository.findById(id)).thenReturn(Optional.of(existingEntity));
-        when(userSkillLevelMapper.updateEntity(existingEntity, skillLevelValue)).thenReturn(updatedEntity);
-        
-        userSkillLevelService.saveUserSkillLevel(userId, skillId, skillLevelValue);
-        
-        verify(userSkillLevelMapper).updateEntity(existingEntity, skillLevelValue);
-        verify(userSkillLevelRepository).save(updatedEntity);
-        verify(userSkillLevelMapper, never()).createEntity(any(), any(), any());
+        verify(userProfileUpdateBuffer).submitSkillLevel(newEntity);
+        verify(userSkillLevelRepository, never()).findById(any());
+        verify(userSkillLevelRepository, never()).save(any());
     }
 
     @Test
@@ -123,27 +120,42 @@ class UserSkillLevelServiceTest {
     }
 
     @Test
-    void testSaveUserSkillLevel_HandlesMultipleSkillsForSameUser() {
-        UUID skill1Id = UUID.randomUUID();
-        UUID skill2Id = UUID.randomUUID();
-        Float value1 = 0.6f;
-        Float value2 = 0.9f;
+    void testGetAverageSkillLevel_ReadsProfile() {
+        when(userProfileCache.getProfile(userId)).thenReturn(new UserProfile(null, null, 0.5));
         
-        UserSkillLevelEntity.UserSkillLevelId id1 = new UserSkillLevelEntity.UserSkillLevelId(userId, skill1Id);
-        UserSkillLevelEntity.UserSkillLevelId id2 = new UserSkillLevelEntity.UserSkillLevelId(userId, skill2Id);
+        assertEquals(OptionalDouble.of(0.5), userSkillLevelService.getAverageSkillLevel(userId));
         
-        UserSkillLevelEntity entity1 = mock(UserSkillLevelEntity.class);
-        UserSkillLevelEntity entity2 = mock(UserSkillLevelEntity.class);
+        verify(userSkillLevelRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void testGetAverageSkillLevel_EmptyWithoutSkillLevels() {
+        when(userProfileCache.getProfile(userId)).thenReturn(new UserProfile(null, null, null));
         
-        when(userSkillLevelRepository.findById(id1)).thenReturn(Optional.empty());
-        when(userSkillLevelRepository.findById(id2)).thenReturn(Optional.empty());
-        when(userSkillLevelMapper.createEntity(userId, skill1Id, value1)).thenReturn(entity1);
-        when(userSkillLevelMapper.createEntity(userId, skill2Id, value2)).thenReturn(entity2);
+        assertTrue(userSkillLevelService.getAverageSkillLevel(userId).isEmpty());
+    }
+
+    @Test
+    void testSaveUserSkillLevel_WritesEntityThroughBuffer() {
+        UserSkillLevelEntity newEntity = mock(UserSkillLevelEntity.class);
+        when(userSkillLevelMapper.createEntity(userId, skillId, skillLevelValue)).thenReturn(newEntity);
+        when(userProfileUpdateBuffer.submitSkillLevel(newEntity)).thenReturn(CompletableFuture.completedFuture(null));
         
-        userSkillLevelService.saveUserSkillLevel(userId, skill1Id, value1);
-        userSkillLevelService.saveUserSkillLevel(userId, skill2Id, value2);
+        userSkillLevelService.saveUserSkillLevel(userId, skillId, skillLevelValue);
+        
+        // the buffer invalidates the profiles of all users of a written batch at once
+        verify(userProfileUpdateBuffer).submitSkillLevel(newEntity);
+        verifyNoInteractions(userProfileCache);
+    }
+
+    @Test
+    void testSaveUserSkillLevel_FailedWriteIsPropagated() {
+        UserSkillLevelEntity newEntity = mock(UserSkillLevelEntity.class);
+        when(userSkillLevelMapper.createEntity(userId, skillId, skillLevelValue)).thenReturn(newEntity);
+        when(userProfileUpdateBuffer.submitSkillLevel(newEntity))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Database unavailable")));
         
-        verify(userSkillLevelRepository).save(entity1);
-        verify(userSkillLevelRepository).save(entity2);
+        assertThrows(CompletionException.class,
+                () -> userSkillLevelService.saveUserSkillLevel(userId, skillId, skillLevelValue));
     }
 }